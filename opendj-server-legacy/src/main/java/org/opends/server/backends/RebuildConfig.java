@@ -43,6 +43,8 @@ public class RebuildConfig
   private String tmpDirectory;
   private boolean isClearDegradedState;
 
+  private boolean isOnline;
+
   /**
    * Get the base DN to rebuild.
    *
@@ -228,4 +230,26 @@ public class RebuildConfig
     this.isClearDegradedState = isClearDegradedState;
   }
 
+  /**
+   * Returns {@code true} if the indexes should be rebuilt while the backend
+   * remains online.
+   *
+   * @return {@code true} if the indexes should be rebuilt online.
+   */
+  public boolean isOnline()
+  {
+    return isOnline;
+  }
+
+  /**
+   * Sets whether the indexes should be rebuilt while the backend remains
+   * online.
+   *
+   * @param isOnline
+   *          {@code true} if the indexes should be rebuilt online.
+   */
+  public void setOnline(boolean isOnline)
+  {
+    this.isOnline = isOnline;
+  }
 }
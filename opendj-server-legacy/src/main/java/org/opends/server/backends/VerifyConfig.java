@@ -33,6 +33,8 @@ public class VerifyConfig
   private ArrayList<String> completeList = new ArrayList<>();
   /** The names of indexes to be verified for cleanliness. */
   private ArrayList<String> cleanList = new ArrayList<>();
+  /** The number of threads verifying the indexes. */
+  private int threadCount = 1;
 
   /**
    * Get the base DN to be verified.
@@ -52,6 +54,24 @@ public class VerifyConfig
     this.baseDN = baseDN;
   }
 
+  /**
+   * Get the number of threads verifying the indexes.
+   * @return The number of threads verifying the indexes.
+   */
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  /**
+   * Set the number of threads verifying the indexes.
+   * @param threadCount The number of threads verifying the indexes, 1 for verifying them from a single thread.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    this.threadCount = threadCount;
+  }
+
   /**
    * Get the names of indexes to be verified for completeness.
    * @return The names of indexes to be verified for completeness.
@@ -91,6 +91,7 @@ import com.sleepycat.je.Durability;
 import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.StatsConfig;
 import com.sleepycat.je.Transaction;
 import com.sleepycat.je.TransactionConfig;
 
@@ -454,6 +455,27 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       }
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName treeName, final List<? extends ByteSequence> sortedKeys)
+    {
+      // A single cursor visits the keys in order, keeping the same nodes latched in cache from one key to the next
+      final List<ByteString> values = new ArrayList<>(sortedKeys.size());
+      try (com.sleepycat.je.Cursor cursor = getOrOpenTree(treeName).openCursor(txn, CursorConfig.READ_COMMITTED))
+      {
+        final DatabaseEntry dbValue = new DatabaseEntry();
+        for (ByteSequence key : sortedKeys)
+        {
+          boolean isDefined = cursor.getSearchKey(db(key), dbValue, READ_COMMITTED) == SUCCESS;
+          values.add(valueToBytes(dbValue, isDefined));
+        }
+      }
+      catch (DatabaseException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+      return values;
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -537,6 +559,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return delegate.readAll(treeName, sortedKeys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -626,6 +654,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return null;
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return readEach(this, treeName, sortedKeys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -882,12 +916,24 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
 
   @Override
   public void write(final WriteOperation operation) throws Exception
+  {
+    write0(operation, null);
+  }
+
+  @Override
+  public void writeNoSync(final WriteOperation operation) throws Exception
+  {
+    write0(operation, Durability.COMMIT_NO_SYNC);
+  }
+
+  /** Executes the write operation, committing it with the provided durability or the environment's if it is null. */
+  private void write0(final WriteOperation operation, final Durability durability) throws Exception
   {
     final Transaction txn = beginTransaction();
     try
     {
       operation.run(newWriteableTransaction(txn));
-      commit(txn);
+      commit(txn, durability);
     }
     catch (final StorageRuntimeException e)
     {
@@ -914,15 +960,38 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     return null;
   }
 
-  private void commit(final Transaction txn)
+  private void commit(final Transaction txn, final Durability durability)
   {
     if (txn != null)
     {
-      txn.commit();
+      if (durability != null)
+      {
+        txn.commit(durability);
+      }
+      else
+      {
+        txn.commit();
+      }
       logger.trace("commit txnid=%d", txn.getId());
     }
   }
 
+  @Override
+  public void sync() throws StorageRuntimeException
+  {
+    if (env != null && envConfig.getTransactional())
+    {
+      try
+      {
+        env.flushLog(true);
+      }
+      catch (DatabaseException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+  }
+
   private void abort(final Transaction txn)
   {
     if (txn != null)
@@ -1318,6 +1387,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     return storageStatus;
   }
 
+  @Override
+  public boolean isCacheFull()
+  {
+    return env != null && env.getStats(new StatsConfig().setFast(true)).getCacheTotalBytes() >= computeSize(config);
+  }
+
   @Override
   public void diskFullThresholdReached(File directory, long thresholdInBytes) {
     storageStatus = statusWhenDiskSpaceFull(directory, thresholdInBytes, config.getBackendId());
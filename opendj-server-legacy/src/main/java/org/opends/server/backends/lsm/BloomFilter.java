@@ -0,0 +1,165 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+
+/**
+ * Bloom filter of the keys of a {@link SortedRun}, telling which keys are certainly absent from it.
+ * <p>
+ * The filter is built from the 64-bit hashes of the keys, from which the bit positions are derived by double hashing.
+ */
+final class BloomFilter
+{
+  private static final BloomFilter EMPTY = new BloomFilter(0, new long[0]);
+
+  private final int nbHashes;
+  private final long[] bits;
+
+  private BloomFilter(int nbHashes, long[] bits)
+  {
+    this.nbHashes = nbHashes;
+    this.bits = bits;
+  }
+
+  /**
+   * Builds a bloom filter.
+   *
+   * @param hashes
+   *          the hashes of the keys, as returned by {@link #hash(ByteSequence)}
+   * @param nbKeys
+   *          the number of hashes to read from the array
+   * @param bitsPerKey
+   *          the number of bits of the filter per key, which determines the false positive rate
+   * @return a new bloom filter, which never filters any key if the number of bits per key is zero
+   */
+  static BloomFilter build(long[] hashes, int nbKeys, int bitsPerKey)
+  {
+    if (bitsPerKey <= 0 || nbKeys == 0)
+    {
+      return EMPTY;
+    }
+    final long nbBits = Math.max(64, (long) nbKeys * bitsPerKey);
+    final BloomFilter filter = new BloomFilter(nbHashes(bitsPerKey), new long[(int) ((nbBits + 63) / 64)]);
+    for (int i = 0; i < nbKeys; i++)
+    {
+      filter.add(hashes[i]);
+    }
+    return filter;
+  }
+
+  /** The optimal number of hashes is ln(2) times the number of bits per key. */
+  private static int nbHashes(int bitsPerKey)
+  {
+    return Math.max(1, Math.min(30, (int) Math.round(bitsPerKey * 0.69)));
+  }
+
+  /**
+   * Returns the hash of a key, mixing all its bytes with the 64-bit finalizer of MurmurHash3.
+   *
+   * @param key
+   *          the key
+   * @return the hash of the key
+   */
+  static long hash(ByteSequence key)
+  {
+    long h = 0x9E3779B97F4A7C15L ^ key.length();
+    for (int i = 0; i < key.length(); i++)
+    {
+      h = (h ^ (key.byteAt(i) & 0xFF)) * 0x100000001B3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private void add(long hash)
+  {
+    final long nbBits = bits.length * 64L;
+    final int h1 = (int) hash;
+    final int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < nbHashes; i++)
+    {
+      final long bit = ((h1 + i * (long) h2) & Long.MAX_VALUE) % nbBits;
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Returns whether the key having the provided hash may have been added to this filter.
+   *
+   * @param hash
+   *          the hash of the key, as returned by {@link #hash(ByteSequence)}
+   * @return {@code false} if the key has certainly not been added to this filter
+   */
+  boolean mightContain(long hash)
+  {
+    if (bits.length == 0)
+    {
+      return true;
+    }
+    final long nbBits = bits.length * 64L;
+    final int h1 = (int) hash;
+    final int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < nbHashes; i++)
+    {
+      final long bit = ((h1 + i * (long) h2) & Long.MAX_VALUE) % nbBits;
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void writeTo(DataOutput output) throws IOException
+  {
+    output.writeInt(nbHashes);
+    output.writeInt(bits.length);
+    for (long word : bits)
+    {
+      output.writeLong(word);
+    }
+  }
+
+  static BloomFilter readFrom(DataInput input) throws IOException
+  {
+    final int nbHashes = input.readInt();
+    final long[] bits = new long[input.readInt()];
+    for (int i = 0; i < bits.length; i++)
+    {
+      bits[i] = input.readLong();
+    }
+    return bits.length == 0 ? EMPTY : new BloomFilter(nbHashes, bits);
+  }
+
+  /**
+   * Returns the size of this filter in memory.
+   *
+   * @return the size of this filter in bytes
+   */
+  long getSize()
+  {
+    return bits.length * 8L;
+  }
+}
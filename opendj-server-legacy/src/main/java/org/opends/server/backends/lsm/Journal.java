@@ -0,0 +1,218 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.forgerock.opendj.ldap.ByteString;
+
+/**
+ * Append-only log of the commits applied to a {@link MemTable}, replayed when the storage is opened after the server
+ * stopped before the memtable was written to a {@link SortedRun}.
+ * <p>
+ * Each commit is written as its length, its CRC-32 checksum and its records, so that a commit partially written when
+ * the server stopped is detected and ignored, along with the following ones.
+ */
+final class Journal implements Closeable
+{
+  /** Length of the value written for deleted records. */
+  private static final int DELETED_LENGTH = -1;
+
+  /** Receives the commits read from a journal file. */
+  interface Visitor
+  {
+    /**
+     * Receives a record of a commit.
+     *
+     * @param key
+     *          the key of the record
+     * @param value
+     *          the value of the record, or {@link RecordIterator#DELETED} if it has been deleted
+     */
+    void record(ByteString key, ByteString value);
+
+    /** Indicates the end of the records of a commit. */
+    void endOfCommit();
+  }
+
+  private final File file;
+  private final FileChannel channel;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+  /**
+   * Opens a journal file for appending commits, creating it if needed.
+   *
+   * @param file
+   *          the journal file
+   * @param validLength
+   *          the length of the valid commits of the journal file, the rest of the file is discarded
+   * @throws IOException
+   *           if the file cannot be opened
+   */
+  Journal(File file, long validLength) throws IOException
+  {
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    channel.truncate(validLength);
+    channel.position(validLength);
+  }
+
+  File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Appends a commit, without forcing it to disk.
+   *
+   * @param records
+   *          the records of the commit, the deleted records having the value {@link RecordIterator#DELETED}
+   * @throws IOException
+   *           if an I/O error occurs
+   */
+  void append(Iterable<Map.Entry<ByteString, ByteString>> records) throws IOException
+  {
+    buffer.reset();
+    final DataOutputStream output = new DataOutputStream(buffer);
+    output.writeLong(0); // placeholder for the length and the checksum
+    for (Map.Entry<ByteString, ByteString> record : records)
+    {
+      final ByteString key = record.getKey();
+      final ByteString value = record.getValue();
+      output.writeInt(key.length());
+      key.copyTo(output);
+      if (value == RecordIterator.DELETED)
+      {
+        output.writeInt(DELETED_LENGTH);
+      }
+      else
+      {
+        output.writeInt(value.length());
+        value.copyTo(output);
+      }
+    }
+    final byte[] bytes = buffer.toByteArray();
+    final int length = bytes.length - 8;
+    final CRC32 crc = new CRC32();
+    crc.update(bytes, 8, length);
+    final ByteBuffer commit = ByteBuffer.wrap(bytes);
+    commit.putInt(0, length);
+    commit.putInt(4, (int) crc.getValue());
+    while (commit.hasRemaining())
+    {
+      channel.write(commit);
+    }
+  }
+
+  /**
+   * Forces the appended commits to disk.
+   *
+   * @throws IOException
+   *           if an I/O error occurs
+   */
+  void sync() throws IOException
+  {
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    channel.close();
+  }
+
+  /**
+   * Reads the commits of a journal file.
+   *
+   * @param file
+   *          the journal file
+   * @param visitor
+   *          receives the records of each valid commit
+   * @return the length of the valid commits at the beginning of the file, which is lower than the file length if the
+   *         last commit has not been completely written
+   * @throws IOException
+   *           if an I/O error occurs
+   */
+  static long replay(File file, Visitor visitor) throws IOException
+  {
+    long validLength = 0;
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      final long fileLength = channel.size();
+      final ByteBuffer header = ByteBuffer.allocate(8);
+      while (validLength + 8 <= fileLength)
+      {
+        header.clear();
+        readFully(channel, header, validLength);
+        final int length = header.getInt(0);
+        final int checksum = header.getInt(4);
+        if (length < 0 || validLength + 8 + length > fileLength)
+        {
+          break;
+        }
+        final ByteBuffer commit = ByteBuffer.allocate(length);
+        readFully(channel, commit, validLength + 8);
+        final CRC32 crc = new CRC32();
+        crc.update(commit.array(), 0, length);
+        if ((int) crc.getValue() != checksum)
+        {
+          break;
+        }
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(commit.array()));
+        for (int remaining = length; remaining > 0;)
+        {
+          final ByteString key = readBytes(input, input.readInt());
+          final int valueLength = input.readInt();
+          visitor.record(key, valueLength == DELETED_LENGTH ? RecordIterator.DELETED : readBytes(input, valueLength));
+          remaining -= 8 + key.length() + Math.max(valueLength, 0);
+        }
+        visitor.endOfCommit();
+        validLength += 8 + length;
+      }
+    }
+    return validLength;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+  {
+    while (buffer.hasRemaining())
+    {
+      if (channel.read(buffer, position + buffer.position()) < 0)
+      {
+        throw new EOFException();
+      }
+    }
+  }
+
+  private static ByteString readBytes(DataInputStream input, int length) throws IOException
+  {
+    final byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return ByteString.wrap(bytes);
+  }
+}
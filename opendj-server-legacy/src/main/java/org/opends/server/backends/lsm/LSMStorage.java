@@ -0,0 +1,2009 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import static java.nio.file.StandardCopyOption.*;
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.messages.UtilityMessages.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.server.config.server.LSMBackendCfg;
+import org.forgerock.util.Reject;
+import org.opends.server.api.Backupable;
+import org.opends.server.api.DiskSpaceMonitorHandler;
+import org.opends.server.api.MonitorData;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+import org.opends.server.util.BackupManager;
+
+/**
+ * Log-structured merge tree implementation of the {@link Storage} engine, optimized for write-heavy workloads.
+ * <p>
+ * Write operations buffer their changes, then commit them at once: the changes are appended to a journal and added to
+ * an in-memory {@link MemTable}. Full memtables are written in the background to immutable {@link SortedRun} files,
+ * which are merged when there are too many of them. Records are never updated in place: deleting a record adds a
+ * deletion marker, which is dropped when merging the oldest sorted run.
+ * <p>
+ * The records of all the trees are stored together, their keys being prefixed by the identifier of their tree. The
+ * identifiers of the trees are themselves records of the tree whose identifier is zero. Creating and deleting trees
+ * take effect immediately, even if the write operation doing it fails afterwards, and the records of deleted trees are
+ * dropped by the next merges.
+ * <p>
+ * Read operations see the commits made before they started. Write operations lock the records they update, and read
+ * the last committed records. {@link UpdateFunction}s are applied when {@link WriteableTransaction#update} is called,
+ * because their result must be returned and their side effects are expected by the callers: the old value is read
+ * from the memtables first, then from the sorted runs whose bloom filter may contain the key.
+ */
+public final class LSMStorage implements Storage, Backupable, ConfigurationChangeListener<LSMBackendCfg>,
+  DiskSpaceMonitorHandler
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private static final double MAX_SLEEP_ON_RETRY_MS = 50.0;
+  /** How long a write operation waits for the lock of a record while it holds the locks of other records. */
+  private static final long LOCK_TIMEOUT_MS = 100;
+  private static final int NB_KEY_LOCKS = 1024;
+  /** Commits wait while this number of memtables, including the active one, are waiting to be written. */
+  private static final int MAX_MEMTABLES = 3;
+  /** A sorted run is merged with the more recent ones if it is not larger than all of them together. */
+  private static final double COMPACTION_SIZE_RATIO = 1.0;
+  private static final long OBSOLETE_FILES_CLEANUP_INTERVAL_MS = 1000;
+  private static final int MANIFEST_MAGIC = 0x4C534D4D;
+  private static final int MANIFEST_FORMAT_VERSION = 1;
+
+  private static final String RUN_SUFFIX = ".run";
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String MANIFEST_SUFFIX = ".manifest";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int TREE_ID_LENGTH = 8;
+  /** The identifier of the tree holding the identifiers of the other trees. */
+  private static final long TREES_TREE_ID = 0;
+  /** The key of the record holding the next tree identifier, in the tree of the tree identifiers. */
+  private static final ByteString NEXT_TREE_ID_KEY = internalKey(TREES_TREE_ID, ByteString.empty());
+
+  /**
+   * The memtables and sorted runs of the storage at a given time, both ordered from the most recent to the oldest.
+   * The first memtable receives the commits, the other ones are being written to sorted runs.
+   */
+  private static final class View
+  {
+    private final long number;
+    private final List<MemTable> memTables;
+    private final List<SortedRun> runs;
+
+    private View(long number, List<MemTable> memTables, List<SortedRun> runs)
+    {
+      this.number = number;
+      this.memTables = Collections.unmodifiableList(memTables);
+      this.runs = Collections.unmodifiableList(runs);
+    }
+  }
+
+  /** A sorted run replaced by a merge, to be deleted once no operation reads a view containing it. */
+  private static final class ObsoleteRun
+  {
+    private final long replacedInView;
+    private final SortedRun run;
+
+    private ObsoleteRun(long replacedInView, SortedRun run)
+    {
+      this.replacedInView = replacedInView;
+      this.run = run;
+    }
+  }
+
+  /** Thrown when a write operation must be retried because it could not lock a record. */
+  @SuppressWarnings("serial")
+  private static final class LockConflictException extends StorageRuntimeException
+  {
+    private LockConflictException()
+    {
+      super("Conflicting write operations");
+    }
+  }
+
+  /** Merges record iterators, the records of the first iterators hiding the records of the next ones. */
+  private static final class MergingIterator implements RecordIterator
+  {
+    private final List<RecordIterator> sources;
+    private ByteString key;
+    private ByteString value;
+
+    private MergingIterator(List<RecordIterator> sources)
+    {
+      this.sources = sources;
+    }
+
+    @Override
+    public void seek(ByteString key)
+    {
+      for (RecordIterator source : sources)
+      {
+        source.seek(key);
+      }
+      findCurrent();
+    }
+
+    @Override
+    public boolean isValid()
+    {
+      return key != null;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return key;
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      return value;
+    }
+
+    @Override
+    public void next()
+    {
+      for (RecordIterator source : sources)
+      {
+        if (source.isValid() && source.getKey().equals(key))
+        {
+          source.next();
+        }
+      }
+      findCurrent();
+    }
+
+    private void findCurrent()
+    {
+      key = null;
+      value = null;
+      for (RecordIterator source : sources)
+      {
+        if (source.isValid() && (key == null || source.getKey().compareTo(key) < 0))
+        {
+          key = source.getKey();
+          value = source.getValue();
+        }
+      }
+    }
+  }
+
+  /**
+   * Implementation of the {@link WriteableTransaction} interface. Read operations read the view and the commits of
+   * their snapshot, write operations read the last committed records overlaid with their own changes.
+   */
+  private final class TransactionImpl implements WriteableTransaction, Closeable
+  {
+    private final boolean writeable;
+    private final View snapshotView;
+    private final long snapshotSeq;
+    /** The new values of the updated records, {@link RecordIterator#DELETED} for the deleted records. */
+    private final TreeMap<ByteString, ByteString> writes = new TreeMap<>();
+    private final Set<Integer> lockedKeys = new HashSet<>();
+    private boolean conflict;
+
+    private TransactionImpl(boolean writeable)
+    {
+      this.writeable = writeable;
+      synchronized (snapshotsLock)
+      {
+        snapshotView = currentView;
+        snapshotSeq = lastSeq;
+        final Integer count = activeViews.get(snapshotView.number);
+        activeViews.put(snapshotView.number, count != null ? count + 1 : 1);
+      }
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      final Long treeId = treeIds.get(treeName);
+      return treeId != null ? get(internalKey(treeId, key)) : null;
+    }
+
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return readEach(this, treeName, sortedKeys);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new CursorImpl(this, treeName, false);
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      long count = 0;
+      try (final Cursor<ByteString, ByteString> cursor = openCursor(treeName))
+      {
+        while (cursor.next())
+        {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        checkWriteable();
+        createTree(treeName);
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      checkWriteable();
+      final Long treeId = treeIds.get(treeName);
+      if (treeId != null)
+      {
+        writes.subMap(internalKey(treeId, ByteString.empty()), internalKey(treeId + 1, ByteString.empty())).clear();
+      }
+      LSMStorage.this.deleteTree(treeName);
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      checkWriteable();
+      final ByteString internalKey = lockKey(treeName, key);
+      writes.put(internalKey, value.toByteString());
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      checkWriteable();
+      final ByteString internalKey = lockKey(treeName, key);
+      final ByteString oldValue = get(internalKey);
+      final ByteSequence newValue = f.computeNewValue(oldValue);
+      if (!Objects.equals(newValue, oldValue))
+      {
+        writes.put(internalKey, newValue != null ? newValue.toByteString() : RecordIterator.DELETED);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      checkWriteable();
+      final ByteString internalKey = lockKey(treeName, key);
+      if (get(internalKey) != null)
+      {
+        writes.put(internalKey, RecordIterator.DELETED);
+        return true;
+      }
+      return false;
+    }
+
+    private void checkWriteable()
+    {
+      if (!writeable)
+      {
+        throw new ReadOnlyStorageException();
+      }
+    }
+
+    /**
+     * Only waits for the first lock: a write operation already holding locks waits for a limited time, then it is
+     * retried so that operations locking records in a different order cannot deadlock.
+     */
+    private ByteString lockKey(TreeName treeName, ByteSequence key)
+    {
+      final ByteString internalKey = internalKey(getExistingTreeId(treeName), key);
+      final int lockIndex = (internalKey.hashCode() & Integer.MAX_VALUE) % NB_KEY_LOCKS;
+      if (lockedKeys.contains(lockIndex))
+      {
+        return internalKey;
+      }
+      final ReentrantLock lock = keyLocks[lockIndex];
+      if (lockedKeys.isEmpty())
+      {
+        lock.lock();
+      }
+      else
+      {
+        try
+        {
+          if (!lock.tryLock(LOCK_TIMEOUT_MS, MILLISECONDS))
+          {
+            conflict = true;
+            throw new LockConflictException();
+          }
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new StorageRuntimeException(e);
+        }
+      }
+      lockedKeys.add(lockIndex);
+      return internalKey;
+    }
+
+    /** Returns the value of a record, or {@code null} if it does not exist. */
+    private ByteString get(ByteString internalKey)
+    {
+      ByteString value = writes.get(internalKey);
+      if (value == null)
+      {
+        value = writeable ? getCommitted(currentView, Long.MAX_VALUE, internalKey)
+                          : getCommitted(snapshotView, snapshotSeq, internalKey);
+      }
+      return value != RecordIterator.DELETED ? value : null;
+    }
+
+    /** Returns an iterator over the records visible by this transaction. */
+    private MergingIterator newIterator()
+    {
+      final View view = writeable ? currentView : snapshotView;
+      final long seq = writeable ? Long.MAX_VALUE : snapshotSeq;
+      final List<RecordIterator> sources = new ArrayList<>();
+      if (!writes.isEmpty())
+      {
+        sources.add(writesIterator());
+      }
+      for (MemTable memTable : view.memTables)
+      {
+        sources.add(memTable.iterator(seq));
+      }
+      for (SortedRun run : view.runs)
+      {
+        sources.add(run.iterator());
+      }
+      return new MergingIterator(sources);
+    }
+
+    /** Iterates over the changes of this transaction, which may be updated while iterating. */
+    private RecordIterator writesIterator()
+    {
+      return new RecordIterator()
+      {
+        private Map.Entry<ByteString, ByteString> current;
+
+        @Override
+        public void seek(ByteString key)
+        {
+          current = writes.ceilingEntry(key);
+        }
+
+        @Override
+        public boolean isValid()
+        {
+          return current != null;
+        }
+
+        @Override
+        public ByteString getKey()
+        {
+          return current.getKey();
+        }
+
+        @Override
+        public ByteString getValue()
+        {
+          return current.getValue();
+        }
+
+        @Override
+        public void next()
+        {
+          current = writes.higherEntry(current.getKey());
+        }
+      };
+    }
+
+    /** Returns the greatest key lower than the provided key, including the deleted records. */
+    private ByteString lowerKey(ByteString internalKey)
+    {
+      final View view = writeable ? currentView : snapshotView;
+      final long seq = writeable ? Long.MAX_VALUE : snapshotSeq;
+      ByteString lowerKey = writes.lowerKey(internalKey);
+      for (MemTable memTable : view.memTables)
+      {
+        lowerKey = max(lowerKey, memTable.lowerKey(internalKey, seq));
+      }
+      try
+      {
+        for (SortedRun run : view.runs)
+        {
+          lowerKey = max(lowerKey, run.lowerKey(internalKey));
+        }
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+      return lowerKey;
+    }
+
+    private void commit(boolean isSynced)
+    {
+      if (!writes.isEmpty())
+      {
+        LSMStorage.this.commit(writes, true, isSynced);
+      }
+    }
+
+    @Override
+    public void close()
+    {
+      for (int lockIndex : lockedKeys)
+      {
+        keyLocks[lockIndex].unlock();
+      }
+      lockedKeys.clear();
+      writes.clear();
+      synchronized (snapshotsLock)
+      {
+        final int count = activeViews.get(snapshotView.number);
+        if (count == 1)
+        {
+          activeViews.remove(snapshotView.number);
+        }
+        else
+        {
+          activeViews.put(snapshotView.number, count - 1);
+        }
+      }
+    }
+  }
+
+  /** Implementation of the {@link Cursor} interface, merging the records visible by a transaction. */
+  private final class CursorImpl implements Cursor<ByteString, ByteString>
+  {
+    private final TransactionImpl txn;
+    private final TreeName treeName;
+    /** Whether the transaction has been opened for this cursor only. */
+    private final boolean ownsTransaction;
+    /** The identifier of the tree, or {@code null} if the tree does not exist. */
+    private final Long treeId;
+    private final ByteString lowerBound;
+    private final ByteString upperBound;
+    private MergingIterator iterator;
+    private ByteString currentKey;
+    private ByteString currentValue;
+    /** Whether the iterator is positioned after the key sought by a failed {@link #positionToKey}. */
+    private boolean isAfterFailedSeek;
+
+    private CursorImpl(TransactionImpl txn, TreeName treeName, boolean ownsTransaction)
+    {
+      this.txn = txn;
+      this.treeName = treeName;
+      this.ownsTransaction = ownsTransaction;
+      this.treeId = treeIds.get(treeName);
+      this.lowerBound = treeId != null ? internalKey(treeId, ByteString.empty()) : null;
+      this.upperBound = treeId != null ? internalKey(treeId + 1, ByteString.empty()) : null;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (treeId == null)
+      {
+        return false;
+      }
+      if (iterator == null)
+      {
+        return seek(lowerBound);
+      }
+      if (isAfterFailedSeek)
+      {
+        isAfterFailedSeek = false;
+        return skipDeletedRecords();
+      }
+      if (currentKey == null)
+      {
+        return false;
+      }
+      iterator.next();
+      return skipDeletedRecords();
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return currentKey != null;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      throwIfUndefined();
+      return currentKey;
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      throwIfUndefined();
+      return currentValue;
+    }
+
+    @Override
+    public void delete()
+    {
+      throwIfUndefined();
+      txn.delete(treeName, currentKey);
+    }
+
+    @Override
+    public boolean positionToKey(ByteSequence key)
+    {
+      if (treeId == null)
+      {
+        return false;
+      }
+      final ByteString internalKey = internalKey(treeId, key);
+      seek(internalKey);
+      if (currentKey != null && iterator.getKey().equals(internalKey))
+      {
+        return true;
+      }
+      isAfterFailedSeek = true;
+      currentKey = null;
+      currentValue = null;
+      return false;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(ByteSequence key)
+    {
+      return treeId != null && seek(internalKey(treeId, key));
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      if (treeId == null)
+      {
+        return false;
+      }
+      for (ByteString key = txn.lowerKey(upperBound); key != null && key.compareTo(lowerBound) >= 0;
+           key = txn.lowerKey(key))
+      {
+        if (txn.get(key) != null)
+        {
+          return seek(key);
+        }
+      }
+      return seek(upperBound);
+    }
+
+    @Override
+    public boolean positionToIndex(int index)
+    {
+      if (!positionToKeyOrNext(ByteString.empty()))
+      {
+        return false;
+      }
+      for (int i = 0; i < index; i++)
+      {
+        if (!next())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+      if (ownsTransaction)
+      {
+        txn.close();
+      }
+    }
+
+    private boolean seek(ByteString internalKey)
+    {
+      if (iterator == null)
+      {
+        iterator = txn.newIterator();
+      }
+      isAfterFailedSeek = false;
+      iterator.seek(internalKey);
+      return skipDeletedRecords();
+    }
+
+    private boolean skipDeletedRecords()
+    {
+      while (iterator.isValid() && iterator.getValue() == RecordIterator.DELETED
+          && iterator.getKey().compareTo(upperBound) < 0)
+      {
+        iterator.next();
+      }
+      if (iterator.isValid() && iterator.getKey().compareTo(upperBound) < 0)
+      {
+        currentKey = iterator.getKey().subSequence(TREE_ID_LENGTH, iterator.getKey().length());
+        currentValue = iterator.getValue();
+        return true;
+      }
+      currentKey = null;
+      currentValue = null;
+      return false;
+    }
+
+    private void throwIfUndefined()
+    {
+      if (!isDefined())
+      {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  /** Implementation of the {@link Importer} interface, committing each record on its own without journal. */
+  private final class ImporterImpl implements Importer
+  {
+    @Override
+    public void close()
+    {
+      LSMStorage.this.close();
+    }
+
+    @Override
+    public void clearTree(TreeName treeName)
+    {
+      deleteTree(treeName);
+      createTree(treeName);
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      final TreeMap<ByteString, ByteString> records = new TreeMap<>();
+      records.put(internalKey(getExistingTreeId(treeName), key), value.toByteString());
+      commit(records, false, false);
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      try (final TransactionImpl txn = new TransactionImpl(false))
+      {
+        return txn.read(treeName, key);
+      }
+    }
+
+    @Override
+    public SequentialCursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new CursorImpl(new TransactionImpl(false), treeName, true);
+    }
+  }
+
+  private final ServerContext serverContext;
+  private final File backendDirectory;
+  private LSMBackendCfg config;
+  /** It is NULL when the storage is closed. */
+  private AccessMode accessMode;
+  private volatile StorageStatus storageStatus = StorageStatus.working();
+  /** The error which occurred in the background, after which updates are rejected. */
+  private volatile LocalizableMessage failure;
+  private DiskSpaceMonitor diskMonitor;
+  private LSMMonitor monitor;
+  private ScheduledExecutorService backgroundExecutor;
+
+  /** Serializes the commits, guards the journal. */
+  private final Object commitLock = new Object();
+  /** Serializes the changes of the view. */
+  private final Object viewLock = new Object();
+  /** Guards the current view, the last sequence number and the active views. */
+  private final Object snapshotsLock = new Object();
+  private View currentView;
+  private long lastSeq;
+  /** The number of operations reading each view. */
+  private final TreeMap<Long, Integer> activeViews = new TreeMap<>();
+  private final Queue<ObsoleteRun> obsoleteRuns = new ConcurrentLinkedQueue<>();
+  private final Queue<File> obsoleteFiles = new ConcurrentLinkedQueue<>();
+  /** Obsolete files are kept while a backup is in progress. */
+  private final AtomicInteger nbBackupsInProgress = new AtomicInteger();
+  private Journal journal;
+  private File currentManifest;
+  private final AtomicLong nextFileNumber = new AtomicLong();
+
+  private final ConcurrentMap<TreeName, Long> treeIds = new ConcurrentHashMap<>();
+  /** The identifiers of the existing trees, the records of the other trees are dropped when writing sorted runs. */
+  private final Set<Long> liveTreeIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+  /** Serializes the creation and deletion of trees. */
+  private final Object treesLock = new Object();
+  private long nextTreeId;
+  private final ReentrantLock[] keyLocks = new ReentrantLock[NB_KEY_LOCKS];
+
+  private final AtomicLong nbFlushes = new AtomicLong();
+  private final AtomicLong nbCompactions = new AtomicLong();
+  private final AtomicLong nbCompactedBytes = new AtomicLong();
+  private final AtomicLong nbStalledCommits = new AtomicLong();
+
+  /**
+   * Creates a new LSM storage with the provided configuration.
+   *
+   * @param cfg
+   *          The configuration.
+   * @param serverContext
+   *          This server instance context
+   */
+  public LSMStorage(LSMBackendCfg cfg, ServerContext serverContext)
+  {
+    this.serverContext = serverContext;
+    this.backendDirectory = getBackendDirectory(cfg);
+    this.config = cfg;
+    for (int i = 0; i < keyLocks.length; i++)
+    {
+      keyLocks[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    open0(AccessMode.READ_WRITE);
+    return new ImporterImpl();
+  }
+
+  @Override
+  public void open(AccessMode accessMode) throws ConfigException, StorageRuntimeException
+  {
+    Reject.ifNull(accessMode, "accessMode must not be null");
+    open0(accessMode);
+  }
+
+  private synchronized void open0(AccessMode accessMode) throws ConfigException
+  {
+    if (this.accessMode != null)
+    {
+      throw new IllegalStateException(
+          "Database is already open, either the backend is enabled or an import is currently running.");
+    }
+    if (accessMode.isWriteable())
+    {
+      setupStorageFiles(backendDirectory, config.getDBDirectoryPermissions(), config.dn());
+    }
+    failure = null;
+    storageStatus = StorageStatus.working();
+    try
+    {
+      load(accessMode);
+    }
+    catch (IOException e)
+    {
+      closeFiles();
+      throw new StorageRuntimeException(e.getMessage(), e);
+    }
+    this.accessMode = accessMode;
+
+    backgroundExecutor = Executors.newSingleThreadScheduledExecutor(
+        newThreadFactory(null, "LSM background " + config.getBackendId(), true));
+    backgroundExecutor.scheduleWithFixedDelay(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        deleteObsoleteFiles();
+      }
+    }, OBSOLETE_FILES_CLEANUP_INTERVAL_MS, OBSOLETE_FILES_CLEANUP_INTERVAL_MS, MILLISECONDS);
+
+    monitor = new LSMMonitor(config.getBackendId() + " LSM Database", this);
+    DirectoryServer.registerMonitorProvider(monitor);
+    config.addLSMChangeListener(this);
+    diskMonitor = serverContext.getDiskSpaceMonitor();
+    if (diskMonitor != null && backendDirectory.exists())
+    {
+      registerMonitoredDirectory(config);
+    }
+  }
+
+  /**
+   * Opens the sorted runs listed by the last manifest, then replays the journals. When writeable, the replayed
+   * records are immediately written to a sorted run, so that the journals can be deleted.
+   */
+  private void load(AccessMode accessMode) throws IOException
+  {
+    final TreeMap<Long, File> manifests = new TreeMap<>();
+    final TreeMap<Long, File> journals = new TreeMap<>();
+    final Set<File> runFiles = new HashSet<>();
+    long maxFileNumber = 0;
+    final File[] files = backendDirectory.listFiles();
+    for (File file : files != null ? files : new File[0])
+    {
+      final long fileNumber = getFileNumber(file);
+      maxFileNumber = Math.max(maxFileNumber, fileNumber);
+      if (file.getName().endsWith(MANIFEST_SUFFIX))
+      {
+        manifests.put(fileNumber, file);
+      }
+      else if (file.getName().endsWith(JOURNAL_SUFFIX))
+      {
+        journals.put(fileNumber, file);
+      }
+      else if (file.getName().endsWith(RUN_SUFFIX) || file.getName().endsWith(TMP_SUFFIX))
+      {
+        runFiles.add(file);
+      }
+    }
+    nextFileNumber.set(maxFileNumber + 1);
+
+    final List<SortedRun> runs = new ArrayList<>();
+    currentManifest = manifests.isEmpty() ? null : manifests.lastEntry().getValue();
+    if (currentManifest != null)
+    {
+      for (long runNumber : readManifest(currentManifest))
+      {
+        final SortedRun run = new SortedRun(runNumber, getFile(runNumber, RUN_SUFFIX), config.getBackendId());
+        runs.add(run);
+        runFiles.remove(run.getFile());
+      }
+    }
+    if (accessMode.isWriteable())
+    {
+      // Left by a flush or a merge interrupted by a server stop
+      for (File file : runFiles)
+      {
+        Files.deleteIfExists(file.toPath());
+      }
+      if (currentManifest != null)
+      {
+        for (File manifest : manifests.headMap(manifests.lastKey(), false).values())
+        {
+          Files.deleteIfExists(manifest.toPath());
+        }
+      }
+    }
+
+    final MemTable replayed = new MemTable(0);
+    for (File journalFile : journals.values())
+    {
+      replay(journalFile, replayed);
+    }
+    final long activeJournalNumber = nextFileNumber.getAndIncrement();
+    final MemTable active = new MemTable(activeJournalNumber);
+    final List<MemTable> memTables = new ArrayList<>();
+    memTables.add(active);
+    if (!replayed.isEmpty())
+    {
+      memTables.add(replayed);
+    }
+    synchronized (snapshotsLock)
+    {
+      currentView = new View(1, memTables, runs);
+      lastSeq = 1;
+    }
+    loadTreeIds();
+
+    if (accessMode.isWriteable())
+    {
+      if (!replayed.isEmpty())
+      {
+        flush(replayed);
+      }
+      for (File journalFile : journals.values())
+      {
+        Files.deleteIfExists(journalFile.toPath());
+      }
+      journal = new Journal(getFile(activeJournalNumber, JOURNAL_SUFFIX), 0);
+    }
+  }
+
+  private void replay(File journalFile, final MemTable memTable) throws IOException
+  {
+    final AtomicLong nbRecords = new AtomicLong();
+    final long validLength = Journal.replay(journalFile, new Journal.Visitor()
+    {
+      @Override
+      public void record(ByteString key, ByteString value)
+      {
+        memTable.put(key, value, 1);
+        nbRecords.incrementAndGet();
+      }
+
+      @Override
+      public void endOfCommit()
+      {
+        // all the records have the same sequence number
+      }
+    });
+    if (validLength < journalFile.length())
+    {
+      logger.warn(WARN_LSM_BACKEND_JOURNAL_TRUNCATED, journalFile, config.getBackendId());
+    }
+    if (nbRecords.get() > 0)
+    {
+      logger.info(NOTE_LSM_BACKEND_JOURNAL_REPLAYED, config.getBackendId(), nbRecords.get(), journalFile);
+    }
+  }
+
+  /** Reads the identifiers of the trees from the tree of the tree identifiers. */
+  private void loadTreeIds()
+  {
+    treeIds.clear();
+    liveTreeIds.clear();
+    nextTreeId = TREES_TREE_ID + 1;
+    try (final TransactionImpl txn = new TransactionImpl(false))
+    {
+      final MergingIterator iterator = txn.newIterator();
+      final ByteString upperBound = internalKey(TREES_TREE_ID + 1, ByteString.empty());
+      for (iterator.seek(NEXT_TREE_ID_KEY); iterator.isValid() && iterator.getKey().compareTo(upperBound) < 0;
+           iterator.next())
+      {
+        if (iterator.getValue() == RecordIterator.DELETED)
+        {
+          continue;
+        }
+        final long treeId = iterator.getValue().toLong();
+        if (iterator.getKey().equals(NEXT_TREE_ID_KEY))
+        {
+          nextTreeId = Math.max(nextTreeId, treeId);
+        }
+        else
+        {
+          final String treeName = iterator.getKey().subSequence(TREE_ID_LENGTH, iterator.getKey().length()).toString();
+          treeIds.put(TreeName.valueOf(treeName), treeId);
+          liveTreeIds.add(treeId);
+          nextTreeId = Math.max(nextTreeId, treeId + 1);
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    if (accessMode == null)
+    {
+      return;
+    }
+    config.removeLSMChangeListener(this);
+    DirectoryServer.deregisterMonitorProvider(monitor);
+    monitor = null;
+    if (diskMonitor != null)
+    {
+      diskMonitor.deregisterMonitoredDirectory(getDirectory(), this);
+    }
+    backgroundExecutor.shutdown();
+    try
+    {
+      backgroundExecutor.awaitTermination(Long.MAX_VALUE, MILLISECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    backgroundExecutor = null;
+
+    if (accessMode.isWriteable() && failure == null)
+    {
+      try
+      {
+        // Write all the memtables, so that the journals need not be replayed on next open
+        synchronized (commitLock)
+        {
+          final List<MemTable> memTables = currentView.memTables;
+          for (int i = memTables.size() - 1; i >= 0; i--)
+          {
+            if (!memTables.get(i).isEmpty())
+            {
+              flush(memTables.get(i));
+            }
+          }
+          journal.close();
+          journal = null;
+          for (MemTable memTable : memTables)
+          {
+            Files.deleteIfExists(getFile(memTable.getJournalNumber(), JOURNAL_SUFFIX).toPath());
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        logger.error(ERR_LSM_BACKEND_BACKGROUND_TASK_FAILED, config.getBackendId(), stackTraceToSingleLineString(e));
+      }
+    }
+    nbBackupsInProgress.set(0);
+    synchronized (snapshotsLock)
+    {
+      activeViews.clear();
+    }
+    deleteObsoleteFiles();
+    closeFiles();
+    accessMode = null;
+  }
+
+  private void closeFiles()
+  {
+    closeSilently(journal);
+    journal = null;
+    final View view = currentView;
+    if (view != null)
+    {
+      closeSilently(view.runs);
+    }
+    for (ObsoleteRun obsoleteRun : obsoleteRuns)
+    {
+      closeSilently(obsoleteRun.run);
+    }
+    obsoleteRuns.clear();
+    obsoleteFiles.clear();
+    synchronized (snapshotsLock)
+    {
+      currentView = null;
+    }
+    treeIds.clear();
+    liveTreeIds.clear();
+  }
+
+  @Override
+  public <T> T read(ReadOperation<T> readOperation) throws Exception
+  {
+    try (final TransactionImpl txn = new TransactionImpl(false))
+    {
+      return readOperation.run(txn);
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+  }
+
+  @Override
+  public void write(WriteOperation writeOperation) throws Exception
+  {
+    write0(writeOperation, true);
+  }
+
+  @Override
+  public void writeNoSync(WriteOperation writeOperation) throws Exception
+  {
+    write0(writeOperation, false);
+  }
+
+  private void write0(WriteOperation writeOperation, boolean isSynced) throws Exception
+  {
+    final AccessMode mode = accessMode;
+    final boolean isWriteable = mode != null && mode.isWriteable();
+    for (;;)
+    {
+      final TransactionImpl txn = new TransactionImpl(isWriteable);
+      try
+      {
+        writeOperation.run(txn);
+        if (!txn.conflict)
+        {
+          txn.commit(isSynced);
+          return;
+        }
+      }
+      catch (final StorageRuntimeException e)
+      {
+        if (!txn.conflict)
+        {
+          throw unwrap(e);
+        }
+      }
+      catch (final Exception e)
+      {
+        if (!txn.conflict)
+        {
+          throw e;
+        }
+      }
+      finally
+      {
+        txn.close();
+      }
+      // retry after random sleep, letting the conflicting write operation complete
+      Thread.sleep((long) (Math.random() * MAX_SLEEP_ON_RETRY_MS));
+    }
+  }
+
+  @Override
+  public void sync() throws StorageRuntimeException
+  {
+    synchronized (commitLock)
+    {
+      if (journal != null && failure == null)
+      {
+        try
+        {
+          journal.sync();
+        }
+        catch (IOException e)
+        {
+          final LocalizableMessage message = ERR_LSM_BACKEND_CANNOT_WRITE_JOURNAL.get(
+              journal.getFile(), config.getBackendId(), stackTraceToSingleLineString(e));
+          setFailure(message);
+          throw new StorageRuntimeException(message.toString(), e);
+        }
+      }
+    }
+  }
+
+  private Exception unwrap(StorageRuntimeException e) throws Exception
+  {
+    if (e.getCause() instanceof Exception)
+    {
+      throw (Exception) e.getCause();
+    }
+    throw e;
+  }
+
+  /** Returns the value of a committed record, {@link RecordIterator#DELETED} or {@code null} if it is absent. */
+  private ByteString getCommitted(View view, long seq, ByteString internalKey)
+  {
+    for (MemTable memTable : view.memTables)
+    {
+      final ByteString value = memTable.get(internalKey, seq);
+      if (value != null)
+      {
+        return value;
+      }
+    }
+    if (!view.runs.isEmpty())
+    {
+      final long hash = BloomFilter.hash(internalKey);
+      try
+      {
+        for (SortedRun run : view.runs)
+        {
+          final ByteString value = run.get(internalKey, hash);
+          if (value != null)
+          {
+            return value;
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Commits records: they are appended to the journal, then added to the active memtable with a new sequence number,
+   * which makes them visible to the operations starting afterwards. The journal is synced unless {@code isSynced} is
+   * false or the backend is configured not to sync it.
+   */
+  private void commit(NavigableMap<ByteString, ByteString> records, boolean isJournaled, boolean isSynced)
+  {
+    final LocalizableMessage error = failure;
+    if (error != null)
+    {
+      throw new StorageRuntimeException(error.toString());
+    }
+    synchronized (commitLock)
+    {
+      waitForMemTablesToBeWritten();
+      if (isJournaled)
+      {
+        try
+        {
+          journal.append(records.entrySet());
+          if (isSynced && !config.isDBTxnNoSync())
+          {
+            journal.sync();
+          }
+        }
+        catch (IOException e)
+        {
+          final LocalizableMessage message = ERR_LSM_BACKEND_CANNOT_WRITE_JOURNAL.get(
+              journal.getFile(), config.getBackendId(), stackTraceToSingleLineString(e));
+          setFailure(message);
+          throw new StorageRuntimeException(message.toString(), e);
+        }
+      }
+      final MemTable active = currentView.memTables.get(0);
+      final long seq = lastSeq + 1;
+      for (Map.Entry<ByteString, ByteString> record : records.entrySet())
+      {
+        active.put(record.getKey(), record.getValue(), seq);
+      }
+      synchronized (snapshotsLock)
+      {
+        lastSeq = seq;
+      }
+      if (active.getSize() >= config.getMemtableSize())
+      {
+        switchMemTable();
+      }
+    }
+  }
+
+  /** Throttles the commits while the background thread is writing the memtables. The caller holds the commit lock. */
+  private void waitForMemTablesToBeWritten()
+  {
+    if (currentView.memTables.size() < MAX_MEMTABLES)
+    {
+      return;
+    }
+    nbStalledCommits.incrementAndGet();
+    while (currentView.memTables.size() >= MAX_MEMTABLES && failure == null && backgroundExecutor != null)
+    {
+      try
+      {
+        commitLock.wait(100);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new StorageRuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * Replaces the active memtable by an empty one, and schedules the writing of the full one to a sorted run. The
+   * caller holds the commit lock.
+   */
+  private void switchMemTable()
+  {
+    final long journalNumber = nextFileNumber.getAndIncrement();
+    try
+    {
+      final Journal newJournal = new Journal(getFile(journalNumber, JOURNAL_SUFFIX), 0);
+      // Commits written without sync must not outlive the next sync of the active journal
+      journal.sync();
+      journal.close();
+      journal = newJournal;
+    }
+    catch (IOException e)
+    {
+      final LocalizableMessage message = ERR_LSM_BACKEND_CANNOT_WRITE_JOURNAL.get(
+          getFile(journalNumber, JOURNAL_SUFFIX), config.getBackendId(), stackTraceToSingleLineString(e));
+      setFailure(message);
+      throw new StorageRuntimeException(message.toString(), e);
+    }
+    synchronized (viewLock)
+    {
+      final List<MemTable> memTables = new ArrayList<>();
+      memTables.add(new MemTable(journalNumber));
+      memTables.addAll(currentView.memTables);
+      installView(memTables, currentView.runs);
+    }
+    backgroundExecutor.execute(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        flushOldestMemTable();
+      }
+    });
+  }
+
+  /** Background task writing the oldest full memtable, then merging the sorted runs if needed. */
+  private void flushOldestMemTable()
+  {
+    if (failure != null)
+    {
+      return;
+    }
+    try
+    {
+      final List<MemTable> memTables = currentView.memTables;
+      if (memTables.size() > 1)
+      {
+        final MemTable memTable = memTables.get(memTables.size() - 1);
+        flush(memTable);
+        Files.deleteIfExists(getFile(memTable.getJournalNumber(), JOURNAL_SUFFIX).toPath());
+        synchronized (commitLock)
+        {
+          commitLock.notifyAll();
+        }
+      }
+      compactIfNeeded();
+      deleteObsoleteFiles();
+    }
+    catch (IOException | RuntimeException e)
+    {
+      setFailure(ERR_LSM_BACKEND_BACKGROUND_TASK_FAILED.get(config.getBackendId(), stackTraceToSingleLineString(e)));
+      synchronized (commitLock)
+      {
+        commitLock.notifyAll();
+      }
+    }
+  }
+
+  /** Writes a memtable to a new sorted run, which replaces it in the view. */
+  private void flush(MemTable memTable) throws IOException
+  {
+    final RecordIterator records = memTable.iterator(Long.MAX_VALUE);
+    records.seek(ByteString.empty());
+    final SortedRun run = writeSortedRun(records, currentView.runs.isEmpty());
+    synchronized (viewLock)
+    {
+      final List<MemTable> memTables = new ArrayList<>(currentView.memTables);
+      memTables.remove(memTable);
+      final List<SortedRun> runs = new ArrayList<>();
+      if (run != null)
+      {
+        runs.add(run);
+      }
+      runs.addAll(currentView.runs);
+      writeManifest(runs);
+      installView(memTables, runs);
+    }
+    nbFlushes.incrementAndGet();
+  }
+
+  /**
+   * Merges the most recent sorted runs while there are too many of them. A sorted run is merged with the more recent
+   * ones if it is not larger than all of them together, so that large sorted runs are rarely rewritten.
+   */
+  private void compactIfNeeded() throws IOException
+  {
+    for (List<SortedRun> runs = currentView.runs; runs.size() >= config.getMaxSortedRuns(); runs = currentView.runs)
+    {
+      int nbRuns = 1;
+      long size = runs.get(0).getFileSize();
+      while (nbRuns < runs.size() && runs.get(nbRuns).getFileSize() <= COMPACTION_SIZE_RATIO * size)
+      {
+        size += runs.get(nbRuns).getFileSize();
+        nbRuns++;
+      }
+      nbRuns = Math.max(nbRuns, runs.size() - config.getMaxSortedRuns() + 2);
+      compact(new ArrayList<>(runs.subList(0, nbRuns)), nbRuns == runs.size());
+    }
+  }
+
+  /** Merges the provided sorted runs, which are the most recent ones, into a new sorted run. */
+  private void compact(List<SortedRun> runs, boolean includesOldestRun) throws IOException
+  {
+    final List<RecordIterator> sources = new ArrayList<>();
+    long size = 0;
+    for (SortedRun run : runs)
+    {
+      sources.add(run.iterator());
+      size += run.getFileSize();
+    }
+    final MergingIterator records = new MergingIterator(sources);
+    records.seek(ByteString.empty());
+    final SortedRun mergedRun = writeSortedRun(records, includesOldestRun);
+    synchronized (viewLock)
+    {
+      final List<SortedRun> newRuns = new ArrayList<>();
+      if (mergedRun != null)
+      {
+        newRuns.add(mergedRun);
+      }
+      newRuns.addAll(currentView.runs.subList(runs.size(), currentView.runs.size()));
+      writeManifest(newRuns);
+      installView(currentView.memTables, newRuns);
+      for (SortedRun run : runs)
+      {
+        obsoleteRuns.add(new ObsoleteRun(currentView.number, run));
+      }
+    }
+    nbCompactions.incrementAndGet();
+    nbCompactedBytes.addAndGet(size);
+  }
+
+  /**
+   * Writes records to a new sorted run, dropping the records of deleted trees.
+   *
+   * @return the new sorted run, or {@code null} if all the records have been dropped
+   */
+  private SortedRun writeSortedRun(RecordIterator records, boolean dropDeletedRecords) throws IOException
+  {
+    final long runNumber = nextFileNumber.getAndIncrement();
+    final File runFile = getFile(runNumber, RUN_SUFFIX);
+    final File tmpFile = new File(backendDirectory, runFile.getName() + TMP_SUFFIX);
+    final long nbRecords;
+    try (final SortedRun.Writer writer = new SortedRun.Writer(tmpFile, config.getBloomFilterBitsPerKey()))
+    {
+      for (; records.isValid(); records.next())
+      {
+        final ByteString key = records.getKey();
+        if ((dropDeletedRecords && records.getValue() == RecordIterator.DELETED) || !isLive(key))
+        {
+          continue;
+        }
+        writer.add(key, records.getValue());
+      }
+      writer.finish();
+      nbRecords = writer.getRecordCount();
+    }
+    if (nbRecords == 0)
+    {
+      Files.delete(tmpFile.toPath());
+      return null;
+    }
+    Files.move(tmpFile.toPath(), runFile.toPath(), ATOMIC_MOVE);
+    return new SortedRun(runNumber, runFile, config.getBackendId());
+  }
+
+  /** Returns whether a record belongs to an existing tree, or to the tree of the tree identifiers. */
+  private boolean isLive(ByteString internalKey)
+  {
+    final long treeId = internalKey.subSequence(0, TREE_ID_LENGTH).toLong();
+    return treeId == TREES_TREE_ID || liveTreeIds.contains(treeId);
+  }
+
+  /** Makes a new view visible to the operations starting afterwards. The caller holds the view lock. */
+  private void installView(List<MemTable> memTables, List<SortedRun> runs)
+  {
+    synchronized (snapshotsLock)
+    {
+      currentView = new View(currentView.number + 1, memTables, runs);
+    }
+  }
+
+  /**
+   * Writes the list of the sorted runs to a new manifest file, then deletes the previous manifest. The caller holds
+   * the view lock.
+   */
+  private void writeManifest(List<SortedRun> runs) throws IOException
+  {
+    final File manifest = getFile(nextFileNumber.getAndIncrement(), MANIFEST_SUFFIX);
+    final File tmpFile = new File(backendDirectory, manifest.getName() + TMP_SUFFIX);
+    try (final FileOutputStream fileOutput = new FileOutputStream(tmpFile);
+         final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput)))
+    {
+      output.writeInt(MANIFEST_MAGIC);
+      output.writeInt(MANIFEST_FORMAT_VERSION);
+      output.writeInt(runs.size());
+      for (SortedRun run : runs)
+      {
+        output.writeLong(run.getNumber());
+      }
+      output.flush();
+      fileOutput.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), manifest.toPath(), ATOMIC_MOVE);
+    if (currentManifest != null)
+    {
+      obsoleteFiles.add(currentManifest);
+    }
+    currentManifest = manifest;
+  }
+
+  private List<Long> readManifest(File manifest) throws IOException
+  {
+    try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest))))
+    {
+      if (input.readInt() != MANIFEST_MAGIC || input.readInt() != MANIFEST_FORMAT_VERSION)
+      {
+        throw new IOException(ERR_LSM_BACKEND_CORRUPTED_FILE.get(manifest, config.getBackendId()).toString());
+      }
+      final int nbRuns = input.readInt();
+      final List<Long> runNumbers = new ArrayList<>(nbRuns);
+      for (int i = 0; i < nbRuns; i++)
+      {
+        runNumbers.add(input.readLong());
+      }
+      return runNumbers;
+    }
+  }
+
+  /** Deletes the sorted runs replaced by merges once no operation can read them, unless a backup is in progress. */
+  private void deleteObsoleteFiles()
+  {
+    if (nbBackupsInProgress.get() > 0)
+    {
+      return;
+    }
+    final long oldestView;
+    synchronized (snapshotsLock)
+    {
+      if (currentView == null)
+      {
+        return;
+      }
+      oldestView = activeViews.isEmpty() ? currentView.number : activeViews.firstKey();
+    }
+    for (ObsoleteRun obsoleteRun = obsoleteRuns.peek();
+         obsoleteRun != null && obsoleteRun.replacedInView <= oldestView;
+         obsoleteRun = obsoleteRuns.peek())
+    {
+      obsoleteRuns.poll();
+      closeSilently(obsoleteRun.run);
+      obsoleteFiles.add(obsoleteRun.run.getFile());
+    }
+    for (File file = obsoleteFiles.poll(); file != null; file = obsoleteFiles.poll())
+    {
+      try
+      {
+        Files.deleteIfExists(file.toPath());
+      }
+      catch (IOException e)
+      {
+        logger.traceException(e);
+      }
+    }
+  }
+
+  private void setFailure(LocalizableMessage message)
+  {
+    logger.error(message);
+    failure = message;
+    storageStatus = StorageStatus.unusable(message);
+  }
+
+  /** Creates a tree immediately, the identifier of a new tree is never reused. */
+  private void createTree(TreeName treeName)
+  {
+    if (treeIds.containsKey(treeName))
+    {
+      return;
+    }
+    synchronized (treesLock)
+    {
+      if (!treeIds.containsKey(treeName))
+      {
+        final long treeId = nextTreeId++;
+        liveTreeIds.add(treeId);
+        final TreeMap<ByteString, ByteString> records = new TreeMap<>();
+        records.put(NEXT_TREE_ID_KEY, ByteString.valueOfLong(nextTreeId));
+        records.put(internalKey(TREES_TREE_ID, ByteString.valueOfUtf8(treeName.toString())),
+            ByteString.valueOfLong(treeId));
+        commit(records, true, true);
+        treeIds.put(treeName, treeId);
+      }
+    }
+  }
+
+  /** Deletes a tree immediately, its records are dropped by the next merges. */
+  private void deleteTree(TreeName treeName)
+  {
+    synchronized (treesLock)
+    {
+      final Long treeId = treeIds.remove(treeName);
+      if (treeId != null)
+      {
+        final TreeMap<ByteString, ByteString> records = new TreeMap<>();
+        records.put(internalKey(TREES_TREE_ID, ByteString.valueOfUtf8(treeName.toString())), RecordIterator.DELETED);
+        commit(records, true, true);
+        liveTreeIds.remove(treeId);
+      }
+    }
+  }
+
+  private long getExistingTreeId(TreeName treeName)
+  {
+    final Long treeId = treeIds.get(treeName);
+    if (treeId == null)
+    {
+      throw new StorageRuntimeException(ERR_LSM_BACKEND_TREE_NOT_FOUND.get(treeName, config.getBackendId()).toString());
+    }
+    return treeId;
+  }
+
+  /** Prefixes a key with the identifier of its tree, so that the records of each tree are contiguous. */
+  private static ByteString internalKey(long treeId, ByteSequence key)
+  {
+    return new ByteStringBuilder(TREE_ID_LENGTH + key.length()).appendLong(treeId).appendBytes(key).toByteString();
+  }
+
+  private static ByteString max(ByteString key1, ByteString key2)
+  {
+    if (key1 == null)
+    {
+      return key2;
+    }
+    return key2 == null || key1.compareTo(key2) >= 0 ? key1 : key2;
+  }
+
+  private File getFile(long fileNumber, String suffix)
+  {
+    return new File(backendDirectory, String.format("%010d%s", fileNumber, suffix));
+  }
+
+  /** Returns the number of a file of the storage, or zero for the other files. */
+  private static long getFileNumber(File file)
+  {
+    final String name = file.getName();
+    final int end = name.indexOf('.');
+    try
+    {
+      return end > 0 ? Long.parseLong(name.substring(0, end)) : 0;
+    }
+    catch (NumberFormatException e)
+    {
+      return 0;
+    }
+  }
+
+  @Override
+  public void removeStorageFiles() throws StorageRuntimeException
+  {
+    StorageUtils.removeStorageFiles(backendDirectory);
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    return storageStatus;
+  }
+
+  @Override
+  public boolean isCacheFull()
+  {
+    // Sorted runs are read through the file system cache
+    return false;
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    return new HashSet<>(treeIds.keySet());
+  }
+
+  /** Returns the statistics reported by the monitor of this storage. */
+  MonitorData getMonitorData()
+  {
+    final View view;
+    synchronized (snapshotsLock)
+    {
+      view = currentView;
+    }
+    final MonitorData monitorAttrs = new MonitorData(14);
+    if (view == null)
+    {
+      return monitorAttrs;
+    }
+    long memTablesSize = 0;
+    for (MemTable memTable : view.memTables)
+    {
+      memTablesSize += memTable.getSize();
+    }
+    long runsSize = 0;
+    long nbRecords = 0;
+    long bloomFiltersSize = 0;
+    long nbBloomFilterNegatives = 0;
+    for (SortedRun run : view.runs)
+    {
+      runsSize += run.getFileSize();
+      nbRecords += run.getRecordCount();
+      bloomFiltersSize += run.getBloomFilterSize();
+      nbBloomFilterNegatives += run.getBloomFilterNegatives();
+    }
+    monitorAttrs.add("LSMTrees", treeIds.size());
+    monitorAttrs.add("LSMMemTables", view.memTables.size());
+    monitorAttrs.add("LSMMemTablesSize", memTablesSize);
+    monitorAttrs.add("LSMSortedRuns", view.runs.size());
+    monitorAttrs.add("LSMSortedRunsSize", runsSize);
+    monitorAttrs.add("LSMSortedRunsRecords", nbRecords);
+    monitorAttrs.add("LSMBloomFiltersSize", bloomFiltersSize);
+    monitorAttrs.add("LSMBloomFilterNegatives", nbBloomFilterNegatives);
+    monitorAttrs.add("LSMFlushes", nbFlushes.get());
+    monitorAttrs.add("LSMCompactions", nbCompactions.get());
+    monitorAttrs.add("LSMCompactedBytes", nbCompactedBytes.get());
+    monitorAttrs.add("LSMStalledCommits", nbStalledCommits.get());
+    monitorAttrs.add("LSMObsoleteSortedRuns", obsoleteRuns.size());
+    synchronized (snapshotsLock)
+    {
+      monitorAttrs.add("LSMSequenceNumber", lastSeq);
+    }
+    return monitorAttrs;
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return true;
+  }
+
+  @Override
+  public File getDirectory()
+  {
+    return getBackendDirectory(config);
+  }
+
+  private static File getBackendDirectory(LSMBackendCfg cfg)
+  {
+    return getDBDirectory(cfg.getDBDirectory(), cfg.getBackendId());
+  }
+
+  /** Filter to retrieve the database files to backup when the storage is closed. */
+  private static final FileFilter BACKUP_FILES_FILTER = new FileFilter()
+  {
+    @Override
+    public boolean accept(File file)
+    {
+      final String name = file.getName();
+      return name.endsWith(RUN_SUFFIX) || name.endsWith(JOURNAL_SUFFIX) || name.endsWith(MANIFEST_SUFFIX);
+    }
+  };
+
+  /**
+   * Returns the files to backup. When the storage is open, the active memtable is first written to a sorted run, then
+   * the last manifest and its sorted runs are returned, which are kept until the end of the backup.
+   */
+  @Override
+  public ListIterator<Path> getFilesToBackup() throws DirectoryException
+  {
+    try
+    {
+      final AccessMode mode = accessMode;
+      if (mode == null || !mode.isWriteable())
+      {
+        return BackupManager.getFiles(getDirectory(), BACKUP_FILES_FILTER, config.getBackendId()).listIterator();
+      }
+      synchronized (commitLock)
+      {
+        if (!currentView.memTables.get(0).isEmpty())
+        {
+          switchMemTable();
+        }
+      }
+      // The background thread writes the memtables in order, the task below runs after all of them
+      backgroundExecutor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          return null;
+        }
+      }).get();
+      final LocalizableMessage error = failure;
+      if (error != null)
+      {
+        throw new IOException(error.toString());
+      }
+      final List<Path> files = new ArrayList<>();
+      synchronized (viewLock)
+      {
+        files.add(currentManifest.toPath());
+        for (SortedRun run : currentView.runs)
+        {
+          files.add(run.getFile().toPath());
+        }
+      }
+      return files.listIterator();
+    }
+    catch (IOException | ExecutionException | InterruptedException e)
+    {
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+          ERR_BACKEND_LIST_FILES_TO_BACKUP.get(config.getBackendId(), stackTraceToSingleLineString(e)));
+    }
+  }
+
+  @Override
+  public Path beforeRestore() throws DirectoryException
+  {
+    return null;
+  }
+
+  @Override
+  public boolean isDirectRestore()
+  {
+    // restore is done in an intermediate directory
+    return false;
+  }
+
+  @Override
+  public void afterRestore(Path restoreDirectory, Path saveDirectory) throws DirectoryException
+  {
+    // intermediate directory content is moved to database directory
+    File targetDirectory = getDirectory();
+    recursiveDelete(targetDirectory);
+    try
+    {
+      Files.move(restoreDirectory, targetDirectory.toPath());
+    }
+    catch(IOException e)
+    {
+      LocalizableMessage msg = ERR_CANNOT_RENAME_RESTORE_DIRECTORY.get(restoreDirectory, targetDirectory.getPath());
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), msg);
+    }
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    nbBackupsInProgress.incrementAndGet();
+    try
+    {
+      new BackupManager(config.getBackendId()).createBackup(this, backupConfig);
+    }
+    finally
+    {
+      nbBackupsInProgress.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).removeBackup(backupDirectory, backupID);
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).restoreBackup(this, restoreConfig);
+  }
+
+  /**
+   * Checks newly created backend has a valid configuration.
+   * @param cfg the new configuration
+   * @param unacceptableReasons the list of accumulated errors and their messages
+   * @return true if newly created backend has a valid configuration
+   */
+  static boolean isConfigurationAcceptable(LSMBackendCfg cfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    checkDBDirExistsOrCanCreate(getBackendDirectory(cfg), ccr, true);
+    checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+    if (!ccr.getMessages().isEmpty())
+    {
+      unacceptableReasons.addAll(ccr.getMessages());
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(LSMBackendCfg newCfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    return isConfigurationAcceptable(newCfg, unacceptableReasons);
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(LSMBackendCfg cfg)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    try
+    {
+      if (!cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirExistsOrCanCreate(getBackendDirectory(cfg), ccr, false);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+        ccr.setAdminActionRequired(true);
+        ccr.addMessage(NOTE_CONFIG_DB_DIR_REQUIRES_RESTART.get(config.getDBDirectory(), cfg.getDBDirectory()));
+      }
+      if (!cfg.getDBDirectoryPermissions().equalsIgnoreCase(config.getDBDirectoryPermissions())
+          || !cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+        setDBDirPermissions(getBackendDirectory(cfg), cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+      }
+      registerMonitoredDirectory(cfg);
+      config = cfg;
+    }
+    catch (Exception e)
+    {
+      addErrorMessage(ccr, LocalizableMessage.raw(stackTraceToSingleLineString(e)));
+    }
+    return ccr;
+  }
+
+  private void registerMonitoredDirectory(LSMBackendCfg cfg)
+  {
+    diskMonitor.registerMonitoredDirectory(
+      cfg.getBackendId() + " backend",
+      getDirectory(),
+      cfg.getDiskLowThreshold(),
+      cfg.getDiskFullThreshold(),
+      this);
+  }
+
+  @Override
+  public void diskFullThresholdReached(File directory, long thresholdInBytes)
+  {
+    if (failure == null)
+    {
+      storageStatus = statusWhenDiskSpaceFull(directory, thresholdInBytes, config.getBackendId());
+    }
+  }
+
+  @Override
+  public void diskLowThresholdReached(File directory, long thresholdInBytes)
+  {
+    if (failure == null)
+    {
+      storageStatus = statusWhenDiskSpaceLow(directory, thresholdInBytes, config.getBackendId());
+    }
+  }
+
+  @Override
+  public void diskSpaceRestored(File directory, long lowThresholdInBytes, long fullThresholdInBytes)
+  {
+    if (failure == null)
+    {
+      storageStatus = StorageStatus.working();
+    }
+  }
+}
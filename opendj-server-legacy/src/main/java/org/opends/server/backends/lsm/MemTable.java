@@ -0,0 +1,207 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteString;
+
+/**
+ * The most recent records of a {@link LSMStorage}, kept in memory until they are written to a {@link SortedRun}.
+ * <p>
+ * Records are only added by the thread committing a write operation, each commit having a new sequence number. The
+ * previous versions of the records are kept, so that read operations only see the commits made before they started.
+ */
+final class MemTable
+{
+  /** Estimation of the memory used for each version besides the key and the value. */
+  private static final int VERSION_OVERHEAD = 64;
+
+  /** A version of a record, linked to its previous version. */
+  private static final class Version
+  {
+    private final long seq;
+    private final ByteString value;
+    private final Version previous;
+
+    private Version(long seq, ByteString value, Version previous)
+    {
+      this.seq = seq;
+      this.value = value;
+      this.previous = previous;
+    }
+  }
+
+  private final long journalNumber;
+  private final ConcurrentSkipListMap<ByteString, Version> records = new ConcurrentSkipListMap<>();
+  private final AtomicLong size = new AtomicLong();
+
+  /**
+   * Creates an empty memtable.
+   *
+   * @param journalNumber
+   *          the number of the journal file where the records of this memtable are logged
+   */
+  MemTable(long journalNumber)
+  {
+    this.journalNumber = journalNumber;
+  }
+
+  long getJournalNumber()
+  {
+    return journalNumber;
+  }
+
+  /**
+   * Adds a version of a record.
+   *
+   * @param key
+   *          the key of the record
+   * @param value
+   *          the new value of the record, or {@link RecordIterator#DELETED} if it is deleted
+   * @param seq
+   *          the sequence number of the commit adding this version
+   */
+  void put(ByteString key, ByteString value, long seq)
+  {
+    final Version previous = records.get(key);
+    records.put(key, new Version(seq, value, previous));
+    size.addAndGet((previous == null ? key.length() : 0) + value.length() + VERSION_OVERHEAD);
+  }
+
+  /**
+   * Returns the value of a record visible by a read operation.
+   *
+   * @param key
+   *          the key of the record
+   * @param seq
+   *          the sequence number of the last commit visible by the read operation
+   * @return the value of the record, {@link RecordIterator#DELETED} if it has been deleted, or {@code null} if this
+   *         memtable does not contain it
+   */
+  ByteString get(ByteString key, long seq)
+  {
+    final Version version = visibleVersion(records.get(key), seq);
+    return version != null ? version.value : null;
+  }
+
+  /**
+   * Returns the greatest key lower than the provided key, among the records visible by a read operation.
+   *
+   * @param key
+   *          the upper bound, excluded
+   * @param seq
+   *          the sequence number of the last commit visible by the read operation
+   * @return the greatest key lower than the provided key, or {@code null} if there is none
+   */
+  ByteString lowerKey(ByteString key, long seq)
+  {
+    Map.Entry<ByteString, Version> entry = records.lowerEntry(key);
+    while (entry != null && visibleVersion(entry.getValue(), seq) == null)
+    {
+      entry = records.lowerEntry(entry.getKey());
+    }
+    return entry != null ? entry.getKey() : null;
+  }
+
+  /**
+   * Returns an iterator over the records visible by a read operation.
+   *
+   * @param seq
+   *          the sequence number of the last commit visible by the read operation
+   * @return a new iterator, which must be positioned before use
+   */
+  RecordIterator iterator(final long seq)
+  {
+    return new RecordIterator()
+    {
+      private Map.Entry<ByteString, Version> current;
+      private ByteString value;
+
+      @Override
+      public void seek(ByteString key)
+      {
+        moveTo(records.ceilingEntry(key));
+      }
+
+      @Override
+      public boolean isValid()
+      {
+        return current != null;
+      }
+
+      @Override
+      public ByteString getKey()
+      {
+        return current.getKey();
+      }
+
+      @Override
+      public ByteString getValue()
+      {
+        return value;
+      }
+
+      @Override
+      public void next()
+      {
+        moveTo(records.higherEntry(current.getKey()));
+      }
+
+      private void moveTo(Map.Entry<ByteString, Version> entry)
+      {
+        Version version = null;
+        while (entry != null && (version = visibleVersion(entry.getValue(), seq)) == null)
+        {
+          entry = records.higherEntry(entry.getKey());
+        }
+        current = entry;
+        value = entry != null ? version.value : null;
+      }
+    };
+  }
+
+  private static Version visibleVersion(Version version, long seq)
+  {
+    while (version != null && version.seq > seq)
+    {
+      version = version.previous;
+    }
+    return version;
+  }
+
+  /**
+   * Returns an estimation of the memory used by this memtable.
+   *
+   * @return an estimation of the memory used by this memtable, in bytes
+   */
+  long getSize()
+  {
+    return size.get();
+  }
+
+  boolean isEmpty()
+  {
+    return records.isEmpty();
+  }
+
+  int getRecordCount()
+  {
+    return records.size();
+  }
+}
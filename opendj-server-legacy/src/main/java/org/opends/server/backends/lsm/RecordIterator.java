@@ -0,0 +1,62 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import org.forgerock.opendj.ldap.ByteString;
+
+/**
+ * Iterates over the records of a memtable or of a sorted run in key order, including the deletion markers which hide
+ * the records of older sources.
+ */
+interface RecordIterator
+{
+  /**
+   * The value of the records which have been deleted, to be compared by identity.
+   */
+  ByteString DELETED = ByteString.wrap(new byte[0]);
+
+  /**
+   * Positions this iterator on the first record whose key is greater than or equal to the provided key.
+   *
+   * @param key
+   *          the key to seek
+   */
+  void seek(ByteString key);
+
+  /**
+   * Returns whether this iterator is positioned on a record.
+   *
+   * @return {@code true} if this iterator is positioned on a record
+   */
+  boolean isValid();
+
+  /**
+   * Returns the key of the current record.
+   *
+   * @return the key of the current record
+   */
+  ByteString getKey();
+
+  /**
+   * Returns the value of the current record.
+   *
+   * @return the value of the current record, or {@link #DELETED} if the record has been deleted
+   */
+  ByteString getValue();
+
+  /** Moves this iterator to the next record. */
+  void next();
+}
@@ -0,0 +1,521 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * An immutable file of records sorted by key, written by a {@link LSMStorage} when a memtable is full or when sorted
+ * runs are merged.
+ * <p>
+ * Records are written in blocks of about {@value #BLOCK_SIZE} bytes. The file ends with the first key and the offset
+ * of each block, then with a {@link BloomFilter} of all the keys, which are both loaded in memory when the file is
+ * opened. Reading a record therefore costs at most one read of a block, and none for most of the absent keys.
+ */
+final class SortedRun implements Closeable
+{
+  private static final int MAGIC = 0x4C534D52;
+  private static final int FORMAT_VERSION = 1;
+  static final int BLOCK_SIZE = 4096;
+  /** The length written instead of the length of the value of deleted records. */
+  private static final int DELETED_LENGTH = -1;
+  /** Index offset, bloom filter offset, number of records, format version and magic number. */
+  private static final int TRAILER_SIZE = 8 + 8 + 8 + 4 + 4;
+
+  /** Writes a new sorted run, records must be added in key order. */
+  static final class Writer implements Closeable
+  {
+    private final File file;
+    private final FileOutputStream fileOutput;
+    private final DataOutputStream output;
+    private final int bloomFilterBitsPerKey;
+    private final List<ByteString> blockKeys = new ArrayList<>();
+    private long[] blockOffsets = new long[16];
+    private long[] hashes = new long[1024];
+    private long nbRecords;
+    private long offset;
+    private long blockStart = -BLOCK_SIZE;
+
+    Writer(File file, int bloomFilterBitsPerKey) throws IOException
+    {
+      this.file = file;
+      this.fileOutput = new FileOutputStream(file);
+      this.output = new DataOutputStream(new BufferedOutputStream(fileOutput, 64 * 1024));
+      this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    }
+
+    /**
+     * Adds a record to the sorted run.
+     *
+     * @param key
+     *          the key of the record, greater than the keys previously added
+     * @param value
+     *          the value of the record, or {@link RecordIterator#DELETED} if it has been deleted
+     * @throws IOException
+     *           if an I/O error occurs
+     */
+    void add(ByteString key, ByteString value) throws IOException
+    {
+      if (offset - blockStart >= BLOCK_SIZE)
+      {
+        if (blockKeys.size() == blockOffsets.length)
+        {
+          blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+        }
+        blockOffsets[blockKeys.size()] = offset;
+        blockKeys.add(key);
+        blockStart = offset;
+      }
+      if (nbRecords == hashes.length)
+      {
+        hashes = Arrays.copyOf(hashes, hashes.length * 2);
+      }
+      hashes[(int) nbRecords++] = BloomFilter.hash(key);
+
+      output.writeInt(key.length());
+      key.copyTo(output);
+      if (value == RecordIterator.DELETED)
+      {
+        output.writeInt(DELETED_LENGTH);
+        offset += 8 + key.length();
+      }
+      else
+      {
+        output.writeInt(value.length());
+        value.copyTo(output);
+        offset += 8 + key.length() + value.length();
+      }
+    }
+
+    long getRecordCount()
+    {
+      return nbRecords;
+    }
+
+    /**
+     * Writes the index and the bloom filter, then forces the file to disk.
+     *
+     * @throws IOException
+     *           if an I/O error occurs
+     */
+    void finish() throws IOException
+    {
+      final long indexOffset = offset;
+      output.writeInt(blockKeys.size());
+      for (int i = 0; i < blockKeys.size(); i++)
+      {
+        final ByteString blockKey = blockKeys.get(i);
+        output.writeInt(blockKey.length());
+        blockKey.copyTo(output);
+        output.writeLong(blockOffsets[i]);
+        offset += 4 + blockKey.length() + 8;
+      }
+      offset += 4;
+      final long bloomFilterOffset = offset;
+      BloomFilter.build(hashes, (int) nbRecords, bloomFilterBitsPerKey).writeTo(output);
+      output.writeLong(indexOffset);
+      output.writeLong(bloomFilterOffset);
+      output.writeLong(nbRecords);
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(MAGIC);
+      output.flush();
+      fileOutput.getFD().sync();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      output.close();
+    }
+
+    File getFile()
+    {
+      return file;
+    }
+  }
+
+  private final long number;
+  private final File file;
+  private final FileChannel channel;
+  private final ByteString[] blockKeys;
+  /** The offsets of the blocks, followed by the offset of the end of the last block. */
+  private final long[] blockOffsets;
+  private final BloomFilter bloomFilter;
+  private final long nbRecords;
+  private final long fileSize;
+  private final AtomicLong nbBloomFilterNegatives = new AtomicLong();
+
+  /**
+   * Opens a sorted run.
+   *
+   * @param number
+   *          the number of the file, higher for more recent sorted runs
+   * @param file
+   *          the file
+   * @param backendId
+   *          the backend identifier, used in error messages
+   * @throws IOException
+   *           if the file cannot be read or is corrupted
+   */
+  SortedRun(long number, File file, String backendId) throws IOException
+  {
+    this.number = number;
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try
+    {
+      fileSize = channel.size();
+      if (fileSize < TRAILER_SIZE)
+      {
+        throw new IOException(ERR_LSM_BACKEND_CORRUPTED_FILE.get(file, backendId).toString());
+      }
+      final DataInputStream trailer = new DataInputStream(read(fileSize - TRAILER_SIZE, TRAILER_SIZE));
+      final long indexOffset = trailer.readLong();
+      final long bloomFilterOffset = trailer.readLong();
+      nbRecords = trailer.readLong();
+      if (trailer.readInt() != FORMAT_VERSION || trailer.readInt() != MAGIC
+          || indexOffset < 0 || indexOffset > bloomFilterOffset || bloomFilterOffset > fileSize - TRAILER_SIZE)
+      {
+        throw new IOException(ERR_LSM_BACKEND_CORRUPTED_FILE.get(file, backendId).toString());
+      }
+      final DataInputStream footer =
+          new DataInputStream(read(indexOffset, (int) (fileSize - TRAILER_SIZE - indexOffset)));
+      final int nbBlocks = footer.readInt();
+      blockKeys = new ByteString[nbBlocks];
+      blockOffsets = new long[nbBlocks + 1];
+      for (int i = 0; i < nbBlocks; i++)
+      {
+        blockKeys[i] = readBytes(footer, footer.readInt());
+        blockOffsets[i] = footer.readLong();
+      }
+      blockOffsets[nbBlocks] = indexOffset;
+      bloomFilter = BloomFilter.readFrom(footer);
+    }
+    catch (EOFException e)
+    {
+      channel.close();
+      throw new IOException(ERR_LSM_BACKEND_CORRUPTED_FILE.get(file, backendId).toString(), e);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      channel.close();
+      throw e;
+    }
+  }
+
+  long getNumber()
+  {
+    return number;
+  }
+
+  File getFile()
+  {
+    return file;
+  }
+
+  long getRecordCount()
+  {
+    return nbRecords;
+  }
+
+  long getFileSize()
+  {
+    return fileSize;
+  }
+
+  long getBloomFilterSize()
+  {
+    return bloomFilter.getSize();
+  }
+
+  long getBloomFilterNegatives()
+  {
+    return nbBloomFilterNegatives.get();
+  }
+
+  /**
+   * Reads a record.
+   *
+   * @param key
+   *          the key of the record
+   * @param hash
+   *          the hash of the key, as returned by {@link BloomFilter#hash}
+   * @return the value of the record, {@link RecordIterator#DELETED} if it has been deleted, or {@code null} if this
+   *         sorted run does not contain it
+   * @throws IOException
+   *           if an I/O error occurs
+   */
+  ByteString get(ByteString key, long hash) throws IOException
+  {
+    if (!bloomFilter.mightContain(hash))
+    {
+      nbBloomFilterNegatives.incrementAndGet();
+      return null;
+    }
+    final int blockIndex = floorBlock(key);
+    if (blockIndex < 0)
+    {
+      return null;
+    }
+    final Block block = readBlock(blockIndex);
+    final int i = block.indexOf(key);
+    return i >= 0 ? block.values.get(i) : null;
+  }
+
+  /**
+   * Returns the greatest key lower than the provided key.
+   *
+   * @param key
+   *          the upper bound, excluded
+   * @return the greatest key lower than the provided key, or {@code null} if there is none
+   * @throws IOException
+   *           if an I/O error occurs
+   */
+  ByteString lowerKey(ByteString key) throws IOException
+  {
+    int blockIndex = floorBlock(key);
+    if (blockIndex >= 0 && blockKeys[blockIndex].equals(key))
+    {
+      blockIndex--;
+    }
+    if (blockIndex < 0)
+    {
+      return null;
+    }
+    final Block block = readBlock(blockIndex);
+    final int i = block.indexOf(key);
+    final int lower = (i >= 0 ? i : -i - 1) - 1;
+    return block.keys.get(lower);
+  }
+
+  /**
+   * Returns an iterator over the records of this sorted run.
+   *
+   * @return a new iterator, which must be positioned before use
+   */
+  RecordIterator iterator()
+  {
+    return new RecordIterator()
+    {
+      private int blockIndex;
+      private Block block;
+      private int position;
+
+      @Override
+      public void seek(ByteString key)
+      {
+        blockIndex = Math.max(floorBlock(key), 0);
+        if (blockIndex >= blockKeys.length)
+        {
+          block = null;
+          return;
+        }
+        loadBlock();
+        final int i = block.indexOf(key);
+        position = i >= 0 ? i : -i - 1;
+        skipExhaustedBlocks();
+      }
+
+      @Override
+      public boolean isValid()
+      {
+        return block != null;
+      }
+
+      @Override
+      public ByteString getKey()
+      {
+        return block.keys.get(position);
+      }
+
+      @Override
+      public ByteString getValue()
+      {
+        return block.values.get(position);
+      }
+
+      @Override
+      public void next()
+      {
+        position++;
+        skipExhaustedBlocks();
+      }
+
+      private void skipExhaustedBlocks()
+      {
+        while (block != null && position >= block.keys.size())
+        {
+          blockIndex++;
+          if (blockIndex < blockKeys.length)
+          {
+            loadBlock();
+            position = 0;
+          }
+          else
+          {
+            block = null;
+          }
+        }
+      }
+
+      private void loadBlock()
+      {
+        try
+        {
+          block = readBlock(blockIndex);
+        }
+        catch (IOException e)
+        {
+          throw new StorageRuntimeException(e);
+        }
+      }
+    };
+  }
+
+  /** Returns the index of the last block whose first key is lower than or equal to the provided key, or -1. */
+  private int floorBlock(ByteString key)
+  {
+    int low = 0;
+    int high = blockKeys.length - 1;
+    while (low <= high)
+    {
+      final int mid = (low + high) >>> 1;
+      final int cmp = blockKeys[mid].compareTo(key);
+      if (cmp < 0)
+      {
+        low = mid + 1;
+      }
+      else if (cmp > 0)
+      {
+        high = mid - 1;
+      }
+      else
+      {
+        return mid;
+      }
+    }
+    return low - 1;
+  }
+
+  /** The decoded records of a block. */
+  private static final class Block
+  {
+    private final List<ByteString> keys = new ArrayList<>();
+    private final List<ByteString> values = new ArrayList<>();
+
+    /** Same contract as {@link java.util.Collections#binarySearch}. */
+    private int indexOf(ByteString key)
+    {
+      int low = 0;
+      int high = keys.size() - 1;
+      while (low <= high)
+      {
+        final int mid = (low + high) >>> 1;
+        final int cmp = keys.get(mid).compareTo(key);
+        if (cmp < 0)
+        {
+          low = mid + 1;
+        }
+        else if (cmp > 0)
+        {
+          high = mid - 1;
+        }
+        else
+        {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+  }
+
+  private Block readBlock(int blockIndex) throws IOException
+  {
+    final long start = blockOffsets[blockIndex];
+    final int length = (int) (blockOffsets[blockIndex + 1] - start);
+    final DataInputStream input = new DataInputStream(read(start, length));
+    final Block block = new Block();
+    for (int remaining = length; remaining > 0;)
+    {
+      final int keyLength = input.readInt();
+      block.keys.add(readBytes(input, keyLength));
+      final int valueLength = input.readInt();
+      if (valueLength == DELETED_LENGTH)
+      {
+        block.values.add(RecordIterator.DELETED);
+        remaining -= 8 + keyLength;
+      }
+      else
+      {
+        block.values.add(readBytes(input, valueLength));
+        remaining -= 8 + keyLength + valueLength;
+      }
+    }
+    return block;
+  }
+
+  private ByteArrayInputStream read(long position, int length) throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining())
+    {
+      if (channel.read(buffer, position + buffer.position()) < 0)
+      {
+        throw new EOFException();
+      }
+    }
+    return new ByteArrayInputStream(buffer.array());
+  }
+
+  private static ByteString readBytes(DataInputStream input, int length) throws IOException
+  {
+    final byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return ByteString.wrap(bytes);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    channel.close();
+  }
+
+  @Override
+  public String toString()
+  {
+    return file.getName();
+  }
+}
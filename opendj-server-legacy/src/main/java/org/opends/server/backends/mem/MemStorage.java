@@ -0,0 +1,1512 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.mem;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.messages.UtilityMessages.*;
+import static org.opends.server.backends.mem.OffHeapAllocator.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.MemBackendCfg;
+import org.forgerock.util.Reject;
+import org.opends.server.api.Backupable;
+import org.opends.server.api.MonitorData;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+import org.opends.server.util.BackupManager;
+
+/**
+ * In-memory implementation of the {@link Storage} engine, keeping the records outside of the Java heap.
+ * <p>
+ * Each tree is a concurrent ordered map from keys to the versions of their record, whose values are copied off-heap
+ * by an {@link OffHeapAllocator}. Write operations lock the trees they update and buffer their changes, which are
+ * committed atomically as new versions. Read operations see the trees as of the last commit when they started,
+ * without ever waiting for write operations. The versions which are no longer visible to any operation are freed in
+ * the background.
+ * <p>
+ * When a snapshot directory is configured, the records are periodically written to disk and loaded again when the
+ * storage is opened. Otherwise, they are kept as long as the backend is configured, and are lost when the server
+ * stops. Deleting a tree takes effect immediately, even if the write operation deleting it fails afterwards.
+ */
+public final class MemStorage implements Storage, Backupable, ConfigurationChangeListener<MemBackendCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private static final double MAX_SLEEP_ON_RETRY_MS = 50.0;
+  /** How long a write operation waits for the lock of a tree while it holds the locks of other trees. */
+  private static final long LOCK_TIMEOUT_MS = 100;
+  private static final long VACUUM_INTERVAL_MS = 1000;
+  /** The storage is locked down above this ratio of the maximum memory size. */
+  private static final double LOW_MEMORY_RATIO = 0.9;
+  private static final String SNAPSHOT_DIRECTORY_PERMISSIONS = "700";
+  private static final String SNAPSHOT_FILE_NAME = "snapshot";
+  private static final String SNAPSHOT_TMP_FILE_NAME = SNAPSHOT_FILE_NAME + ".tmp";
+  private static final int SNAPSHOT_MAGIC = 0x4F444A4D;
+  private static final int SNAPSHOT_FORMAT_VERSION = 1;
+  private static final int END_OF_TREE = -1;
+
+  /** A version of a record, linked to the previous version of the same record. */
+  private static final class Version
+  {
+    private static final int DELETED = -1;
+
+    private final long commitTs;
+    private final long address;
+    /** The length of the value, or {@link #DELETED} if the record has been deleted by this version. */
+    private final int length;
+    /** Unlinked once no operation can read the previous versions anymore. */
+    private volatile Version previous;
+
+    private Version(long commitTs, long address, int length, Version previous)
+    {
+      this.commitTs = commitTs;
+      this.address = address;
+      this.length = length;
+      this.previous = previous;
+    }
+
+    private boolean isDeleted()
+    {
+      return length == DELETED;
+    }
+  }
+
+  /** A key updated by a commit, whose previous versions can be freed once no operation can read them. */
+  private static final class UpdatedRecord
+  {
+    private final long commitTs;
+    private final ByteString key;
+
+    private UpdatedRecord(long commitTs, ByteString key)
+    {
+      this.commitTs = commitTs;
+      this.key = key;
+    }
+  }
+
+  /** The records of a tree. */
+  private static final class Tree
+  {
+    private final ConcurrentSkipListMap<ByteString, Version> records = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /** Guarded by the write lock, ordered by commit timestamp. */
+    private final Deque<UpdatedRecord> updatedRecords = new ArrayDeque<>();
+    /** Guarded by the write lock. */
+    private boolean deleted;
+  }
+
+  /** A deleted tree, whose records can be freed once no operation can read them. */
+  private static final class DeletedTree
+  {
+    private final long deleteTs;
+    private final Tree tree;
+
+    private DeletedTree(long deleteTs, Tree tree)
+    {
+      this.deleteTs = deleteTs;
+      this.tree = tree;
+    }
+  }
+
+  /** The changes made by a write operation to a tree. */
+  private static final class WriteSet
+  {
+    private final Tree tree;
+    /** The new values of the updated records, {@code null} for the deleted records. */
+    private final TreeMap<ByteString, ByteString> values = new TreeMap<>();
+
+    private WriteSet(Tree tree)
+    {
+      this.tree = tree;
+    }
+  }
+
+  /** A record copied off-heap, waiting for its commit timestamp. */
+  private static final class PendingRecord
+  {
+    private final Tree tree;
+    private final ByteString key;
+    private final long address;
+    private final int length;
+
+    private PendingRecord(Tree tree, ByteString key, ByteString value, OffHeapAllocator allocator)
+    {
+      this.tree = tree;
+      this.key = key;
+      this.address = value != null ? allocator.allocate(value) : NO_ADDRESS;
+      this.length = value != null ? value.length() : Version.DELETED;
+    }
+  }
+
+  /** Thrown when a write operation must be retried because it could not lock a tree. */
+  @SuppressWarnings("serial")
+  private static final class LockConflictException extends StorageRuntimeException
+  {
+    private LockConflictException(TreeName treeName)
+    {
+      super("Conflicting write operations on tree " + treeName);
+    }
+  }
+
+  /**
+   * Implementation of the {@link WriteableTransaction} interface. Read operations read the versions of their snapshot,
+   * write operations read the latest committed versions overlaid with their own changes.
+   */
+  private final class TransactionImpl implements WriteableTransaction, Closeable
+  {
+    private final boolean writeable;
+    private final long snapshotTs;
+    private final long readTs;
+    private final Map<TreeName, WriteSet> writeSets = new HashMap<>();
+    private final List<Tree> lockedTrees = new ArrayList<>();
+    private boolean conflict;
+    private boolean committed;
+
+    private TransactionImpl(boolean writeable)
+    {
+      this.writeable = writeable;
+      this.snapshotTs = acquireSnapshot();
+      this.readTs = writeable ? Long.MAX_VALUE : snapshotTs;
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      return get(treeName, key.toByteString());
+    }
+
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return readEach(this, treeName, sortedKeys);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new CursorImpl(this, treeName, false);
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      long count = 0;
+      for (ByteString key = nextKey(treeName, null, true); key != null; key = nextKey(treeName, key, false))
+      {
+        count++;
+      }
+      return count;
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        checkWriteable();
+        if (!trees.containsKey(treeName))
+        {
+          trees.putIfAbsent(treeName, new Tree());
+        }
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      checkWriteable();
+      writeSets.remove(treeName);
+      MemStorage.this.deleteTree(treeName);
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      checkWriteable();
+      lockTree(treeName).values.put(key.toByteString(), value.toByteString());
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      checkWriteable();
+      final WriteSet writeSet = lockTree(treeName);
+      final ByteString keyBytes = key.toByteString();
+      final ByteString oldValue = get(treeName, keyBytes);
+      final ByteSequence newValue = f.computeNewValue(oldValue);
+      if (!Objects.equals(newValue, oldValue))
+      {
+        writeSet.values.put(keyBytes, newValue != null ? newValue.toByteString() : null);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      checkWriteable();
+      final WriteSet writeSet = lockTree(treeName);
+      final ByteString keyBytes = key.toByteString();
+      if (exists(treeName, keyBytes))
+      {
+        writeSet.values.put(keyBytes, null);
+        return true;
+      }
+      return false;
+    }
+
+    private void checkWriteable()
+    {
+      if (!writeable)
+      {
+        throw new ReadOnlyStorageException();
+      }
+    }
+
+    private WriteSet lockTree(TreeName treeName)
+    {
+      WriteSet writeSet = writeSets.get(treeName);
+      if (writeSet != null)
+      {
+        return writeSet;
+      }
+      for (;;)
+      {
+        final Tree tree = trees.get(treeName);
+        if (tree == null)
+        {
+          throw new StorageRuntimeException(ERR_MEM_BACKEND_TREE_NOT_FOUND.get(treeName, getBackendId()).toString());
+        }
+        lock(treeName, tree);
+        if (!tree.deleted)
+        {
+          writeSet = new WriteSet(tree);
+          writeSets.put(treeName, writeSet);
+          return writeSet;
+        }
+        // The tree has been deleted while waiting for its lock
+        lockedTrees.remove(lockedTrees.size() - 1);
+        tree.writeLock.unlock();
+      }
+    }
+
+    /**
+     * Only waits for the lock of the first tree: a write operation already holding locks waits for a limited time,
+     * then it is retried so that operations locking trees in a different order cannot deadlock.
+     */
+    private void lock(TreeName treeName, Tree tree)
+    {
+      if (lockedTrees.isEmpty())
+      {
+        tree.writeLock.lock();
+      }
+      else
+      {
+        try
+        {
+          if (!tree.writeLock.tryLock(LOCK_TIMEOUT_MS, MILLISECONDS))
+          {
+            conflict = true;
+            throw new LockConflictException(treeName);
+          }
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new StorageRuntimeException(e);
+        }
+      }
+      lockedTrees.add(tree);
+    }
+
+    private ByteString get(TreeName treeName, ByteString key)
+    {
+      final WriteSet writeSet = writeSets.get(treeName);
+      if (writeSet != null && writeSet.values.containsKey(key))
+      {
+        return writeSet.values.get(key);
+      }
+      final Tree tree = writeSet != null ? writeSet.tree : trees.get(treeName);
+      final Version version = tree != null ? visibleVersion(tree.records.get(key), readTs) : null;
+      return version != null && !version.isDeleted() ? allocator.read(version.address, version.length) : null;
+    }
+
+    private boolean exists(TreeName treeName, ByteString key)
+    {
+      final WriteSet writeSet = writeSets.get(treeName);
+      if (writeSet != null && writeSet.values.containsKey(key))
+      {
+        return writeSet.values.get(key) != null;
+      }
+      final Tree tree = writeSet != null ? writeSet.tree : trees.get(treeName);
+      return tree != null && isVisible(tree.records.get(key));
+    }
+
+    /**
+     * Returns the first key after the provided key, or the first key of the tree if the provided key is
+     * {@code null}.
+     */
+    private ByteString nextKey(TreeName treeName, ByteString key, boolean inclusive)
+    {
+      final WriteSet writeSet = writeSets.get(treeName);
+      final Tree tree = writeSet != null ? writeSet.tree : trees.get(treeName);
+      if (writeSet == null)
+      {
+        return committedNextKey(tree, key, inclusive);
+      }
+      for (;;)
+      {
+        final ByteString committed = committedNextKey(tree, key, inclusive);
+        final ByteString written = key == null ? firstKey(writeSet.values)
+                                 : inclusive ? writeSet.values.ceilingKey(key) : writeSet.values.higherKey(key);
+        final ByteString next = written == null || (committed != null && committed.compareTo(written) < 0)
+                                ? committed : written;
+        if (next == null || !writeSet.values.containsKey(next) || writeSet.values.get(next) != null)
+        {
+          return next;
+        }
+        // Deleted by this transaction
+        key = next;
+        inclusive = false;
+      }
+    }
+
+    /**
+     * Returns the last key before the provided key, or the last key of the tree if the provided key is {@code null}.
+     */
+    private ByteString previousKey(TreeName treeName, ByteString key, boolean inclusive)
+    {
+      final WriteSet writeSet = writeSets.get(treeName);
+      final Tree tree = writeSet != null ? writeSet.tree : trees.get(treeName);
+      if (writeSet == null)
+      {
+        return committedPreviousKey(tree, key, inclusive);
+      }
+      for (;;)
+      {
+        final ByteString committed = committedPreviousKey(tree, key, inclusive);
+        final ByteString written = key == null ? lastKey(writeSet.values)
+                                 : inclusive ? writeSet.values.floorKey(key) : writeSet.values.lowerKey(key);
+        final ByteString previous = written == null || (committed != null && committed.compareTo(written) > 0)
+                                    ? committed : written;
+        if (previous == null || !writeSet.values.containsKey(previous) || writeSet.values.get(previous) != null)
+        {
+          return previous;
+        }
+        // Deleted by this transaction
+        key = previous;
+        inclusive = false;
+      }
+    }
+
+    private ByteString committedNextKey(Tree tree, ByteString key, boolean inclusive)
+    {
+      if (tree == null)
+      {
+        return null;
+      }
+      Map.Entry<ByteString, Version> entry = key == null ? tree.records.firstEntry()
+                                           : inclusive ? tree.records.ceilingEntry(key)
+                                                       : tree.records.higherEntry(key);
+      while (entry != null && !isVisible(entry.getValue()))
+      {
+        entry = tree.records.higherEntry(entry.getKey());
+      }
+      return entry != null ? entry.getKey() : null;
+    }
+
+    private ByteString committedPreviousKey(Tree tree, ByteString key, boolean inclusive)
+    {
+      if (tree == null)
+      {
+        return null;
+      }
+      Map.Entry<ByteString, Version> entry = key == null ? tree.records.lastEntry()
+                                           : inclusive ? tree.records.floorEntry(key)
+                                                       : tree.records.lowerEntry(key);
+      while (entry != null && !isVisible(entry.getValue()))
+      {
+        entry = tree.records.lowerEntry(entry.getKey());
+      }
+      return entry != null ? entry.getKey() : null;
+    }
+
+    private boolean isVisible(Version head)
+    {
+      final Version version = visibleVersion(head, readTs);
+      return version != null && !version.isDeleted();
+    }
+
+    /** Copies the changes off-heap, then makes them visible all at once. */
+    private void commit()
+    {
+      if (writeSets.isEmpty())
+      {
+        return;
+      }
+      final List<PendingRecord> pendingRecords = new ArrayList<>();
+      try
+      {
+        for (WriteSet writeSet : writeSets.values())
+        {
+          for (Map.Entry<ByteString, ByteString> value : writeSet.values.entrySet())
+          {
+            pendingRecords.add(new PendingRecord(writeSet.tree, value.getKey(), value.getValue(), allocator));
+          }
+        }
+      }
+      catch (StorageRuntimeException e)
+      {
+        for (PendingRecord record : pendingRecords)
+        {
+          allocator.free(record.address, record.length);
+        }
+        throw e;
+      }
+      synchronized (commitLock)
+      {
+        final long commitTs = getCommittedTs() + 1;
+        for (PendingRecord record : pendingRecords)
+        {
+          install(record, commitTs);
+        }
+        publishCommit(commitTs);
+      }
+      committed = true;
+    }
+
+    @Override
+    public void close()
+    {
+      releaseSnapshot(snapshotTs);
+      if (committed)
+      {
+        final long oldestTs = getOldestSnapshotTs();
+        for (Tree tree : lockedTrees)
+        {
+          vacuum(tree, oldestTs);
+        }
+      }
+      for (Tree tree : lockedTrees)
+      {
+        tree.writeLock.unlock();
+      }
+      lockedTrees.clear();
+      writeSets.clear();
+    }
+  }
+
+  /** Implementation of the {@link Cursor} interface, reading through a transaction. */
+  private final class CursorImpl implements Cursor<ByteString, ByteString>
+  {
+    private final TransactionImpl txn;
+    private final TreeName treeName;
+    /** Whether the transaction has been opened for this cursor only. */
+    private final boolean ownsTransaction;
+    /** The current key, or the key sought when the cursor is not positioned on a record. */
+    private ByteString position;
+    private ByteString currentValue;
+    private boolean isDefined;
+    /** Whether the cursor moved past the last record. */
+    private boolean isExhausted;
+
+    private CursorImpl(TransactionImpl txn, TreeName treeName, boolean ownsTransaction)
+    {
+      this.txn = txn;
+      this.treeName = treeName;
+      this.ownsTransaction = ownsTransaction;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (isExhausted)
+      {
+        return false;
+      }
+      return moveTo(position == null ? txn.nextKey(treeName, null, true) : txn.nextKey(treeName, position, false));
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return isDefined;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      throwIfUndefined();
+      return position;
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      if (currentValue == null)
+      {
+        throwIfUndefined();
+        currentValue = txn.get(treeName, position);
+      }
+      return currentValue;
+    }
+
+    @Override
+    public void delete()
+    {
+      throwIfUndefined();
+      txn.delete(treeName, position);
+    }
+
+    @Override
+    public boolean positionToKey(ByteSequence key)
+    {
+      reset();
+      position = key.toByteString();
+      currentValue = txn.get(treeName, position);
+      isDefined = currentValue != null;
+      return isDefined;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(ByteSequence key)
+    {
+      reset();
+      return moveTo(txn.nextKey(treeName, key.toByteString(), true));
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      reset();
+      return moveTo(txn.previousKey(treeName, null, true));
+    }
+
+    @Override
+    public boolean positionToIndex(int index)
+    {
+      reset();
+      for (int i = 0; i <= index; i++)
+      {
+        if (!next())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+      if (ownsTransaction)
+      {
+        txn.close();
+      }
+    }
+
+    private boolean moveTo(ByteString key)
+    {
+      currentValue = null;
+      if (key != null)
+      {
+        position = key;
+        isDefined = true;
+      }
+      else
+      {
+        isDefined = false;
+        isExhausted = true;
+      }
+      return isDefined;
+    }
+
+    private void reset()
+    {
+      position = null;
+      currentValue = null;
+      isDefined = false;
+      isExhausted = false;
+    }
+
+    private void throwIfUndefined()
+    {
+      if (!isDefined)
+      {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  /** Implementation of the {@link Importer} interface, committing each record on its own. */
+  private final class ImporterImpl implements Importer
+  {
+    @Override
+    public void close()
+    {
+      MemStorage.this.close();
+    }
+
+    @Override
+    public void clearTree(TreeName treeName)
+    {
+      deleteTree(treeName);
+      trees.putIfAbsent(treeName, new Tree());
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      try (final TransactionImpl txn = new TransactionImpl(true))
+      {
+        txn.put(treeName, key, value);
+        txn.commit();
+      }
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      try (final TransactionImpl txn = new TransactionImpl(false))
+      {
+        return txn.read(treeName, key);
+      }
+    }
+
+    @Override
+    public SequentialCursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new CursorImpl(new TransactionImpl(false), treeName, true);
+    }
+  }
+
+  private final ConcurrentMap<TreeName, Tree> trees = new ConcurrentHashMap<>();
+  private final Queue<DeletedTree> deletedTrees = new ConcurrentLinkedQueue<>();
+  private final OffHeapAllocator allocator;
+  /** Serializes the commits, so that commit timestamps are published in order. */
+  private final Object commitLock = new Object();
+  /** Guards the committed timestamp and the active snapshots. */
+  private final Object snapshotsLock = new Object();
+  private long committedTs;
+  /** The number of operations reading each snapshot. */
+  private final TreeMap<Long, Integer> activeSnapshots = new TreeMap<>();
+  /** Serializes the writing of snapshot files. */
+  private final Object snapshotFileLock = new Object();
+
+  private MemBackendCfg config;
+  /** It is NULL when the storage is closed. */
+  private AccessMode accessMode;
+  /** Whether the records are in memory, rather than only in the snapshot file. */
+  private boolean isLoaded;
+  private ScheduledExecutorService maintenanceExecutor;
+  private ScheduledFuture<?> snapshotTask;
+  private MemMonitor monitor;
+
+  /**
+   * Creates a new in-memory storage with the provided configuration.
+   *
+   * @param cfg
+   *          The configuration.
+   */
+  public MemStorage(MemBackendCfg cfg)
+  {
+    config = cfg;
+    allocator = new OffHeapAllocator(cfg.getBackendId(), getMaxMemorySize(cfg));
+    isLoaded = getSnapshotDirectory(cfg) == null;
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    open0(AccessMode.READ_WRITE);
+    return new ImporterImpl();
+  }
+
+  @Override
+  public void open(AccessMode accessMode) throws ConfigException, StorageRuntimeException
+  {
+    Reject.ifNull(accessMode, "accessMode must not be null");
+    open0(accessMode);
+  }
+
+  private synchronized void open0(AccessMode accessMode) throws ConfigException
+  {
+    if (this.accessMode != null)
+    {
+      throw new IllegalStateException(
+          "Storage is already open, either the backend is enabled or an import is currently running.");
+    }
+    final File snapshotDirectory = getDirectory();
+    if (snapshotDirectory != null && accessMode.isWriteable())
+    {
+      setupStorageFiles(snapshotDirectory, SNAPSHOT_DIRECTORY_PERMISSIONS, config.dn());
+    }
+    if (!isLoaded)
+    {
+      loadSnapshot();
+      isLoaded = true;
+    }
+    this.accessMode = accessMode;
+
+    maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(
+        newThreadFactory(null, "MemStorage maintenance " + getBackendId(), true));
+    maintenanceExecutor.scheduleWithFixedDelay(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        vacuum();
+      }
+    }, VACUUM_INTERVAL_MS, VACUUM_INTERVAL_MS, MILLISECONDS);
+    scheduleSnapshots(config);
+
+    monitor = new MemMonitor(getBackendId() + " Mem Database", this);
+    DirectoryServer.registerMonitorProvider(monitor);
+    config.addMemChangeListener(this);
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    if (accessMode == null)
+    {
+      return;
+    }
+    config.removeMemChangeListener(this);
+    DirectoryServer.deregisterMonitorProvider(monitor);
+    monitor = null;
+    maintenanceExecutor.shutdown();
+    try
+    {
+      maintenanceExecutor.awaitTermination(Long.MAX_VALUE, MILLISECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    maintenanceExecutor = null;
+    snapshotTask = null;
+
+    final boolean wasWriteable = accessMode.isWriteable();
+    accessMode = null;
+    if (getDirectory() == null)
+    {
+      // Keep the records for the next time the storage is opened, e.g. after an import.
+      vacuum();
+      return;
+    }
+    try
+    {
+      if (wasWriteable)
+      {
+        writeSnapshot();
+      }
+      clear();
+      isLoaded = false;
+    }
+    catch (IOException e)
+    {
+      // Keep the records in memory rather than losing the latest updates.
+      logger.error(ERR_MEM_BACKEND_CANNOT_WRITE_SNAPSHOT, getBackendId(), getSnapshotFile(),
+          stackTraceToSingleLineString(e));
+    }
+  }
+
+  @Override
+  public <T> T read(ReadOperation<T> readOperation) throws Exception
+  {
+    try (final TransactionImpl txn = new TransactionImpl(false))
+    {
+      return readOperation.run(txn);
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+  }
+
+  @Override
+  public void write(WriteOperation writeOperation) throws Exception
+  {
+    final AccessMode mode = accessMode;
+    final boolean isWriteable = mode != null && mode.isWriteable();
+    for (;;)
+    {
+      final TransactionImpl txn = new TransactionImpl(isWriteable);
+      try
+      {
+        writeOperation.run(txn);
+        if (!txn.conflict)
+        {
+          txn.commit();
+          return;
+        }
+      }
+      catch (final StorageRuntimeException e)
+      {
+        if (!txn.conflict)
+        {
+          throw unwrap(e);
+        }
+      }
+      catch (final Exception e)
+      {
+        if (!txn.conflict)
+        {
+          throw e;
+        }
+      }
+      finally
+      {
+        txn.close();
+      }
+      // retry after random sleep, letting the conflicting write operation complete
+      Thread.sleep((long) (Math.random() * MAX_SLEEP_ON_RETRY_MS));
+    }
+  }
+
+  @Override
+  public void writeNoSync(WriteOperation writeOperation) throws Exception
+  {
+    // Nothing is written to disk
+    write(writeOperation);
+  }
+
+  @Override
+  public void sync()
+  {
+    // Nothing is written to disk
+  }
+
+  private Exception unwrap(StorageRuntimeException e) throws Exception
+  {
+    if (e.getCause() instanceof Exception)
+    {
+      throw (Exception) e.getCause();
+    }
+    throw e;
+  }
+
+  @Override
+  public synchronized void removeStorageFiles() throws StorageRuntimeException
+  {
+    clear();
+    final File snapshotDirectory = getDirectory();
+    if (snapshotDirectory != null)
+    {
+      StorageUtils.removeStorageFiles(snapshotDirectory);
+    }
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    final long maxMemorySize = allocator.getMaxMemorySize();
+    final long usedBytes = allocator.getUsedBytes();
+    if (usedBytes >= maxMemorySize * LOW_MEMORY_RATIO)
+    {
+      return StorageStatus.lockedDown(WARN_MEM_BACKEND_MEMORY_LOW.get(getBackendId(), usedBytes, maxMemorySize));
+    }
+    return StorageStatus.working();
+  }
+
+  @Override
+  public boolean isCacheFull()
+  {
+    // All the records are in memory
+    return true;
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    return new HashSet<>(trees.keySet());
+  }
+
+  private String getBackendId()
+  {
+    return config.getBackendId();
+  }
+
+  private long acquireSnapshot()
+  {
+    synchronized (snapshotsLock)
+    {
+      final Integer count = activeSnapshots.get(committedTs);
+      activeSnapshots.put(committedTs, count != null ? count + 1 : 1);
+      return committedTs;
+    }
+  }
+
+  private void releaseSnapshot(long snapshotTs)
+  {
+    synchronized (snapshotsLock)
+    {
+      final int count = activeSnapshots.get(snapshotTs);
+      if (count == 1)
+      {
+        activeSnapshots.remove(snapshotTs);
+      }
+      else
+      {
+        activeSnapshots.put(snapshotTs, count - 1);
+      }
+    }
+  }
+
+  /** Returns the timestamp of the oldest snapshot which can be read now or later. */
+  private long getOldestSnapshotTs()
+  {
+    synchronized (snapshotsLock)
+    {
+      return activeSnapshots.isEmpty() ? committedTs : activeSnapshots.firstKey();
+    }
+  }
+
+  private long getCommittedTs()
+  {
+    synchronized (snapshotsLock)
+    {
+      return committedTs;
+    }
+  }
+
+  private void publishCommit(long commitTs)
+  {
+    synchronized (snapshotsLock)
+    {
+      committedTs = commitTs;
+    }
+  }
+
+  /** Returns the latest version committed before the provided timestamp, or {@code null} if there is none. */
+  private static Version visibleVersion(Version version, long readTs)
+  {
+    while (version != null && version.commitTs > readTs)
+    {
+      version = version.previous;
+    }
+    return version;
+  }
+
+  /** Makes a record visible. The caller holds the commit lock and the write lock of the tree. */
+  private void install(PendingRecord record, long commitTs)
+  {
+    final Version head = record.tree.records.get(record.key);
+    if (record.length == Version.DELETED && (head == null || head.isDeleted()))
+    {
+      return;
+    }
+    record.tree.records.put(record.key, new Version(commitTs, record.address, record.length, head));
+    if (head != null)
+    {
+      record.tree.updatedRecords.add(new UpdatedRecord(commitTs, record.key));
+    }
+  }
+
+  /** Deletes a tree, its records are freed once the operations which could read them have completed. */
+  private void deleteTree(TreeName treeName)
+  {
+    final Tree tree = trees.get(treeName);
+    if (tree == null)
+    {
+      return;
+    }
+    tree.writeLock.lock();
+    try
+    {
+      if (!tree.deleted)
+      {
+        tree.deleted = true;
+        synchronized (commitLock)
+        {
+          trees.remove(treeName, tree);
+          final long deleteTs = getCommittedTs() + 1;
+          publishCommit(deleteTs);
+          deletedTrees.add(new DeletedTree(deleteTs, tree));
+        }
+      }
+    }
+    finally
+    {
+      tree.writeLock.unlock();
+    }
+  }
+
+  /** Frees the versions which can no longer be read, skipping the trees currently updated. */
+  private void vacuum()
+  {
+    final long oldestTs = getOldestSnapshotTs();
+    for (Tree tree : trees.values())
+    {
+      if (tree.writeLock.tryLock())
+      {
+        try
+        {
+          vacuum(tree, oldestTs);
+        }
+        finally
+        {
+          tree.writeLock.unlock();
+        }
+      }
+    }
+    for (Iterator<DeletedTree> it = deletedTrees.iterator(); it.hasNext();)
+    {
+      final DeletedTree deletedTree = it.next();
+      if (deletedTree.deleteTs <= oldestTs)
+      {
+        for (Version head : deletedTree.tree.records.values())
+        {
+          freeVersions(head);
+        }
+        it.remove();
+      }
+    }
+  }
+
+  /** Frees the versions of a tree which can no longer be read. The caller holds the write lock of the tree. */
+  private void vacuum(Tree tree, long oldestTs)
+  {
+    if (tree.deleted)
+    {
+      return;
+    }
+    for (UpdatedRecord updated = tree.updatedRecords.peek();
+         updated != null && updated.commitTs <= oldestTs;
+         updated = tree.updatedRecords.peek())
+    {
+      tree.updatedRecords.poll();
+      final Version head = tree.records.get(updated.key);
+      final Version oldestVisible = visibleVersion(head, oldestTs);
+      if (oldestVisible != null)
+      {
+        final Version unreachable = oldestVisible.previous;
+        oldestVisible.previous = null;
+        freeVersions(unreachable);
+        if (oldestVisible == head && head.isDeleted())
+        {
+          tree.records.remove(updated.key, head);
+        }
+      }
+    }
+  }
+
+  private void freeVersions(Version version)
+  {
+    for (; version != null; version = version.previous)
+    {
+      allocator.free(version.address, version.length);
+    }
+  }
+
+  /** Removes all the records. */
+  private void clear()
+  {
+    if (accessMode != null)
+    {
+      for (TreeName treeName : listTrees())
+      {
+        deleteTree(treeName);
+      }
+    }
+    else
+    {
+      trees.clear();
+      deletedTrees.clear();
+      allocator.clear();
+    }
+  }
+
+  private synchronized void scheduleSnapshots(MemBackendCfg cfg)
+  {
+    if (snapshotTask != null)
+    {
+      snapshotTask.cancel(false);
+      snapshotTask = null;
+    }
+    final long interval = cfg.getSnapshotInterval();
+    if (maintenanceExecutor != null && accessMode.isWriteable() && getDirectory() != null && interval > 0)
+    {
+      snapshotTask = maintenanceExecutor.scheduleWithFixedDelay(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            writeSnapshot();
+          }
+          catch (IOException e)
+          {
+            logger.error(ERR_MEM_BACKEND_CANNOT_WRITE_SNAPSHOT, getBackendId(), getSnapshotFile(),
+                stackTraceToSingleLineString(e));
+          }
+        }
+      }, interval, interval, SECONDS);
+    }
+  }
+
+  /**
+   * Writes the records visible by a new snapshot to a temporary file, then renames it, so that the previous snapshot
+   * file is kept if the server stops while writing.
+   */
+  private void writeSnapshot() throws IOException
+  {
+    synchronized (snapshotFileLock)
+    {
+      final File tmpFile = new File(getDirectory(), SNAPSHOT_TMP_FILE_NAME);
+      final long snapshotTs = acquireSnapshot();
+      try (final FileOutputStream fileOutput = new FileOutputStream(tmpFile);
+           final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput)))
+      {
+        output.writeInt(SNAPSHOT_MAGIC);
+        output.writeInt(SNAPSHOT_FORMAT_VERSION);
+        for (Map.Entry<TreeName, Tree> tree : trees.entrySet())
+        {
+          output.writeBoolean(true);
+          output.writeUTF(tree.getKey().toString());
+          for (Map.Entry<ByteString, Version> record : tree.getValue().records.entrySet())
+          {
+            final Version version = visibleVersion(record.getValue(), snapshotTs);
+            if (version != null && !version.isDeleted())
+            {
+              writeBytes(output, record.getKey());
+              writeBytes(output, allocator.read(version.address, version.length));
+            }
+          }
+          output.writeInt(END_OF_TREE);
+        }
+        output.writeBoolean(false);
+        output.flush();
+        fileOutput.getFD().sync();
+      }
+      finally
+      {
+        releaseSnapshot(snapshotTs);
+      }
+      Files.move(tmpFile.toPath(), getSnapshotFile().toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream output, ByteString bytes) throws IOException
+  {
+    output.writeInt(bytes.length());
+    bytes.copyTo(output);
+  }
+
+  /** Loads the records of the snapshot file, if any, as if they were committed before all the other records. */
+  private void loadSnapshot() throws StorageRuntimeException
+  {
+    final File snapshotFile = getSnapshotFile();
+    if (snapshotFile == null || !snapshotFile.exists())
+    {
+      return;
+    }
+    long nbRecords = 0;
+    try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile))))
+    {
+      if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_FORMAT_VERSION)
+      {
+        throw new IOException(ERR_MEM_BACKEND_SNAPSHOT_FORMAT.get(snapshotFile).toString());
+      }
+      while (input.readBoolean())
+      {
+        final TreeName treeName = TreeName.valueOf(input.readUTF());
+        final Tree tree = new Tree();
+        for (int keyLength = input.readInt(); keyLength != END_OF_TREE; keyLength = input.readInt())
+        {
+          final ByteString key = readBytes(input, keyLength);
+          final ByteString value = readBytes(input, input.readInt());
+          tree.records.put(key, new Version(0, allocator.allocate(value), value.length(), null));
+          nbRecords++;
+        }
+        trees.put(treeName, tree);
+      }
+    }
+    catch (IOException | RuntimeException e)
+    {
+      clear();
+      throw new StorageRuntimeException(ERR_MEM_BACKEND_CANNOT_READ_SNAPSHOT.get(
+          getBackendId(), snapshotFile, stackTraceToSingleLineString(e)).toString(), e);
+    }
+    logger.info(NOTE_MEM_BACKEND_SNAPSHOT_LOADED, getBackendId(), nbRecords, snapshotFile);
+  }
+
+  private static ByteString readBytes(DataInputStream input, int length) throws IOException
+  {
+    final byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return ByteString.wrap(bytes);
+  }
+
+  private File getSnapshotFile()
+  {
+    final File snapshotDirectory = getDirectory();
+    return snapshotDirectory != null ? new File(snapshotDirectory, SNAPSHOT_FILE_NAME) : null;
+  }
+
+  private static File getSnapshotDirectory(MemBackendCfg cfg)
+  {
+    return cfg.getSnapshotDirectory() != null ? getDBDirectory(cfg.getSnapshotDirectory(), cfg.getBackendId()) : null;
+  }
+
+  private static long getMaxMemorySize(MemBackendCfg cfg)
+  {
+    final Long maxMemorySize = cfg.getMaxMemorySize();
+    return maxMemorySize != null ? maxMemorySize : Long.MAX_VALUE;
+  }
+
+  /** Returns the statistics reported by the monitor of this storage. */
+  MonitorData getMonitorData()
+  {
+    final MonitorData monitorAttrs = new MonitorData(7);
+    monitorAttrs.add("MemTrees", trees.size());
+    monitorAttrs.add("MemAllocatedBytes", allocator.getAllocatedBytes());
+    monitorAttrs.add("MemUsedBytes", allocator.getUsedBytes());
+    monitorAttrs.add("MemMaxBytes", allocator.getMaxMemorySize());
+    monitorAttrs.add("MemDeletedTreesPendingFree", deletedTrees.size());
+    synchronized (snapshotsLock)
+    {
+      monitorAttrs.add("MemCommittedTimestamp", committedTs);
+      monitorAttrs.add("MemActiveSnapshots", activeSnapshots.size());
+    }
+    return monitorAttrs;
+  }
+
+  private static ByteString firstKey(TreeMap<ByteString, ByteString> values)
+  {
+    return values.isEmpty() ? null : values.firstKey();
+  }
+
+  private static ByteString lastKey(TreeMap<ByteString, ByteString> values)
+  {
+    return values.isEmpty() ? null : values.lastKey();
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return getDirectory() != null;
+  }
+
+  @Override
+  public File getDirectory()
+  {
+    return getSnapshotDirectory(config);
+  }
+
+  /** Filter to retrieve the snapshot file to backup. */
+  private static final FileFilter BACKUP_FILES_FILTER = new FileFilter()
+  {
+    @Override
+    public boolean accept(File file)
+    {
+      return SNAPSHOT_FILE_NAME.equals(file.getName());
+    }
+  };
+
+  @Override
+  public ListIterator<Path> getFilesToBackup() throws DirectoryException
+  {
+    try
+    {
+      final AccessMode mode = accessMode;
+      if (mode != null && mode.isWriteable())
+      {
+        writeSnapshot();
+      }
+      return BackupManager.getFiles(getDirectory(), BACKUP_FILES_FILTER, getBackendId()).listIterator();
+    }
+    catch (IOException e)
+    {
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+          ERR_BACKEND_LIST_FILES_TO_BACKUP.get(getBackendId(), stackTraceToSingleLineString(e)));
+    }
+  }
+
+  @Override
+  public Path beforeRestore() throws DirectoryException
+  {
+    return null;
+  }
+
+  @Override
+  public boolean isDirectRestore()
+  {
+    // restore is done in an intermediate directory
+    return false;
+  }
+
+  @Override
+  public void afterRestore(Path restoreDirectory, Path saveDirectory) throws DirectoryException
+  {
+    // intermediate directory content is moved to the snapshot directory
+    final File targetDirectory = getDirectory();
+    recursiveDelete(targetDirectory);
+    try
+    {
+      Files.move(restoreDirectory, targetDirectory.toPath());
+    }
+    catch (IOException e)
+    {
+      LocalizableMessage msg = ERR_CANNOT_RENAME_RESTORE_DIRECTORY.get(restoreDirectory, targetDirectory.getPath());
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), msg);
+    }
+    synchronized (this)
+    {
+      clear();
+      isLoaded = false;
+      if (accessMode != null)
+      {
+        loadSnapshot();
+        isLoaded = true;
+      }
+    }
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    new BackupManager(getBackendId()).createBackup(this, backupConfig);
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    new BackupManager(getBackendId()).removeBackup(backupDirectory, backupID);
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    new BackupManager(getBackendId()).restoreBackup(this, restoreConfig);
+  }
+
+  /**
+   * Checks newly created backend has a valid configuration.
+   * @param cfg the new configuration
+   * @param unacceptableReasons the list of accumulated errors and their messages
+   * @return true if newly created backend has a valid configuration
+   */
+  static boolean isConfigurationAcceptable(MemBackendCfg cfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    final File snapshotDirectory = getSnapshotDirectory(cfg);
+    if (snapshotDirectory == null)
+    {
+      return true;
+    }
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    checkDBDirExistsOrCanCreate(snapshotDirectory, ccr, true);
+    if (!ccr.getMessages().isEmpty())
+    {
+      unacceptableReasons.addAll(ccr.getMessages());
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(MemBackendCfg newCfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    return isConfigurationAcceptable(newCfg, unacceptableReasons);
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(MemBackendCfg cfg)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    if (!Objects.equals(cfg.getSnapshotDirectory(), config.getSnapshotDirectory()))
+    {
+      ccr.setAdminActionRequired(true);
+      ccr.addMessage(NOTE_CONFIG_DB_DIR_REQUIRES_RESTART.get(config.getSnapshotDirectory(), cfg.getSnapshotDirectory()));
+      return ccr;
+    }
+    allocator.setMaxMemorySize(getMaxMemorySize(cfg));
+    if (cfg.getSnapshotInterval() != config.getSnapshotInterval())
+    {
+      scheduleSnapshots(cfg);
+    }
+    config = cfg;
+    return ccr;
+  }
+}
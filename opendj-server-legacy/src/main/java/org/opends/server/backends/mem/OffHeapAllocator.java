@@ -0,0 +1,365 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.mem;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * Allocates the records of a {@link MemStorage} outside of the Java heap.
+ * <p>
+ * Memory is reserved in slabs of direct buffers. Each slab is split into blocks of a single size class, and freed
+ * blocks are kept in the free list of their size class, so that the memory of deleted or updated records is reused
+ * without fragmenting the slabs. Records larger than a quarter of a slab get a dedicated buffer, which is released as
+ * soon as the record is freed.
+ * <p>
+ * A block is identified by an address, combining the index of its slab and its offset in the slab. This class is
+ * thread safe, but callers must neither read nor free a block which has already been freed.
+ */
+final class OffHeapAllocator
+{
+  /** The address of empty records, for which no memory is allocated. */
+  static final long NO_ADDRESS = -1;
+
+  static final int SLAB_SIZE = MB;
+  private static final int MAX_BLOCK_SIZE = SLAB_SIZE / 4;
+  /** Up to this size, size classes are multiples of the minimum block size. */
+  private static final int SMALL_BLOCK_SIZE = 128;
+  private static final int MIN_BLOCK_SIZE = 16;
+  /** Above the small block size, each power of two is divided into this number of size classes. */
+  private static final int SIZE_CLASSES_PER_POWER_OF_TWO = 4;
+
+  private final String backendId;
+  private final SizeClass[] sizeClasses;
+  private final AtomicLong usedBytes = new AtomicLong();
+  private volatile long maxMemorySize;
+
+  /** Guards the allocation and the release of slabs. */
+  private final Object slabsLock = new Object();
+  /** Only grows, new slabs are published to readers along with the addresses of their blocks. */
+  private volatile ByteBuffer[] slabs = new ByteBuffer[16];
+  private int nbSlabs;
+  /** The indexes of the released dedicated buffers, available for new slabs. */
+  private int[] freeSlabIndexes = new int[16];
+  private int nbFreeSlabIndexes;
+  private long allocatedBytes;
+
+  /**
+   * Creates a new allocator.
+   *
+   * @param backendId
+   *          the identifier of the backend whose records are allocated, used in error messages
+   * @param maxMemorySize
+   *          the maximum number of bytes which can be allocated
+   */
+  OffHeapAllocator(String backendId, long maxMemorySize)
+  {
+    this.backendId = backendId;
+    this.maxMemorySize = maxMemorySize;
+    this.sizeClasses = new SizeClass[sizeClassIndex(MAX_BLOCK_SIZE) + 1];
+    for (int i = 0; i < sizeClasses.length; i++)
+    {
+      sizeClasses[i] = new SizeClass(sizeClassBlockSize(i));
+    }
+  }
+
+  /**
+   * Copies a record off-heap.
+   *
+   * @param bytes
+   *          the bytes of the record
+   * @return the address of the record, to be provided for reading or freeing it
+   * @throws StorageRuntimeException
+   *           if the maximum memory size has been reached
+   */
+  long allocate(ByteSequence bytes)
+  {
+    final int length = bytes.length();
+    if (length == 0)
+    {
+      return NO_ADDRESS;
+    }
+    final long address;
+    if (length > MAX_BLOCK_SIZE)
+    {
+      address = address(newSlab(length), 0);
+      usedBytes.addAndGet(length);
+    }
+    else
+    {
+      final SizeClass sizeClass = sizeClasses[sizeClassIndex(length)];
+      address = sizeClass.allocate();
+      usedBytes.addAndGet(sizeClass.blockSize);
+    }
+    final ByteBuffer buffer = slabs[slabIndex(address)].duplicate();
+    buffer.position(offset(address));
+    bytes.copyTo(buffer);
+    return address;
+  }
+
+  /**
+   * Reads a record.
+   *
+   * @param address
+   *          the address of the record
+   * @param length
+   *          the length of the record
+   * @return a copy of the bytes of the record
+   */
+  ByteString read(long address, int length)
+  {
+    if (length == 0)
+    {
+      return ByteString.empty();
+    }
+    final ByteBuffer buffer = slabs[slabIndex(address)].duplicate();
+    buffer.position(offset(address));
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return ByteString.wrap(bytes);
+  }
+
+  /**
+   * Frees a record, its memory is reused by the next allocations.
+   *
+   * @param address
+   *          the address of the record
+   * @param length
+   *          the length of the record, nothing is freed if it is not positive
+   */
+  void free(long address, int length)
+  {
+    if (length <= 0)
+    {
+      return;
+    }
+    if (length > MAX_BLOCK_SIZE)
+    {
+      releaseSlab(slabIndex(address));
+      usedBytes.addAndGet(-length);
+    }
+    else
+    {
+      final SizeClass sizeClass = sizeClasses[sizeClassIndex(length)];
+      sizeClass.free(address);
+      usedBytes.addAndGet(-sizeClass.blockSize);
+    }
+  }
+
+  /** Releases all the memory, invalidating the addresses of all the records. */
+  void clear()
+  {
+    for (SizeClass sizeClass : sizeClasses)
+    {
+      sizeClass.clear();
+    }
+    synchronized (slabsLock)
+    {
+      slabs = new ByteBuffer[16];
+      nbSlabs = 0;
+      nbFreeSlabIndexes = 0;
+      allocatedBytes = 0;
+      usedBytes.set(0);
+    }
+  }
+
+  void setMaxMemorySize(long maxMemorySize)
+  {
+    this.maxMemorySize = maxMemorySize;
+  }
+
+  long getMaxMemorySize()
+  {
+    return maxMemorySize;
+  }
+
+  /**
+   * Returns the number of bytes reserved off-heap.
+   *
+   * @return the number of bytes reserved off-heap
+   */
+  long getAllocatedBytes()
+  {
+    synchronized (slabsLock)
+    {
+      return allocatedBytes;
+    }
+  }
+
+  /**
+   * Returns the number of bytes used by records, including the padding to the size of their block.
+   *
+   * @return the number of bytes used by records
+   */
+  long getUsedBytes()
+  {
+    return usedBytes.get();
+  }
+
+  private int newSlab(int size)
+  {
+    synchronized (slabsLock)
+    {
+      if (allocatedBytes + size > maxMemorySize)
+      {
+        throw new StorageRuntimeException(
+            ERR_MEM_BACKEND_MEMORY_EXHAUSTED.get(backendId, allocatedBytes, maxMemorySize).toString());
+      }
+      final ByteBuffer slab;
+      try
+      {
+        slab = ByteBuffer.allocateDirect(size);
+      }
+      catch (OutOfMemoryError e)
+      {
+        throw new StorageRuntimeException(
+            ERR_MEM_BACKEND_MEMORY_EXHAUSTED.get(backendId, allocatedBytes, maxMemorySize).toString(), e);
+      }
+      final int slabIndex;
+      if (nbFreeSlabIndexes > 0)
+      {
+        slabIndex = freeSlabIndexes[--nbFreeSlabIndexes];
+      }
+      else
+      {
+        if (nbSlabs == slabs.length)
+        {
+          slabs = Arrays.copyOf(slabs, nbSlabs * 2);
+        }
+        slabIndex = nbSlabs++;
+      }
+      slabs[slabIndex] = slab;
+      allocatedBytes += size;
+      return slabIndex;
+    }
+  }
+
+  private void releaseSlab(int slabIndex)
+  {
+    synchronized (slabsLock)
+    {
+      allocatedBytes -= slabs[slabIndex].capacity();
+      slabs[slabIndex] = null;
+      if (nbFreeSlabIndexes == freeSlabIndexes.length)
+      {
+        freeSlabIndexes = Arrays.copyOf(freeSlabIndexes, nbFreeSlabIndexes * 2);
+      }
+      freeSlabIndexes[nbFreeSlabIndexes++] = slabIndex;
+    }
+  }
+
+  /**
+   * Returns the index of the smallest size class holding blocks of the provided length. Small blocks are multiples of
+   * the minimum block size, larger blocks are spaced by a quarter of the previous power of two.
+   */
+  static int sizeClassIndex(int length)
+  {
+    if (length <= SMALL_BLOCK_SIZE)
+    {
+      return Math.max(length - 1, 0) / MIN_BLOCK_SIZE;
+    }
+    final int powerOfTwo = Integer.highestOneBit(length - 1);
+    final int step = powerOfTwo / SIZE_CLASSES_PER_POWER_OF_TWO;
+    final int nbSmallClasses = SMALL_BLOCK_SIZE / MIN_BLOCK_SIZE;
+    final int powerIndex = Integer.numberOfTrailingZeros(powerOfTwo) - Integer.numberOfTrailingZeros(SMALL_BLOCK_SIZE);
+    return nbSmallClasses + powerIndex * SIZE_CLASSES_PER_POWER_OF_TWO + (length - 1 - powerOfTwo) / step;
+  }
+
+  /** Returns the size of the blocks of a size class. */
+  static int sizeClassBlockSize(int sizeClassIndex)
+  {
+    final int nbSmallClasses = SMALL_BLOCK_SIZE / MIN_BLOCK_SIZE;
+    if (sizeClassIndex < nbSmallClasses)
+    {
+      return (sizeClassIndex + 1) * MIN_BLOCK_SIZE;
+    }
+    final int powerIndex = (sizeClassIndex - nbSmallClasses) / SIZE_CLASSES_PER_POWER_OF_TWO;
+    final int powerOfTwo = SMALL_BLOCK_SIZE << powerIndex;
+    final int nbSteps = (sizeClassIndex - nbSmallClasses) % SIZE_CLASSES_PER_POWER_OF_TWO + 1;
+    return powerOfTwo + nbSteps * (powerOfTwo / SIZE_CLASSES_PER_POWER_OF_TWO);
+  }
+
+  private static long address(int slabIndex, int offset)
+  {
+    return ((long) slabIndex << 32) | offset;
+  }
+
+  private static int slabIndex(long address)
+  {
+    return (int) (address >>> 32);
+  }
+
+  private static int offset(long address)
+  {
+    return (int) address;
+  }
+
+  /** The blocks of a given size, carved out of dedicated slabs. */
+  private final class SizeClass
+  {
+    private final int blockSize;
+    private long[] freeBlocks = new long[16];
+    private int nbFreeBlocks;
+    private int currentSlab;
+    /** The offset of the next block never allocated in the current slab. */
+    private int nextOffset = SLAB_SIZE;
+
+    private SizeClass(int blockSize)
+    {
+      this.blockSize = blockSize;
+    }
+
+    synchronized long allocate()
+    {
+      if (nbFreeBlocks > 0)
+      {
+        return freeBlocks[--nbFreeBlocks];
+      }
+      if (nextOffset + blockSize > SLAB_SIZE)
+      {
+        currentSlab = newSlab(SLAB_SIZE);
+        nextOffset = 0;
+      }
+      final long address = address(currentSlab, nextOffset);
+      nextOffset += blockSize;
+      return address;
+    }
+
+    synchronized void free(long address)
+    {
+      if (nbFreeBlocks == freeBlocks.length)
+      {
+        freeBlocks = Arrays.copyOf(freeBlocks, nbFreeBlocks * 2);
+      }
+      freeBlocks[nbFreeBlocks++] = address;
+    }
+
+    synchronized void clear()
+    {
+      freeBlocks = new long[16];
+      nbFreeBlocks = 0;
+      nextOffset = SLAB_SIZE;
+    }
+  }
+}
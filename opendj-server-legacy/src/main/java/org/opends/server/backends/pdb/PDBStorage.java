@@ -83,6 +83,7 @@ import com.persistit.Configuration;
 import com.persistit.Configuration.BufferPoolConfiguration;
 import com.persistit.Exchange;
 import com.persistit.Key;
+import com.persistit.Management.BufferPoolInfo;
 import com.persistit.Persistit;
 import com.persistit.Transaction;
 import com.persistit.Transaction.CommitPolicy;
@@ -391,7 +392,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
   /** Common interface for internal WriteableTransaction implementations. */
   private interface StorageImpl extends WriteableTransaction, Closeable {
     <T>T read(ReadOperation<T> operation) throws Exception;
-    void write(WriteOperation operation) throws Exception;
+    void write(WriteOperation operation, CommitPolicy commitPolicy) throws Exception;
   }
 
   /** PersistIt implementation of the {@link WriteableTransaction} interface. */
@@ -520,6 +521,28 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       }
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName treeName, final List<? extends ByteSequence> sortedKeys)
+    {
+      try
+      {
+        // The exchange caches the pages of its last traversal, so the next keys are mostly found without descent
+        final Exchange ex = getExchangeFromCache(treeName);
+        final List<ByteString> values = new ArrayList<>(sortedKeys.size());
+        for (ByteSequence key : sortedKeys)
+        {
+          bytesToKey(ex.getKey(), key);
+          ex.fetch();
+          values.add(valueToBytes(ex.getValue()));
+        }
+        return values;
+      }
+      catch (final PersistitException | RollbackException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -624,7 +647,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     }
 
     @Override
-    public void write(WriteOperation operation) throws Exception
+    public void write(WriteOperation operation, CommitPolicy commitPolicy) throws Exception
     {
       final Transaction txn = db.getTransaction();
       for (;;)
@@ -676,6 +699,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return delegate.readAll(treeName, sortedKeys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -751,7 +780,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     }
 
     @Override
-    public void write(WriteOperation operation) throws Exception
+    public void write(WriteOperation operation, CommitPolicy commitPolicy) throws Exception
     {
       operation.run(this);
     }
@@ -805,6 +834,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return null;
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return readEach(this, treeName, sortedKeys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -824,7 +859,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     }
 
     @Override
-    public void write(WriteOperation operation) throws Exception
+    public void write(WriteOperation operation, CommitPolicy commitPolicy) throws Exception
     {
       operation.run(this);
     }
@@ -1055,10 +1090,21 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
 
   @Override
   public void write(final WriteOperation operation) throws Exception
+  {
+    write0(operation, commitPolicy);
+  }
+
+  @Override
+  public void writeNoSync(final WriteOperation operation) throws Exception
+  {
+    write0(operation, SOFT);
+  }
+
+  private void write0(final WriteOperation operation, final CommitPolicy commitPolicy) throws Exception
   {
     try (final StorageImpl storageImpl = newStorageImpl())
     {
-      storageImpl.write(operation);
+      storageImpl.write(operation, commitPolicy);
     }
     catch (final StorageRuntimeException e)
     {
@@ -1066,6 +1112,22 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     }
   }
 
+  @Override
+  public void sync() throws StorageRuntimeException
+  {
+    if (db != null && accessMode.isWriteable())
+    {
+      try
+      {
+        db.force();
+      }
+      catch (final PersistitException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+  }
+
   private Exception unwrap(StorageRuntimeException e) throws Exception
   {
     if (e.getCause() != null)
@@ -1424,6 +1486,30 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     return storageStatus;
   }
 
+  @Override
+  public boolean isCacheFull()
+  {
+    if (db == null)
+    {
+      return false;
+    }
+    try
+    {
+      for (BufferPoolInfo bufferPoolInfo : db.getManagement().getBufferPoolInfoArray())
+      {
+        if (bufferPoolInfo.getBufferSize() == BUFFER_SIZE)
+        {
+          return bufferPoolInfo.getValidPageCount() >= bufferPoolInfo.getBufferCount();
+        }
+      }
+      return false;
+    }
+    catch (RemoteException e)
+    {
+      throw new StorageRuntimeException(e);
+    }
+  }
+
   @Override
   public void diskFullThresholdReached(File directory, long thresholdInBytes) {
     storageStatus = statusWhenDiskSpaceFull(directory, thresholdInBytes, config.getBackendId());
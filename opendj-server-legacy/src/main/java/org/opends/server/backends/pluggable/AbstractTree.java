@@ -30,19 +30,29 @@ abstract class AbstractTree implements Tree
 {
   /** The name of the tree within the entryContainer. */
   private final TreeName name;
+  /** The name of the tree of the storage holding the records, which is read from the state tree on open. */
+  private volatile TreeName physicalName;
 
   AbstractTree(final TreeName name)
   {
     this.name = name;
+    this.physicalName = name;
   }
 
   @Override
   public final void open(WriteableTransaction txn, boolean createOnDemand) throws StorageRuntimeException
   {
-    txn.openTree(name, createOnDemand);
+    physicalName = readPhysicalName(txn);
+    txn.openTree(physicalName, createOnDemand);
     afterOpen(txn, createOnDemand);
   }
 
+  /** Override in order to read the name of the tree of the storage holding the records before the tree is opened. */
+  TreeName readPhysicalName(ReadableTransaction txn) throws StorageRuntimeException
+  {
+    return name;
+  }
+
   /** Override in order to perform any additional initialization after the index has opened. */
   void afterOpen(WriteableTransaction txn, boolean createOnDemand) throws StorageRuntimeException
   {
@@ -53,7 +63,7 @@ abstract class AbstractTree implements Tree
   public final void delete(WriteableTransaction txn) throws StorageRuntimeException
   {
     beforeDelete(txn);
-    txn.deleteTree(name);
+    txn.deleteTree(physicalName);
   }
 
   /** Override in order to perform any additional operation before index tree deletion. */
@@ -65,7 +75,7 @@ abstract class AbstractTree implements Tree
   @Override
   public final long getRecordCount(ReadableTransaction txn) throws StorageRuntimeException
   {
-    return txn.getRecordCount(name);
+    return txn.getRecordCount(physicalName);
   }
 
   @Override
@@ -74,6 +84,23 @@ abstract class AbstractTree implements Tree
     return name;
   }
 
+  @Override
+  public final TreeName getPhysicalName()
+  {
+    return physicalName;
+  }
+
+  /**
+   * Switches the records of this tree to another tree of the storage, once the switch is committed.
+   *
+   * @param physicalName
+   *          the name of the tree of the storage now holding the records of this tree
+   */
+  final void setPhysicalName(TreeName physicalName)
+  {
+    this.physicalName = physicalName;
+  }
+
   @Override
   public final String toString()
   {
@@ -765,7 +765,29 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
-  private static IndexQuery getIndexQuery(IndexQueryFactory<IndexQuery> indexQueryFactory,
+  /**
+   * Estimates the number of candidate entry IDs this attribute index will return for a filter.
+   *
+   * @param indexFilterType the index type filter
+   * @param filter The filter.
+   * @return The estimated number of entry IDs, {@link IndexQueryCostEstimator#NOT_INDEXED} if the filter cannot be
+   *         evaluated with an index or {@link IndexStatistics#UNKNOWN} if the statistics of the index are not known.
+   */
+  long estimateFilterCost(IndexFilterType indexFilterType, SearchFilter filter)
+  {
+    try
+    {
+      return getIndexQuery(new IndexQueryCostEstimator(this), indexFilterType, filter);
+    }
+    catch (DecodeException e)
+    {
+      // An empty set is returned without reading any index, see evaluateFilter()
+      logger.traceException(e);
+      return 0;
+    }
+  }
+
+  private static <T> T getIndexQuery(IndexQueryFactory<T> indexQueryFactory,
       IndexFilterType indexFilterType, SearchFilter filter) throws DecodeException
   {
     MatchingRule rule;
@@ -1133,6 +1155,40 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
+  /**
+   * Estimates the number of candidate entry IDs this attribute index will return for an extensible filter.
+   *
+   * @param filter The extensible filter.
+   * @return The estimated number of entry IDs, {@link IndexQueryCostEstimator#NOT_INDEXED} if the filter cannot be
+   *         evaluated with an index or {@link IndexStatistics#UNKNOWN} if the statistics of the index are not known.
+   */
+  long estimateExtensibleFilterCost(SearchFilter filter)
+  {
+    final String matchRuleOID = filter.getMatchingRuleID();
+    final MatchingRule eqRule = config.getAttribute().getEqualityMatchingRule();
+    if (matchRuleOID == null
+        || matchRuleOID.equals(eqRule.getOID())
+        || matchRuleOID.equalsIgnoreCase(eqRule.getNameOrOID()))
+    {
+      return estimateFilterCost(IndexFilterType.EQUALITY, filter);
+    }
+
+    final MatchingRule rule = getSchema().getMatchingRule(matchRuleOID);
+    if (!ruleHasAtLeastOneIndex(rule))
+    {
+      return IndexQueryCostEstimator.NOT_INDEXED;
+    }
+    try
+    {
+      return rule.getAssertion(filter.getAssertionValue()).createIndexQuery(new IndexQueryCostEstimator(this));
+    }
+    catch (DecodeException e)
+    {
+      logger.traceException(e);
+      return IndexQueryCostEstimator.NOT_INDEXED;
+    }
+  }
+
   private static Schema getSchema()
   {
     return DirectoryServer.getInstance().getServerContext().getSchema();
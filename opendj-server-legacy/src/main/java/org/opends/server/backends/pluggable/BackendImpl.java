@@ -746,9 +746,10 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
 
     /*
      * If the rootContainer is open, the backend is initialized by something else.
-     * We can't do any rebuild of system indexes while others are using this backend.
+     * We can't do any rebuild of system indexes while others are using this backend,
+     * nor rebuild them online.
      */
-    if (!openRootContainer && rebuildConfig.includesSystemIndex())
+    if ((!openRootContainer || rebuildConfig.isOnline()) && rebuildConfig.includesSystemIndex())
     {
       throw new DirectoryException(
           serverContext.getCoreConfigManager().getServerErrorResultCode(), ERR_REBUILD_BACKEND_ONLINE.get());
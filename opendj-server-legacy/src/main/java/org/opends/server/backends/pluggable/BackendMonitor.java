@@ -23,8 +23,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.WriteDurability;
 import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
 import org.opends.server.api.MonitorData;
 import org.opends.server.api.MonitorProvider;
@@ -80,6 +82,15 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
   private final HashMap<SearchFilter, FilterStats> filterToStats = new HashMap<>();
   private final AtomicInteger indexedSearchCount = new AtomicInteger();
   private final AtomicInteger unindexedSearchCount = new AtomicInteger();
+  /** Number of OR filters whose components were read concurrently. */
+  private final AtomicLong indexReadFanOutCount = new AtomicLong();
+  /** Total number of filter components read concurrently. */
+  private final AtomicLong indexReadFanOutComponents = new AtomicLong();
+  private final AtomicInteger indexReadFanOutMax = new AtomicInteger();
+  /** Number of indexed searches whose entries were read ahead by a prefetch thread. */
+  private final AtomicLong prefetchedSearchCount = new AtomicLong();
+  /** Number of indexed searches whose entries were not read ahead because all the prefetch threads were busy. */
+  private final AtomicLong prefetchRejectedSearchCount = new AtomicLong();
 
   /**
    * Creates a new backend monitor.
@@ -118,6 +129,64 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
       monitorAttrs.add("filter-use-unindexed", unindexedSearchCount);
     }
 
+    if (rootContainer.getIndexReadExecutor() != null)
+    {
+      monitorAttrs.add("index-read-fan-out-count", indexReadFanOutCount);
+      monitorAttrs.add("index-read-fan-out-components", indexReadFanOutComponents);
+      monitorAttrs.add("index-read-fan-out-max", indexReadFanOutMax);
+    }
+
+    if (rootContainer.getEntryPrefetchExecutor() != null)
+    {
+      monitorAttrs.add("search-prefetch-count", prefetchedSearchCount);
+      monitorAttrs.add("search-prefetch-rejected-count", prefetchRejectedSearchCount);
+    }
+
+    final IndexCache indexCache = rootContainer.getIndexCache();
+    if (indexCache != null)
+    {
+      monitorAttrs.add("index-cache-hits", indexCache.getHitCount());
+      monitorAttrs.add("index-cache-misses", indexCache.getMissCount());
+      monitorAttrs.add("index-cache-evictions", indexCache.getEvictionCount());
+      monitorAttrs.add("index-cache-keys", indexCache.getKeyCount());
+      monitorAttrs.add("index-cache-memory-size", indexCache.getMemorySize());
+    }
+
+    final TreePreloader preloader = rootContainer.getPreloader();
+    if (preloader != null)
+    {
+      monitorAttrs.add("preload-status", preloader.getStatus().toString().toLowerCase().replace('_', '-'));
+      monitorAttrs.add("preload-trees", preloader.getTreeCount());
+      monitorAttrs.add("preload-trees-completed", preloader.getLoadedTrees());
+      monitorAttrs.add("preload-records", preloader.getLoadedRecords());
+      monitorAttrs.add("preload-bytes", preloader.getLoadedBytes());
+    }
+
+    final StorageMetrics storageMetrics = rootContainer.getStorageMetrics();
+    if (storageMetrics != null && storageMetrics.getSamplePercent() > 0)
+    {
+      monitorAttrs.add("storage-metrics-sample-percent", storageMetrics.getSamplePercent());
+      final List<String> operationValues = storageMetrics.toMonitorValues();
+      if (!operationValues.isEmpty())
+      {
+        monitorAttrs.add("storage-operation", operationValues);
+      }
+    }
+
+    final GroupCommitStorage groupCommit = rootContainer.getGroupCommitStorage();
+    if (groupCommit.getDurability() != WriteDurability.SYNC || groupCommit.getGroupCount() > 0)
+    {
+      final long groupCount = groupCommit.getGroupCount();
+      final long operationCount = groupCommit.getGroupedOperationCount();
+      monitorAttrs.add("write-durability", groupCommit.getDurability().toString());
+      monitorAttrs.add("group-commit-count", groupCount);
+      monitorAttrs.add("group-commit-operations", operationCount);
+      monitorAttrs.add("group-commit-average-size", groupCount > 0 ? (double) operationCount / groupCount : 0d);
+      monitorAttrs.add("group-commit-max-size", groupCommit.getMaxGroupSize());
+      monitorAttrs.add("group-commit-retried-count", groupCommit.getRetriedGroupCount());
+      monitorAttrs.add("write-durability-sync-count", groupCommit.getSyncCount());
+    }
+
     return monitorAttrs;
   }
 
@@ -283,6 +352,34 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
     }
   }
 
+  /**
+   * Updates the statistics of the filters whose components are read concurrently.
+   *
+   * @param components The number of components of the filter read concurrently.
+   */
+  void updateIndexReadFanOut(int components)
+  {
+    indexReadFanOutCount.getAndIncrement();
+    indexReadFanOutComponents.getAndAdd(components);
+    int max;
+    while ((max = indexReadFanOutMax.get()) < components && !indexReadFanOutMax.compareAndSet(max, components))
+    {
+      // Retry.
+    }
+  }
+
+  /** Increments the number of indexed searches whose entries were read ahead by a prefetch thread. */
+  void incrementPrefetchedSearchCount()
+  {
+    prefetchedSearchCount.getAndIncrement();
+  }
+
+  /** Increments the number of indexed searches whose entries were not read ahead because no thread was available. */
+  void incrementPrefetchRejectedSearchCount()
+  {
+    prefetchRejectedSearchCount.getAndIncrement();
+  }
+
   private void removeLowestHit()
   {
     while (!filterToStats.isEmpty() && filterToStats.size() > maxEntries)
@@ -169,7 +169,7 @@ public class BackendStat
     private BackendTreeKeyValue(Tree tree)
     {
       this.tree = tree;
-      this.name = tree.getName();
+      this.name = tree.getPhysicalName();
     }
 
     @Override
@@ -0,0 +1,56 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.io.Closeable;
+
+import org.opends.server.types.CanceledOperationException;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+
+/** The candidate entries of an indexed search, in the order in which they must be returned. */
+interface CandidateEntries extends Closeable
+{
+  /**
+   * Moves to the next candidate.
+   *
+   * @return {@code true} if there is a next candidate, {@code false} if all the candidates have been read or if the
+   *         search must end
+   * @throws CanceledOperationException
+   *           if the search has been abandoned while waiting for the next candidate
+   */
+  boolean next() throws CanceledOperationException;
+
+  /**
+   * Returns the entry ID of the current candidate.
+   *
+   * @return the entry ID of the current candidate
+   */
+  EntryID getEntryID();
+
+  /**
+   * Returns the entry of the current candidate, and puts it in the entry cache if it was not there.
+   *
+   * @return the entry of the current candidate, or {@code null} if it no longer exists
+   * @throws DirectoryException
+   *           if the entry cannot be decoded
+   */
+  Entry getEntry() throws DirectoryException;
+
+  /** Releases the resources used for reading the candidates which have not been read. */
+  @Override
+  void close();
+}
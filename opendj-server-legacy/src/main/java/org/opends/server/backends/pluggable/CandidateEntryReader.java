@@ -0,0 +1,150 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.api.EntryCache;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+
+/**
+ * Reads the candidate entries of an indexed search from the entry cache or id2entry. The entries missing from the
+ * cache are fetched by batches in entry ID order, which requires fewer tree descents than fetching them one by one.
+ * Batches start small and grow, so that searches returning only a few entries do not read many more.
+ */
+final class CandidateEntryReader implements CandidateEntries
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The number of candidates of the first batch, doubled for each subsequent batch. */
+  private static final int MIN_BATCH_SIZE = 8;
+  /** The maximum number of candidates of a batch. */
+  private static final int MAX_BATCH_SIZE = 256;
+
+  private final ReadableTransaction txn;
+  private final ID2Entry id2entry;
+  private final EntryCache<?> entryCache;
+  private final String backendID;
+  private final Iterator<EntryID> candidates;
+
+  private int batchSize = MIN_BATCH_SIZE;
+  private final List<EntryID> batchEntryIDs = new ArrayList<>(MAX_BATCH_SIZE);
+  /** The entries of the batch found in the entry cache, null for the others. */
+  private final List<Entry> cachedEntries = new ArrayList<>(MAX_BATCH_SIZE);
+  /** The entry IDs of the batch read from id2entry, in ascending order, null if they could not be read at once. */
+  private long[] readEntryIDs;
+  /** The records read from id2entry, in the same order as {@link #readEntryIDs}. */
+  private List<ByteString> readRecords;
+  private int position = -1;
+
+  CandidateEntryReader(ReadableTransaction txn, ID2Entry id2entry, EntryCache<?> entryCache, String backendID,
+      Iterator<EntryID> candidates)
+  {
+    this.txn = txn;
+    this.id2entry = id2entry;
+    this.entryCache = entryCache;
+    this.backendID = backendID;
+    this.candidates = candidates;
+  }
+
+  @Override
+  public boolean next()
+  {
+    position++;
+    if (position >= batchEntryIDs.size())
+    {
+      readBatch();
+    }
+    return position < batchEntryIDs.size();
+  }
+
+  @Override
+  public EntryID getEntryID()
+  {
+    return batchEntryIDs.get(position);
+  }
+
+  @Override
+  public Entry getEntry() throws DirectoryException
+  {
+    final Entry cachedEntry = cachedEntries.get(position);
+    if (cachedEntry != null)
+    {
+      return cachedEntry;
+    }
+    final EntryID entryID = getEntryID();
+    final Entry entry = readEntryIDs != null
+        ? id2entry.get(entryID, readRecords.get(Arrays.binarySearch(readEntryIDs, entryID.longValue())))
+        : id2entry.get(txn, entryID);
+    if (entry != null)
+    {
+      // Put the entry in the cache making sure not to overwrite a newer copy
+      // that may have been inserted since the time we read the cache.
+      entryCache.putEntryIfAbsent(entry, backendID, entryID.longValue());
+    }
+    return entry;
+  }
+
+  @Override
+  public void close()
+  {
+    // Nothing to release, the transaction belongs to the caller.
+  }
+
+  private void readBatch()
+  {
+    batchEntryIDs.clear();
+    cachedEntries.clear();
+    position = 0;
+    long[] entryIDsToRead = new long[batchSize];
+    int nbEntryIDsToRead = 0;
+    while (batchEntryIDs.size() < batchSize && candidates.hasNext())
+    {
+      final EntryID entryID = candidates.next();
+      final Entry cachedEntry = entryCache.getEntry(backendID, entryID.longValue());
+      batchEntryIDs.add(entryID);
+      cachedEntries.add(cachedEntry);
+      if (cachedEntry == null)
+      {
+        entryIDsToRead[nbEntryIDsToRead++] = entryID.longValue();
+      }
+    }
+    batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+
+    // Candidates reordered by a server-side sort must be sorted again
+    entryIDsToRead = Arrays.copyOf(entryIDsToRead, nbEntryIDsToRead);
+    Arrays.sort(entryIDsToRead);
+    try
+    {
+      readRecords = id2entry.readAll(txn, entryIDsToRead);
+      readEntryIDs = entryIDsToRead;
+    }
+    catch (Exception e)
+    {
+      // Read the entries one by one, reporting the failure of each
+      logger.traceException(e);
+      readRecords = null;
+      readEntryIDs = null;
+    }
+  }
+}
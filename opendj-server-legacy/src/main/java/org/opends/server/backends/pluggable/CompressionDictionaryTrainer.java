@@ -0,0 +1,283 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Builds a compression dictionary from a sample of encoded entries.
+ * <p>
+ * The content shared by many samples is the most likely to appear in the entries compressed later. The trainer counts
+ * in how many samples each sequence of a few bytes appears, then splits the samples into as many epochs as the
+ * dictionary has segments, and picks from each epoch the segment containing the most frequent sequences. Once a
+ * segment has been picked, its sequences no longer count, which prevents filling the dictionary with the same content.
+ * The most valuable segments are placed at the end of the dictionary, where back references are the shortest.
+ * <p>
+ * This class is thread safe.
+ */
+final class CompressionDictionaryTrainer
+{
+  /** The number of samples after which a dictionary can be trained. */
+  static final int DEFAULT_SAMPLE_COUNT = 1000;
+
+  /** Length of the byte sequences whose frequency is counted. */
+  private static final int SEQUENCE_LENGTH = 8;
+  private static final int SEGMENT_SIZE = 64;
+  private static final int FREQUENCY_TABLE_LOG = 20;
+  /** Sequences present in fewer samples are not worth keeping in the dictionary. */
+  private static final int MIN_DOCUMENT_FREQUENCY = 2;
+  /** Segments sharing fewer sequences with other samples are most likely the result of hash collisions. */
+  private static final int MIN_SHARED_SEQUENCES = SEQUENCE_LENGTH;
+
+  private final int dictionarySize;
+  private final int sampleCount;
+  private final List<ByteString> samples = new ArrayList<>();
+
+  /**
+   * Creates a new trainer.
+   *
+   * @param dictionarySize
+   *          the maximum size of the dictionary
+   * @param sampleCount
+   *          the number of samples after which the trainer is {@link #isReady() ready}
+   */
+  CompressionDictionaryTrainer(int dictionarySize, int sampleCount)
+  {
+    this.dictionarySize = Math.min(dictionarySize, LZ4BlockCodec.MAX_OFFSET);
+    this.sampleCount = sampleCount;
+  }
+
+  /**
+   * Adds a sample, unless enough samples have already been added.
+   *
+   * @param sample
+   *          the sample to add
+   * @return {@code true} if this trainer has enough samples, including this one
+   */
+  synchronized boolean addSample(ByteSequence sample)
+  {
+    if (samples.size() < sampleCount)
+    {
+      samples.add(sample.toByteString());
+    }
+    return isReady();
+  }
+
+  /**
+   * Returns whether enough samples have been added for training a dictionary.
+   *
+   * @return whether enough samples have been added for training a dictionary
+   */
+  synchronized boolean isReady()
+  {
+    return samples.size() >= sampleCount;
+  }
+
+  /**
+   * Trains a dictionary from the samples added so far.
+   *
+   * @return the content of the dictionary, which is empty if the samples do not share any content
+   */
+  synchronized byte[] train()
+  {
+    final int[] frequencies = countDocumentFrequencies();
+    final List<Segment> segments = new ArrayList<>();
+    final int nbEpochs = Math.max(1, Math.min(samples.size(), dictionarySize / SEGMENT_SIZE));
+    int size = 0;
+    boolean progress = true;
+    while (progress && size < dictionarySize)
+    {
+      progress = false;
+      for (int epoch = 0; epoch < nbEpochs && size < dictionarySize; epoch++)
+      {
+        final Segment segment = bestSegment(frequencies,
+            samples.subList(epoch * samples.size() / nbEpochs, (epoch + 1) * samples.size() / nbEpochs));
+        if (segment != null)
+        {
+          segment.truncate(dictionarySize - size);
+          segments.add(segment);
+          size += segment.length();
+          // Picked sequences are now in the dictionary, they no longer count.
+          for (int i = 0; i + SEQUENCE_LENGTH <= segment.length(); i++)
+          {
+            frequencies[slot(segment.bytes, i)] = 0;
+          }
+          progress = true;
+        }
+      }
+    }
+
+    Collections.sort(segments);
+    final ByteStringBuilder dictionary = new ByteStringBuilder(size);
+    for (Segment segment : segments)
+    {
+      dictionary.appendBytes(segment.bytes);
+    }
+    return dictionary.toByteArray();
+  }
+
+  /** Counts in how many samples each sequence appears. Sequences are hashed, collisions are ignored. */
+  private int[] countDocumentFrequencies()
+  {
+    final int[] frequencies = new int[1 << FREQUENCY_TABLE_LOG];
+    final Set<Integer> slots = new HashSet<>();
+    for (ByteString sample : samples)
+    {
+      slots.clear();
+      for (int i = 0; i + SEQUENCE_LENGTH <= sample.length(); i++)
+      {
+        slots.add(slot(sample, i));
+      }
+      for (int slot : slots)
+      {
+        frequencies[slot]++;
+      }
+    }
+    for (int i = 0; i < frequencies.length; i++)
+    {
+      if (frequencies[i] < MIN_DOCUMENT_FREQUENCY)
+      {
+        frequencies[i] = 0;
+      }
+    }
+    return frequencies;
+  }
+
+  /**
+   * Returns the segment of the samples with the highest score, the score of a segment being the sum of the frequencies
+   * of the distinct sequences it contains.
+   */
+  private static Segment bestSegment(int[] frequencies, List<ByteString> epochSamples)
+  {
+    Segment best = null;
+    final Map<Integer, Integer> activeSlots = new HashMap<>();
+    for (ByteString sample : epochSamples)
+    {
+      activeSlots.clear();
+      final int nbSequences = sample.length() - SEQUENCE_LENGTH + 1;
+      final int sequencesPerSegment = SEGMENT_SIZE - SEQUENCE_LENGTH + 1;
+      long score = 0;
+      int sharedSequences = 0;
+      for (int i = 0; i < nbSequences; i++)
+      {
+        final int added = addSlot(activeSlots, frequencies, slot(sample, i));
+        score += added;
+        sharedSequences += added > 0 ? 1 : 0;
+        final int first = i - sequencesPerSegment + 1;
+        if (first > 0)
+        {
+          final int removed = removeSlot(activeSlots, frequencies, slot(sample, first - 1));
+          score -= removed;
+          sharedSequences -= removed > 0 ? 1 : 0;
+        }
+        if (sharedSequences >= MIN_SHARED_SEQUENCES && (best == null || score > best.score))
+        {
+          best = new Segment(sample, Math.max(first, 0), i + 1, score);
+        }
+      }
+    }
+    return best != null ? best.trim(frequencies) : null;
+  }
+
+  private static int addSlot(Map<Integer, Integer> activeSlots, int[] frequencies, int slot)
+  {
+    final Integer count = activeSlots.get(slot);
+    activeSlots.put(slot, count != null ? count + 1 : 1);
+    return count == null ? frequencies[slot] : 0;
+  }
+
+  private static int removeSlot(Map<Integer, Integer> activeSlots, int[] frequencies, int slot)
+  {
+    final int count = activeSlots.get(slot);
+    if (count == 1)
+    {
+      activeSlots.remove(slot);
+      return frequencies[slot];
+    }
+    activeSlots.put(slot, count - 1);
+    return 0;
+  }
+
+  private static int slot(ByteSequence bytes, int offset)
+  {
+    long sequence = 0;
+    for (int i = 0; i < SEQUENCE_LENGTH; i++)
+    {
+      sequence = (sequence << 8) | (bytes.byteAt(offset + i) & 0xFF);
+    }
+    return (int) ((sequence * 0x9E3779B97F4A7C15L) >>> (64 - FREQUENCY_TABLE_LOG));
+  }
+
+  /** A segment of a sample, ordered by increasing score. */
+  private static final class Segment implements Comparable<Segment>
+  {
+    private ByteString bytes;
+    private final long score;
+
+    /** Creates the segment covering the sequences starting from the first (inclusive) to the last (exclusive). */
+    Segment(ByteString sample, int firstSequence, int lastSequence, long score)
+    {
+      this.bytes = sample.subSequence(firstSequence, lastSequence + SEQUENCE_LENGTH - 1);
+      this.score = score;
+    }
+
+    int length()
+    {
+      return bytes.length();
+    }
+
+    /** Removes the leading and trailing sequences which do not appear in other samples. */
+    Segment trim(int[] frequencies)
+    {
+      int start = 0;
+      int end = bytes.length() - SEQUENCE_LENGTH;
+      while (start < end && frequencies[slot(bytes, start)] == 0)
+      {
+        start++;
+      }
+      while (end > start && frequencies[slot(bytes, end)] == 0)
+      {
+        end--;
+      }
+      bytes = bytes.subSequence(start, end + SEQUENCE_LENGTH);
+      return this;
+    }
+
+    void truncate(int maxLength)
+    {
+      if (bytes.length() > maxLength)
+      {
+        bytes = bytes.subSequence(bytes.length() - maxLength, bytes.length());
+      }
+    }
+
+    @Override
+    public int compareTo(Segment o)
+    {
+      return Long.compare(score, o.score);
+    }
+  }
+}
@@ -20,8 +20,10 @@ import static org.opends.server.backends.pluggable.CursorTransformer.*;
 import static org.opends.server.backends.pluggable.DnKeyFormat.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.forgerock.opendj.ldap.ByteSequence;
@@ -192,6 +194,61 @@ class DN2ID extends AbstractTree
     }
   }
 
+  /**
+   * Removes at most {@code maxRecords} records of the subtree rooted at the provided DN, deepest records first, so
+   * that the tree remains a valid hierarchy after each removal. The records are removed in key order, skipping the
+   * records whose subtree is not entirely removed. The subtree is entirely removed when the returned list contains
+   * the record of the provided DN.
+   *
+   * @param txn a non null transaction
+   * @param dn the DN of the root of the subtree
+   * @param maxRecords the maximum number of records to remove. It is exceeded if the subtree is deeper.
+   * @return the entry ID of each removed record paired with the entry ID of its parent, which is {@code null} for the
+   *         root of the subtree. The list is empty if the provided DN is not in the tree.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  List<Pair<EntryID, EntryID>> removeSubtreeChunk(WriteableTransaction txn, DN dn, int maxRecords)
+      throws StorageRuntimeException
+  {
+    final List<Pair<ByteString, EntryID>> records = new ArrayList<>();
+    ByteString nextKey = null;
+    try (SequentialCursor<ByteString, ByteString> cursor = new SubtreeCursor(openCursor0(txn, dn)))
+    {
+      for (boolean found = cursor.isDefined(); found; found = cursor.next())
+      {
+        if (records.size() == maxRecords)
+        {
+          nextKey = cursor.getKey();
+          break;
+        }
+        records.add(Pair.of(cursor.getKey(), new EntryID(cursor.getValue())));
+      }
+    }
+
+    // Records are in hierarchical order: the subtree of a record is entirely collected unless it contains the first
+    // record which has not been collected.
+    final Map<ByteString, EntryID> collectedIDs = new HashMap<>();
+    final List<Pair<EntryID, EntryID>> removedIDs = new ArrayList<>();
+    for (Pair<ByteString, EntryID> record : records)
+    {
+      final ByteString key = record.getFirst();
+      collectedIDs.put(key, record.getSecond());
+      if (nextKey == null || !isAncestor(key, nextKey))
+      {
+        final int parentLength = findDNKeyParent(key);
+        final EntryID parentID = parentLength >= 0 ? collectedIDs.get(key.subSequence(0, parentLength)) : null;
+        txn.delete(getName(), key);
+        removedIDs.add(Pair.of(record.getSecond(), parentID));
+      }
+    }
+    if (removedIDs.isEmpty() && !records.isEmpty())
+    {
+      // The subtree is deeper than the maximum number of records
+      return removeSubtreeChunk(txn, dn, maxRecords * 2);
+    }
+    return removedIDs;
+  }
+
   @Override
   public String keyToString(ByteString key)
   {
@@ -33,6 +33,8 @@ final class DataConfig
   static final class Builder
   {
     private boolean compressed;
+    private boolean fastCompression;
+    private int compressionDictionarySize;
     private boolean encrypted;
     private boolean compactEncoding;
     private CompressedSchema compressedSchema;
@@ -55,6 +57,18 @@ final class DataConfig
       return this;
     }
 
+    public Builder fastCompression(boolean enabled)
+    {
+      this.fastCompression = enabled;
+      return this;
+    }
+
+    public Builder compressionDictionarySize(int size)
+    {
+      this.compressionDictionarySize = size;
+      return this;
+    }
+
     public Builder encrypt(boolean enabled)
     {
       this.encrypted = enabled;
@@ -81,6 +95,12 @@ final class DataConfig
   /** Indicates whether data should be compressed before writing to the storage. */
   private final boolean compressed;
 
+  /** Indicates whether the fast compression codec should be used instead of deflate. */
+  private final boolean fastCompression;
+
+  /** The size of the dictionary trained for the fast compression codec, 0 when no dictionary is used. */
+  private final int compressionDictionarySize;
+
   /** The configuration to use when encoding entries in the tree. */
   private final EntryEncodeConfig encodeConfig;
 
@@ -95,6 +115,8 @@ final class DataConfig
   private DataConfig(Builder builder)
   {
     this.compressed = builder.compressed;
+    this.fastCompression = builder.fastCompression;
+    this.compressionDictionarySize = builder.compressionDictionarySize;
     this.encrypted = builder.encrypted;
     this.cryptoSuite = builder.cryptoSuite;
 
@@ -115,6 +137,16 @@ final class DataConfig
     return compressed;
   }
 
+  boolean isFastCompression()
+  {
+    return fastCompression;
+  }
+
+  int getCompressionDictionarySize()
+  {
+    return compressionDictionarySize;
+  }
+
   boolean isEncrypted()
   {
     return encrypted;
@@ -136,6 +168,11 @@ final class DataConfig
     final StringBuilder builder = new StringBuilder();
     builder.append("DataConfig(compressed=");
     builder.append(compressed);
+    if (compressed && fastCompression)
+    {
+      builder.append(", fastCompression=true, compressionDictionarySize=");
+      builder.append(compressionDictionarySize);
+    }
     builder.append(", encrypted=");
     builder.append(encrypted);
     builder.append(", ");
@@ -67,6 +67,9 @@ class DefaultIndex extends AbstractTree implements Index
    */
   private volatile boolean trusted;
 
+  /** Approximate cardinality statistics of this index, used to plan searches. */
+  private volatile IndexStatistics statistics = IndexStatistics.newUnknownStatistics();
+
   /**
    * Create a new index object.
    *
@@ -92,22 +95,78 @@ class DefaultIndex extends AbstractTree implements Index
     this.cryptoSuite = cryptoSuite;
   }
 
+  @Override
+  final TreeName readPhysicalName(ReadableTransaction txn)
+  {
+    return state.getPhysicalTreeName(txn, getName());
+  }
+
   @Override
   final void afterOpen(WriteableTransaction txn, boolean createOnDemand)
   {
+    if (createOnDemand && isEmptyTree(txn))
+    {
+      // Only an index without any value can switch to the bitmap encoding: an existing index without
+      // a state record holds COMPACTED values.
+      state.initializeIndexFlags(txn, getName(), COMPACTED, BITMAP);
+    }
     final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
-    codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    if (flags.contains(BITMAP))
+    {
+      codec = CODEC_V4;
+    }
+    else
+    {
+      codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    }
     if (cryptoSuite.isEncrypted())
     {
       codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
     }
     trusted = flags.contains(TRUSTED);
+    invalidateCachedKeys();
     if (createOnDemand && !trusted && entryContainer.isEmpty(txn))
     {
       // If there are no entries in the entry container then there
       // is no reason why this index can't be upgraded to trusted.
       setTrusted(txn, true);
     }
+    statistics = state.getIndexStatistics(txn, getName());
+    if (!statistics.isAvailable() && trusted && entryContainer.isEmpty(txn))
+    {
+      statistics = IndexStatistics.newEmptyStatistics();
+    }
+    else if (createOnDemand && statistics.isAvailable())
+    {
+      // The stored statistics become stale with the first update: they are saved again on close, so that a crash
+      // leaves them unknown rather than wrong.
+      state.removeIndexStatistics(txn, getName());
+    }
+  }
+
+  private boolean isEmptyTree(ReadableTransaction txn)
+  {
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getPhysicalName()))
+    {
+      return !cursor.next();
+    }
+  }
+
+  @Override
+  final void beforeDelete(WriteableTransaction txn)
+  {
+    statistics = IndexStatistics.newEmptyStatistics();
+    invalidateCachedKeys();
+  }
+
+  private void invalidateCachedKeys()
+  {
+    final RootContainer rootContainer = entryContainer.getRootContainer();
+    final IndexCache indexCache = rootContainer != null ? rootContainer.getIndexCache() : null;
+    if (indexCache != null)
+    {
+      indexCache.invalidate(getName());
+    }
   }
 
   @Override
@@ -131,7 +190,7 @@ class DefaultIndex extends AbstractTree implements Index
   public final Cursor<ByteString, EntryIDSet> openCursor(ReadableTransaction txn)
   {
     checkNotNull(txn, "txn must not be null");
-    return CursorTransformer.transformValues(txn.openCursor(getName()),
+    return CursorTransformer.transformValues(txn.openCursor(getPhysicalName()),
         new ValueTransformer<ByteString, ByteString, EntryIDSet, NeverThrowsException>()
         {
           @Override
@@ -185,20 +244,25 @@ class DefaultIndex extends AbstractTree implements Index
     }
 
     // The record is going to be changed in some way.
-    txn.update(getName(), key, new UpdateFunction()
+    final StatisticsUpdate statisticsUpdate = new StatisticsUpdate();
+    txn.update(getPhysicalName(), key, new UpdateFunction()
     {
       @Override
       public ByteSequence computeNewValue(final ByteSequence oldValue)
       {
+        // The update function may be invoked several times, only the last invocation is recorded.
+        statisticsUpdate.reset();
         if (oldValue != null)
         {
-          EntryIDSet entryIDSet = computeEntryIDSet(key, oldValue.toByteString(), deletedIDs, addedIDs);
+          final EntryIDSet oldEntryIDSet = decodeValue(key, oldValue.toByteString());
+          statisticsUpdate.setOldValue(oldEntryIDSet, oldValue);
+          EntryIDSet entryIDSet = computeEntryIDSet(key, oldEntryIDSet, deletedIDs, addedIDs);
           /*
            * If there are no more IDs then return null indicating that the record should be removed.
            * If index is not trusted then this will cause all subsequent reads for this key to
            * return undefined set.
            */
-          return entryIDSet.size() == 0 ? null : toValue(entryIDSet);
+          return entryIDSet.size() == 0 ? null : statisticsUpdate.setNewValue(entryIDSet, toValue(entryIDSet));
         }
         else if (trusted)
         {
@@ -208,12 +272,54 @@ class DefaultIndex extends AbstractTree implements Index
           }
           if (isNotEmpty(addedIDs))
           {
-            return toValue(addedIDs);
+            return statisticsUpdate.setNewValue(addedIDs, toValue(addedIDs));
           }
         }
         return null; // no change.
       }
     });
+    // The transaction may still be rolled back or run again
+    PostCommitActions.runAfterCommit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        statisticsUpdate.applyTo(statistics);
+      }
+    });
+  }
+
+  /** Keeps track of the value change performed by an update, to be applied to the statistics once done. */
+  private static final class StatisticsUpdate
+  {
+    private long oldSize = IndexStatistics.ABSENT_KEY;
+    private int oldValueLength;
+    private long newSize = IndexStatistics.ABSENT_KEY;
+    private int newValueLength;
+
+    void reset()
+    {
+      oldSize = IndexStatistics.ABSENT_KEY;
+      newSize = IndexStatistics.ABSENT_KEY;
+    }
+
+    void setOldValue(EntryIDSet entryIDSet, ByteSequence value)
+    {
+      oldSize = entryIDSet.size();
+      oldValueLength = value.length();
+    }
+
+    ByteString setNewValue(EntryIDSet entryIDSet, ByteString value)
+    {
+      newSize = entryIDSet.size();
+      newValueLength = value.length();
+      return value;
+    }
+
+    void applyTo(IndexStatistics statistics)
+    {
+      statistics.recordUpdate(oldSize, oldValueLength, newSize, newValueLength);
+    }
   }
 
   private static boolean isNullOrEmpty(EntryIDSet entryIDSet)
@@ -226,9 +332,9 @@ class DefaultIndex extends AbstractTree implements Index
     return entryIDSet != null && entryIDSet.size() > 0;
   }
 
-  private EntryIDSet computeEntryIDSet(ByteString key, ByteString value, EntryIDSet deletedIDs, EntryIDSet addedIDs)
+  private EntryIDSet computeEntryIDSet(ByteString key, EntryIDSet entryIDSet, EntryIDSet deletedIDs,
+      EntryIDSet addedIDs)
   {
-    EntryIDSet entryIDSet = decodeValue(key, value);
     if (addedIDs != null)
     {
       if (entryIDSet.isDefined() && indexEntryLimit > 0)
@@ -271,7 +377,7 @@ class DefaultIndex extends AbstractTree implements Index
   {
     try
     {
-      ByteString value = txn.read(getName(), key);
+      ByteString value = txn.read(getPhysicalName(), key);
       if (value != null)
       {
         return decodeValue(key, value);
@@ -309,6 +415,7 @@ class DefaultIndex extends AbstractTree implements Index
   public final synchronized void setTrusted(WriteableTransaction txn, boolean trusted) throws StorageRuntimeException
   {
     this.trusted = trusted;
+    invalidateCachedKeys();
     if (trusted)
     {
       state.addFlagsToIndex(txn, getName(), TRUSTED);
@@ -329,4 +436,77 @@ class DefaultIndex extends AbstractTree implements Index
   {
     return cryptoSuite.isEncrypted();
   }
+
+  /**
+   * Returns the approximate cardinality statistics of this index.
+   *
+   * @return the statistics of this index, which may be unknown
+   */
+  final IndexStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+  /**
+   * Persists the statistics of this index into the state tree.
+   *
+   * @param txn
+   *          a non null transaction
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  final void saveStatistics(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    state.putIndexStatistics(txn, getName(), statistics);
+  }
+
+  /**
+   * Switches this index to the tree an online rebuild has rebuilt it into, and trusts it. The statistics computed while
+   * rebuilding the index replace its statistics, and are persisted with the other statistics when the backend is
+   * closed. The updates of the index must be locked out until the transaction commits: the previous tree of the index
+   * is then no longer used, and can be deleted.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param rebuiltTreeName
+   *          the name of the tree the index has been rebuilt into
+   * @param rebuiltStatistics
+   *          the statistics computed while rebuilding this index
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  final void switchPhysicalTree(WriteableTransaction txn, final TreeName rebuiltTreeName,
+      final IndexStatistics rebuiltStatistics) throws StorageRuntimeException
+  {
+    state.putPhysicalTreeName(txn, getName(), rebuiltTreeName);
+    state.addFlagsToIndex(txn, getName(), TRUSTED);
+    PostCommitActions.runAfterCommit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        setPhysicalName(rebuiltTreeName);
+        statistics = rebuiltStatistics;
+        trusted = true;
+        invalidateCachedKeys();
+      }
+    });
+  }
+
+  /**
+   * Replaces the statistics of this index by the ones computed while importing it, and persists them.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param importedStatistics
+   *          the statistics computed while importing this index
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  final void importStatistics(WriteableTransaction txn, IndexStatistics importedStatistics)
+      throws StorageRuntimeException
+  {
+    statistics = importedStatistics;
+    saveStatistics(txn);
+  }
 }
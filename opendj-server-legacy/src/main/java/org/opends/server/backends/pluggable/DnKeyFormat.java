@@ -107,6 +107,27 @@ public class DnKeyFormat
     return afterKey;
   }
 
+  /**
+   * Check if two DN have an ancestor-descendant relationship.
+   *
+   * @param ancestor
+   *          The potential ancestor
+   * @param descendant
+   *          The potential descendant of ancestor
+   * @return true if descendant is in the subtree of ancestor, excluding ancestor itself, false otherwise.
+   */
+  static boolean isAncestor(ByteSequence ancestor, ByteSequence descendant)
+  {
+    if (ancestor.length() == 0)
+    {
+      // The base DN is the ancestor of every other DN
+      return descendant.length() > 0;
+    }
+    return descendant.length() > ancestor.length()
+        && descendant.byteAt(ancestor.length()) == NORMALIZED_RDN_SEPARATOR
+        && descendant.startsWith(ancestor);
+  }
+
   /**
    * Check if two DN have a parent-child relationship.
    *
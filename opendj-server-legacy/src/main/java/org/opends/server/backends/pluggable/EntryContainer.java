@@ -27,16 +27,22 @@ import static org.opends.server.protocols.ldap.LDAPResultCode.*;
 import static org.opends.server.types.AdditionalLogItem.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -48,6 +54,7 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.config.server.ConfigurationAddListener;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.config.server.ConfigurationDeleteListener;
+import org.forgerock.opendj.ldap.AttributeDescription;
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -56,6 +63,10 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.SortKey;
 import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.spi.Indexer;
+import org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntriesCompressionAlgorithm;
 import org.forgerock.opendj.server.config.server.BackendIndexCfg;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
@@ -66,6 +77,7 @@ import org.opends.server.api.EntryCache;
 import org.opends.server.api.VirtualAttributeProvider;
 import org.opends.server.api.plugin.PluginResult.SubordinateDelete;
 import org.opends.server.api.plugin.PluginResult.SubordinateModifyDN;
+import org.opends.server.backends.pluggable.IndexBuffer.IndexBufferVisitor;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -124,6 +136,14 @@ public class EntryContainer
   private static final String REFERRAL_TREE_NAME = REFERRAL_INDEX_NAME;
   /** The name of the state tree. */
   private static final String STATE_TREE_NAME = STATE_INDEX_NAME;
+  /** The directory where server-side sort keys are spilled, relative to the instance root. */
+  private static final String SORT_TMP_DIR = "sort-tmp";
+  /** The initial capacity of the entry ID array used for reading the entries in scope. */
+  private static final int INITIAL_SCOPE_SET_CAPACITY = 1024;
+  /** The maximum number of entries removed in one transaction by a subtree delete. */
+  private static final int SUBTREE_DELETE_CHUNK_SIZE = 1000;
+  /** The number of milliseconds between the progress reports of a subtree delete. */
+  private static final long SUBTREE_DELETE_PROGRESS_INTERVAL = 10000;
 
   /** The attribute index configuration manager. */
   private final AttributeIndexCfgManager attributeIndexCfgManager;
@@ -347,6 +367,9 @@ public class EntryContainer
   final Lock sharedLock = lock.readLock();
   final Lock exclusiveLock = lock.writeLock();
 
+  /** Records the index changes made by the updates while indexes are rebuilt online, null otherwise. */
+  private volatile IndexBufferVisitor indexChangesJournal;
+
   EntryContainer(DN baseDN, String backendID, PluggableBackendCfg config, Storage storage, RootContainer rootContainer,
       ServerContext serverContext) throws ConfigException
   {
@@ -388,6 +411,8 @@ public class EntryContainer
   {
     return new DataConfig.Builder()
         .compress(config.isEntriesCompressed())
+        .fastCompression(config.getEntriesCompressionAlgorithm() == EntriesCompressionAlgorithm.LZ4)
+        .compressionDictionarySize(getCompressionDictionarySize(config))
         .encode(config.isCompactEncoding())
         .encrypt(config.isConfidentialityEnabled())
         .cryptoSuite(serverContext.getCryptoManager().newCryptoSuite(config.getCipherTransformation(),
@@ -396,6 +421,12 @@ public class EntryContainer
         .build();
   }
 
+  private static int getCompressionDictionarySize(PluggableBackendCfg config)
+  {
+    final Long size = config.getEntriesCompressionDictionarySize();
+    return size != null ? (int) Math.min(size, LZ4BlockCodec.MAX_OFFSET) : 0;
+  }
+
   private TreeName getIndexName(String indexId)
   {
     return new TreeName(treePrefix, indexId);
@@ -414,11 +445,12 @@ public class EntryContainer
     boolean shouldCreate = accessMode.isWriteable();
     try
     {
-      id2entry = new ID2Entry(getIndexName(ID2ENTRY_TREE_NAME), newDataConfig(config));
+      // The state tree holds the compression dictionary of id2entry.
+      state.open(txn, shouldCreate);
+      id2entry = new ID2Entry(getIndexName(ID2ENTRY_TREE_NAME), newDataConfig(config), state);
       id2entry.open(txn, shouldCreate);
       id2childrenCount.open(txn, shouldCreate);
       dn2id.open(txn, shouldCreate);
-      state.open(txn, shouldCreate);
       dn2uri.open(txn, shouldCreate);
 
       final boolean isNotEmpty = !isEmpty(txn);
@@ -464,6 +496,23 @@ public class EntryContainer
     return getHighestEntryID(txn).longValue() == 0;
   }
 
+  /**
+   * Persists the statistics of the attribute indexes of this entry container.
+   *
+   * @param txn a non null transaction
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void saveIndexStatistics(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    for (AttributeIndex attributeIndex : attrIndexMap.values())
+    {
+      for (DefaultIndex index : attributeIndex.getNameToIndexes().values())
+      {
+        index.saveStatistics(txn);
+      }
+    }
+  }
+
   /**
    * Closes the entry container.
    *
@@ -506,6 +555,30 @@ public class EntryContainer
     return dn2id;
   }
 
+  /**
+   * Starts passing the index changes made by the updates to the provided journal, once their transaction has
+   * completed, whether it has been committed or not.
+   *
+   * @param journal
+   *          the journal of the index changes
+   * @return {@code false} if the index changes are already passed to another journal
+   */
+  synchronized boolean startIndexChangesJournal(IndexBufferVisitor journal)
+  {
+    if (indexChangesJournal != null)
+    {
+      return false;
+    }
+    indexChangesJournal = journal;
+    return true;
+  }
+
+  /** Stops passing the index changes made by the updates to the journal. */
+  synchronized void stopIndexChangesJournal()
+  {
+    indexChangesJournal = null;
+  }
+
   /**
    * Get the entry tree used by this entry container.
    * The entryContainer must have been opened.
@@ -517,6 +590,17 @@ public class EntryContainer
     return id2entry;
   }
 
+  /**
+   * Get the state tree used by this entry container.
+   * The entryContainer must have been opened.
+   *
+   * @return The state tree.
+   */
+  State getState()
+  {
+    return state;
+  }
+
   /**
    * Get the referral tree used by this entry container.
    * The entryContainer must have been opened.
@@ -667,6 +751,9 @@ public class EntryContainer
   void search(final SearchOperation searchOperation)
   throws DirectoryException, StorageRuntimeException, CanceledOperationException
   {
+    // Must be created before the read transaction, so that it does not cache index keys modified since.
+    final IndexCache indexCache = rootContainer.getIndexCache();
+    final IndexCache.Reader indexCacheReader = indexCache != null ? indexCache.newReader() : null;
     try
     {
       storage.read(new ReadOperation<Void>()
@@ -758,8 +845,9 @@ public class EntryContainer
 
           // Combining server-side sort with paged result controls
           // requires us to use an entryIDSet where the entryIDs are ordered
-          // so further paging can restart where it previously stopped
-          long[] reorderedCandidateEntryIDs;
+          // so further paging can restart where it previously stopped.
+          // Unsorted candidates are streamed from the entryIDSet itself.
+          long[] sortedCandidateEntryIDs = null;
           if (candidateEntryIDs == null)
           {
             if (processSearchWithVirtualAttributeRule(searchOperation, true))
@@ -768,8 +856,8 @@ public class EntryContainer
             }
 
             // Create an index filter to get the search result candidate entries
-            IndexFilter indexFilter = new IndexFilter(
-                EntryContainer.this, txn, searchOperation, debugBuffer, rootContainer.getMonitorProvider());
+            IndexFilter indexFilter = new IndexFilter(EntryContainer.this, txn, searchOperation, debugBuffer,
+                rootContainer.getMonitorProvider(), rootContainer.getIndexReadExecutor(), indexCacheReader);
 
             // Evaluate the filter against the attribute indexes.
             candidateEntryIDs = indexFilter.evaluate();
@@ -792,50 +880,9 @@ public class EntryContainer
 
             if (sortRequest != null)
             {
-              // If the sort key is not present, the sorting will generate the
-              // default ordering. VLV search request goes through as if
-              // this sort key was not found in the user entry.
-              try
-              {
-                List<SortKey> sortKeys = sortRequest.getSortKeys();
-                reorderedCandidateEntryIDs = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest);
-              }
-              catch (DirectoryException de)
-              {
-                reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
-                serverSideSortControlError(searchOperation, sortRequest, de);
-              }
-              try
-              {
-                if (sortRequest.containsSortKeys())
-                {
-                  addServerSideSortControl(searchOperation, SUCCESS);
-                }
-                else
-                {
-                  /*
-                   * There is no sort key associated with the sort control.
-                   * Since it came here it means that the criticality is false
-                   * so let the server return all search results unsorted and
-                   * include the sortKeyResponseControl in the searchResultDone
-                   * message.
-                   */
-                  addServerSideSortControl(searchOperation, NO_SUCH_ATTRIBUTE);
-                }
-              }
-              catch (DirectoryException de)
-              {
-                serverSideSortControlError(searchOperation, sortRequest, de);
-              }
+              sortedCandidateEntryIDs =
+                  sortCandidates(txn, candidateEntryIDs, searchOperation, sortRequest, vlvRequest, pageRequest);
             }
-            else
-            {
-              reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
-            }
-          }
-          else
-          {
-            reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
           }
 
           // If requested, construct and return a fictitious entry containing
@@ -850,10 +897,11 @@ public class EntryContainer
             return null;
           }
 
-          if (reorderedCandidateEntryIDs != null)
+          if (candidateEntryIDs.isDefined())
           {
             rootContainer.getMonitorProvider().incrementIndexedSearchCount();
-            searchIndexed(txn, reorderedCandidateEntryIDs, candidatesAreInScope, searchOperation, pageRequest);
+            searchIndexed(txn, candidateEntryIDs, sortedCandidateEntryIDs, candidatesAreInScope, searchOperation,
+                pageRequest);
           }
           else
           {
@@ -875,13 +923,33 @@ public class EntryContainer
 
             if (sortRequest != null)
             {
-              // FIXME OPENDJ-2628: Add support for sorting unindexed searches using indexes like DSEE currently does
-              addServerSideSortControl(searchOperation, UNWILLING_TO_PERFORM);
-              if (sortRequest.isCritical())
+              // Sort every entry in scope, reading the IDs of the subordinate entries instead of a candidate set.
+              // These IDs are held in memory, so there cannot be more of them than the sort memory can hold.
+              final int lookthroughLimit = clientConnection.getLookthroughLimit();
+              final int maxSortedScopeSize = getMaxSortedScopeSize();
+              final boolean isLookthroughLimited = lookthroughLimit > 0 && lookthroughLimit <= maxSortedScopeSize;
+              final EntryIDSet scopeSet = getIDSetFromScope(
+                  txn, aBaseDN, searchScope, isLookthroughLimited ? lookthroughLimit : maxSortedScopeSize);
+              if (!scopeSet.isDefined() && isLookthroughLimited)
+              {
+                // Lookthrough limit exceeded
+                searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
+                searchOperation.appendErrorMessage(NOTE_LOOKTHROUGH_LIMIT_EXCEEDED.get(lookthroughLimit));
+                return null;
+              }
+              if (!scopeSet.isDefined())
               {
-                throw new DirectoryException(
-                    ResultCode.UNAVAILABLE_CRITICAL_EXTENSION, ERR_SEARCH_CANNOT_SORT_UNINDEXED.get());
+                // Too many entries to sort: return them unsorted, unless the sort is critical.
+                serverSideSortControlError(searchOperation, sortRequest, new DirectoryException(
+                    ResultCode.ADMIN_LIMIT_EXCEEDED,
+                    ERR_SEARCH_UNINDEXED_SORT_SCOPE_TOO_LARGE.get(aBaseDN, maxSortedScopeSize, backendID)));
+                searchNotIndexed(txn, searchOperation, pageRequest);
+                return null;
               }
+              final long[] sortedEntryIDs =
+                  sortCandidates(txn, scopeSet, searchOperation, sortRequest, vlvRequest, pageRequest);
+              searchIndexed(txn, scopeSet, sortedEntryIDs, true, searchOperation, pageRequest);
+              return null;
             }
 
             searchNotIndexed(txn, searchOperation, pageRequest);
@@ -889,6 +957,59 @@ public class EntryContainer
           return null;
         }
 
+        /**
+         * Sorts the candidate entries, adding the server-side sort response control to the search operation.
+         *
+         * @return the sorted candidate entry IDs, or null if they could not be sorted
+         */
+        private long[] sortCandidates(ReadableTransaction txn, EntryIDSet candidateEntryIDs,
+            SearchOperation searchOperation, ServerSideSortRequestControl sortRequest, VLVRequestControl vlvRequest,
+            PagedResultsControl pageRequest) throws DirectoryException
+        {
+          long[] sortedEntryIDs = null;
+          // If the sort key is not present, the sorting will generate the
+          // default ordering. VLV search request goes through as if
+          // this sort key was not found in the user entry.
+          try
+          {
+            List<SortKey> sortKeys = sortRequest.getSortKeys();
+            sortedEntryIDs = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest, pageRequest);
+          }
+          catch (DirectoryException de)
+          {
+            serverSideSortControlError(searchOperation, sortRequest, de);
+          }
+          try
+          {
+            if (sortRequest.containsSortKeys())
+            {
+              addServerSideSortControl(searchOperation, SUCCESS);
+            }
+            else
+            {
+              /*
+               * There is no sort key associated with the sort control.
+               * Since it came here it means that the criticality is false
+               * so let the server return all search results unsorted and
+               * include the sortKeyResponseControl in the searchResultDone
+               * message.
+               */
+              addServerSideSortControl(searchOperation, NO_SUCH_ATTRIBUTE);
+            }
+          }
+          catch (DirectoryException de)
+          {
+            serverSideSortControlError(searchOperation, sortRequest, de);
+          }
+          return sortedEntryIDs;
+        }
+
+        /** Returns the number of entry IDs which fit in the memory allowed for sorting the search results. */
+        private int getMaxSortedScopeSize()
+        {
+          return (int) Math.min(Integer.MAX_VALUE, config.getServerSideSortMemorySize() / Long.BYTES);
+        }
+
         private int getEntryIDSetLimit(final SearchOperation searchOperation)
         {
           final int lookThroughLimit = searchOperation.getClientConnection().getLookthroughLimit();
@@ -979,7 +1100,7 @@ public class EntryContainer
   private static EntryIDSet newIDSetFromCursor(SequentialCursor<?, EntryID> cursor, boolean includeCurrent,
       int idSetLimit)
   {
-    long entryIDs[] = new long[idSetLimit];
+    long entryIDs[] = new long[Math.min(idSetLimit, INITIAL_SCOPE_SET_CAPACITY)];
     int offset = 0;
     if (includeCurrent)
     {
@@ -988,6 +1109,10 @@ public class EntryContainer
 
     while(offset < idSetLimit && cursor.next())
     {
+      if (offset == entryIDs.length)
+      {
+        entryIDs = Arrays.copyOf(entryIDs, (int) Math.min(idSetLimit, 2L * offset));
+      }
       entryIDs[offset++] = cursor.getValue().longValue();
     }
 
@@ -1256,15 +1381,17 @@ public class EntryContainer
    * <p>
    * Here we are relying on ID order to ensure children are returned after their parents.
    * <ul>
-   * <li>Iterate through the candidate IDs
-   * <li>fetch entry by ID from cache or id2entry
+   * <li>Iterate through the candidate IDs, streaming them from the candidate set unless they have been sorted
+   * <li>fetch entry by ID from cache or id2entry, by batches of sorted IDs, possibly ahead in a prefetch thread
    * <li>put the entry in the cache if not present
    * <li>discard entries that are not in scope
    * <li>return entry if it matches the filter
    * </ul>
    *
-   * @param entryIDReorderedSet
+   * @param candidateEntryIDs
    *          The candidate entry IDs.
+   * @param sortedEntryIDs
+   *          The candidate entry IDs in server-side sort order, or null if the candidates are returned in ID order.
    * @param candidatesAreInScope
    *          true if it is certain that every candidate entry is in the search scope.
    * @param searchOperation
@@ -1274,9 +1401,9 @@ public class EntryContainer
    * @throws DirectoryException
    *           If an error prevented the search from being processed.
    */
-  private void searchIndexed(ReadableTransaction txn, long[] entryIDReorderedSet, boolean candidatesAreInScope,
-      SearchOperation searchOperation, PagedResultsControl pageRequest) throws DirectoryException,
-      CanceledOperationException
+  private void searchIndexed(ReadableTransaction txn, EntryIDSet candidateEntryIDs, long[] sortedEntryIDs,
+      boolean candidatesAreInScope, SearchOperation searchOperation, PagedResultsControl pageRequest)
+      throws DirectoryException, CanceledOperationException
   {
     SearchScope searchScope = searchOperation.getScope();
     DN aBaseDN = searchOperation.getBaseDN();
@@ -1307,7 +1434,8 @@ public class EntryContainer
     // Make sure the candidate list is smaller than the lookthrough limit
     int lookthroughLimit =
       searchOperation.getClientConnection().getLookthroughLimit();
-    if (lookthroughLimit > 0 && entryIDReorderedSet.length > lookthroughLimit)
+    long candidatesCount = sortedEntryIDs != null ? sortedEntryIDs.length : candidateEntryIDs.size();
+    if (lookthroughLimit > 0 && candidatesCount > lookthroughLimit)
     {
       //Lookthrough limit exceeded
       searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
@@ -1319,40 +1447,47 @@ public class EntryContainer
     if (continueSearch)
     {
       final SearchFilter filter = searchOperation.getFilter();
-      for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
+      final Iterator<EntryID> candidates = sortedEntryIDs != null
+          ? new SortedEntryIDIterator(sortedEntryIDs, findStartIndex(beginEntryID, sortedEntryIDs))
+          : iterateFrom(candidateEntryIDs, beginEntryID);
+      try (CandidateEntries candidateEntries =
+          newCandidateEntries(txn, candidates, candidatesCount, searchOperation, pageRequest))
       {
-        EntryID entryID = new EntryID(entryIDReorderedSet[i]);
-        Entry entry;
-        try
+        while (candidateEntries.next())
         {
-          entry = getEntry(txn, entryID);
-        }
-        catch (Exception e)
-        {
-          logger.traceException(e);
-          continue;
-        }
-
-        // Process the candidate entry.
-        if (entry != null
-              && isInScope(candidatesAreInScope, searchScope, aBaseDN, entry)
-              && (manageDsaIT || entry.getReferralURLs() == null)
-              && filter.matchesEntry(entry))
+          EntryID entryID = candidateEntries.getEntryID();
+          Entry entry;
+          try
           {
-            if (isPageFull(searchOperation, pageRequest))
-            {
-              // Set the cookie to remember where we were.
-              addPagedResultsControl(searchOperation, pageRequest, entryID.toByteString());
-              return;
-            }
+            entry = candidateEntries.getEntry();
+          }
+          catch (Exception e)
+          {
+            logger.traceException(e);
+            continue;
+          }
 
-            if (!searchOperation.returnEntry(entry, null))
+          // Process the candidate entry.
+          if (entry != null
+                && isInScope(candidatesAreInScope, searchScope, aBaseDN, entry)
+                && (manageDsaIT || entry.getReferralURLs() == null)
+                && filter.matchesEntry(entry))
             {
-              // We have been told to discontinue processing of the search.
-              // This could be due to size limit exceeded or operation cancelled
-              break;
+              if (isPageFull(searchOperation, pageRequest))
+              {
+                // Set the cookie to remember where we were.
+                addPagedResultsControl(searchOperation, pageRequest, entryID.toByteString());
+                return;
+              }
+
+              if (!searchOperation.returnEntry(entry, null))
+              {
+                // We have been told to discontinue processing of the search.
+                // This could be due to size limit exceeded or operation cancelled
+                break;
+              }
             }
-          }
+        }
       }
       searchOperation.checkIfCanceled(false);
     }
@@ -1374,16 +1509,69 @@ public class EntryContainer
     addPagedResultsControl(searchOperation, pageRequest, null);
   }
 
-  private int findStartIndex(Long beginEntryID, long[] entryIDReorderedSet)
+  /**
+   * Returns the candidate entries of an indexed search. They are read ahead by a prefetch thread if one is available
+   * and the search may return several entries, otherwise they are read by the searching thread in its transaction.
+   */
+  private CandidateEntries newCandidateEntries(ReadableTransaction txn, Iterator<EntryID> candidates,
+      long candidatesCount, SearchOperation searchOperation, PagedResultsControl pageRequest)
+  {
+    final ExecutorService prefetchExecutor = rootContainer.getEntryPrefetchExecutor();
+    final int prefetchCount = getPrefetchCount(candidatesCount, searchOperation, pageRequest);
+    if (prefetchExecutor != null && prefetchCount > 1)
+    {
+      final EntryPrefetcher prefetcher = new EntryPrefetcher(rootContainer.getStorage(), id2entry, getEntryCache(),
+          backendID, candidates, searchOperation, prefetchCount);
+      try
+      {
+        prefetchExecutor.execute(prefetcher);
+        rootContainer.getMonitorProvider().incrementPrefetchedSearchCount();
+        return prefetcher;
+      }
+      catch (RejectedExecutionException e)
+      {
+        // All the prefetch threads are busy, or the executor has been replaced.
+        rootContainer.getMonitorProvider().incrementPrefetchRejectedSearchCount();
+      }
+    }
+    return new CandidateEntryReader(txn, id2entry, getEntryCache(), backendID, candidates);
+  }
+
+  /** Returns how many entries may be read ahead, there is no point reading more than the search may return. */
+  private int getPrefetchCount(long candidatesCount, SearchOperation searchOperation, PagedResultsControl pageRequest)
+  {
+    long prefetchCount = Math.min(config.getSearchPrefetchEntries(), candidatesCount);
+    if (searchOperation.getSizeLimit() > 0)
+    {
+      prefetchCount = Math.min(prefetchCount, searchOperation.getSizeLimit());
+    }
+    if (pageRequest != null && pageRequest.getSize() > 0)
+    {
+      // One more entry is read for detecting that the page is full
+      prefetchCount = Math.min(prefetchCount, pageRequest.getSize() + 1L);
+    }
+    return (int) prefetchCount;
+  }
+
+  /**
+   * Candidates in ID order are positioned directly on the cookie: entries returned by the previous pages all have a
+   * lower ID, even if the entry identified by the cookie has been deleted in the meantime.
+   */
+  private static Iterator<EntryID> iterateFrom(EntryIDSet candidateEntryIDs, Long beginEntryID)
+  {
+    return beginEntryID != null ? candidateEntryIDs.iterator(new EntryID(beginEntryID)) : candidateEntryIDs.iterator();
+  }
+
+  private static int findStartIndex(Long beginEntryID, long[] sortedEntryIDs)
   {
     if (beginEntryID == null)
     {
       return 0;
     }
     final long begin = beginEntryID.longValue();
-    for (int i = 0; i < entryIDReorderedSet.length; i++)
+    for (int i = 0; i < sortedEntryIDs.length; i++)
     {
-      if (entryIDReorderedSet[i] == begin)
+      if (sortedEntryIDs[i] == begin)
       {
         return i;
       }
@@ -1391,6 +1579,41 @@ public class EntryContainer
     return 0;
   }
 
+  /** Iterates over candidate entry IDs which have been reordered by a server-side sort. */
+  private static final class SortedEntryIDIterator implements Iterator<EntryID>
+  {
+    private final long[] entryIDs;
+    private int index;
+
+    SortedEntryIDIterator(long[] entryIDs, int startIndex)
+    {
+      this.entryIDs = entryIDs;
+      this.index = startIndex;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return index < entryIDs.length;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (index >= entryIDs.length)
+      {
+        throw new NoSuchElementException();
+      }
+      return new EntryID(entryIDs[index++]);
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   private boolean isInScope(boolean candidatesAreInScope, SearchScope searchScope, DN aBaseDN, Entry entry)
   {
     DN entryDN = entry.getName();
@@ -1516,6 +1739,11 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    finally
+    {
+      indexBuffer.invalidate(rootContainer.getIndexCache());
+      indexBuffer.accept(indexChangesJournal);
+    }
 
     final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
     if (entryCache != null)
@@ -1576,6 +1804,12 @@ public class EntryContainer
   void deleteEntry(final DN entryDN, final DeleteOperation deleteOperation)
           throws DirectoryException, StorageRuntimeException, CanceledOperationException
   {
+    if (deleteOperation.getRequestControl(SubtreeDeleteControl.DECODER) != null)
+    {
+      deleteSubtree(entryDN, deleteOperation);
+      return;
+    }
+
     final IndexBuffer indexBuffer = new IndexBuffer();
     try
     {
@@ -1606,14 +1840,7 @@ public class EntryContainer
               }
             }
 
-            // Delete the subordinate entries in dn2id if requested.
-            final boolean isSubtreeDelete = deleteOperation.getRequestControl(SubtreeDeleteControl.DECODER) != null;
-
-            /* draft-armijo-ldap-treedelete, 4.1 Tree Delete Semantics: The server MUST NOT chase referrals stored in
-             * the tree. If information about referrals is stored in this section of the tree, this pointer will be
-             * deleted.
-             */
-            final boolean isManageDsaIT = isSubtreeDelete || isManageDsaITOperation(deleteOperation);
+            final boolean isManageDsaIT = isManageDsaITOperation(deleteOperation);
 
             /* Ensure that all index updates are done in the correct order to avoid deadlocks. First iterate over
              * dn2id collecting all the IDs of the entries to be deleted. Then update dn2uri, id2entry,
@@ -1633,17 +1860,11 @@ public class EntryContainer
               entriesToBeDeleted.add(cursor.getValue().longValue());
               cursor.delete();
 
-              // Now delete the subordinate entries in dn2id.
-              while (cursor.next())
+              // The subordinate entries are only deleted by a subtree delete.
+              if (cursor.next())
               {
-                if (!isSubtreeDelete)
-                {
-                  throw new DirectoryException(ResultCode.NOT_ALLOWED_ON_NONLEAF,
-                                               ERR_DELETE_NOT_ALLOWED_ON_NONLEAF.get(entryDN));
-                }
-                entriesToBeDeleted.add(cursor.getValue().longValue());
-                cursor.delete();
-                deleteOperation.checkIfCanceled(false);
+                throw new DirectoryException(ResultCode.NOT_ALLOWED_ON_NONLEAF,
+                                             ERR_DELETE_NOT_ALLOWED_ON_NONLEAF.get(entryDN));
               }
             }
             // The target entry will have the lowest entryID so it will remain the first element.
@@ -1686,12 +1907,9 @@ public class EntryContainer
             }
             id2childrenCount.updateTotalCount(txn, -entriesToBeDeleted.size());
             indexBuffer.flush(txn);
+            // The last entries of an interrupted subtree delete may have been deleted without the control
+            state.removeSubtreeDelete(txn, entryDN);
             deleteOperation.checkIfCanceled(true);
-            if (isSubtreeDelete)
-            {
-              deleteOperation.addAdditionalLogItem(unquotedKeyValue(getClass(), "deletedEntries",
-                                                                    entriesToBeDeleted.size()));
-            }
           }
           catch (StorageRuntimeException | DirectoryException | CanceledOperationException e)
           {
@@ -1729,6 +1947,322 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    finally
+    {
+      indexBuffer.invalidate(rootContainer.getIndexCache());
+      indexBuffer.accept(indexChangesJournal);
+    }
+  }
+
+  /**
+   * Removes the subtree rooted at the specified entry. The entries are removed deepest first, in chunks of at most
+   * {@link #SUBTREE_DELETE_CHUNK_SIZE} entries each removed in its own transaction, so that deleting a large subtree
+   * does not hold all its entries in a single transaction. Each chunk leaves the tree consistent.
+   * <p>
+   * The committed chunks cannot be rolled back, so the delete can only be canceled until the first chunk is
+   * committed. From then on, the subtree delete is recorded in the state tree until its last chunk is committed: a
+   * subtree delete interrupted by an error or a crash is completed when the subtree is deleted again, or else when the
+   * backend is opened again.
+   *
+   * @param entryDN         The DN of the root of the subtree to remove.
+   * @param deleteOperation The delete operation with which this action is associated, or {@code null} when resuming
+   *                        an interrupted subtree delete.
+   * @throws DirectoryException If a problem occurs while trying to remove the entries.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @throws CanceledOperationException if this operation should be cancelled.
+   */
+  private void deleteSubtree(final DN entryDN, final DeleteOperation deleteOperation)
+      throws DirectoryException, StorageRuntimeException, CanceledOperationException
+  {
+    long deletedEntries = 0;
+    long previousProgressTime = System.currentTimeMillis();
+    boolean isCancelable = deleteOperation != null;
+    for (;;)
+    {
+      final SubtreeDeleteChunk chunk = new SubtreeDeleteChunk(entryDN, deleteOperation, isCancelable);
+      try
+      {
+        storage.write(chunk);
+      }
+      catch (Exception e)
+      {
+        writeTrustState(chunk.indexBuffer);
+        throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
+      }
+      finally
+      {
+        chunk.indexBuffer.invalidate(rootContainer.getIndexCache());
+        chunk.indexBuffer.accept(indexChangesJournal);
+      }
+
+      deletedEntries += chunk.deletedEntries;
+      if (chunk.isSubtreeDeleted)
+      {
+        if (deleteOperation != null)
+        {
+          deleteOperation.addAdditionalLogItem(unquotedKeyValue(getClass(), "deletedEntries", deletedEntries));
+        }
+        return;
+      }
+      isCancelable = false;
+
+      final long currentTime = System.currentTimeMillis();
+      if (currentTime - previousProgressTime >= SUBTREE_DELETE_PROGRESS_INTERVAL)
+      {
+        logger.info(NOTE_SUBTREE_DELETE_PROGRESS, entryDN, deletedEntries);
+        previousProgressTime = currentTime;
+      }
+    }
+  }
+
+  /**
+   * Completes the subtree deletes which have been interrupted by an error or a crash. The subtrees whose root has
+   * been deleted or replaced since then are left untouched.
+   *
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void resumeSubtreeDeletes() throws StorageRuntimeException
+  {
+    final List<DN> interruptedDeletes = new ArrayList<>();
+    final List<DN> staleDeletes = new ArrayList<>();
+    try
+    {
+      storage.read(new ReadOperation<Void>()
+      {
+        @Override
+        public Void run(ReadableTransaction txn) throws Exception
+        {
+          for (Map.Entry<DN, EntryID> subtreeDelete : state.getSubtreeDeletes(txn).entrySet())
+          {
+            final DN subtreeDN = subtreeDelete.getKey();
+            if (subtreeDelete.getValue().equals(dn2id.get(txn, subtreeDN)))
+            {
+              interruptedDeletes.add(subtreeDN);
+            }
+            else
+            {
+              staleDeletes.add(subtreeDN);
+            }
+          }
+          return null;
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      throw new StorageRuntimeException(e);
+    }
+
+    for (DN subtreeDN : interruptedDeletes)
+    {
+      try
+      {
+        logger.info(NOTE_SUBTREE_DELETE_RESUMED, subtreeDN);
+        deleteSubtree(subtreeDN, null);
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.error(ERR_SUBTREE_DELETE_RESUME_FAILED, subtreeDN, stackTraceToSingleLineString(e));
+      }
+    }
+    for (DN subtreeDN : staleDeletes)
+    {
+      try
+      {
+        removeSubtreeDelete(subtreeDN);
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+      }
+    }
+  }
+
+  private void removeSubtreeDelete(final DN subtreeDN) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        state.removeSubtreeDelete(txn, subtreeDN);
+      }
+    });
+  }
+
+  /** Removes a chunk of the entries of a subtree, deepest entries first. */
+  private final class SubtreeDeleteChunk implements WriteOperation
+  {
+    private final DN entryDN;
+    /** The delete operation, or null when resuming an interrupted subtree delete. */
+    private final DeleteOperation deleteOperation;
+    /** Whether no chunk of the subtree has been committed yet. */
+    private final boolean isCancelable;
+    private final IndexBuffer indexBuffer = new IndexBuffer();
+    private int deletedEntries;
+    private boolean isSubtreeDeleted;
+
+    SubtreeDeleteChunk(DN entryDN, DeleteOperation deleteOperation, boolean isCancelable)
+    {
+      this.entryDN = entryDN;
+      this.deleteOperation = deleteOperation;
+      this.isCancelable = isCancelable;
+    }
+
+    @Override
+    public void run(WriteableTransaction txn) throws Exception
+    {
+      indexBuffer.reset();
+      deletedEntries = 0;
+      isSubtreeDeleted = false;
+      try
+      {
+        // Check for referral entries above the target entry.
+        dn2uri.targetEntryReferrals(txn, entryDN, null);
+
+        // Fetch the parent ID first so that accesses to dn2id are ordered.
+        final DN parentDN = getParentWithinBase(entryDN);
+        EntryID parentID = null;
+        if (parentDN != null)
+        {
+          parentID = dn2id.get(txn, parentDN);
+          if (parentID == null)
+          {
+            throw new DirectoryException(ResultCode.NO_SUCH_OBJECT,
+                                         ERR_DELETE_NO_SUCH_OBJECT.get(entryDN),
+                                         getMatchedDN(txn, parentDN),
+                                         null);
+          }
+        }
+
+        /* Ensure that all index updates are done in the correct order to avoid deadlocks. First remove the chunk
+         * from dn2id collecting the IDs of its entries. Then update id2childrenCount, dn2uri, id2entry, and finally
+         * the attribute indexes.
+         */
+        final List<Pair<EntryID, EntryID>> removedIDs =
+            dn2id.removeSubtreeChunk(txn, entryDN, SUBTREE_DELETE_CHUNK_SIZE);
+        if (removedIDs.isEmpty())
+        {
+          throw new DirectoryException(ResultCode.NO_SUCH_OBJECT,
+                                       ERR_DELETE_NO_SUCH_OBJECT.get(entryDN),
+                                       getMatchedDN(txn, entryDN),
+                                       null);
+        }
+
+        // Decrement the number of children of the parents which remain in the tree.
+        final Set<EntryID> removedEntryIDs = new HashSet<>(removedIDs.size());
+        for (Pair<EntryID, EntryID> removedID : removedIDs)
+        {
+          removedEntryIDs.add(removedID.getFirst());
+        }
+        final Map<EntryID, Long> removedChildren = new TreeMap<>();
+        EntryID subtreeRootID = null;
+        for (Pair<EntryID, EntryID> removedID : removedIDs)
+        {
+          final EntryID removedParentID = removedID.getSecond();
+          if (removedParentID == null)
+          {
+            subtreeRootID = removedID.getFirst();
+            isSubtreeDeleted = true;
+          }
+          else if (!removedEntryIDs.contains(removedParentID))
+          {
+            final Long count = removedChildren.get(removedParentID);
+            removedChildren.put(removedParentID, count != null ? count + 1 : 1L);
+          }
+        }
+        if (isSubtreeDeleted)
+        {
+          id2childrenCount.updateCount(txn, parentID, -1);
+        }
+        for (Map.Entry<EntryID, Long> removedChild : removedChildren.entrySet())
+        {
+          id2childrenCount.updateCount(txn, removedChild.getKey(), -removedChild.getValue());
+        }
+
+        /* Now update id2entry, dn2uri, and id2childrenCount in key order.
+         * draft-armijo-ldap-treedelete, 4.1 Tree Delete Semantics: The server MUST NOT chase referrals stored in
+         * the tree. If information about referrals is stored in this section of the tree, this pointer will be
+         * deleted.
+         */
+        final List<EntryID> entryIDs = new ArrayList<>(removedEntryIDs);
+        Collections.sort(entryIDs);
+        final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
+        try (final Cursor<EntryID, Entry> cursor = id2entry.openCursor(txn))
+        {
+          for (EntryID entryID : entryIDs)
+          {
+            if (!cursor.positionToKey(entryID.toByteString()))
+            {
+              throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+                                           ERR_MISSING_ID2ENTRY_RECORD.get(entryID));
+            }
+            final Entry entry = cursor.getValue();
+            cursor.delete();
+            dn2uri.deleteEntry(txn, entry);
+            id2childrenCount.removeCount(txn, entryID);
+            removeEntryFromIndexes(indexBuffer, entry, entryID);
+            if (!entryID.equals(subtreeRootID))
+            {
+              invokeSubordinateDeletePlugins(entry);
+            }
+            if (entryCache != null)
+            {
+              entryCache.removeEntry(entry.getName());
+            }
+            if (isCancelable)
+            {
+              deleteOperation.checkIfCanceled(false);
+            }
+          }
+        }
+        id2childrenCount.updateTotalCount(txn, -entryIDs.size());
+        indexBuffer.flush(txn);
+        if (isSubtreeDeleted)
+        {
+          state.removeSubtreeDelete(txn, entryDN);
+        }
+        else
+        {
+          state.putSubtreeDelete(txn, entryDN, dn2id.get(txn, entryDN));
+        }
+        if (isCancelable)
+        {
+          // Once this chunk is committed, the subtree delete can no longer be canceled
+          deleteOperation.checkIfCanceled(true);
+        }
+        deletedEntries = entryIDs.size();
+      }
+      catch (StorageRuntimeException | DirectoryException | CanceledOperationException e)
+      {
+        throw e;
+      }
+      catch (Exception e)
+      {
+        String msg = e.getMessage();
+        if (msg == null)
+        {
+          msg = stackTraceToSingleLineString(e);
+        }
+        throw new DirectoryException(
+            DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), ERR_UNCHECKED_EXCEPTION.get(msg), e);
+      }
+    }
+
+    private void invokeSubordinateDeletePlugins(final Entry entry) throws DirectoryException
+    {
+      if (deleteOperation != null && !deleteOperation.isSynchronizationOperation())
+      {
+        SubordinateDelete pluginResult =
+                getPluginConfigManager().invokeSubordinateDeletePlugins(deleteOperation, entry);
+        if (!pluginResult.continueProcessing())
+        {
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+                                       ERR_DELETE_ABORTED_BY_SUBORDINATE_PLUGIN.get(entry.getName()));
+        }
+      }
+    }
   }
 
   /**
@@ -1926,6 +2460,11 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    finally
+    {
+      indexBuffer.invalidate(rootContainer.getIndexCache());
+      indexBuffer.accept(indexChangesJournal);
+    }
   }
 
   /**
@@ -1997,11 +2536,13 @@ public class EntryContainer
             }
 
             /* We want to preserve the invariant that the ID of an entry is greater than its parent, since search
-             * results are returned in ID order. Note: if the superior has changed then oldSuperiorDN and
-             * newSuperiorDN will be non-null.
+             * results are returned in ID order. The subordinate entries of the target entry have greater IDs than the
+             * target entry, so the IDs only need to be renumbered when the new superior has a greater ID than the
+             * target entry. Renumbering requires re-indexing the whole subtree. Note: if the superior has changed
+             * then oldSuperiorDN and newSuperiorDN will be non-null.
              */
             final boolean superiorHasChanged = !Objects.equals(oldSuperiorDN, newSuperiorDN);
-            final boolean renumberEntryIDs = superiorHasChanged && newSuperiorID.compareTo(oldSuperiorID) > 0;
+            final boolean renumberEntryIDs = superiorHasChanged && newSuperiorID.compareTo(oldTargetID) > 0;
 
             /* Ensure that all index updates are done in the correct order to avoid deadlocks. First iterate over
              * dn2id collecting all the IDs of the entries to be renamed. Then update dn2uri, id2entry,
@@ -2168,6 +2709,11 @@ public class EntryContainer
       writeTrustState(indexBuffer);
       throwAllowedExceptionTypes(e, DirectoryException.class, CanceledOperationException.class);
     }
+    finally
+    {
+      indexBuffer.invalidate(rootContainer.getIndexCache());
+      indexBuffer.accept(indexChangesJournal);
+    }
   }
 
   /**
@@ -2536,80 +3082,213 @@ public class EntryContainer
     return baseEntry;
   }
 
+  /**
+   * Sorts the candidate entries which match the search base, scope and filter.
+   * <p>
+   * The sort keys are sorted by an {@link ExternalMergeSorter}, so that large result sets are spilled to disk instead
+   * of being held in memory. When only the first entries are returned, the ordering index of the primary sort key is
+   * walked in order to stop reading the candidate entries as soon as enough of them have been found.
+   */
   private long[] sort(ReadableTransaction txn, EntryIDSet entryIDSet, SearchOperation searchOperation,
-      List<SortKey> sortKeys, VLVRequestControl vlvRequest) throws DirectoryException
+      List<SortKey> sortKeys, VLVRequestControl vlvRequest, PagedResultsControl pageRequest) throws DirectoryException
   {
     if (!entryIDSet.isDefined())
     {
       return null;
     }
 
-    final DN baseDN = searchOperation.getBaseDN();
-    final SearchScope scope = searchOperation.getScope();
-    final SearchFilter filter = searchOperation.getFilter();
+    // Without VLV nor paged results, only the entries below the size limit (plus one to detect when it is exceeded)
+    // will be returned.
+    final int sizeLimit = searchOperation.getSizeLimit();
+    final long maxSortedEntries =
+        vlvRequest == null && pageRequest == null && sizeLimit > 0 ? sizeLimit + 1L : Long.MAX_VALUE;
 
-    final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
-    for (EntryID id : entryIDSet)
+    ExternalMergeSorter sorter = newSortKeySorter();
+    try
     {
-      try
+      if (maxSortedEntries >= entryIDSet.size()
+          || !sortUsingOrderingIndex(txn, entryIDSet, searchOperation, sortKeys, sorter, maxSortedEntries))
       {
-        Entry e = getEntry(txn, id);
-        if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+        sorter.close();
+        sorter = newSortKeySorter();
+        for (EntryID id : entryIDSet)
         {
-          sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
+          addSortKey(txn, id, searchOperation, sortKeys, sorter);
         }
       }
-      catch (Exception e)
+
+      final int count = (int) Math.min(sorter.size(), maxSortedEntries);
+      final Iterator<ByteString> sortedKeys = sorter.sort();
+
+      // See if there is a VLV request to further pare down the set of results, and if there is where it should be
+      // processed by offset or assertion value.
+      if (vlvRequest == null)
       {
-        LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
-        throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+        return toArray(sortedKeys, count);
       }
+
+      if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+      {
+        return sortByOffset(searchOperation, vlvRequest, sortedKeys, count);
+      }
+      return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortedKeys, count);
+    }
+    catch (StorageRuntimeException e)
+    {
+      LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_SPILL_SORT_KEYS.get(getExceptionMessage(e));
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
     }
+    finally
+    {
+      sorter.close();
+    }
+  }
 
-    // See if there is a VLV request to further pare down the set of results, and if there is where it should be
-    // processed by offset or assertion value.
-    if (vlvRequest == null)
+  private ExternalMergeSorter newSortKeySorter()
+  {
+    return new ExternalMergeSorter(
+        config.getServerSideSortMemorySize(), new File(getFileForPath(SORT_TMP_DIR), backendID));
+  }
+
+  private void addSortKey(ReadableTransaction txn, EntryID id, SearchOperation searchOperation,
+      List<SortKey> sortKeys, ExternalMergeSorter sorter) throws DirectoryException
+  {
+    final ByteString sortKey;
+    try
+    {
+      Entry e = getEntry(txn, id);
+      if (e == null
+          || !e.matchesBaseAndScope(searchOperation.getBaseDN(), searchOperation.getScope())
+          || !searchOperation.getFilter().matchesEntry(e))
+      {
+        return;
+      }
+      sortKey = encodeVLVKey(sortKeys, e, id.longValue());
+    }
+    catch (Exception e)
+    {
+      LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+    }
+    sorter.add(sortKey);
+  }
+
+  /**
+   * Adds the sort keys of the candidate entries in the order of the ordering index of the primary sort key.
+   * <p>
+   * The index is walked in key order, and each entry is first found under its lowest value which is the value used
+   * for sorting it. Hence the entries found so far always sort before the entries which have not been found yet, and
+   * the walk can stop as soon as enough entries have been found. Entries without any value sort last, they are added
+   * once the whole index has been walked.
+   *
+   * @return false if there is no usable ordering index, or if a key of the ordering index has exceeded the index
+   *         entry limit: in this case some sort keys may already have been added
+   */
+  private boolean sortUsingOrderingIndex(ReadableTransaction txn, EntryIDSet candidates,
+      SearchOperation searchOperation, List<SortKey> sortKeys, ExternalMergeSorter sorter, long maxSortedEntries)
+      throws DirectoryException
+  {
+    final Index orderingIndex = sortKeys.isEmpty() ? null : getOrderingIndex(sortKeys.get(0));
+    if (orderingIndex == null)
+    {
+      return false;
+    }
+
+    final EntryIDBitmap visited = new EntryIDBitmap();
+    try (Cursor<ByteString, EntryIDSet> cursor = orderingIndex.openCursor(txn))
+    {
+      while (cursor.next())
+      {
+        final EntryIDSet entryIDs = cursor.getValue();
+        if (!entryIDs.isDefined())
+        {
+          // The lowest value of the entries having this value cannot be known without reading all of them.
+          return false;
+        }
+        for (EntryID id : entryIDs)
+        {
+          if (candidates.contains(id) && visited.add(id.longValue()))
+          {
+            addSortKey(txn, id, searchOperation, sortKeys, sorter);
+          }
+        }
+        if (sorter.size() >= maxSortedEntries)
+        {
+          return true;
+        }
+      }
+    }
+
+    for (EntryID id : candidates)
     {
-      return toArray(sortMap.values());
+      if (!visited.contains(id.longValue()))
+      {
+        addSortKey(txn, id, searchOperation, sortKeys, sorter);
+      }
     }
+    return true;
+  }
 
-    if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+  /**
+   * Returns the trusted ordering index whose keys are in the order of the provided sort key, if any. Only ascending
+   * sort keys can use an index since cursors only move forward.
+   */
+  private Index getOrderingIndex(SortKey sortKey)
+  {
+    if (sortKey.isReverseOrder())
+    {
+      return null;
+    }
+    final AttributeType attributeType =
+        AttributeDescription.valueOf(sortKey.getAttributeDescription()).getAttributeType();
+    final AttributeIndex attributeIndex = getAttributeIndex(attributeType);
+    final MatchingRule orderingRule = attributeType.getOrderingMatchingRule();
+    if (attributeIndex == null
+        || orderingRule == null
+        || !attributeIndex.isIndexed(IndexType.ORDERING)
+        || !orderingRule.equals(getEffectiveOrderingRule(sortKey)))
     {
-      return sortByOffset(searchOperation, vlvRequest, sortMap);
+      return null;
+    }
+    for (Indexer indexer : orderingRule.createIndexers(attributeIndex.getIndexingOptions()))
+    {
+      final Index index = attributeIndex.getNameToIndexes().get(indexer.getIndexID());
+      if (index != null && index.isTrusted())
+      {
+        return index;
+      }
     }
-    return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap);
+    return null;
   }
 
-  private static final long[] toArray(Collection<EntryID> entryIDs)
+  private static final long[] toArray(Iterator<ByteString> sortedKeys, int count)
   {
-    final long[] array = new long[entryIDs.size()];
-    int i = 0;
-    for (EntryID entryID : entryIDs)
+    final long[] array = new long[count];
+    for (int i = 0; i < count; i++)
     {
-      array[i++] = entryID.longValue();
+      array[i] = decodeEntryIDFromVLVKey(sortedKeys.next());
     }
     return array;
   }
 
   private static final long[] sortByGreaterThanOrEqualAssertion(SearchOperation searchOperation,
-      VLVRequestControl vlvRequest, List<SortKey> sortKeys, final TreeMap<ByteString, EntryID> sortMap)
+      VLVRequestControl vlvRequest, List<SortKey> sortKeys, Iterator<ByteString> sortedKeys, int count)
       throws DirectoryException
   {
     ByteString assertionValue = vlvRequest.getGreaterThanOrEqualAssertion();
     ByteSequence encodedTargetAssertion =
-        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, sortMap.size());
+        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, count);
 
     boolean targetFound = false;
     int index = 0;
     int targetIndex = 0;
     int startIndex = 0;
     int includedAfterCount = 0;
-    long[] idSet = new long[sortMap.size()];
-    for (Map.Entry<ByteString, EntryID> entry : sortMap.entrySet())
+    long[] idSet = new long[count];
+    while (sortedKeys.hasNext())
     {
-      ByteString vlvKey = entry.getKey();
-      EntryID id = entry.getValue();
-      idSet[index++] = id.longValue();
+      ByteString vlvKey = sortedKeys.next();
+      idSet[index++] = decodeEntryIDFromVLVKey(vlvKey);
 
       if (targetFound)
       {
@@ -2643,21 +3322,21 @@ public class EntryContainer
        * No entry was found to be greater than or equal to the sort key, so the target offset will
        * be one greater than the content count.
        */
-      targetIndex = sortMap.size() + 1;
+      targetIndex = count + 1;
       result = new long[0];
     }
-    addVLVResponseControl(searchOperation, targetIndex, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetIndex, count, SUCCESS);
     return result;
   }
 
   private static final long[] sortByOffset(SearchOperation searchOperation, VLVRequestControl vlvRequest,
-      TreeMap<ByteString, EntryID> sortMap) throws DirectoryException
+      Iterator<ByteString> sortedKeys, int contentCount) throws DirectoryException
   {
     int targetOffset = vlvRequest.getOffset();
     if (targetOffset < 0)
     {
       // The client specified a negative target offset. This should never be allowed.
-      addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), OFFSET_RANGE_ERROR);
+      addVLVResponseControl(searchOperation, targetOffset, contentCount, OFFSET_RANGE_ERROR);
 
       LocalizableMessage message = ERR_ENTRYIDSORTER_NEGATIVE_START_POS.get();
       throw new DirectoryException(ResultCode.VIRTUAL_LIST_VIEW_ERROR, message);
@@ -2678,12 +3357,12 @@ public class EntryContainer
       startPos = 0;
       beforeCount = listOffset;
     }
-    else if (startPos >= sortMap.size())
+    else if (startPos >= contentCount)
     {
       // The start position is beyond the end of the list. In this case, we'll assume that the start position was
       // one greater than the size of the list and will only return the beforeCount entries.
-      targetOffset = sortMap.size() + 1;
-      listOffset = sortMap.size();
+      targetOffset = contentCount + 1;
+      listOffset = contentCount;
       startPos = listOffset - beforeCount;
       afterCount = 0;
     }
@@ -2692,14 +3371,15 @@ public class EntryContainer
     long[] sortedIDs = new long[count];
     int treePos = 0;
     int arrayPos = 0;
-    for (EntryID id : sortMap.values())
+    while (sortedKeys.hasNext())
     {
+      ByteString vlvKey = sortedKeys.next();
       if (treePos++ < startPos)
       {
         continue;
       }
 
-      sortedIDs[arrayPos++] = id.longValue();
+      sortedIDs[arrayPos++] = decodeEntryIDFromVLVKey(vlvKey);
       if (arrayPos >= count)
       {
         break;
@@ -2712,7 +3392,7 @@ public class EntryContainer
       sortedIDs = Arrays.copyOf(sortedIDs, arrayPos);
     }
 
-    addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetOffset, contentCount, SUCCESS);
     return sortedIDs;
   }
 
@@ -0,0 +1,1053 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Reject.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compressed bitmap of entry IDs, in the spirit of Roaring bitmaps.
+ * <p>
+ * IDs are partitioned by their high 48 bits into chunks of 65536 IDs. Each chunk is stored in a container holding the
+ * low 16 bits of its IDs: sparse chunks use a sorted array of {@code char}, dense chunks use a plain bitmap of 8KB.
+ * Intersections, unions and differences are computed container by container, which avoids materializing and merging
+ * the full arrays of IDs.
+ */
+final class EntryIDBitmap implements Iterable<EntryID>
+{
+  /** Number of low bits of an ID stored in the containers. */
+  private static final int LOW_BITS = 16;
+  private static final int CHUNK_SIZE = 1 << LOW_BITS;
+  private static final int LOW_MASK = CHUNK_SIZE - 1;
+  /** Above this cardinality, a bitmap container uses less memory than an array container. */
+  private static final int MAX_ARRAY_CARDINALITY = 4096;
+  private static final int BITMAP_WORDS = CHUNK_SIZE / Long.SIZE;
+
+  /** The high bits of the IDs held by each container, in ascending order. */
+  private long[] highs;
+  private Container[] containers;
+  private int nbContainers;
+  private long cardinality;
+
+  /** Creates an empty bitmap. */
+  EntryIDBitmap()
+  {
+    this(4);
+  }
+
+  private EntryIDBitmap(int capacity)
+  {
+    highs = new long[Math.max(capacity, 1)];
+    containers = new Container[highs.length];
+  }
+
+  /**
+   * Creates a new bitmap holding the provided IDs.
+   *
+   * @param sortedIDs
+   *          the IDs, in ascending order and without duplicates
+   * @return a new bitmap holding the provided IDs
+   */
+  static EntryIDBitmap valueOf(long[] sortedIDs)
+  {
+    checkNotNull(sortedIDs, "sortedIDs must not be null");
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    int start = 0;
+    while (start < sortedIDs.length)
+    {
+      final long high = sortedIDs[start] >>> LOW_BITS;
+      int end = start + 1;
+      while (end < sortedIDs.length && (sortedIDs[end] >>> LOW_BITS) == high)
+      {
+        end++;
+      }
+      final int chunkCardinality = end - start;
+      if (chunkCardinality <= MAX_ARRAY_CARDINALITY)
+      {
+        final char[] values = new char[chunkCardinality];
+        for (int i = start; i < end; i++)
+        {
+          values[i - start] = (char) (sortedIDs[i] & LOW_MASK);
+        }
+        bitmap.append(high, new ArrayContainer(values, chunkCardinality));
+      }
+      else
+      {
+        final long[] words = new long[BITMAP_WORDS];
+        for (int i = start; i < end; i++)
+        {
+          final int low = (int) (sortedIDs[i] & LOW_MASK);
+          words[low >>> 6] |= 1L << low;
+        }
+        bitmap.append(high, new BitmapContainer(words, chunkCardinality));
+      }
+      start = end;
+    }
+    return bitmap;
+  }
+
+  /**
+   * Returns the number of IDs in this bitmap.
+   *
+   * @return the number of IDs in this bitmap
+   */
+  long cardinality()
+  {
+    return cardinality;
+  }
+
+  boolean isEmpty()
+  {
+    return cardinality == 0;
+  }
+
+  /**
+   * Returns the smallest ID of this bitmap.
+   *
+   * @return the smallest ID of this bitmap
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long first()
+  {
+    if (nbContainers == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return (highs[0] << LOW_BITS) | containers[0].first();
+  }
+
+  /**
+   * Returns the biggest ID of this bitmap.
+   *
+   * @return the biggest ID of this bitmap
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long last()
+  {
+    if (nbContainers == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return (highs[nbContainers - 1] << LOW_BITS) | containers[nbContainers - 1].last();
+  }
+
+  boolean contains(long id)
+  {
+    final int pos = Arrays.binarySearch(highs, 0, nbContainers, id >>> LOW_BITS);
+    return pos >= 0 && containers[pos].contains((int) (id & LOW_MASK));
+  }
+
+  /**
+   * Adds an ID to this bitmap.
+   *
+   * @param id
+   *          the ID to add
+   * @return {@code true} if the bitmap has been modified
+   */
+  boolean add(long id)
+  {
+    final long high = id >>> LOW_BITS;
+    final int low = (int) (id & LOW_MASK);
+    int pos = Arrays.binarySearch(highs, 0, nbContainers, high);
+    if (pos >= 0)
+    {
+      final Container container = containers[pos];
+      final int before = container.cardinality();
+      containers[pos] = container.add(low);
+      if (containers[pos].cardinality() == before)
+      {
+        return false;
+      }
+    }
+    else
+    {
+      pos = -(pos + 1);
+      ensureCapacity(nbContainers + 1);
+      System.arraycopy(highs, pos, highs, pos + 1, nbContainers - pos);
+      System.arraycopy(containers, pos, containers, pos + 1, nbContainers - pos);
+      highs[pos] = high;
+      containers[pos] = new ArrayContainer(new char[] { (char) low }, 1);
+      nbContainers++;
+    }
+    cardinality++;
+    return true;
+  }
+
+  /**
+   * Removes an ID from this bitmap.
+   *
+   * @param id
+   *          the ID to remove
+   * @return {@code true} if the bitmap has been modified
+   */
+  boolean remove(long id)
+  {
+    final int pos = Arrays.binarySearch(highs, 0, nbContainers, id >>> LOW_BITS);
+    if (pos < 0)
+    {
+      return false;
+    }
+    final Container container = containers[pos];
+    final int before = container.cardinality();
+    final Container updated = container.remove((int) (id & LOW_MASK));
+    if (updated.cardinality() == before)
+    {
+      return false;
+    }
+    if (updated.cardinality() == 0)
+    {
+      System.arraycopy(highs, pos + 1, highs, pos, nbContainers - pos - 1);
+      System.arraycopy(containers, pos + 1, containers, pos, nbContainers - pos - 1);
+      containers[--nbContainers] = null;
+    }
+    else
+    {
+      containers[pos] = updated;
+    }
+    cardinality--;
+    return true;
+  }
+
+  /**
+   * Returns a new bitmap holding the IDs present in both this bitmap and the provided one.
+   *
+   * @param that
+   *          the other bitmap
+   * @return a new bitmap holding the intersection of both bitmaps
+   */
+  EntryIDBitmap and(EntryIDBitmap that)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.min(nbContainers, that.nbContainers));
+    int i = 0, j = 0;
+    while (i < nbContainers && j < that.nbContainers)
+    {
+      if (highs[i] < that.highs[j])
+      {
+        i++;
+      }
+      else if (highs[i] > that.highs[j])
+      {
+        j++;
+      }
+      else
+      {
+        result.appendIfNotEmpty(highs[i], containers[i].and(that.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new bitmap holding the IDs present in this bitmap or in the provided one.
+   *
+   * @param that
+   *          the other bitmap
+   * @return a new bitmap holding the union of both bitmaps
+   */
+  EntryIDBitmap or(EntryIDBitmap that)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbContainers + that.nbContainers);
+    int i = 0, j = 0;
+    while (i < nbContainers || j < that.nbContainers)
+    {
+      if (j == that.nbContainers || (i < nbContainers && highs[i] < that.highs[j]))
+      {
+        result.append(highs[i], containers[i].copy());
+        i++;
+      }
+      else if (i == nbContainers || highs[i] > that.highs[j])
+      {
+        result.append(that.highs[j], that.containers[j].copy());
+        j++;
+      }
+      else
+      {
+        result.append(highs[i], containers[i].or(that.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new bitmap holding the IDs present in this bitmap but not in the provided one.
+   *
+   * @param that
+   *          the other bitmap
+   * @return a new bitmap holding the difference of both bitmaps
+   */
+  EntryIDBitmap andNot(EntryIDBitmap that)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbContainers);
+    int i = 0, j = 0;
+    while (i < nbContainers)
+    {
+      if (j == that.nbContainers || highs[i] < that.highs[j])
+      {
+        result.append(highs[i], containers[i].copy());
+        i++;
+      }
+      else if (highs[i] > that.highs[j])
+      {
+        j++;
+      }
+      else
+      {
+        result.appendIfNotEmpty(highs[i], containers[i].andNot(that.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a deep copy of this bitmap.
+   *
+   * @return a deep copy of this bitmap
+   */
+  EntryIDBitmap copy()
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbContainers);
+    for (int i = 0; i < nbContainers; i++)
+    {
+      result.append(highs[i], containers[i].copy());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the IDs of this bitmap as a new array sorted in ascending order.
+   *
+   * @return the IDs of this bitmap as a new array sorted in ascending order
+   */
+  long[] toLongArray()
+  {
+    final long[] ids = new long[(int) cardinality];
+    int offset = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      offset = containers[i].copyTo(ids, offset, highs[i] << LOW_BITS);
+    }
+    return ids;
+  }
+
+  @Override
+  public Iterator<EntryID> iterator()
+  {
+    return new BitmapIterator();
+  }
+
+  /**
+   * Returns an iterator over the IDs greater than or equal to the provided ID, in ascending order.
+   *
+   * @param from
+   *          the lowest ID to return
+   * @return an iterator starting at the first ID greater than or equal to {@code from}
+   */
+  Iterator<EntryID> iterator(long from)
+  {
+    return new BitmapIterator(from);
+  }
+
+  /**
+   * Appends the serialized form of this bitmap to the provided builder.
+   *
+   * @param builder
+   *          the builder where to append this bitmap
+   * @return the provided builder
+   */
+  ByteStringBuilder encode(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(nbContainers);
+    long previousHigh = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      final Container container = containers[i];
+      builder.appendCompactUnsigned(highs[i] - previousHigh);
+      builder.appendCompactUnsigned(container.cardinality() - 1);
+      if (container.cardinality() != CHUNK_SIZE)
+      {
+        container.encode(builder);
+      }
+      previousHigh = highs[i];
+    }
+    return builder;
+  }
+
+  /**
+   * Returns an estimation of the number of bytes needed to serialize this bitmap.
+   *
+   * @return an estimation of the number of bytes needed to serialize this bitmap
+   */
+  int getEstimatedSize()
+  {
+    int size = ByteStringBuilder.MAX_COMPACT_SIZE;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      size += 2 * ByteStringBuilder.MAX_COMPACT_SIZE + containers[i].getEncodedSize();
+    }
+    return size;
+  }
+
+  /**
+   * Decodes a bitmap previously serialized with {@link #encode(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          the reader positioned at the beginning of the serialized bitmap
+   * @return the decoded bitmap
+   */
+  static EntryIDBitmap decode(ByteSequenceReader reader)
+  {
+    final int nbContainers = reader.readCompactUnsignedInt();
+    final EntryIDBitmap bitmap = new EntryIDBitmap(nbContainers);
+    long high = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      high += reader.readCompactUnsignedLong();
+      final int containerCardinality = reader.readCompactUnsignedInt() + 1;
+      if (containerCardinality == CHUNK_SIZE)
+      {
+        final long[] words = new long[BITMAP_WORDS];
+        Arrays.fill(words, -1L);
+        bitmap.append(high, new BitmapContainer(words, CHUNK_SIZE));
+      }
+      else if (containerCardinality <= MAX_ARRAY_CARDINALITY)
+      {
+        final char[] values = new char[containerCardinality];
+        for (int j = 0; j < containerCardinality; j++)
+        {
+          values[j] = (char) reader.readShort();
+        }
+        bitmap.append(high, new ArrayContainer(values, containerCardinality));
+      }
+      else
+      {
+        final long[] words = new long[BITMAP_WORDS];
+        for (int j = 0; j < BITMAP_WORDS; j++)
+        {
+          words[j] = reader.readLong();
+        }
+        bitmap.append(high, new BitmapContainer(words, containerCardinality));
+      }
+    }
+    return bitmap;
+  }
+
+  private void appendIfNotEmpty(long high, Container container)
+  {
+    if (container.cardinality() > 0)
+    {
+      append(high, container);
+    }
+  }
+
+  private void append(long high, Container container)
+  {
+    ensureCapacity(nbContainers + 1);
+    highs[nbContainers] = high;
+    containers[nbContainers] = container;
+    nbContainers++;
+    cardinality += container.cardinality();
+  }
+
+  private void ensureCapacity(int capacity)
+  {
+    if (capacity > highs.length)
+    {
+      final int newCapacity = Math.max(capacity, highs.length * 2);
+      highs = Arrays.copyOf(highs, newCapacity);
+      containers = Arrays.copyOf(containers, newCapacity);
+    }
+  }
+
+  private static Container newContainer(long[] words, int cardinality)
+  {
+    return cardinality > MAX_ARRAY_CARDINALITY ? new BitmapContainer(words, cardinality)
+                                               : BitmapContainer.toArrayContainer(words, cardinality);
+  }
+
+  /** Holds the low 16 bits of the IDs of a chunk. Containers are normalized: never empty at rest. */
+  private abstract static class Container
+  {
+    abstract int cardinality();
+
+    abstract int first();
+
+    abstract int last();
+
+    abstract boolean contains(int low);
+
+    /** Adds a value, returning the container holding the result which may be this one. */
+    abstract Container add(int low);
+
+    /** Removes a value, returning the container holding the result which may be this one. */
+    abstract Container remove(int low);
+
+    abstract Container and(Container that);
+
+    abstract Container or(Container that);
+
+    abstract Container andNot(Container that);
+
+    abstract Container copy();
+
+    abstract int copyTo(long[] target, int offset, long base);
+
+    abstract void encode(ByteStringBuilder builder);
+
+    abstract int getEncodedSize();
+  }
+
+  /** Container for sparse chunks: a sorted array of the low bits. */
+  private static final class ArrayContainer extends Container
+  {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    int first()
+    {
+      return values[0];
+    }
+
+    @Override
+    int last()
+    {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    boolean contains(int low)
+    {
+      return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+    }
+
+    @Override
+    Container add(int low)
+    {
+      int pos = Arrays.binarySearch(values, 0, cardinality, (char) low);
+      if (pos >= 0)
+      {
+        return this;
+      }
+      if (cardinality == MAX_ARRAY_CARDINALITY)
+      {
+        return toBitmapContainer().add(low);
+      }
+      pos = -(pos + 1);
+      if (cardinality == values.length)
+      {
+        values = Arrays.copyOf(values, Math.min(MAX_ARRAY_CARDINALITY, Math.max(4, cardinality * 2)));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = (char) low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(int low)
+    {
+      final int pos = Arrays.binarySearch(values, 0, cardinality, (char) low);
+      if (pos >= 0)
+      {
+        System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      final char[] result = new char[cardinality];
+      int size = 0;
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        for (int i = 0, j = 0; i < cardinality && j < other.cardinality;)
+        {
+          if (values[i] < other.values[j])
+          {
+            i++;
+          }
+          else if (values[i] > other.values[j])
+          {
+            j++;
+          }
+          else
+          {
+            result[size++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      }
+      else
+      {
+        for (int i = 0; i < cardinality; i++)
+        {
+          if (that.contains(values[i]))
+          {
+            result[size++] = values[i];
+          }
+        }
+      }
+      return new ArrayContainer(result, size);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      if (that instanceof BitmapContainer)
+      {
+        return that.or(this);
+      }
+      final ArrayContainer other = (ArrayContainer) that;
+      if (cardinality + other.cardinality > MAX_ARRAY_CARDINALITY)
+      {
+        // The arrays may overlap: the union is only a bitmap if it has enough distinct values.
+        final BitmapContainer union = toBitmapContainer().orInPlace(other);
+        return newContainer(union.words, union.cardinality);
+      }
+      final char[] result = new char[cardinality + other.cardinality];
+      int size = 0, i = 0, j = 0;
+      while (i < cardinality && j < other.cardinality)
+      {
+        if (values[i] < other.values[j])
+        {
+          result[size++] = values[i++];
+        }
+        else if (values[i] > other.values[j])
+        {
+          result[size++] = other.values[j++];
+        }
+        else
+        {
+          result[size++] = values[i++];
+          j++;
+        }
+      }
+      System.arraycopy(values, i, result, size, cardinality - i);
+      size += cardinality - i;
+      System.arraycopy(other.values, j, result, size, other.cardinality - j);
+      size += other.cardinality - j;
+      return new ArrayContainer(result, size);
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      final char[] result = new char[cardinality];
+      int size = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        if (!that.contains(values[i]))
+        {
+          result[size++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, size);
+    }
+
+    @Override
+    Container copy()
+    {
+      return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    int copyTo(long[] target, int offset, long base)
+    {
+      for (int i = 0; i < cardinality; i++)
+      {
+        target[offset++] = base | values[i];
+      }
+      return offset;
+    }
+
+    @Override
+    void encode(ByteStringBuilder builder)
+    {
+      for (int i = 0; i < cardinality; i++)
+      {
+        builder.appendShort(values[i]);
+      }
+    }
+
+    @Override
+    int getEncodedSize()
+    {
+      return cardinality * 2;
+    }
+
+    BitmapContainer toBitmapContainer()
+    {
+      final long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < cardinality; i++)
+      {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+  }
+
+  /** Container for dense chunks: one bit per possible value. */
+  private static final class BitmapContainer extends Container
+  {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    static ArrayContainer toArrayContainer(long[] words, int cardinality)
+    {
+      final char[] values = new char[cardinality];
+      int size = 0;
+      for (int w = 0; w < words.length; w++)
+      {
+        long word = words[w];
+        while (word != 0)
+        {
+          values[size++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayContainer(values, size);
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    int first()
+    {
+      return nextSetBit(0);
+    }
+
+    @Override
+    int last()
+    {
+      for (int w = words.length - 1; w >= 0; w--)
+      {
+        if (words[w] != 0)
+        {
+          return (w << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[w]);
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the smallest value greater than or equal to {@code from}, or -1 if there is none.
+     */
+    int nextSetBit(int from)
+    {
+      int w = from >>> 6;
+      if (w >= words.length)
+      {
+        return -1;
+      }
+      long word = words[w] & (-1L << from);
+      while (true)
+      {
+        if (word != 0)
+        {
+          return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+        if (++w == words.length)
+        {
+          return -1;
+        }
+        word = words[w];
+      }
+    }
+
+    @Override
+    boolean contains(int low)
+    {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    Container add(int low)
+    {
+      final long before = words[low >>> 6];
+      words[low >>> 6] |= 1L << low;
+      if (before != words[low >>> 6])
+      {
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(int low)
+    {
+      final long before = words[low >>> 6];
+      words[low >>> 6] &= ~(1L << low);
+      if (before != words[low >>> 6])
+      {
+        cardinality--;
+        if (cardinality <= MAX_ARRAY_CARDINALITY)
+        {
+          return toArrayContainer(words, cardinality);
+        }
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      if (that instanceof ArrayContainer)
+      {
+        return that.and(this);
+      }
+      final long[] other = ((BitmapContainer) that).words;
+      final long[] result = new long[BITMAP_WORDS];
+      int resultCardinality = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++)
+      {
+        result[w] = words[w] & other[w];
+        resultCardinality += Long.bitCount(result[w]);
+      }
+      return newContainer(result, resultCardinality);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      return new BitmapContainer(words.clone(), cardinality).orInPlace(that);
+    }
+
+    BitmapContainer orInPlace(Container that)
+    {
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        for (int i = 0; i < other.cardinality; i++)
+        {
+          add(other.values[i]);
+        }
+        return this;
+      }
+      final long[] other = ((BitmapContainer) that).words;
+      int newCardinality = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++)
+      {
+        words[w] |= other[w];
+        newCardinality += Long.bitCount(words[w]);
+      }
+      cardinality = newCardinality;
+      return this;
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      final long[] result = words.clone();
+      int resultCardinality;
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        resultCardinality = cardinality;
+        for (int i = 0; i < other.cardinality; i++)
+        {
+          final int low = other.values[i];
+          if ((result[low >>> 6] & (1L << low)) != 0)
+          {
+            result[low >>> 6] &= ~(1L << low);
+            resultCardinality--;
+          }
+        }
+      }
+      else
+      {
+        final long[] other = ((BitmapContainer) that).words;
+        resultCardinality = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++)
+        {
+          result[w] &= ~other[w];
+          resultCardinality += Long.bitCount(result[w]);
+        }
+      }
+      return newContainer(result, resultCardinality);
+    }
+
+    @Override
+    Container copy()
+    {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int copyTo(long[] target, int offset, long base)
+    {
+      for (int w = 0; w < words.length; w++)
+      {
+        long word = words[w];
+        while (word != 0)
+        {
+          target[offset++] = base | ((w << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    void encode(ByteStringBuilder builder)
+    {
+      for (long word : words)
+      {
+        builder.appendLong(word);
+      }
+    }
+
+    @Override
+    int getEncodedSize()
+    {
+      return cardinality == CHUNK_SIZE ? 0 : BITMAP_WORDS * 8;
+    }
+  }
+
+  /** Iterates over the IDs in ascending order. */
+  private final class BitmapIterator implements Iterator<EntryID>
+  {
+    private int containerIndex;
+    /** Position in the current container: index for arrays, next candidate bit for bitmaps. */
+    private int position;
+    private long next = -1;
+
+    BitmapIterator()
+    {
+      advance();
+    }
+
+    BitmapIterator(long from)
+    {
+      final int low = (int) (from & (CHUNK_SIZE - 1));
+      final int pos = Arrays.binarySearch(highs, 0, nbContainers, from >>> LOW_BITS);
+      if (pos >= 0)
+      {
+        containerIndex = pos;
+        final Container container = containers[pos];
+        if (container instanceof ArrayContainer)
+        {
+          final ArrayContainer array = (ArrayContainer) container;
+          final int index = Arrays.binarySearch(array.values, 0, array.cardinality, (char) low);
+          position = index >= 0 ? index : -index - 1;
+        }
+        else
+        {
+          position = low;
+        }
+      }
+      else
+      {
+        containerIndex = -pos - 1;
+      }
+      advance();
+    }
+
+    private void advance()
+    {
+      next = -1;
+      while (containerIndex < nbContainers)
+      {
+        final Container container = containers[containerIndex];
+        final long base = highs[containerIndex] << LOW_BITS;
+        if (container instanceof ArrayContainer)
+        {
+          final ArrayContainer array = (ArrayContainer) container;
+          if (position < array.cardinality)
+          {
+            next = base | array.values[position++];
+            return;
+          }
+        }
+        else
+        {
+          final int low = position < CHUNK_SIZE ? ((BitmapContainer) container).nextSetBit(position) : -1;
+          if (low >= 0)
+          {
+            next = base | low;
+            position = low + 1;
+            return;
+          }
+        }
+        containerIndex++;
+        position = 0;
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next >= 0;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (next < 0)
+      {
+        throw new NoSuchElementException();
+      }
+      final EntryID entryID = new EntryID(next);
+      advance();
+      return entryID;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -43,6 +43,7 @@ final class EntryIDSet implements Iterable<EntryID>
 {
   public static final EntryIDSetCodec CODEC_V1 = new EntryIDSetCodecV1();
   public static final EntryIDSetCodec CODEC_V2 = new EntryIDSetCodecV2();
+  public static final EntryIDSetCodec CODEC_V4 = new EntryIDSetCodecV4();
 
   private static final ByteSequence NO_KEY = ByteString.valueOfUtf8("<none>");
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -73,6 +74,8 @@ final class EntryIDSet implements Iterable<EntryID>
 
     @Override
     Iterator<EntryID> iterator();
+
+    Iterator<EntryID> iterator(EntryID begin);
   }
 
   /** Define serialization contract for EntryIDSet. */
@@ -255,6 +258,13 @@ final class EntryIDSet implements Iterable<EntryID>
       return new IDSetIterator(entryIDs);
     }
 
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      final int index = Arrays.binarySearch(entryIDs, begin.longValue());
+      return new IDSetIterator(entryIDs, index >= 0 ? index : -index - 1);
+    }
+
     @Override
     public long[] getRange()
     {
@@ -272,6 +282,123 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Concrete implementation representing a set of EntryIDs as a compressed bitmap. Set operations between two such
+   * implementations are performed on the bitmap containers without materializing the IDs.
+   */
+  private static final class BitmapImpl implements EntryIDSetImplementor
+  {
+    /**
+     * Below this size, sets are merged into the bitmap one ID at a time rather than through a full bitmap operation
+     * which would copy every container.
+     */
+    private static final int SMALL_SET_SIZE = 64;
+
+    private EntryIDBitmap bitmap;
+
+    BitmapImpl(EntryIDBitmap bitmap)
+    {
+      this.bitmap = checkNotNull(bitmap, "bitmap must not be null");
+    }
+
+    @Override
+    public long size()
+    {
+      return bitmap.cardinality();
+    }
+
+    @Override
+    public void toString(StringBuilder buffer)
+    {
+      buffer.append("[COUNT:").append(size()).append("]");
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean add(EntryID entryID)
+    {
+      return bitmap.add(entryID.longValue());
+    }
+
+    @Override
+    public boolean remove(EntryID entryID)
+    {
+      return bitmap.remove(entryID.longValue());
+    }
+
+    @Override
+    public boolean contains(EntryID entryID)
+    {
+      return bitmap.contains(entryID.longValue());
+    }
+
+    @Override
+    public void addAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl || that.size() > SMALL_SET_SIZE)
+      {
+        bitmap = bitmap.or(that.toBitmap());
+      }
+      else
+      {
+        for (long id : that.getIDs())
+        {
+          bitmap.add(id);
+        }
+      }
+    }
+
+    @Override
+    public void removeAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl || that.size() > SMALL_SET_SIZE)
+      {
+        bitmap = bitmap.andNot(that.toBitmap());
+      }
+      else
+      {
+        for (long id : that.getIDs())
+        {
+          bitmap.remove(id);
+        }
+      }
+    }
+
+    @Override
+    public Iterator<EntryID> iterator()
+    {
+      return bitmap.iterator();
+    }
+
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      return bitmap.iterator(begin.longValue());
+    }
+
+    @Override
+    public long[] getRange()
+    {
+      if (!bitmap.isEmpty())
+      {
+        return new long[] { bitmap.first(), bitmap.last() };
+      }
+      return NO_ENTRY_IDS_RANGE;
+    }
+
+    /** Materializes the IDs: prefer bitmap operations whenever both operands are bitmaps. */
+    @Override
+    public long[] getIDs()
+    {
+      return bitmap.toLongArray();
+    }
+  }
+
   /**
    * Concrete implementation where the EntryIDs are not defined, for example when the index entry
    * limit has been exceeded.
@@ -347,6 +474,12 @@ final class EntryIDSet implements Iterable<EntryID>
       return Iterators.emptyIterator();
     }
 
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      return Iterators.emptyIterator();
+    }
+
     @Override
     public long[] getRange()
     {
@@ -367,8 +500,14 @@ final class EntryIDSet implements Iterable<EntryID>
     private int currentIndex;
 
     IDSetIterator(long[] entryIDSet)
+    {
+      this(entryIDSet, 0);
+    }
+
+    IDSetIterator(long[] entryIDSet, int startIndex)
     {
       this.entryIDSet = entryIDSet;
+      this.currentIndex = startIndex;
     }
 
     @Override
@@ -539,7 +678,50 @@ final class EntryIDSet implements Iterable<EntryID>
   }
 
   /**
-   * Decorate a V1 or V2 codec with encryption. When writing EntryIDSets to disk,
+   * Compressed bitmap EntryIDSet codec implementation. IDs are grouped by chunks of 65536 consecutive values, each chunk
+   * being stored either as a list of 16 bits values (sparse chunks), as a raw bitmap (dense chunks) or as a single
+   * header when full. Decoding produces a bitmap backed {@link EntryIDSet} so that index intersections and unions can
+   * be computed without expanding the IDs into arrays.
+   *
+   * @see EntryIDBitmap
+   */
+  private static final class EntryIDSetCodecV4 implements EntryIDSetCodec
+  {
+    private static final byte UNDEFINED_SET = (byte) 0xFF;
+    private static final byte BITMAP_SET = 0x01;
+
+    @Override
+    public ByteString encode(EntryIDSet idSet)
+    {
+      checkNotNull(idSet, "idSet must not be null");
+      if (!idSet.isDefined())
+      {
+        return ByteString.valueOfBytes(new byte[] { UNDEFINED_SET });
+      }
+      final EntryIDBitmap bitmap = idSet.toBitmap();
+      final ByteStringBuilder builder = new ByteStringBuilder(bitmap.getEstimatedSize() + 1);
+      builder.appendByte(BITMAP_SET);
+      bitmap.encode(builder);
+      return ByteString.wrap(builder.getBackingArray(), 0, builder.length());
+    }
+
+    @Override
+    public EntryIDSet decode(ByteSequence key, ByteString value)
+    {
+      checkNotNull(key, "key must not be null");
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == UNDEFINED_SET)
+      {
+        return newUndefinedSetWithKey(key);
+      }
+      final ByteSequenceReader reader = value.asReader();
+      reader.skip(1);
+      return newBitmapSet(EntryIDBitmap.decode(reader));
+    }
+  }
+
+  /**
+   * Decorate a V1, V2 or V4 codec with encryption. When writing EntryIDSets to disk,
    * prepend two bytes, {0, 1} to mark them as encrypted.
    * The first is tag zero (unused in other encodings), followed by a byte
    * indicating version 1 of encryption.
@@ -628,6 +810,20 @@ final class EntryIDSet implements Iterable<EntryID>
     return new EntryIDSet(new DefinedImpl(entryIDs));
   }
 
+  /**
+   * Creates a new defined entry ID set backed by the provided compressed bitmap.
+   *
+   * @param bitmap
+   *          The bitmap holding the Entry IDs, it will be owned by the returned set.
+   * @return A new defined {@link EntryIDSet} containing the IDs of the provided bitmap
+   * @throws NullPointerException
+   *           if bitmap is null
+   */
+  static EntryIDSet newBitmapSet(EntryIDBitmap bitmap)
+  {
+    return new EntryIDSet(new BitmapImpl(bitmap));
+  }
+
   private static long[] intersection(long[] set1, long[] set2)
   {
     long[] target = new long[Math.min(set1.length, set2.length)];
@@ -689,6 +885,19 @@ final class EntryIDSet implements Iterable<EntryID>
       return newUndefinedSet();
     }
 
+    if (containsBitmapSet(sets))
+    {
+      EntryIDBitmap union = new EntryIDBitmap();
+      for (EntryIDSet l : sets)
+      {
+        if (l.size() != 0)
+        {
+          union = union.or(l.toBitmap());
+        }
+      }
+      return newBitmapSet(union);
+    }
+
     boolean needSort = false;
     long[] n = new long[count];
     int pos = 0;
@@ -723,6 +932,18 @@ final class EntryIDSet implements Iterable<EntryID>
     return newDefinedSet(Arrays.copyOf(n1, j));
   }
 
+  private static boolean containsBitmapSet(List<EntryIDSet> sets)
+  {
+    for (EntryIDSet set : sets)
+    {
+      if (set.concreteImpl instanceof BitmapImpl)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private EntryIDSetImplementor concreteImpl;
 
   private EntryIDSet(EntryIDSetImplementor concreteImpl)
@@ -802,6 +1023,34 @@ final class EntryIDSet implements Iterable<EntryID>
     return Arrays.copyOf(entryIDs, entryIDs.length);
   }
 
+  /**
+   * Returns a copy of this {@link EntryIDSet} which can be modified independently of it.
+   *
+   * @return a copy of this {@link EntryIDSet}, or this set itself if it is undefined
+   */
+  EntryIDSet copy()
+  {
+    if (concreteImpl instanceof BitmapImpl)
+    {
+      return newBitmapSet(((BitmapImpl) concreteImpl).bitmap.copy());
+    }
+    return isDefined() ? newDefinedSet(toLongArray()) : this;
+  }
+
+  /**
+   * Returns an estimation of the number of bytes of memory used by the entry IDs of this {@link EntryIDSet}.
+   *
+   * @return an estimation of the number of bytes of memory used by the entry IDs of this {@link EntryIDSet}
+   */
+  long getMemorySize()
+  {
+    if (concreteImpl instanceof BitmapImpl)
+    {
+      return ((BitmapImpl) concreteImpl).bitmap.getEstimatedSize();
+    }
+    return isDefined() ? 8L * concreteImpl.getIDs().length : 0;
+  }
+
   /**
    * Determine whether this set of IDs is defined.
    *
@@ -873,6 +1122,12 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (concreteImpl instanceof DefinedImpl && that.concreteImpl instanceof BitmapImpl)
+    {
+      // Keep the union compressed rather than expanding the bitmap into an array.
+      concreteImpl = new BitmapImpl(that.toBitmap().or(toBitmap()));
+      return;
+    }
     concreteImpl.addAll(that);
   }
 
@@ -889,7 +1144,11 @@ final class EntryIDSet implements Iterable<EntryID>
     checkNotNull(that, "that must not be null");
     if (!concreteImpl.isDefined())
     {
-      if ( that.isDefined() ) {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        // Bitmaps are updated in place and so cannot be shared.
+        concreteImpl = new BitmapImpl(that.toBitmap().copy());
+      } else if ( that.isDefined() ) {
         // NOTE: It's ok to share the same array instance here thanks to the copy-on-write
         // performed by the implementation.
         concreteImpl = new DefinedImpl(that.getIDs());
@@ -903,6 +1162,22 @@ final class EntryIDSet implements Iterable<EntryID>
       return;
     }
 
+    final boolean thisIsBitmap = concreteImpl instanceof BitmapImpl;
+    final boolean thatIsBitmap = that.concreteImpl instanceof BitmapImpl;
+    if (thisIsBitmap && thatIsBitmap)
+    {
+      concreteImpl = new BitmapImpl(toBitmap().and(that.toBitmap()));
+      return;
+    }
+    else if (thisIsBitmap || thatIsBitmap)
+    {
+      // Probe the bitmap with the IDs of the array: the result cannot be larger than the array.
+      final EntryIDSet array = thisIsBitmap ? that : this;
+      final EntryIDBitmap bitmap = thisIsBitmap ? toBitmap() : that.toBitmap();
+      concreteImpl = new DefinedImpl(retainedBy(array.getIDs(), bitmap));
+      return;
+    }
+
     final boolean thatSetOverlap = compareForOverlap(getRange(), that.getRange()) == 0;
     if (thatSetOverlap)
     {
@@ -942,11 +1217,49 @@ final class EntryIDSet implements Iterable<EntryID>
     return concreteImpl.iterator();
   }
 
+  /**
+   * Creates an iterator over the IDs of the set which are greater than or equal to the provided ID, or an empty
+   * iterator if the set is not defined.
+   *
+   * @param begin
+   *          The lowest ID to iterate over.
+   * @return An EntryID iterator.
+   */
+  public Iterator<EntryID> iterator(EntryID begin)
+  {
+    checkNotNull(begin, "begin must not be null");
+    return concreteImpl.iterator(begin);
+  }
+
   private long[] getIDs()
   {
     return concreteImpl.getIDs();
   }
 
+  /** Returns the IDs as a bitmap, which is the backing bitmap itself when this set is already bitmap based. */
+  private EntryIDBitmap toBitmap()
+  {
+    if (concreteImpl instanceof BitmapImpl)
+    {
+      return ((BitmapImpl) concreteImpl).bitmap;
+    }
+    return EntryIDBitmap.valueOf(concreteImpl.getIDs());
+  }
+
+  private static long[] retainedBy(long[] ids, EntryIDBitmap bitmap)
+  {
+    final long[] retained = new long[ids.length];
+    int size = 0;
+    for (long id : ids)
+    {
+      if (bitmap.contains(id))
+      {
+        retained[size++] = id;
+      }
+    }
+    return size == ids.length ? retained : Arrays.copyOf(retained, size);
+  }
+
   private long[] getRange()
   {
     return concreteImpl.getRange();
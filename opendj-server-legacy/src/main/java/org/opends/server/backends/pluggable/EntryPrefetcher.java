@@ -0,0 +1,236 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.api.EntryCache;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.CanceledOperationException;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.util.TimeThread;
+
+/**
+ * Reads and decodes the candidate entries of an indexed search ahead of the searching thread. The entries are read by
+ * a prefetch thread in its own read transaction, and handed over to the searching thread through a bounded queue,
+ * so that reading the next entries overlaps with filtering and returning the current one.
+ * <p>
+ * The prefetch thread stops as soon as the search closes this object, either because it has returned all the
+ * requested entries or because it must end. Up to the capacity of the queue, entries may have been read in vain.
+ */
+final class EntryPrefetcher implements CandidateEntries, Runnable
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** How long a thread waits on the queue before checking whether it must stop waiting. */
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  /** A candidate entry read by the prefetch thread. */
+  private static final class Candidate
+  {
+    private final EntryID entryID;
+    private final Entry entry;
+    private final DirectoryException error;
+
+    private Candidate(EntryID entryID, Entry entry, DirectoryException error)
+    {
+      this.entryID = entryID;
+      this.entry = entry;
+      this.error = error;
+    }
+  }
+
+  /** Marks the end of the candidates in the queue. */
+  private static final Candidate END = new Candidate(null, null, null);
+
+  private final Storage storage;
+  private final ID2Entry id2entry;
+  private final EntryCache<?> entryCache;
+  private final String backendID;
+  private final Iterator<EntryID> candidates;
+  private final SearchOperation searchOperation;
+  private final BlockingQueue<Candidate> queue;
+
+  /** Whether the search no longer needs the candidates. */
+  private volatile boolean closed;
+  /** The failure of the prefetch thread, if any. */
+  private volatile Exception failure;
+  private Candidate current;
+  private boolean ended;
+
+  EntryPrefetcher(Storage storage, ID2Entry id2entry, EntryCache<?> entryCache, String backendID,
+      Iterator<EntryID> candidates, SearchOperation searchOperation, int capacity)
+  {
+    this.storage = storage;
+    this.id2entry = id2entry;
+    this.entryCache = entryCache;
+    this.backendID = backendID;
+    this.candidates = candidates;
+    this.searchOperation = searchOperation;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /** Reads the candidate entries, until they have all been read or the search closes this object. */
+  @Override
+  public void run()
+  {
+    try
+    {
+      storage.read(new ReadOperation<Void>()
+      {
+        @Override
+        public Void run(ReadableTransaction txn) throws Exception
+        {
+          final CandidateEntryReader reader =
+              new CandidateEntryReader(txn, id2entry, entryCache, backendID, candidates);
+          while (!closed && reader.next())
+          {
+            final EntryID entryID = reader.getEntryID();
+            Candidate candidate;
+            try
+            {
+              candidate = new Candidate(entryID, reader.getEntry(), null);
+            }
+            catch (DirectoryException e)
+            {
+              candidate = new Candidate(entryID, null, e);
+            }
+            if (!put(candidate))
+            {
+              break;
+            }
+          }
+          return null;
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      failure = e;
+    }
+    finally
+    {
+      put(END);
+    }
+  }
+
+  private boolean put(Candidate candidate)
+  {
+    try
+    {
+      while (!closed)
+      {
+        if (queue.offer(candidate, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS))
+        {
+          return true;
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  @Override
+  public boolean next() throws CanceledOperationException
+  {
+    if (ended)
+    {
+      return false;
+    }
+    try
+    {
+      Candidate candidate;
+      while ((candidate = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) == null)
+      {
+        // The entries may take a while to be read: do not let the search outlive its limits meanwhile.
+        searchOperation.checkIfCanceled(false);
+        if (isTimeLimitExceeded())
+        {
+          ended = true;
+          return false;
+        }
+      }
+      if (candidate == END)
+      {
+        ended = true;
+        if (failure != null)
+        {
+          throw failure instanceof StorageRuntimeException
+              ? (StorageRuntimeException) failure : new StorageRuntimeException(failure);
+        }
+        return false;
+      }
+      current = candidate;
+      return true;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new StorageRuntimeException(e);
+    }
+  }
+
+  private boolean isTimeLimitExceeded()
+  {
+    if (searchOperation.getTimeLimit() > 0 && TimeThread.getTime() >= searchOperation.getTimeLimitExpiration())
+    {
+      searchOperation.setResultCode(ResultCode.TIME_LIMIT_EXCEEDED);
+      searchOperation.appendErrorMessage(ERR_SEARCH_TIME_LIMIT_EXCEEDED.get(searchOperation.getTimeLimit()));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public EntryID getEntryID()
+  {
+    return current.entryID;
+  }
+
+  @Override
+  public Entry getEntry() throws DirectoryException
+  {
+    if (current.error != null)
+    {
+      throw current.error;
+    }
+    return current.entry;
+  }
+
+  @Override
+  public void close()
+  {
+    closed = true;
+    // Unblock the prefetch thread if it is waiting for room in the queue.
+    queue.clear();
+  }
+}
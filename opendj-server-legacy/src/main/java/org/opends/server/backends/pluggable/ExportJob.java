@@ -16,17 +16,27 @@
  */
 package org.opends.server.backends.pluggable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.Entry;
@@ -34,7 +44,9 @@ import org.opends.server.types.LDIFExportConfig;
 import org.opends.server.util.LDIFException;
 import org.opends.server.util.StaticUtils;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
 
 /** Export a backend to LDIF. */
 class ExportJob
@@ -47,11 +59,20 @@ class ExportJob
   /** The number of milliseconds between job progress reports. */
   private final long progressInterval = 10000;
 
+  /** The number of consecutive entry IDs read by a single task of a multi-threaded export. */
+  private static final int CHUNK_SIZE = 1000;
+
+  /** The name of the threads of a multi-threaded export. */
+  private static final String EXPORT_THREAD_NAME = "EXPORT-%d";
+
   /** The current number of entries exported. */
-  private long exportedCount;
+  private volatile long exportedCount;
 
   /** The current number of entries skipped. */
-  private long skippedCount;
+  private volatile long skippedCount;
+
+  /** The number of chunks written by a multi-threaded export, used for distributing them among the shards. */
+  private long writtenChunks;
 
   /**
    * Create a new export job.
@@ -108,6 +129,20 @@ class ExportJob
     TimerTask progressTask = new ProgressTask();
     timer.scheduleAtFixedRate(progressTask, progressInterval, progressInterval);
 
+    if (exportConfig.getThreadCount() > 1 || exportConfig.getShardCount() > 1)
+    {
+      try
+      {
+        exportContainersInParallel(rootContainer.getStorage(), exportContainers);
+      }
+      finally
+      {
+        timer.cancel();
+      }
+      logFinalStatus(startTime);
+      return;
+    }
+
     // Iterate through the containers.
     try
     {
@@ -145,7 +180,11 @@ class ExportJob
     {
       timer.cancel();
     }
+    logFinalStatus(startTime);
+  }
 
+  private void logFinalStatus(long startTime)
+  {
     long finishTime = System.currentTimeMillis();
     long totalTime = finishTime - startTime;
 
@@ -236,6 +275,264 @@ class ExportJob
     }
   }
 
+  /**
+   * Export the entries of the containers from several threads, each of them reading, decoding and encoding the
+   * entries of a chunk of consecutive entry IDs. The LDIF data of the chunks is written in entry ID order, either to
+   * the output of the export configuration or to the shards in a round-robin manner.
+   */
+  private void exportContainersInParallel(Storage storage, List<EntryContainer> exportContainers)
+      throws IOException, LDIFException, StorageRuntimeException
+  {
+    final int threadCount = Math.max(exportConfig.getThreadCount(), 1);
+    final int shardCount = Math.max(exportConfig.getShardCount(), 1);
+    logger.info(NOTE_EXPORT_PARALLEL, threadCount, shardCount);
+
+    final List<LDIFExportConfig> shardConfigs = new ArrayList<>(shardCount);
+    final List<OutputStream> outputs = new ArrayList<>(shardCount);
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+        newThreadFactory(null, EXPORT_THREAD_NAME, true));
+    try
+    {
+      if (shardCount == 1)
+      {
+        outputs.add(exportConfig.getOutputStream());
+      }
+      else
+      {
+        for (int i = 0; i < shardCount; i++)
+        {
+          final LDIFExportConfig shardConfig = exportConfig.newShardConfig(i);
+          shardConfigs.add(shardConfig);
+          outputs.add(shardConfig.getOutputStream());
+        }
+      }
+
+      for (EntryContainer exportContainer : exportContainers)
+      {
+        if (exportConfig.isCancelled())
+        {
+          break;
+        }
+
+        exportContainer.sharedLock.lock();
+        try
+        {
+          exportContainerInParallel(storage, exportContainer, executor, 2 * threadCount, outputs);
+        }
+        finally
+        {
+          exportContainer.sharedLock.unlock();
+        }
+      }
+      for (OutputStream output : outputs)
+      {
+        output.flush();
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+      close(shardConfigs);
+    }
+  }
+
+  private void exportContainerInParallel(final Storage storage, final EntryContainer entryContainer,
+      ExecutorService executor, int maxPendingChunks, List<OutputStream> outputs)
+      throws IOException, LDIFException, StorageRuntimeException
+  {
+    final long highestID;
+    try
+    {
+      highestID = storage.read(new ReadOperation<Long>()
+      {
+        @Override
+        public Long run(ReadableTransaction txn) throws Exception
+        {
+          return entryContainer.getHighestEntryID(txn).longValue();
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      throw new StorageRuntimeException(e);
+    }
+
+    final Deque<Future<ExportedChunk>> pendingChunks = new ArrayDeque<>(maxPendingChunks);
+    try
+    {
+      for (long firstID = 1; firstID <= highestID && !exportConfig.isCancelled(); firstID += CHUNK_SIZE)
+      {
+        if (pendingChunks.size() >= maxPendingChunks)
+        {
+          writeChunk(pendingChunks.removeFirst(), outputs);
+        }
+        pendingChunks.addLast(executor.submit(
+            new ChunkExportTask(storage, entryContainer, firstID, Math.min(firstID + CHUNK_SIZE - 1, highestID))));
+      }
+      while (!pendingChunks.isEmpty() && !exportConfig.isCancelled())
+      {
+        writeChunk(pendingChunks.removeFirst(), outputs);
+      }
+    }
+    finally
+    {
+      for (Future<ExportedChunk> pendingChunk : pendingChunks)
+      {
+        pendingChunk.cancel(true);
+      }
+    }
+  }
+
+  private void writeChunk(Future<ExportedChunk> pendingChunk, List<OutputStream> outputs)
+      throws IOException, LDIFException, StorageRuntimeException
+  {
+    final ExportedChunk chunk;
+    try
+    {
+      chunk = pendingChunk.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new StorageRuntimeException(e);
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+      {
+        throw (IOException) cause;
+      }
+      else if (cause instanceof LDIFException)
+      {
+        throw (LDIFException) cause;
+      }
+      else if (cause instanceof StorageRuntimeException)
+      {
+        throw (StorageRuntimeException) cause;
+      }
+      throw new StorageRuntimeException(cause);
+    }
+
+    if (chunk.exportedCount > 0)
+    {
+      chunk.ldif.writeTo(outputs.get((int) (writtenChunks++ % outputs.size())));
+    }
+    exportedCount += chunk.exportedCount;
+    skippedCount += chunk.skippedCount;
+  }
+
+  /** The LDIF data of the entries of a chunk of a multi-threaded export. */
+  private static final class ExportedChunk
+  {
+    private final ByteArrayOutputStream ldif = new ByteArrayOutputStream();
+    private long exportedCount;
+    private long skippedCount;
+  }
+
+  /** Reads, decodes and encodes to LDIF the entries having an ID within a range. */
+  private final class ChunkExportTask implements Callable<ExportedChunk>
+  {
+    private final Storage storage;
+    private final EntryContainer entryContainer;
+    private final long firstID;
+    private final long lastID;
+
+    private ChunkExportTask(Storage storage, EntryContainer entryContainer, long firstID, long lastID)
+    {
+      this.storage = storage;
+      this.entryContainer = entryContainer;
+      this.firstID = firstID;
+      this.lastID = lastID;
+    }
+
+    @Override
+    public ExportedChunk call() throws Exception
+    {
+      final ExportedChunk chunk = new ExportedChunk();
+      final LDIFExportConfig chunkConfig = exportConfig.newChunkConfig(chunk.ldif);
+      try
+      {
+        storage.read(new ReadOperation<Void>()
+        {
+          @Override
+          public Void run(ReadableTransaction txn) throws Exception
+          {
+            exportChunk(txn, chunkConfig, chunk);
+            return null;
+          }
+        });
+      }
+      finally
+      {
+        chunkConfig.close();
+      }
+      return chunk;
+    }
+
+    private void exportChunk(ReadableTransaction txn, LDIFExportConfig chunkConfig, ExportedChunk chunk)
+        throws IOException, LDIFException
+    {
+      final ID2Entry id2entry = entryContainer.getID2Entry();
+      try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+      {
+        boolean found = cursor.positionToKeyOrNext(new EntryID(firstID).toByteString());
+        while (found && !exportConfig.isCancelled())
+        {
+          final ByteString key = cursor.getKey();
+          final EntryID entryID;
+          try
+          {
+            entryID = new EntryID(key);
+          }
+          catch (Exception e)
+          {
+            if (logger.isTraceEnabled())
+            {
+              logger.traceException(e);
+
+              logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
+            }
+            chunk.skippedCount++;
+            found = cursor.next();
+            continue;
+          }
+          if (entryID.longValue() > lastID)
+          {
+            break;
+          }
+
+          final ByteString value = cursor.getValue();
+          Entry entry = null;
+          try
+          {
+            entry = id2entry.entryFromDatabase(value, entryContainer.getRootContainer().getCompressedSchema());
+          }
+          catch (Exception e)
+          {
+            if (logger.isTraceEnabled())
+            {
+              logger.traceException(e);
+
+              logger.trace("Malformed id2entry record for ID %d:%n%s%n",
+                         entryID, StaticUtils.bytesToHex(value));
+            }
+          }
+
+          if (entry != null && entry.toLDIF(chunkConfig))
+          {
+            chunk.exportedCount++;
+          }
+          else
+          {
+            chunk.skippedCount++;
+          }
+          found = cursor.next();
+        }
+      }
+    }
+  }
+
   /** This class reports progress of the export job at fixed intervals. */
   private class ProgressTask extends TimerTask
   {
@@ -0,0 +1,339 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Utils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * Sorts a set of unique keys using a bounded amount of memory.
+ * <p>
+ * Keys are buffered in memory until the memory limit is reached, at which point the buffer is sorted and spilled to a
+ * temporary run file. Once all the keys have been added, the runs and the remaining in-memory keys are merged in a
+ * single pass. Keys already added in ascending order, for instance by a walk of an ordering index, are sorted in
+ * linear time.
+ * <p>
+ * This class is not thread safe.
+ */
+final class ExternalMergeSorter implements Closeable
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Estimated memory used by a buffered key, in addition to its bytes. */
+  private static final int KEY_OVERHEAD = 64;
+  private static final int RUN_BUFFER_SIZE = 64 * 1024;
+
+  private final long memoryLimit;
+  private final File tempDir;
+  private final List<ByteString> buffer = new ArrayList<>();
+  private final List<File> runs = new ArrayList<>();
+  private final List<Closeable> openedRuns = new ArrayList<>();
+  private long bufferedBytes;
+  private long size;
+  private boolean sorted;
+
+  /**
+   * Creates a new sorter.
+   *
+   * @param memoryLimit
+   *          the maximum number of bytes of keys buffered in memory before spilling them to disk
+   * @param tempDir
+   *          the directory where run files are created, created on the first spill if it does not exist
+   */
+  ExternalMergeSorter(long memoryLimit, File tempDir)
+  {
+    this.memoryLimit = memoryLimit;
+    this.tempDir = tempDir;
+  }
+
+  /**
+   * Adds a key to sort.
+   *
+   * @param key
+   *          the key to add, which must be different from all the keys previously added
+   * @throws StorageRuntimeException
+   *           if the keys could not be spilled to disk
+   */
+  void add(ByteString key)
+  {
+    if (sorted)
+    {
+      throw new IllegalStateException("Keys have already been sorted");
+    }
+    buffer.add(key);
+    bufferedBytes += key.length() + KEY_OVERHEAD;
+    size++;
+    if (bufferedBytes >= memoryLimit)
+    {
+      spill();
+    }
+  }
+
+  /**
+   * Returns the number of keys added to this sorter.
+   *
+   * @return the number of keys added to this sorter
+   */
+  long size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the number of run files spilled to disk so far.
+   *
+   * @return the number of run files spilled to disk so far
+   */
+  int getRunCount()
+  {
+    return runs.size();
+  }
+
+  /**
+   * Sorts the keys added to this sorter. This method can only be called once, no more keys can be added afterwards.
+   *
+   * @return an iterator over the added keys, in ascending order
+   * @throws StorageRuntimeException
+   *           if a run file could not be read
+   */
+  Iterator<ByteString> sort()
+  {
+    if (sorted)
+    {
+      throw new IllegalStateException("Keys have already been sorted");
+    }
+    sorted = true;
+    Collections.sort(buffer);
+    if (runs.isEmpty())
+    {
+      return buffer.iterator();
+    }
+
+    final PriorityQueue<RunCursor> cursors = new PriorityQueue<>(runs.size() + 1);
+    addIfNotEmpty(cursors, new RunCursor(buffer.iterator()));
+    for (File run : runs)
+    {
+      addIfNotEmpty(cursors, new RunCursor(openRun(run)));
+    }
+    return new MergingIterator(cursors);
+  }
+
+  /** Deletes the run files. */
+  @Override
+  public void close()
+  {
+    closeSilently(openedRuns);
+    openedRuns.clear();
+    for (File run : runs)
+    {
+      if (!run.delete() && run.exists())
+      {
+        logger.trace("Unable to delete sort run file %s", run);
+      }
+    }
+    runs.clear();
+    buffer.clear();
+  }
+
+  private void spill()
+  {
+    Collections.sort(buffer);
+    try
+    {
+      if (!tempDir.exists() && !tempDir.mkdirs())
+      {
+        throw new IOException("Unable to create directory " + tempDir);
+      }
+      final File run = File.createTempFile("sort", ".run", tempDir);
+      runs.add(run);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), RUN_BUFFER_SIZE)))
+      {
+        for (ByteString key : buffer)
+        {
+          out.writeInt(key.length());
+          key.copyTo(out);
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      throw new StorageRuntimeException(e);
+    }
+    buffer.clear();
+    bufferedBytes = 0;
+  }
+
+  private Iterator<ByteString> openRun(File run)
+  {
+    final DataInputStream in;
+    try
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), RUN_BUFFER_SIZE));
+    }
+    catch (IOException e)
+    {
+      throw new StorageRuntimeException(e);
+    }
+    openedRuns.add(in);
+    return new RunFileIterator(in);
+  }
+
+  private static void addIfNotEmpty(PriorityQueue<RunCursor> cursors, RunCursor cursor)
+  {
+    if (cursor.next())
+    {
+      cursors.add(cursor);
+    }
+  }
+
+  /** Reads the keys of a run file. */
+  private static final class RunFileIterator implements Iterator<ByteString>
+  {
+    private final DataInputStream in;
+    private ByteString next;
+
+    RunFileIterator(DataInputStream in)
+    {
+      this.in = in;
+      this.next = readNext();
+    }
+
+    private ByteString readNext()
+    {
+      try
+      {
+        final int length = in.readInt();
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return ByteString.wrap(bytes);
+      }
+      catch (EOFException e)
+      {
+        closeSilently(in);
+        return null;
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next != null;
+    }
+
+    @Override
+    public ByteString next()
+    {
+      if (next == null)
+      {
+        throw new NoSuchElementException();
+      }
+      final ByteString key = next;
+      next = readNext();
+      return key;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** Head of a sorted run, ordered by its current key. */
+  private static final class RunCursor implements Comparable<RunCursor>
+  {
+    private final Iterator<ByteString> keys;
+    private ByteString current;
+
+    RunCursor(Iterator<ByteString> keys)
+    {
+      this.keys = keys;
+    }
+
+    boolean next()
+    {
+      current = keys.hasNext() ? keys.next() : null;
+      return current != null;
+    }
+
+    @Override
+    public int compareTo(RunCursor o)
+    {
+      return current.compareTo(o.current);
+    }
+  }
+
+  /** Merges sorted runs. */
+  private static final class MergingIterator implements Iterator<ByteString>
+  {
+    private final PriorityQueue<RunCursor> cursors;
+
+    MergingIterator(PriorityQueue<RunCursor> cursors)
+    {
+      this.cursors = cursors;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return !cursors.isEmpty();
+    }
+
+    @Override
+    public ByteString next()
+    {
+      final RunCursor cursor = cursors.poll();
+      if (cursor == null)
+      {
+        throw new NoSuchElementException();
+      }
+      final ByteString key = cursor.current;
+      addIfNotEmpty(cursors, cursor);
+      return key;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,595 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.WriteDurability;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.CanceledOperationException;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+
+/**
+ * Decorates a storage in order to commit the write operations according to the configured {@link WriteDurability}.
+ * <p>
+ * In the group modes, the write operations arriving concurrently are committed together in a single transaction: the
+ * first thread finding no group being committed becomes the leader, waits for the group commit window, then runs the
+ * pending write operations one after the other in a single transaction, while the other threads wait for the commit.
+ * When a write operation of a group fails with an error of its own, such as a {@link DirectoryException}, the
+ * transaction is aborted and the other write operations of the group are committed together again, the failure being
+ * only reported to the write operation which caused it. When the transaction of a group fails for another reason, each
+ * write operation of the group is run again in its own transaction in order to report its own result.
+ * <p>
+ * The {@link PostCommitActions} of a write operation are only run once its transaction has been committed.
+ * <p>
+ * In the async mode, the groups are committed without waiting for their changes to be written to disk, which is
+ * forced in the background at the configured interval.
+ */
+final class GroupCommitStorage implements Storage
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** A write operation waiting for the commit of its group. */
+  private static final class PendingWrite
+  {
+    private final WriteOperation operation;
+    /** Whether the group has been committed, guarded by the lock of the storage. */
+    private boolean isDone;
+    /** The failure to report to the caller, if any. */
+    private Exception failure;
+
+    private PendingWrite(WriteOperation operation)
+    {
+      this.operation = operation;
+    }
+  }
+
+  /** Aborts the transaction of a group when one of its write operations fails with an error of its own. */
+  private static final class GroupMemberFailedException extends Exception
+  {
+    private static final long serialVersionUID = 1L;
+
+    private GroupMemberFailedException()
+    {
+      super(null, null, false, false);
+    }
+  }
+
+  private final Storage storage;
+  private final String backendId;
+
+  /** Guards the pending writes and the group being committed. */
+  private final Object lock = new Object();
+  private final Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+  private boolean isGroupCommitting;
+  /** Set while the current thread runs the write operations of a group, whose nested writes are not grouped. */
+  private final ThreadLocal<Boolean> isRunningGroup = new ThreadLocal<>();
+
+  private volatile WriteDurability durability = WriteDurability.SYNC;
+  private volatile long windowMillis;
+  private volatile int maxOperations = 1;
+  /** Syncs the storage in the async mode, null otherwise. */
+  private ScheduledExecutorService syncer;
+  private long syncIntervalMillis;
+
+  private final LongAdder groupCount = new LongAdder();
+  private final LongAdder groupedOperationCount = new LongAdder();
+  private final AtomicInteger maxGroupSize = new AtomicInteger();
+  private final LongAdder retriedGroupCount = new LongAdder();
+  private final LongAdder syncCount = new LongAdder();
+
+  GroupCommitStorage(Storage storage, String backendId)
+  {
+    this.storage = storage;
+    this.backendId = backendId;
+  }
+
+  /**
+   * Returns the decorated storage.
+   *
+   * @return the decorated storage
+   */
+  Storage getStorage()
+  {
+    return storage;
+  }
+
+  /**
+   * Configures how the write operations are committed.
+   *
+   * @param durability
+   *          how the write operations are committed
+   * @param windowMillis
+   *          how long a group waits for more write operations before being committed
+   * @param maxOperations
+   *          the maximum number of write operations committed together
+   * @param syncIntervalMillis
+   *          the interval at which the storage is synced in the async mode
+   */
+  synchronized void configure(WriteDurability durability, long windowMillis, int maxOperations,
+      long syncIntervalMillis)
+  {
+    final WriteDurability oldDurability = this.durability;
+    this.durability = durability;
+    this.windowMillis = windowMillis;
+    this.maxOperations = maxOperations;
+    if (durability == WriteDurability.ASYNC)
+    {
+      if (syncer == null || syncIntervalMillis != this.syncIntervalMillis)
+      {
+        stopSyncer();
+        startSyncer(syncIntervalMillis);
+      }
+    }
+    else if (oldDurability == WriteDurability.ASYNC)
+    {
+      stopSyncer();
+      // Honor the new durability for the changes committed so far
+      syncAndLogErrors();
+    }
+  }
+
+  private void startSyncer(long intervalMillis)
+  {
+    syncIntervalMillis = intervalMillis;
+    syncer = Executors.newSingleThreadScheduledExecutor(newThreadFactory(null, backendId + " storage syncer", true));
+    syncer.scheduleWithFixedDelay(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        syncAndLogErrors();
+      }
+    }, intervalMillis, intervalMillis, MILLISECONDS);
+  }
+
+  private void syncAndLogErrors()
+  {
+    try
+    {
+      sync();
+    }
+    catch (StorageRuntimeException e)
+    {
+      logger.error(ERR_BACKEND_WRITE_DURABILITY_SYNC_FAILED, backendId, stackTraceToSingleLineString(e));
+    }
+  }
+
+  private void stopSyncer()
+  {
+    if (syncer != null)
+    {
+      syncer.shutdown();
+      syncer = null;
+    }
+  }
+
+  /**
+   * Returns how the write operations are committed.
+   *
+   * @return how the write operations are committed
+   */
+  WriteDurability getDurability()
+  {
+    return durability;
+  }
+
+  /**
+   * Returns the number of groups committed so far.
+   *
+   * @return the number of groups committed so far
+   */
+  long getGroupCount()
+  {
+    return groupCount.sum();
+  }
+
+  /**
+   * Returns the number of write operations committed in groups so far.
+   *
+   * @return the number of write operations committed in groups so far
+   */
+  long getGroupedOperationCount()
+  {
+    return groupedOperationCount.sum();
+  }
+
+  /**
+   * Returns the largest number of write operations committed together so far.
+   *
+   * @return the largest number of write operations committed together so far
+   */
+  int getMaxGroupSize()
+  {
+    return maxGroupSize.get();
+  }
+
+  /**
+   * Returns the number of groups whose transaction failed, and whose write operations have been run again in their
+   * own transaction.
+   *
+   * @return the number of groups whose write operations have been run again in their own transaction
+   */
+  long getRetriedGroupCount()
+  {
+    return retriedGroupCount.sum();
+  }
+
+  /**
+   * Returns the number of times the storage has been synced.
+   *
+   * @return the number of times the storage has been synced
+   */
+  long getSyncCount()
+  {
+    return syncCount.sum();
+  }
+
+  @Override
+  public void write(final WriteOperation writeOperation) throws Exception
+  {
+    final WriteDurability mode = durability;
+    final PostCommitActions postCommitActions = new PostCommitActions();
+    final WriteOperation operation = postCommitActions.collectFrom(writeOperation);
+    if (mode == WriteDurability.SYNC || isRunningGroup.get() != null)
+    {
+      commit(operation, mode);
+      postCommitActions.runAll();
+      return;
+    }
+
+    final PendingWrite write = new PendingWrite(operation);
+    synchronized (lock)
+    {
+      pendingWrites.add(write);
+      if (pendingWrites.size() >= maxOperations)
+      {
+        // Do not let the leader wait for more write operations
+        lock.notifyAll();
+      }
+    }
+    while (awaitLeadership(write))
+    {
+      commitGroup(mode);
+    }
+    if (write.failure != null)
+    {
+      throw write.failure;
+    }
+    postCommitActions.runAll();
+  }
+
+  /**
+   * Waits until either the group of the provided write is committed, or no group is being committed.
+   *
+   * @return {@code true} if the current thread is the leader which must commit the next group
+   */
+  private boolean awaitLeadership(PendingWrite write)
+  {
+    boolean isInterrupted = false;
+    try
+    {
+      synchronized (lock)
+      {
+        while (!write.isDone && isGroupCommitting)
+        {
+          try
+          {
+            lock.wait();
+          }
+          catch (InterruptedException e)
+          {
+            // The write operation may already be running, it cannot be abandoned
+            isInterrupted = true;
+          }
+        }
+        if (write.isDone)
+        {
+          return false;
+        }
+        isGroupCommitting = true;
+        return true;
+      }
+    }
+    finally
+    {
+      if (isInterrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void commitGroup(WriteDurability mode)
+  {
+    final List<PendingWrite> group = takeGroup();
+    isRunningGroup.set(Boolean.TRUE);
+    try
+    {
+      runGroup(group, mode);
+    }
+    catch (Error e)
+    {
+      for (PendingWrite write : group)
+      {
+        if (write.failure == null)
+        {
+          write.failure = new StorageRuntimeException(e);
+        }
+      }
+      throw e;
+    }
+    finally
+    {
+      isRunningGroup.remove();
+      synchronized (lock)
+      {
+        for (PendingWrite write : group)
+        {
+          write.isDone = true;
+        }
+        isGroupCommitting = false;
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /** Waits for the group commit window, then takes the pending writes of the next group. */
+  private List<PendingWrite> takeGroup()
+  {
+    final int max = maxOperations;
+    boolean isInterrupted = false;
+    synchronized (lock)
+    {
+      final long deadline = System.nanoTime() + MILLISECONDS.toNanos(windowMillis);
+      long remainingNanos;
+      while (pendingWrites.size() < max && (remainingNanos = deadline - System.nanoTime()) > 0)
+      {
+        try
+        {
+          NANOSECONDS.timedWait(lock, remainingNanos);
+        }
+        catch (InterruptedException e)
+        {
+          isInterrupted = true;
+          break;
+        }
+      }
+      final List<PendingWrite> group = new ArrayList<>(Math.min(pendingWrites.size(), max));
+      while (group.size() < max && !pendingWrites.isEmpty())
+      {
+        group.add(pendingWrites.poll());
+      }
+      if (isInterrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+      return group;
+    }
+  }
+
+  private void runGroup(final List<PendingWrite> group, WriteDurability mode)
+  {
+    groupCount.increment();
+    groupedOperationCount.add(group.size());
+    int max;
+    while ((max = maxGroupSize.get()) < group.size() && !maxGroupSize.compareAndSet(max, group.size()))
+    {
+      // retry
+    }
+
+    List<PendingWrite> remaining = group;
+    while (remaining.size() > 1)
+    {
+      try
+      {
+        commit(newGroupOperation(remaining), mode);
+        return;
+      }
+      catch (GroupMemberFailedException e)
+      {
+        // Leave the failed write operation out, and commit the others together again
+        retriedGroupCount.increment();
+        remaining = withoutFailures(remaining);
+      }
+      catch (Exception e)
+      {
+        // Let each write operation report its own result
+        logger.traceException(e);
+        retriedGroupCount.increment();
+        break;
+      }
+    }
+    for (PendingWrite write : remaining)
+    {
+      try
+      {
+        commit(write.operation, mode);
+      }
+      catch (Exception e)
+      {
+        write.failure = e;
+      }
+    }
+  }
+
+  /**
+   * Returns a write operation running the provided writes in a single transaction. The transaction is aborted as soon
+   * as one of the writes fails with an error of its own, which is then reported to this write only.
+   */
+  private static WriteOperation newGroupOperation(final List<PendingWrite> group)
+  {
+    return new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (PendingWrite write : group)
+        {
+          try
+          {
+            write.operation.run(txn);
+          }
+          catch (DirectoryException | CanceledOperationException e)
+          {
+            write.failure = e;
+            throw new GroupMemberFailedException();
+          }
+        }
+      }
+    };
+  }
+
+  private static List<PendingWrite> withoutFailures(List<PendingWrite> group)
+  {
+    final List<PendingWrite> writes = new ArrayList<>(group.size() - 1);
+    for (PendingWrite write : group)
+    {
+      if (write.failure == null)
+      {
+        writes.add(write);
+      }
+    }
+    return writes;
+  }
+
+  private void commit(WriteOperation writeOperation, WriteDurability mode) throws Exception
+  {
+    if (mode == WriteDurability.ASYNC)
+    {
+      storage.writeNoSync(writeOperation);
+    }
+    else
+    {
+      storage.write(writeOperation);
+    }
+  }
+
+  @Override
+  public void writeNoSync(WriteOperation writeOperation) throws Exception
+  {
+    final PostCommitActions postCommitActions = new PostCommitActions();
+    storage.writeNoSync(postCommitActions.collectFrom(writeOperation));
+    postCommitActions.runAll();
+  }
+
+  @Override
+  public void sync() throws StorageRuntimeException
+  {
+    storage.sync();
+    syncCount.increment();
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    return storage.startImport();
+  }
+
+  @Override
+  public void open(AccessMode accessMode) throws Exception
+  {
+    storage.open(accessMode);
+  }
+
+  @Override
+  public <T> T read(ReadOperation<T> readOperation) throws Exception
+  {
+    return storage.read(readOperation);
+  }
+
+  @Override
+  public void removeStorageFiles() throws StorageRuntimeException
+  {
+    storage.removeStorageFiles();
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    return storage.getStorageStatus();
+  }
+
+  @Override
+  public boolean isCacheFull()
+  {
+    return storage.isCacheFull();
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return storage.supportsBackupAndRestore();
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    storage.createBackup(backupConfig);
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    storage.removeBackup(backupDirectory, backupID);
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    storage.restoreBackup(restoreConfig);
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    return storage.listTrees();
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    stopSyncer();
+    storage.close();
+  }
+}
@@ -26,6 +26,12 @@ import static org.opends.server.core.DirectoryServer.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.DataFormatException;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
@@ -79,9 +85,36 @@ class ID2Entry extends AbstractTree
     }
   };
 
+  /** A dictionary being trained from the entries written by an import, along with where to store it. */
+  private static final class DictionaryTraining
+  {
+    private final CompressionDictionaryTrainer trainer;
+    private final WriteableTransaction txn;
+
+    private DictionaryTraining(CompressionDictionaryTrainer trainer, WriteableTransaction txn)
+    {
+      this.trainer = trainer;
+      this.txn = txn;
+    }
+  }
+
   /** Parameters for compression and encryption. */
   private DataConfig dataConfig;
 
+  /** The tree storing the compression dictionaries, null if dictionaries are not supported. */
+  private final State state;
+  /** The dictionary used by the fast compression codec for new entries, null if none has been trained. */
+  private volatile LZ4BlockCodec.Dictionary dictionary;
+  /**
+   * All the stored dictionaries by identifier, for decoding the entries compressed with older dictionaries.
+   * Replaced rather than modified, so that readers do not need any lock.
+   */
+  private volatile Map<Integer, LZ4BlockCodec.Dictionary> dictionaries = Collections.emptyMap();
+  /** The highest dictionary identifier ever used by this tree, so that identifiers are never reused. */
+  private int lastDictionaryId;
+  /** Collects the entries written by an import for training a dictionary, null when not training. */
+  private final AtomicReference<DictionaryTraining> dictionaryTraining = new AtomicReference<>();
+
   /** Cached encoding buffers. */
   private static final ThreadLocal<EntryCodec> ENTRY_CODEC_CACHE = new ThreadLocal<EntryCodec>()
   {
@@ -119,6 +152,9 @@ class ID2Entry extends AbstractTree
     private static final byte PLAIN_ENTRY = 0x00;
     private static final byte COMPRESS_ENTRY = 0x01;
     private static final byte ENCRYPT_ENTRY = 0x02;
+    private static final byte FAST_COMPRESS_ENTRY = 0x04;
+    /** The entry has been compressed with a dictionary, whose identifier follows the entry length. */
+    private static final byte COMPRESSION_DICTIONARY = 0x08;
 
     /** The format version for entry encoding. */
     static final byte FORMAT_VERSION_V2 = 0x02;
@@ -140,8 +176,8 @@ class ID2Entry extends AbstractTree
       compressedEntryBuffer.clearAndTruncate(maxBufferSize, BUFFER_INIT_SIZE);
     }
 
-    private Entry decode(ByteString bytes, CompressedSchema compressedSchema)
-        throws DirectoryException, DecodeException, IOException
+    private Entry decode(ByteString bytes, CompressedSchema compressedSchema,
+        Map<Integer, LZ4BlockCodec.Dictionary> dictionaries) throws DirectoryException, DecodeException, IOException
     {
       final byte formatVersion = bytes.byteAt(0);
       switch(formatVersion)
@@ -149,7 +185,7 @@ class ID2Entry extends AbstractTree
       case FORMAT_VERSION:
         return decodeV1(bytes, compressedSchema);
       case FORMAT_VERSION_V2:
-        return decodeV2(bytes, compressedSchema);
+        return decodeV2(bytes, compressedSchema, dictionaries);
       default:
         throw DecodeException.error(ERR_INCOMPATIBLE_ENTRY_VERSION.get(formatVersion));
       }
@@ -228,31 +264,44 @@ class ID2Entry extends AbstractTree
     /**
      * Decodes an entry in the new extensible format.
      * Enties are encoded according to the sequence
-     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, ID2ENTRY_VALUE}
+     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, [COMPACT_DICTIONARY_ID,] ID2ENTRY_VALUE}
      * where
      *
      * ID2ENTRY_VALUE = encoding of Entry as in decodeV1()
      * VERSION_BYTE = 0x2
      * FLAG_BYTE = bit field of OR'ed values indicating post-encoding processing.
-     *     possible meaningful flags are COMPRESS_ENTRY and ENCRYPT_ENTRY.
+     *     possible meaningful flags are COMPRESS_ENTRY, FAST_COMPRESS_ENTRY,
+     *     COMPRESSION_DICTIONARY and ENCRYPT_ENTRY.
      * COMPACT_INTEGER_LENGTH = length of ID2ENTRY_VALUE
+     * COMPACT_DICTIONARY_ID = identifier of the dictionary used by the fast
+     *     compression codec, only present with the COMPRESSION_DICTIONARY flag.
      *
      * @param bytes A byte array containing the encoded tree value.
      * @param compressedSchema The compressed schema manager to use when decoding.
+     * @param dictionaries The stored compression dictionaries by identifier.
      * @return The decoded entry.
      * @throws DecodeException If the data is not in the expected ASN.1 encoding
      * format or a decryption error occurs.
      * @throws DirectoryException If a Directory Server error occurs.
      * @throws IOException if an error occurs while reading the ASN1 sequence.
      */
-    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema)
-        throws DirectoryException, DecodeException, IOException
+    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema,
+        Map<Integer, LZ4BlockCodec.Dictionary> dictionaries) throws DirectoryException, DecodeException, IOException
     {
       ByteSequenceReader reader = bytes.asReader();
       // skip version byte
       reader.position(1);
       int format = reader.readByte();
       int encodedEntryLen = reader.readCompactUnsignedInt();
+      LZ4BlockCodec.Dictionary dictionary = null;
+      if ((format & COMPRESSION_DICTIONARY) == COMPRESSION_DICTIONARY)
+      {
+        dictionary = dictionaries.get(reader.readCompactUnsignedInt());
+        if (dictionary == null)
+        {
+          throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+        }
+      }
       try
       {
         if (format == PLAIN_ENTRY)
@@ -264,6 +313,11 @@ class ID2Entry extends AbstractTree
         {
           is = getCryptoManager().getCipherInputStream(is);
         }
+        if ((format & FAST_COMPRESS_ENTRY) == FAST_COMPRESS_ENTRY)
+        {
+          return Entry.decode(ByteString.wrap(fastDecompress(is, encodedEntryLen, dictionary)).asReader(),
+              compressedSchema);
+        }
         if ((format & COMPRESS_ENTRY) == COMPRESS_ENTRY)
         {
           is = new InflaterInputStream(is);
@@ -291,13 +345,34 @@ class ID2Entry extends AbstractTree
       }
     }
 
-    private ByteString encode(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private byte[] fastDecompress(InputStream is, int encodedEntryLen, LZ4BlockCodec.Dictionary dictionary)
+        throws DecodeException, IOException
+    {
+      while (compressedEntryBuffer.appendBytes(is, BUFFER_INIT_SIZE) != -1)
+      {
+        // Read the whole compressed entry.
+      }
+      try
+      {
+        return LZ4BlockCodec.decompress(compressedEntryBuffer.getBackingArray(), 0, compressedEntryBuffer.length(),
+            dictionary, encodedEntryLen);
+      }
+      catch (DataFormatException e)
+      {
+        logger.traceException(e);
+        throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+      }
+    }
+
+    private ByteString encode(Entry entry, DataConfig dataConfig, LZ4BlockCodec.Dictionary dictionary)
+        throws DirectoryException
     {
-      encodeVolatile(entry, dataConfig);
+      encodeVolatile(entry, dataConfig, dictionary);
       return encodedBuffer.toByteString();
     }
 
-    private void encodeVolatile(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private void encodeVolatile(Entry entry, DataConfig dataConfig, LZ4BlockCodec.Dictionary dictionary)
+        throws DirectoryException
     {
       entry.encode(entryBuffer, dataConfig.getEntryEncodeConfig());
 
@@ -307,7 +382,24 @@ class ID2Entry extends AbstractTree
         byte[] formatFlags = { FORMAT_VERSION_V2, 0};
         os.write(formatFlags);
         encodedBuffer.appendCompactUnsigned(entryBuffer.length());
-        if (dataConfig.isCompressed())
+        ByteStringBuilder data = entryBuffer;
+        if (dataConfig.isCompressed() && dataConfig.isFastCompression())
+        {
+          // Entries which do not shrink are stored uncompressed.
+          final int compressedLength = LZ4BlockCodec.compress(
+              entryBuffer.getBackingArray(), 0, entryBuffer.length(), dictionary, compressedEntryBuffer);
+          if (compressedLength < entryBuffer.length())
+          {
+            data = compressedEntryBuffer;
+            formatFlags[1] = FAST_COMPRESS_ENTRY;
+            if (dictionary != null)
+            {
+              formatFlags[1] |= COMPRESSION_DICTIONARY;
+              encodedBuffer.appendCompactUnsigned(dictionary.getId());
+            }
+          }
+        }
+        else if (dataConfig.isCompressed())
         {
           os = new DeflaterOutputStream(os);
           formatFlags[1] = COMPRESS_ENTRY;
@@ -319,7 +411,7 @@ class ID2Entry extends AbstractTree
         }
         encodedBuffer.setByte(1, formatFlags[1]);
 
-        entryBuffer.copyTo(os);
+        data.copyTo(os);
         os.flush();
       }
       catch(CryptoManagerException | IOException e)
@@ -350,9 +442,24 @@ class ID2Entry extends AbstractTree
    * @throws StorageRuntimeException If an error occurs in the storage.
    */
   ID2Entry(TreeName name, DataConfig dataConfig) throws StorageRuntimeException
+  {
+    this(name, dataConfig, null);
+  }
+
+  /**
+   * Create a new ID2Entry object storing its compression dictionary in the provided state tree.
+   *
+   * @param name The name of the entry tree.
+   * @param dataConfig The desired compression and encryption options for data
+   * stored in the entry tree.
+   * @param state The state tree, which must be opened before this tree.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  ID2Entry(TreeName name, DataConfig dataConfig, State state) throws StorageRuntimeException
   {
     super(name);
     this.dataConfig = dataConfig;
+    this.state = state;
   }
 
   @Override
@@ -364,6 +471,136 @@ class ID2Entry extends AbstractTree
     {
       cursor.next();
     }
+    if (state != null)
+    {
+      loadDictionaries(txn);
+      if (dictionary == null && createOnDemand && isDictionaryConfigured(dataConfig))
+      {
+        trainDictionary(txn);
+      }
+    }
+  }
+
+  private synchronized void loadDictionaries(ReadableTransaction txn)
+  {
+    final Map<Integer, LZ4BlockCodec.Dictionary> storedDictionaries = state.getCompressionDictionaries(txn, getName());
+    LZ4BlockCodec.Dictionary latestDictionary = null;
+    for (LZ4BlockCodec.Dictionary storedDictionary : storedDictionaries.values())
+    {
+      if (latestDictionary == null || storedDictionary.getId() > latestDictionary.getId())
+      {
+        latestDictionary = storedDictionary;
+      }
+    }
+    dictionaries = Collections.unmodifiableMap(storedDictionaries);
+    dictionary = latestDictionary;
+    if (latestDictionary != null)
+    {
+      lastDictionaryId = Math.max(lastDictionaryId, latestDictionary.getId());
+    }
+  }
+
+  @Override
+  synchronized void beforeDelete(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    // The stored dictionaries are removed along with the rest of the state tree.
+    // Their identifiers are not reused, in case an entry compressed with one of them is still around.
+    dictionary = null;
+    dictionaries = Collections.emptyMap();
+  }
+
+  private static boolean isDictionaryConfigured(DataConfig dataConfig)
+  {
+    return dataConfig.isCompressed() && dataConfig.isFastCompression() && dataConfig.getCompressionDictionarySize() > 0;
+  }
+
+  /** Trains a dictionary from the entries already stored, provided there are enough of them. */
+  private void trainDictionary(WriteableTransaction txn)
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer(
+        dataConfig.getCompressionDictionarySize(), CompressionDictionaryTrainer.DEFAULT_SAMPLE_COUNT);
+    final ByteStringBuilder sample = new ByteStringBuilder();
+    try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    {
+      while (cursor.next())
+      {
+        try
+        {
+          sample.clear();
+          entryFromDatabase(cursor.getValue(), dataConfig.getEntryEncodeConfig().getCompressedSchema())
+              .encode(sample, dataConfig.getEntryEncodeConfig());
+        }
+        catch (Exception e)
+        {
+          // Corrupt entries are reported by verify-index, just skip them.
+          logger.traceException(e);
+          continue;
+        }
+        if (trainer.addSample(sample))
+        {
+          installDictionary(trainer, txn);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Stores a newly trained dictionary under a fresh identifier, then uses it for the next entries. Storing it first
+   * ensures that no entry compressed with the dictionary can be written without it.
+   */
+  private synchronized void installDictionary(CompressionDictionaryTrainer trainer, WriteableTransaction txn)
+  {
+    final byte[] bytes = trainer.train();
+    if (bytes.length > 0)
+    {
+      final LZ4BlockCodec.Dictionary newDictionary = new LZ4BlockCodec.Dictionary(lastDictionaryId + 1, bytes);
+      state.putCompressionDictionary(txn, getName(), newDictionary);
+      lastDictionaryId = newDictionary.getId();
+
+      final Map<Integer, LZ4BlockCodec.Dictionary> newDictionaries = new HashMap<>(dictionaries);
+      newDictionaries.put(newDictionary.getId(), newDictionary);
+      dictionaries = Collections.unmodifiableMap(newDictionaries);
+      dictionary = newDictionary;
+      logger.info(NOTE_COMPRESSION_DICTIONARY_TRAINED, getName(), bytes.length);
+    }
+  }
+
+  /**
+   * Starts training a compression dictionary from the next entries written to this tree, if the configuration
+   * requires one. This method is meant to be called at the beginning of an import, after this tree has been cleared.
+   * The entries are compressed without a dictionary until the new one has been trained and stored.
+   *
+   * @param txn a non null transaction in which the trained dictionary will be stored, which must remain usable
+   * until {@link #stopDictionaryTraining()} is called
+   */
+  void startDictionaryTraining(WriteableTransaction txn)
+  {
+    if (state != null && isDictionaryConfigured(dataConfig))
+    {
+      dictionary = null;
+      dictionaryTraining.set(new DictionaryTraining(new CompressionDictionaryTrainer(
+          dataConfig.getCompressionDictionarySize(), CompressionDictionaryTrainer.DEFAULT_SAMPLE_COUNT), txn));
+    }
+  }
+
+  /**
+   * Stops training a compression dictionary. The dictionary trained since
+   * {@link #startDictionaryTraining(WriteableTransaction)}, if any, has already been stored.
+   */
+  void stopDictionaryTraining()
+  {
+    dictionaryTraining.set(null);
+  }
+
+  private void addDictionarySample(ByteSequence encodedEntry)
+  {
+    final DictionaryTraining training = dictionaryTraining.get();
+    if (training != null && training.trainer.addSample(encodedEntry)
+        && dictionaryTraining.compareAndSet(training, null))
+    {
+      installDictionary(training.trainer, training.txn);
+    }
   }
 
   /**
@@ -388,7 +625,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.decode(bytes, compressedSchema);
+      return codec.decode(bytes, compressedSchema, dictionaries);
     }
     finally
     {
@@ -411,7 +648,10 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.encode(entry, dataConfig);
+      final ByteString encodedEntry =
+          codec.encode(entry, dataConfig, isDictionaryConfigured(dataConfig) ? dictionary : null);
+      addDictionarySample(codec.entryBuffer);
+      return encodedEntry;
     }
     finally
     {
@@ -469,6 +709,46 @@ class ID2Entry extends AbstractTree
     }
   }
 
+  /**
+   * Fetches the records of several entries from the entry tree at once, which requires fewer tree descents than
+   * fetching them one by one.
+   *
+   * @param txn a non null transaction
+   * @param sortedEntryIDs The entry IDs which form the keys, in ascending order.
+   * @return The encoded entries, in the same order as the entry IDs, with null for the records which do not exist.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  List<ByteString> readAll(ReadableTransaction txn, long[] sortedEntryIDs)
+  {
+    final List<ByteString> keys = new ArrayList<>(sortedEntryIDs.length);
+    for (long entryID : sortedEntryIDs)
+    {
+      keys.add(new EntryID(entryID).toByteString());
+    }
+    return txn.readAll(getName(), keys);
+  }
+
+  /**
+   * Decodes an entry fetched by {@link #readAll(ReadableTransaction, long[])}.
+   *
+   * @param entryID The entry ID of the record.
+   * @param encodedEntry The record, or null if there is no such record.
+   * @return The entry, or null if there is no such record.
+   * @throws DirectoryException If a problem occurs while decoding the entry.
+   */
+  Entry get(EntryID entryID, ByteString encodedEntry) throws DirectoryException
+  {
+    try
+    {
+      return get0(encodedEntry);
+    }
+    catch (Exception e)
+    {
+      throw new DirectoryException(
+          DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), ERR_ENTRY_DATABASE_CORRUPT.get(entryID));
+    }
+  }
+
   Cursor<EntryID, Entry> openCursor(ReadableTransaction txn)
   {
     return transformKeysAndValues(txn.openCursor(getName()), TO_ENTRY_ID, TO_ENTRY);
@@ -20,6 +20,7 @@ import static org.opends.server.backends.pluggable.EntryIDSet.*;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -40,6 +41,36 @@ import org.opends.server.types.DirectoryException;
  */
 class IndexBuffer
 {
+  /** Receives the index changes held by an {@link IndexBuffer}. */
+  interface IndexBufferVisitor
+  {
+    /**
+     * Visits the changes of one key of an attribute index.
+     *
+     * @param index
+     *          the index
+     * @param key
+     *          the index key
+     * @param addedIDs
+     *          the entry IDs added to the key, may be null
+     * @param deletedIDs
+     *          the entry IDs deleted from the key, may be null
+     */
+    void visitIndexChanges(Index index, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs);
+
+    /**
+     * Visits the changes of a VLV index.
+     *
+     * @param index
+     *          the VLV index
+     * @param addedSortKeys
+     *          the sort keys added to the index, may be null
+     * @param deletedSortKeys
+     *          the sort keys deleted from the index, may be null
+     */
+    void visitVLVIndexChanges(VLVIndex index, Set<ByteString> addedSortKeys, Set<ByteString> deletedSortKeys);
+  }
+
   /** Internal interface for IndexBuffer implementor. */
   private interface IndexBufferImplementor
   {
@@ -47,6 +78,10 @@ class IndexBuffer
 
     void writeTrustState(WriteableTransaction txn) throws StorageRuntimeException;
 
+    void invalidate(IndexCache indexCache);
+
+    void accept(IndexBufferVisitor visitor);
+
     void put(DefaultIndex index, ByteString key, EntryID entryID);
 
     void put(VLVIndex index, ByteString sortKey);
@@ -222,6 +257,36 @@ class IndexBuffer
       }
     }
 
+    @Override
+    public void invalidate(IndexCache indexCache)
+    {
+      for (Entry<Index, SortedMap<ByteString, BufferedIndexValues>> entry : bufferedIndexes.entrySet())
+      {
+        for (ByteString key : entry.getValue().keySet())
+        {
+          indexCache.invalidate(entry.getKey().getName(), key);
+        }
+      }
+    }
+
+    @Override
+    public void accept(IndexBufferVisitor visitor)
+    {
+      for (Entry<Index, SortedMap<ByteString, BufferedIndexValues>> entry : bufferedIndexes.entrySet())
+      {
+        for (Entry<ByteString, BufferedIndexValues> values : entry.getValue().entrySet())
+        {
+          visitor.visitIndexChanges(
+              entry.getKey(), values.getKey(), values.getValue().addedEntryIDs, values.getValue().deletedEntryIDs);
+        }
+      }
+
+      for (Entry<VLVIndex, BufferedVLVIndexValues> entry : bufferedVLVIndexes.entrySet())
+      {
+        visitor.visitVLVIndexChanges(entry.getKey(), entry.getValue().addedSortKeys, entry.getValue().deletedSortKeys);
+      }
+    }
+
     @Override
     public void put(DefaultIndex index, ByteString key, EntryID entryID)
     {
@@ -304,6 +369,18 @@ class IndexBuffer
       // Nothing to do
     }
 
+    @Override
+    public void invalidate(IndexCache indexCache)
+    {
+      // Nothing to do
+    }
+
+    @Override
+    public void accept(IndexBufferVisitor visitor)
+    {
+      // Nothing to do: the changes are not buffered
+    }
+
     @Override
     public void remove(VLVIndex index, ByteString sortKey)
     {
@@ -368,6 +445,35 @@ class IndexBuffer
     impl.writeTrustState(txn);
   }
 
+  /**
+   * Invalidates the cached entry IDs of the index keys modified by this buffer. This must be done once the
+   * transaction which flushed this buffer has completed, whether it has been committed or not.
+   *
+   * @param indexCache
+   *          the index cache, may be null
+   */
+  void invalidate(IndexCache indexCache)
+  {
+    if (indexCache != null)
+    {
+      impl.invalidate(indexCache);
+    }
+  }
+
+  /**
+   * Passes the index changes held by this buffer to the provided visitor, in the order they are flushed.
+   *
+   * @param visitor
+   *          the visitor, may be null
+   */
+  void accept(IndexBufferVisitor visitor)
+  {
+    if (visitor != null)
+    {
+      impl.accept(visitor);
+    }
+  }
+
   void put(DefaultIndex index, ByteString key, EntryID entryID)
   {
     impl.put(index, key, entryID);
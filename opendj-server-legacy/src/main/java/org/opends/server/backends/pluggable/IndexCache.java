@@ -0,0 +1,336 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * A memory bounded cache of the entry ID sets decoded from the most frequently read keys of the indexes of a backend.
+ * <p>
+ * The cache is split into segments, each of them keeping its keys in least recently used order and evicting them once
+ * its share of the memory limit is exceeded. Writers invalidate the keys they modified once their transaction has
+ * completed. A reader whose transaction started before such a write completed could still read the previous value of a
+ * key and cache it after the invalidation: readers therefore take a {@link Reader stamp} before opening their
+ * transaction, and a value is only cached if its segment has not been invalidated since the stamp was taken.
+ * <p>
+ * Only the keys of trusted indexes are cached. The cached sets are never returned to the callers, which get copies of
+ * them they are free to modify.
+ * <p>
+ * This class is thread safe.
+ */
+final class IndexCache
+{
+  private static final int NB_SEGMENTS = 16;
+  /** Estimated memory used by a cached key, in addition to the key bytes and the entry IDs. */
+  private static final int ENTRY_OVERHEAD = 128;
+
+  /** Ticks each time a segment is invalidated. */
+  private final AtomicLong clock = new AtomicLong();
+  private final Segment[] segments = new Segment[NB_SEGMENTS];
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Creates a new index cache.
+   *
+   * @param memoryLimit
+   *          the maximum number of bytes used by the cached keys and entry ID sets
+   */
+  IndexCache(long memoryLimit)
+  {
+    for (int i = 0; i < segments.length; i++)
+    {
+      segments[i] = new Segment(memoryLimit / NB_SEGMENTS);
+    }
+  }
+
+  /**
+   * Returns a new reader of this cache. The reader must be created before opening the transaction that it will be
+   * used with.
+   *
+   * @return a new reader of this cache
+   */
+  Reader newReader()
+  {
+    return new Reader(clock.get());
+  }
+
+  /** Reads index keys through this cache on behalf of a read transaction. */
+  final class Reader
+  {
+    private final long stamp;
+
+    private Reader(long stamp)
+    {
+      this.stamp = stamp;
+    }
+
+    /**
+     * Returns the entry IDs indexed by the provided key, reading them from the cache when possible.
+     *
+     * @param txn
+     *          the read transaction, opened after this reader was created
+     * @param index
+     *          the index to read
+     * @param key
+     *          the key to read
+     * @return a new set of the entry IDs indexed by the key
+     */
+    EntryIDSet get(ReadableTransaction txn, Index index, ByteSequence key)
+    {
+      if (!index.isTrusted())
+      {
+        return index.get(txn, key);
+      }
+      final CacheKey cacheKey = new CacheKey(index.getName(), key.toByteString());
+      final Segment segment = segmentFor(cacheKey);
+      final EntryIDSet cached = segment.get(cacheKey);
+      if (cached != null)
+      {
+        hitCount.getAndIncrement();
+        return cached.copy();
+      }
+      missCount.getAndIncrement();
+      final EntryIDSet entryIDSet = index.get(txn, key);
+      // Undefined sets are cheap to decode, they can also be the result of a storage failure.
+      if (entryIDSet.isDefined() && index.isTrusted())
+      {
+        segment.put(cacheKey, entryIDSet.copy(), stamp);
+      }
+      return entryIDSet;
+    }
+  }
+
+  /**
+   * Invalidates the entry IDs cached for a key.
+   *
+   * @param treeName
+   *          the name of the index tree
+   * @param key
+   *          the modified key
+   */
+  void invalidate(TreeName treeName, ByteString key)
+  {
+    final CacheKey cacheKey = new CacheKey(treeName, key);
+    segmentFor(cacheKey).invalidate(cacheKey, clock.incrementAndGet());
+  }
+
+  /**
+   * Invalidates the entry IDs cached for all the keys of an index.
+   *
+   * @param treeName
+   *          the name of the index tree
+   */
+  void invalidate(TreeName treeName)
+  {
+    for (Segment segment : segments)
+    {
+      segment.invalidate(treeName, clock.incrementAndGet());
+    }
+  }
+
+  /**
+   * Returns the number of reads served by this cache.
+   *
+   * @return the number of reads served by this cache
+   */
+  long getHitCount()
+  {
+    return hitCount.get();
+  }
+
+  /**
+   * Returns the number of reads of trusted indexes not served by this cache.
+   *
+   * @return the number of reads of trusted indexes not served by this cache
+   */
+  long getMissCount()
+  {
+    return missCount.get();
+  }
+
+  /**
+   * Returns the number of keys evicted from this cache to keep it under its memory limit.
+   *
+   * @return the number of keys evicted from this cache to keep it under its memory limit
+   */
+  long getEvictionCount()
+  {
+    return evictionCount.get();
+  }
+
+  /**
+   * Returns the number of keys cached.
+   *
+   * @return the number of keys cached
+   */
+  long getKeyCount()
+  {
+    long count = 0;
+    for (Segment segment : segments)
+    {
+      count += segment.keyCount();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the estimated number of bytes used by the cached keys.
+   *
+   * @return the estimated number of bytes used by the cached keys
+   */
+  long getMemorySize()
+  {
+    long size = 0;
+    for (Segment segment : segments)
+    {
+      size += segment.memorySize();
+    }
+    return size;
+  }
+
+  private Segment segmentFor(CacheKey cacheKey)
+  {
+    final int hash = cacheKey.hashCode();
+    return segments[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % NB_SEGMENTS];
+  }
+
+  private static long estimateMemorySize(CacheKey cacheKey, EntryIDSet entryIDSet)
+  {
+    return ENTRY_OVERHEAD + cacheKey.key.length() + entryIDSet.getMemorySize();
+  }
+
+  /** Identifies a key of an index. */
+  private static final class CacheKey
+  {
+    private final TreeName treeName;
+    private final ByteString key;
+
+    CacheKey(TreeName treeName, ByteString key)
+    {
+      this.treeName = treeName;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (obj instanceof CacheKey)
+      {
+        final CacheKey that = (CacheKey) obj;
+        return key.equals(that.key) && treeName.equals(that.treeName);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return 31 * treeName.hashCode() + key.hashCode();
+    }
+  }
+
+  /** Keys of a segment of the cache, in least recently used order. */
+  private final class Segment
+  {
+    private final long memoryLimit;
+    private final LinkedHashMap<CacheKey, EntryIDSet> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memorySize;
+    /** Value of the clock when this segment was last invalidated. */
+    private long lastInvalidation;
+
+    Segment(long memoryLimit)
+    {
+      this.memoryLimit = memoryLimit;
+    }
+
+    synchronized EntryIDSet get(CacheKey cacheKey)
+    {
+      return entries.get(cacheKey);
+    }
+
+    synchronized void put(CacheKey cacheKey, EntryIDSet entryIDSet, long stamp)
+    {
+      final long size = estimateMemorySize(cacheKey, entryIDSet);
+      if (lastInvalidation > stamp || size > memoryLimit)
+      {
+        return;
+      }
+      final EntryIDSet previous = entries.put(cacheKey, entryIDSet);
+      if (previous != null)
+      {
+        memorySize -= estimateMemorySize(cacheKey, previous);
+      }
+      memorySize += size;
+
+      final Iterator<Map.Entry<CacheKey, EntryIDSet>> it = entries.entrySet().iterator();
+      while (memorySize > memoryLimit)
+      {
+        final Map.Entry<CacheKey, EntryIDSet> eldest = it.next();
+        memorySize -= estimateMemorySize(eldest.getKey(), eldest.getValue());
+        it.remove();
+        evictionCount.getAndIncrement();
+      }
+    }
+
+    synchronized void invalidate(CacheKey cacheKey, long time)
+    {
+      lastInvalidation = time;
+      final EntryIDSet previous = entries.remove(cacheKey);
+      if (previous != null)
+      {
+        memorySize -= estimateMemorySize(cacheKey, previous);
+      }
+    }
+
+    synchronized void invalidate(TreeName treeName, long time)
+    {
+      lastInvalidation = time;
+      for (Iterator<Map.Entry<CacheKey, EntryIDSet>> it = entries.entrySet().iterator(); it.hasNext();)
+      {
+        final Map.Entry<CacheKey, EntryIDSet> entry = it.next();
+        if (entry.getKey().treeName.equals(treeName))
+        {
+          memorySize -= estimateMemorySize(entry.getKey(), entry.getValue());
+          it.remove();
+        }
+      }
+    }
+
+    synchronized int keyCount()
+    {
+      return entries.size();
+    }
+
+    synchronized long memorySize()
+    {
+      return memorySize;
+    }
+  }
+}
@@ -20,11 +20,21 @@ import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.core.SearchOperation;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.opends.server.types.FilterType;
@@ -42,6 +52,13 @@ class IndexFilter
    */
   private static final int FILTER_CANDIDATE_THRESHOLD = 10;
 
+  /**
+   * Reading and matching a candidate entry is assumed to cost as much as reading this number of entry IDs from an
+   * index. An AND component expected to read more entry IDs than this ratio times the number of candidates left is
+   * not evaluated.
+   */
+  private static final int ENTRY_TO_ENTRY_ID_READ_COST_RATIO = 64;
+
   /** Limit on the number of entry IDs that may be retrieved by cursoring through an index. */
   static final int CURSOR_ENTRY_LIMIT = 100000;
 
@@ -61,6 +78,10 @@ class IndexFilter
    */
   private final StringBuilder buffer;
   private final BackendMonitor monitor;
+  /** Reads the indexes of the components of OR filters concurrently, null to read them sequentially. */
+  private final ExecutorService indexReadExecutor;
+  /** Reads the index keys through the index cache, null if they are read directly from the indexes. */
+  private final IndexCache.Reader indexCacheReader;
 
   /**
    * Construct an index filter for a search operation.
@@ -72,15 +93,23 @@ class IndexFilter
    * @param debugBuilder If not null, a diagnostic string will be written
    *                     which will help determine how the indexes contributed
    *                     to this search.
+   * @param indexReadExecutor If not null, the executor used for reading the
+   *                     indexes of the components of OR filters concurrently.
+   *                     It is ignored when a diagnostic string is written.
+   * @param indexCacheReader If not null, the reader of the index cache used for
+   *                     reading the index keys, created before the transaction.
    */
   IndexFilter(EntryContainer entryContainer, ReadableTransaction txn, SearchOperation searchOp,
-      StringBuilder debugBuilder, BackendMonitor monitor)
+      StringBuilder debugBuilder, BackendMonitor monitor, ExecutorService indexReadExecutor,
+      IndexCache.Reader indexCacheReader)
   {
     this.entryContainer = entryContainer;
     this.txn = txn;
     this.searchOp = searchOp;
     this.buffer = debugBuilder;
     this.monitor = monitor;
+    this.indexReadExecutor = debugBuilder == null ? indexReadExecutor : null;
+    this.indexCacheReader = indexCacheReader;
   }
 
   /**
@@ -164,18 +193,45 @@ class IndexFilter
 
   /**
    * Evaluate a logical AND search filter against the indexes.
+   * <p>
+   * When the statistics of all the involved indexes are known, the components are evaluated by increasing number of
+   * estimated candidates. Otherwise equality, presence and approximate components are evaluated first, then the
+   * other components and finally the slow range components. In both cases, the components which would read many
+   * more entry IDs than there are candidates left are not evaluated at all.
    *
    * @param andFilter The AND search filter to be evaluated.
    * @return A set of entry IDs representing candidate entries.
    */
   private EntryIDSet evaluateLogicalAndFilter(SearchFilter andFilter)
+  {
+    final List<AndComponent> plan = planLogicalAndFilter(andFilter);
+    appendPlanToDebugBuffer(plan);
+
+    EntryIDSet results = newUndefinedSet();
+    for (AndComponent component : plan)
+    {
+      if (isBelowFilterThreshold(results))
+      {
+        return results;
+      }
+      if (isCheaperToFilterCandidates(results, component.estimate))
+      {
+        appendSkippedToDebugBuffer(component);
+        continue;
+      }
+      results.retainAll(component.evaluate());
+    }
+    return results;
+  }
+
+  private List<AndComponent> planLogicalAndFilter(SearchFilter andFilter)
   {
     // Put the slow range filters (greater-or-equal, less-or-equal)
     // into a hash map, the faster components (equality, presence, approx)
     // into one list and the remainder into another list.
 
-    ArrayList<SearchFilter> fastComps = new ArrayList<>();
-    ArrayList<SearchFilter> otherComps = new ArrayList<>();
+    ArrayList<AndComponent> fastComps = new ArrayList<>();
+    ArrayList<AndComponent> otherComps = new ArrayList<>();
     HashMap<AttributeType, ArrayList<SearchFilter>> rangeComps = new HashMap<>();
 
     for (SearchFilter filter : andFilter.getFilterComponents())
@@ -197,77 +253,272 @@ class IndexFilter
            filterType == FilterType.PRESENT ||
            filterType == FilterType.APPROXIMATE_MATCH)
       {
-        fastComps.add(filter);
+        fastComps.add(new AndComponent(filter, estimateFilter(filter)));
       }
       else
       {
-        otherComps.add(filter);
+        otherComps.add(new AndComponent(filter, estimateFilter(filter)));
       }
     }
 
-    EntryIDSet results = newUndefinedSet();
-    // First, process the fast components.
-    results = applyFiltersUntilThreshold(results, fastComps);
-    // Next, process the other (non-range) components.
-    results = applyFiltersUntilThreshold(results, otherComps);
-
-    if ( isBelowFilterThreshold(results) || rangeComps.isEmpty() ) {
-      return results;
-    }
+    final List<AndComponent> plan = new ArrayList<>(andFilter.getFilterComponents().size());
+    // First, the fast components, next the other (non-range) components.
+    plan.addAll(fastComps);
+    plan.addAll(otherComps);
 
-    // Next, process range component pairs like (cn>=A)(cn<=B).
-    ArrayList<SearchFilter> remainComps = new ArrayList<>();
+    // Next, range component pairs like (cn>=A)(cn<=B).
+    ArrayList<AndComponent> remainComps = new ArrayList<>();
     for (Map.Entry<AttributeType, ArrayList<SearchFilter>> rangeEntry : rangeComps.entrySet())
     {
       ArrayList<SearchFilter> rangeList = rangeEntry.getValue();
       if (rangeList.size() == 2)
       {
-        SearchFilter filter1 = rangeList.get(0);
-        SearchFilter filter2 = rangeList.get(1);
-
-        AttributeIndex attributeIndex = entryContainer.getAttributeIndex(rangeEntry.getKey());
-        if (attributeIndex == null)
+        final long estimate = IndexQueryCostEstimator.estimateIntersection(
+            Arrays.asList(estimateFilter(rangeList.get(0)), estimateFilter(rangeList.get(1))));
+        plan.add(new AndComponent(rangeEntry.getKey(), rangeList, estimate));
+      }
+      else
+      {
+        // Add to the remaining range components to be processed.
+        for (SearchFilter filter : rangeList)
         {
-          if(monitor.isFilterUseEnabled())
-          {
-            monitor.updateStats(SearchFilter.createANDFilter(rangeList),
-                INFO_INDEX_FILTER_INDEX_TYPE_DISABLED.get("ordering", rangeEntry.getKey().getNameOrOID()));
-          }
-          continue;
+          remainComps.add(new AndComponent(filter, estimateFilter(filter)));
         }
+      }
+    }
+    // Finally, the remaining slow range components.
+    plan.addAll(remainComps);
 
-        final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
-        EntryIDSet set = attributeIndex.evaluateBoundedRange(indexQueryFactory, filter1, filter2, buffer, monitor);
-        if(monitor.isFilterUseEnabled() && set.isDefined())
-        {
-          monitor.updateStats(SearchFilter.createANDFilter(rangeList), set.size());
-        }
-        results.retainAll(set);
-        if (isBelowFilterThreshold(results))
+    if (isEstimateKnownForAll(plan))
+    {
+      // Stable sort: components having the same estimate keep their relative order.
+      Collections.sort(plan);
+    }
+    return plan;
+  }
+
+  private static boolean isEstimateKnownForAll(List<AndComponent> components)
+  {
+    for (AndComponent component : components)
+    {
+      if (component.estimate == IndexStatistics.UNKNOWN)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether reading the candidate entries and matching them against the filter is cheaper than reading
+   * the provided number of entry IDs in order to further reduce the candidates.
+   */
+  private static boolean isCheaperToFilterCandidates(EntryIDSet candidates, long estimate)
+  {
+    return candidates.isDefined()
+        && estimate != IndexStatistics.UNKNOWN
+        // Not indexed components do not read anything and are still evaluated to update the filter use statistics
+        && estimate != IndexQueryCostEstimator.NOT_INDEXED
+        && estimate / ENTRY_TO_ENTRY_ID_READ_COST_RATIO > candidates.size();
+  }
+
+  /**
+   * Estimate the number of candidate entries matching a search filter according to the index statistics.
+   *
+   * @param filter The search filter to be estimated.
+   * @return The estimated number of candidate entries, {@link IndexQueryCostEstimator#NOT_INDEXED} if the filter
+   *         will not be evaluated using an index, or {@link IndexStatistics#UNKNOWN}.
+   */
+  private long estimateFilter(SearchFilter filter)
+  {
+    switch (filter.getFilterType())
+    {
+      case AND:
+        return IndexQueryCostEstimator.estimateIntersection(estimateFilters(filter.getFilterComponents()));
+
+      case OR:
+        return IndexQueryCostEstimator.estimateUnion(estimateFilters(filter.getFilterComponents()));
+
+      case EQUALITY:
+        return estimateFilter(IndexFilterType.EQUALITY, filter);
+
+      case GREATER_OR_EQUAL:
+        return estimateFilter(IndexFilterType.GREATER_OR_EQUAL, filter);
+
+      case SUBSTRING:
+        return estimateFilter(IndexFilterType.SUBSTRING, filter);
+
+      case LESS_OR_EQUAL:
+        return estimateFilter(IndexFilterType.LESS_OR_EQUAL, filter);
+
+      case PRESENT:
+        return estimateFilter(IndexFilterType.PRESENCE, filter);
+
+      case APPROXIMATE_MATCH:
+        return estimateFilter(IndexFilterType.APPROXIMATE, filter);
+
+      case EXTENSIBLE_MATCH:
+        AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
+        if (filter.getDNAttributes() || attributeIndex == null)
         {
-          return results;
+          return IndexQueryCostEstimator.NOT_INDEXED;
         }
+        return attributeIndex.estimateExtensibleFilterCost(filter);
+
+      case NOT:
+      default:
+        return IndexQueryCostEstimator.NOT_INDEXED;
+    }
+  }
+
+  private List<Long> estimateFilters(Collection<SearchFilter> filters)
+  {
+    final List<Long> estimates = new ArrayList<>(filters.size());
+    for (SearchFilter filter : filters)
+    {
+      estimates.add(estimateFilter(filter));
+    }
+    return estimates;
+  }
+
+  private long estimateFilter(IndexFilterType indexFilterType, SearchFilter filter)
+  {
+    AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
+    if (attributeIndex != null)
+    {
+      return attributeIndex.estimateFilterCost(indexFilterType, filter);
+    }
+    return IndexQueryCostEstimator.NOT_INDEXED;
+  }
+
+  /**
+   * Evaluate a pair of range filters like (cn>=A)(cn<=B) against the indexes.
+   *
+   * @param attributeType The attribute type of both range filters.
+   * @param rangeList The pair of range filters.
+   * @return A set of entry IDs representing candidate entries.
+   */
+  private EntryIDSet evaluateBoundedRange(AttributeType attributeType, List<SearchFilter> rangeList)
+  {
+    AttributeIndex attributeIndex = entryContainer.getAttributeIndex(attributeType);
+    if (attributeIndex == null)
+    {
+      if(monitor.isFilterUseEnabled())
+      {
+        monitor.updateStats(SearchFilter.createANDFilter(rangeList),
+            INFO_INDEX_FILTER_INDEX_TYPE_DISABLED.get("ordering", attributeType.getNameOrOID()));
       }
-      else
+      return newUndefinedSet();
+    }
+
+    final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex, indexCacheReader);
+    EntryIDSet set =
+        attributeIndex.evaluateBoundedRange(indexQueryFactory, rangeList.get(0), rangeList.get(1), buffer, monitor);
+    if(monitor.isFilterUseEnabled() && set.isDefined())
+    {
+      monitor.updateStats(SearchFilter.createANDFilter(rangeList), set.size());
+    }
+    return set;
+  }
+
+  private void appendPlanToDebugBuffer(List<AndComponent> plan)
+  {
+    if (buffer != null)
+    {
+      buffer.append("[PLAN:");
+      boolean isFirst = true;
+      for (AndComponent component : plan)
       {
-        // Add to the remaining range components to be processed.
-        remainComps.addAll(rangeList);
+        if (!isFirst)
+        {
+          buffer.append(" ");
+        }
+        isFirst = false;
+        component.toString(buffer);
+        buffer.append("~");
+        appendEstimate(buffer, component.estimate);
       }
+      buffer.append("]");
     }
+  }
 
-    // Finally, process the remaining slow range components.
-    return applyFiltersUntilThreshold(results, remainComps);
+  private static void appendEstimate(StringBuilder buffer, long estimate)
+  {
+    if (estimate == IndexStatistics.UNKNOWN)
+    {
+      buffer.append("?");
+    }
+    else if (estimate == IndexQueryCostEstimator.NOT_INDEXED)
+    {
+      buffer.append("NOT-INDEXED");
+    }
+    else
+    {
+      buffer.append(estimate);
+    }
   }
 
-  private EntryIDSet applyFiltersUntilThreshold(EntryIDSet results, ArrayList<SearchFilter> filters)
+  private void appendSkippedToDebugBuffer(AndComponent component)
   {
-    for(SearchFilter filter : filters) {
-      if (isBelowFilterThreshold(results)) {
-        return results;
+    if (buffer != null)
+    {
+      component.toString(buffer);
+      buffer.append("[SKIPPED]");
+    }
+  }
+
+  /**
+   * A component of an AND filter, which is either a single filter or a pair of range filters on the same attribute,
+   * along with the estimated number of candidate entries it will return.
+   */
+  private final class AndComponent implements Comparable<AndComponent>
+  {
+    private final SearchFilter filter;
+    private final AttributeType rangeAttributeType;
+    private final List<SearchFilter> rangeList;
+    private final long estimate;
+
+    AndComponent(SearchFilter filter, long estimate)
+    {
+      this.filter = filter;
+      this.rangeAttributeType = null;
+      this.rangeList = null;
+      this.estimate = estimate;
+    }
+
+    AndComponent(AttributeType rangeAttributeType, List<SearchFilter> rangeList, long estimate)
+    {
+      this.filter = null;
+      this.rangeAttributeType = rangeAttributeType;
+      this.rangeList = rangeList;
+      this.estimate = estimate;
+    }
+
+    EntryIDSet evaluate()
+    {
+      return filter != null ? evaluateFilter(filter) : evaluateBoundedRange(rangeAttributeType, rangeList);
+    }
+
+    void toString(StringBuilder buffer)
+    {
+      if (filter != null)
+      {
+        filter.toString(buffer);
+      }
+      else
+      {
+        for (SearchFilter rangeFilter : rangeList)
+        {
+          rangeFilter.toString(buffer);
+        }
       }
-      results.retainAll(evaluateFilter(filter));
     }
-    return results;
+
+    @Override
+    public int compareTo(AndComponent o)
+    {
+      return Long.compare(estimate, o.estimate);
+    }
   }
 
   static boolean isBelowFilterThreshold(EntryIDSet set)
@@ -283,6 +534,11 @@ class IndexFilter
    */
   private EntryIDSet evaluateLogicalOrFilter(SearchFilter orFilter)
   {
+    if (indexReadExecutor != null && orFilter.getFilterComponents().size() > 1)
+    {
+      return evaluateLogicalOrFilterConcurrently(orFilter);
+    }
+
     ArrayList<EntryIDSet> candidateSets = new ArrayList<>(orFilter.getFilterComponents().size());
 
     for (SearchFilter filter : orFilter.getFilterComponents())
@@ -298,6 +554,87 @@ class IndexFilter
     return newSetFromUnion(candidateSets);
   }
 
+  /**
+   * Evaluate a logical OR search filter by reading the indexes of its components concurrently: all the components but
+   * the first one are submitted to the index read executor, each of them being evaluated in its own read transaction,
+   * while the first one is evaluated by the current thread.
+   * <p>
+   * The components are evaluated sequentially by the executor threads, so that they never wait for each other.
+   *
+   * @param orFilter The OR search filter to be evaluated.
+   * @return A set of entry IDs representing candidate entries.
+   */
+  private EntryIDSet evaluateLogicalOrFilterConcurrently(SearchFilter orFilter)
+  {
+    final List<SearchFilter> components = new ArrayList<>(orFilter.getFilterComponents());
+    monitor.updateIndexReadFanOut(components.size());
+
+    final List<Future<EntryIDSet>> futures = new ArrayList<>(components.size() - 1);
+    try
+    {
+      for (SearchFilter component : components.subList(1, components.size()))
+      {
+        futures.add(indexReadExecutor.submit(newComponentEvaluation(component)));
+      }
+
+      final List<EntryIDSet> candidateSets = new ArrayList<>(components.size());
+      candidateSets.add(evaluateFilter(components.get(0)));
+      for (Future<EntryIDSet> future : futures)
+      {
+        if (!candidateSets.get(candidateSets.size() - 1).isDefined())
+        {
+          // There is no point continuing.
+          break;
+        }
+        candidateSets.add(future.get());
+      }
+
+      final EntryIDSet last = candidateSets.get(candidateSets.size() - 1);
+      return last.isDefined() ? newSetFromUnion(candidateSets) : last;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new StorageRuntimeException(e);
+    }
+    catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof StorageRuntimeException)
+      {
+        throw (StorageRuntimeException) e.getCause();
+      }
+      throw new StorageRuntimeException(e.getCause());
+    }
+    finally
+    {
+      // Do not interrupt the storage reads in progress, the storage may not support it.
+      for (Future<EntryIDSet> future : futures)
+      {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private Callable<EntryIDSet> newComponentEvaluation(final SearchFilter component)
+  {
+    return new Callable<EntryIDSet>()
+    {
+      @Override
+      public EntryIDSet call() throws Exception
+      {
+        return entryContainer.getRootContainer().getStorage().read(new ReadOperation<EntryIDSet>()
+        {
+          @Override
+          public EntryIDSet run(ReadableTransaction txn) throws Exception
+          {
+            return new IndexFilter(entryContainer, txn, searchOp, null, monitor, null, indexCacheReader)
+                .evaluateFilter(component);
+          }
+        });
+      }
+    };
+  }
+
   private EntryIDSet evaluateFilterWithDiagnostic(IndexFilterType indexFilterType, SearchFilter filter)
   {
     if (buffer != null)
@@ -312,7 +649,7 @@ class IndexFilter
     AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
     if (attributeIndex != null)
     {
-      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
+      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex, indexCacheReader);
       return attributeIndex.evaluateFilter(indexQueryFactory, indexFilterType, filter, buffer, monitor);
     }
 
@@ -343,7 +680,7 @@ class IndexFilter
     AttributeIndex attributeIndex = entryContainer.getAttributeIndex(extensibleFilter.getAttributeType());
     if (attributeIndex != null)
     {
-      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
+      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex, indexCacheReader);
       return attributeIndex.evaluateExtensibleFilter(indexQueryFactory, extensibleFilter, buffer, monitor);
     }
     return IndexQueryFactoryImpl.createNullIndexQuery().evaluate(null, null);
@@ -0,0 +1,147 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.server.backends.pluggable.IndexStatistics.*;
+
+import java.util.Collection;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
+import org.forgerock.opendj.ldap.spi.IndexingOptions;
+
+/**
+ * This query factory estimates the number of candidate entry IDs an index query would return, from the
+ * {@link IndexStatistics} of the queried indexes and without accessing the storage.
+ * <p>
+ * Queries evaluate to {@link IndexStatistics#UNKNOWN} when the statistics of a queried index are not known, and to
+ * {@link #NOT_INDEXED} when they cannot be evaluated using an index.
+ */
+final class IndexQueryCostEstimator implements IndexQueryFactory<Long>
+{
+  /** Estimate of a query which does not read any index, hence which does not reduce the candidate entries. */
+  static final long NOT_INDEXED = Long.MAX_VALUE;
+
+  private final AttributeIndex attributeIndex;
+
+  IndexQueryCostEstimator(AttributeIndex attributeIndex)
+  {
+    this.attributeIndex = attributeIndex;
+  }
+
+  @Override
+  public Long createExactMatchQuery(String indexID, ByteSequence key)
+  {
+    DefaultIndex index = attributeIndex.getNameToIndexes().get(indexID);
+    if (index == null)
+    {
+      index = attributeIndex.getNameToIndexes().get(indexID + AttributeIndex.PROTECTED_INDEX_ID);
+      if (index == null)
+      {
+        return createMatchAllQuery();
+      }
+    }
+    return estimateEntryIDsPerKey(index);
+  }
+
+  @Override
+  public Long createMatchAllQuery()
+  {
+    final DefaultIndex index = attributeIndex.getNameToIndexes().get(IndexQueryFactoryImpl.PRESENCE_INDEX_KEY);
+    return index != null ? estimateEntryIDsPerKey(index) : NOT_INDEXED;
+  }
+
+  @Override
+  public Long createRangeMatchQuery(String indexID, ByteSequence lower, ByteSequence upper, boolean lowerIncluded,
+      boolean upperIncluded)
+  {
+    final DefaultIndex index = attributeIndex.getNameToIndexes().get(indexID);
+    if (index == null)
+    {
+      return createMatchAllQuery();
+    }
+    // Without histograms, assume that the range covers the whole index.
+    return index.isTrusted() ? index.getStatistics().estimateTotalEntryIDs(index.getIndexEntryLimit()) : UNKNOWN;
+  }
+
+  @Override
+  public Long createIntersectionQuery(Collection<Long> subqueries)
+  {
+    return estimateIntersection(subqueries);
+  }
+
+  @Override
+  public Long createUnionQuery(Collection<Long> subqueries)
+  {
+    return estimateUnion(subqueries);
+  }
+
+  /**
+   * Estimates the cost of an intersection, which is at most the cost of its cheapest known operand.
+   *
+   * @param estimates
+   *          the estimates of the operands
+   * @return the estimate of the intersection, {@link IndexStatistics#UNKNOWN} if no operand is known
+   */
+  static long estimateIntersection(Collection<Long> estimates)
+  {
+    long estimate = UNKNOWN;
+    for (long operand : estimates)
+    {
+      if (operand != UNKNOWN && (estimate == UNKNOWN || operand < estimate))
+      {
+        estimate = operand;
+      }
+    }
+    return estimate;
+  }
+
+  /**
+   * Estimates the cost of a union, which is the sum of the costs of its operands.
+   *
+   * @param estimates
+   *          the estimates of the operands
+   * @return the estimate of the union, {@link IndexStatistics#UNKNOWN} if any operand is unknown
+   */
+  static long estimateUnion(Collection<Long> estimates)
+  {
+    long estimate = 0;
+    for (long operand : estimates)
+    {
+      if (operand == UNKNOWN)
+      {
+        return UNKNOWN;
+      }
+      estimate += operand;
+      if (estimate < 0)
+      {
+        return NOT_INDEXED;
+      }
+    }
+    return estimate;
+  }
+
+  @Override
+  public IndexingOptions getIndexingOptions()
+  {
+    return attributeIndex.getIndexingOptions();
+  }
+
+  private static long estimateEntryIDsPerKey(DefaultIndex index)
+  {
+    return index.isTrusted() ? index.getStatistics().estimateEntryIDsPerKey(index.getIndexEntryLimit()) : UNKNOWN;
+  }
+}
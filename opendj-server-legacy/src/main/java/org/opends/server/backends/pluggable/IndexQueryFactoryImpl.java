@@ -148,12 +148,14 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
 
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  private static final String PRESENCE_INDEX_KEY = "presence";
+  static final String PRESENCE_INDEX_KEY = "presence";
   private static final String SEPARATOR = "\n  ";
 
   private final ReadableTransaction txn;
   /** The Map containing the string type identifier and the corresponding index. */
   private final AttributeIndex attributeIndex;
+  /** Reads the exact match keys through the index cache, null if they are read directly from the indexes. */
+  private final IndexCache.Reader indexCacheReader;
 
   /**
    * Creates a new IndexQueryFactoryImpl object.
@@ -162,11 +164,19 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
    *          The readable storage
    * @param attributeIndex
    *          The targeted attribute index
+   * @param indexCacheReader
+   *          The reader of the index cache, created before the transaction, may be null
    */
-  IndexQueryFactoryImpl(ReadableTransaction txn, AttributeIndex attributeIndex)
+  IndexQueryFactoryImpl(ReadableTransaction txn, AttributeIndex attributeIndex, IndexCache.Reader indexCacheReader)
   {
     this.txn = txn;
     this.attributeIndex = attributeIndex;
+    this.indexCacheReader = indexCacheReader;
+  }
+
+  private EntryIDSet readKey(Index index, ByteSequence key)
+  {
+    return indexCacheReader != null ? indexCacheReader.get(txn, index, key) : index.get(txn, key);
   }
 
   @Override
@@ -201,7 +211,7 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
             }
           }
 
-          final EntryIDSet entrySet = index.get(txn, indexKey);
+          final EntryIDSet entrySet = readKey(index, indexKey);
           updateStatsForUndefinedResults(debugMessage, entrySet, index);
           return entrySet;
         }
@@ -362,7 +372,7 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
             return newUndefinedSet();
           }
 
-          final EntryIDSet entrySet = index.get(txn, AttributeIndex.PRESENCE_KEY);
+          final EntryIDSet entrySet = readKey(index, AttributeIndex.PRESENCE_KEY);
           updateStatsForUndefinedResults(debugMessage, entrySet, index);
           if (indexNameOut != null)
           {
@@ -0,0 +1,233 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Approximate cardinality statistics of a {@link DefaultIndex}: the number of keys, the number of keys which have
+ * exceeded the index entry limit, the number of entry IDs referenced by the other keys and the size of the encoded
+ * values.
+ * <p>
+ * Statistics are kept up to date in memory once the updates of the index are committed, and persisted in the
+ * {@link State} tree when the backend is closed or once an import has completed. Opening the backend for writing
+ * removes the persisted statistics, so that they are unknown after a crash. They are used by {@link IndexFilter} to
+ * estimate the number of entry IDs a filter component will read. Statistics of an index which existed before they
+ * were introduced are unknown until the index is rebuilt.
+ */
+final class IndexStatistics
+{
+  /** Returned by estimation methods when the statistics are unknown. */
+  static final long UNKNOWN = -1;
+  /** Size recorded for a key which does not exist. */
+  static final long ABSENT_KEY = -1;
+  /** Size of an undefined {@link EntryIDSet}. */
+  private static final long UNDEFINED_SIZE = Long.MAX_VALUE;
+
+  private static final byte FORMAT_VERSION = 0x01;
+
+  private final AtomicLong keyCount = new AtomicLong();
+  private final AtomicLong undefinedKeyCount = new AtomicLong();
+  private final AtomicLong entryIDCount = new AtomicLong();
+  private final AtomicLong valueBytes = new AtomicLong();
+  private volatile boolean available;
+
+  /**
+   * Creates statistics for an empty index.
+   *
+   * @return statistics for an empty index
+   */
+  static IndexStatistics newEmptyStatistics()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    statistics.available = true;
+    return statistics;
+  }
+
+  /**
+   * Creates unknown statistics, for instance for an index which was populated before statistics were maintained.
+   *
+   * @return unknown statistics
+   */
+  static IndexStatistics newUnknownStatistics()
+  {
+    return new IndexStatistics();
+  }
+
+  private IndexStatistics()
+  {
+    // Use factory methods.
+  }
+
+  boolean isAvailable()
+  {
+    return available;
+  }
+
+  long getKeyCount()
+  {
+    return keyCount.get();
+  }
+
+  long getUndefinedKeyCount()
+  {
+    return undefinedKeyCount.get();
+  }
+
+  long getEntryIDCount()
+  {
+    return entryIDCount.get();
+  }
+
+  long getValueBytes()
+  {
+    return valueBytes.get();
+  }
+
+  /**
+   * Records the replacement of the value of a key.
+   *
+   * @param oldSize
+   *          the previous {@link EntryIDSet#size() number of entry IDs} of the key, or {@link #ABSENT_KEY} if the key
+   *          did not exist
+   * @param oldValueLength
+   *          the length of the previous encoded value
+   * @param newSize
+   *          the new {@link EntryIDSet#size() number of entry IDs} of the key, or {@link #ABSENT_KEY} if the key has
+   *          been removed
+   * @param newValueLength
+   *          the length of the new encoded value
+   */
+  void recordUpdate(long oldSize, int oldValueLength, long newSize, int newValueLength)
+  {
+    if (available)
+    {
+      record(oldSize, oldValueLength, -1);
+      record(newSize, newValueLength, 1);
+    }
+  }
+
+  private void record(long size, int valueLength, int sign)
+  {
+    if (size == ABSENT_KEY)
+    {
+      return;
+    }
+    keyCount.addAndGet(sign);
+    valueBytes.addAndGet(sign * valueLength);
+    if (size == UNDEFINED_SIZE)
+    {
+      undefinedKeyCount.addAndGet(sign);
+    }
+    else
+    {
+      entryIDCount.addAndGet(sign * size);
+    }
+  }
+
+  /**
+   * Returns the estimated number of entry IDs a lookup of a single key will return.
+   *
+   * @param indexEntryLimit
+   *          the index entry limit, used as the size of keys which have exceeded it
+   * @return the average number of entry IDs per key, or {@link #UNKNOWN}
+   */
+  long estimateEntryIDsPerKey(int indexEntryLimit)
+  {
+    if (!available)
+    {
+      return UNKNOWN;
+    }
+    final long keys = keyCount.get();
+    return keys > 0 ? ceilDiv(estimateTotalEntryIDs(indexEntryLimit), keys) : 0;
+  }
+
+  /**
+   * Returns the estimated number of entry IDs referenced by all the keys of the index.
+   *
+   * @param indexEntryLimit
+   *          the index entry limit, used as the size of keys which have exceeded it
+   * @return the total number of entry IDs, or {@link #UNKNOWN}
+   */
+  long estimateTotalEntryIDs(int indexEntryLimit)
+  {
+    if (!available)
+    {
+      return UNKNOWN;
+    }
+    return Math.max(0, entryIDCount.get()) + Math.max(0, undefinedKeyCount.get()) * Math.max(indexEntryLimit, 1);
+  }
+
+  private static long ceilDiv(long dividend, long divisor)
+  {
+    return (dividend + divisor - 1) / divisor;
+  }
+
+  /**
+   * Encodes these statistics.
+   *
+   * @return the encoded statistics
+   */
+  ByteString toByteString()
+  {
+    return new ByteStringBuilder()
+        .appendByte(FORMAT_VERSION)
+        .appendCompactUnsigned(Math.max(0, keyCount.get()))
+        .appendCompactUnsigned(Math.max(0, undefinedKeyCount.get()))
+        .appendCompactUnsigned(Math.max(0, entryIDCount.get()))
+        .appendCompactUnsigned(Math.max(0, valueBytes.get()))
+        .toByteString();
+  }
+
+  /**
+   * Decodes statistics previously encoded with {@link #toByteString()}.
+   *
+   * @param value
+   *          the encoded statistics, may be {@code null}
+   * @return the decoded statistics, unknown statistics if value is {@code null} or has an unsupported format
+   */
+  static IndexStatistics valueOf(ByteSequence value)
+  {
+    if (value == null || value.length() == 0 || value.byteAt(0) != FORMAT_VERSION)
+    {
+      return newUnknownStatistics();
+    }
+    final ByteSequenceReader reader = value.asReader();
+    reader.skip(1);
+    final IndexStatistics statistics = newEmptyStatistics();
+    statistics.keyCount.set(reader.readCompactUnsignedLong());
+    statistics.undefinedKeyCount.set(reader.readCompactUnsignedLong());
+    statistics.entryIDCount.set(reader.readCompactUnsignedLong());
+    statistics.valueBytes.set(reader.readCompactUnsignedLong());
+    return statistics;
+  }
+
+  @Override
+  public String toString()
+  {
+    if (!available)
+    {
+      return "keys=unknown";
+    }
+    return "keys=" + keyCount + " limitExceededKeys=" + undefinedKeyCount + " entryIDs=" + entryIDCount
+        + " valueBytes=" + valueBytes;
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Pure Java compressor producing data in the LZ4 block format, optionally using a dictionary.
+ * <p>
+ * The compressed data is a sequence of literal runs and back references to the previously decompressed bytes. When a
+ * dictionary is used, the data is compressed as if the dictionary immediately preceded it, so that back references can
+ * point into the dictionary: this allows small entries sharing the same attribute names and values to be compressed
+ * efficiently. Compression favors speed over ratio: matches are found through a single hash table lookup.
+ * <p>
+ * This class is thread safe.
+ */
+final class LZ4BlockCodec
+{
+  /** The maximum distance of a back reference, which is also the maximum useful size of a dictionary. */
+  static final int MAX_OFFSET = 0xFFFF;
+
+  private static final int MIN_MATCH = 4;
+  /** The last bytes of a block are always literals. */
+  private static final int LAST_LITERALS = 5;
+  /** The last match must start at least this number of bytes before the end of the block. */
+  private static final int MATCH_FIND_LIMIT = 12;
+  private static final int HASH_LOG = 13;
+  private static final int RUN_MASK = 0x0F;
+  private static final int NO_POSITION = Integer.MIN_VALUE;
+
+  /** A dictionary and the hash table of its positions, computed once. */
+  static final class Dictionary
+  {
+    private final int id;
+    private final byte[] bytes;
+    private final int[] hashTable;
+
+    /**
+     * Creates a new dictionary.
+     *
+     * @param id
+     *          the identifier of the dictionary, stored with the data compressed with it
+     * @param bytes
+     *          the content of the dictionary, only the last {@link #MAX_OFFSET} bytes are used
+     */
+    Dictionary(int id, byte[] bytes)
+    {
+      this.id = id;
+      this.bytes =
+          bytes.length > MAX_OFFSET ? Arrays.copyOfRange(bytes, bytes.length - MAX_OFFSET, bytes.length) : bytes;
+      this.hashTable = newHashTable();
+      // Positions in the dictionary are negative, relative to the beginning of the data to compress.
+      for (int i = 0; i + MIN_MATCH <= this.bytes.length; i++)
+      {
+        hashTable[hash(readInt(this.bytes, i))] = i - this.bytes.length;
+      }
+    }
+
+    int getId()
+    {
+      return id;
+    }
+
+    byte[] getBytes()
+    {
+      return bytes;
+    }
+  }
+
+  private LZ4BlockCodec()
+  {
+    // Utility class.
+  }
+
+  /**
+   * Compresses bytes.
+   *
+   * @param src
+   *          the array holding the bytes to compress
+   * @param srcOff
+   *          the offset of the first byte to compress
+   * @param srcLen
+   *          the number of bytes to compress
+   * @param dictionary
+   *          the dictionary to use, may be {@code null}
+   * @param dest
+   *          where to append the compressed bytes
+   * @return the number of compressed bytes appended to dest
+   */
+  static int compress(byte[] src, int srcOff, int srcLen, Dictionary dictionary, ByteStringBuilder dest)
+  {
+    final int startLength = dest.length();
+    final Window window = new Window(src, srcOff, dictionary);
+    final int[] hashTable = dictionary != null ? dictionary.hashTable.clone() : newHashTable();
+
+    int anchor = 0;
+    int pos = 0;
+    final int matchLimit = srcLen - LAST_LITERALS;
+    final int matchFindLimit = srcLen - MATCH_FIND_LIMIT;
+    while (pos < matchFindLimit)
+    {
+      final int h = hash(readInt(src, srcOff + pos));
+      int ref = hashTable[h];
+      hashTable[h] = pos;
+      if (ref == NO_POSITION || pos - ref > MAX_OFFSET || window.readInt(ref) != readInt(src, srcOff + pos))
+      {
+        pos++;
+        continue;
+      }
+
+      // Extend the match backwards over the pending literals, then forwards.
+      while (pos > anchor && ref > window.start && window.byteAt(ref - 1) == src[srcOff + pos - 1])
+      {
+        pos--;
+        ref--;
+      }
+      int matchLength = MIN_MATCH;
+      while (pos + matchLength < matchLimit && window.byteAt(ref + matchLength) == src[srcOff + pos + matchLength])
+      {
+        matchLength++;
+      }
+
+      appendSequence(dest, src, srcOff + anchor, pos - anchor, pos - ref, matchLength);
+      pos += matchLength;
+      anchor = pos;
+      if (pos < matchFindLimit)
+      {
+        hashTable[hash(readInt(src, srcOff + pos - 2))] = pos - 2;
+      }
+    }
+    appendLastLiterals(dest, src, srcOff + anchor, srcLen - anchor);
+    return dest.length() - startLength;
+  }
+
+  /**
+   * Decompresses bytes previously compressed with {@link #compress(byte[], int, int, Dictionary, ByteStringBuilder)}.
+   *
+   * @param src
+   *          the array holding the compressed bytes
+   * @param srcOff
+   *          the offset of the first compressed byte
+   * @param srcLen
+   *          the number of compressed bytes
+   * @param dictionary
+   *          the dictionary used for compressing the bytes, may be {@code null}
+   * @param decompressedLength
+   *          the number of bytes before compression
+   * @return the decompressed bytes
+   * @throws DataFormatException
+   *           if the compressed bytes are corrupt
+   */
+  static byte[] decompress(byte[] src, int srcOff, int srcLen, Dictionary dictionary, int decompressedLength)
+      throws DataFormatException
+  {
+    final byte[] dest = new byte[decompressedLength];
+    final byte[] dict = dictionary != null ? dictionary.bytes : new byte[0];
+    final int srcEnd = srcOff + srcLen;
+    int ip = srcOff;
+    int op = 0;
+    try
+    {
+      while (true)
+      {
+        final int token = src[ip++] & 0xFF;
+
+        int literalLength = token >>> 4;
+        if (literalLength == RUN_MASK)
+        {
+          int b;
+          do
+          {
+            b = src[ip++] & 0xFF;
+            literalLength += b;
+          }
+          while (b == 0xFF);
+        }
+        if (literalLength > srcEnd - ip || literalLength > dest.length - op)
+        {
+          throw new DataFormatException("Literals exceed the compressed or decompressed length");
+        }
+        System.arraycopy(src, ip, dest, op, literalLength);
+        ip += literalLength;
+        op += literalLength;
+        if (ip == srcEnd)
+        {
+          break;
+        }
+
+        final int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+        int matchLength = token & RUN_MASK;
+        if (matchLength == RUN_MASK)
+        {
+          int b;
+          do
+          {
+            b = src[ip++] & 0xFF;
+            matchLength += b;
+          }
+          while (b == 0xFF);
+        }
+        matchLength += MIN_MATCH;
+
+        int ref = op - offset;
+        if (offset == 0 || ref < -dict.length || matchLength > dest.length - op)
+        {
+          throw new DataFormatException("Invalid back reference");
+        }
+        // Copy one byte at a time: the match may overlap the bytes being written.
+        for (; ref < 0 && matchLength > 0; ref++, matchLength--)
+        {
+          dest[op++] = dict[dict.length + ref];
+        }
+        for (; matchLength > 0; ref++, matchLength--)
+        {
+          dest[op++] = dest[ref];
+        }
+      }
+    }
+    catch (ArrayIndexOutOfBoundsException e)
+    {
+      throw new DataFormatException("Truncated compressed data");
+    }
+    if (op != decompressedLength)
+    {
+      throw new DataFormatException("Decompressed length mismatch");
+    }
+    return dest;
+  }
+
+  private static void appendSequence(ByteStringBuilder dest, byte[] src, int literalOff, int literalLength,
+      int offset, int matchLength)
+  {
+    final int extraMatchLength = matchLength - MIN_MATCH;
+    dest.appendByte((Math.min(literalLength, RUN_MASK) << 4) | Math.min(extraMatchLength, RUN_MASK));
+    appendLength(dest, literalLength);
+    dest.appendBytes(src, literalOff, literalLength);
+    dest.appendByte(offset & 0xFF);
+    dest.appendByte(offset >>> 8);
+    appendLength(dest, extraMatchLength);
+  }
+
+  private static void appendLastLiterals(ByteStringBuilder dest, byte[] src, int literalOff, int literalLength)
+  {
+    dest.appendByte(Math.min(literalLength, RUN_MASK) << 4);
+    appendLength(dest, literalLength);
+    dest.appendBytes(src, literalOff, literalLength);
+  }
+
+  /** Appends the remainder of a length which does not fit in the 4 bits of the token. */
+  private static void appendLength(ByteStringBuilder dest, int length)
+  {
+    if (length >= RUN_MASK)
+    {
+      int remaining = length - RUN_MASK;
+      for (; remaining >= 0xFF; remaining -= 0xFF)
+      {
+        dest.appendByte(0xFF);
+      }
+      dest.appendByte(remaining);
+    }
+  }
+
+  private static int[] newHashTable()
+  {
+    final int[] hashTable = new int[1 << HASH_LOG];
+    Arrays.fill(hashTable, NO_POSITION);
+    return hashTable;
+  }
+
+  private static int hash(int sequence)
+  {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+  private static int readInt(byte[] bytes, int off)
+  {
+    return (bytes[off] & 0xFF) | (bytes[off + 1] & 0xFF) << 8 | (bytes[off + 2] & 0xFF) << 16 | bytes[off + 3] << 24;
+  }
+
+  /** The bytes to compress, preceded by the dictionary at negative positions. */
+  private static final class Window
+  {
+    private final byte[] src;
+    private final int srcOff;
+    private final byte[] dict;
+    private final int start;
+
+    Window(byte[] src, int srcOff, Dictionary dictionary)
+    {
+      this.src = src;
+      this.srcOff = srcOff;
+      this.dict = dictionary != null ? dictionary.bytes : null;
+      this.start = dictionary != null ? -dict.length : 0;
+    }
+
+    byte byteAt(int pos)
+    {
+      return pos >= 0 ? src[srcOff + pos] : dict[dict.length + pos];
+    }
+
+    int readInt(int pos)
+    {
+      if (pos >= 0)
+      {
+        return LZ4BlockCodec.readInt(src, srcOff + pos);
+      }
+      if (pos + MIN_MATCH <= 0)
+      {
+        return LZ4BlockCodec.readInt(dict, dict.length + pos);
+      }
+      return (byteAt(pos) & 0xFF) | (byteAt(pos + 1) & 0xFF) << 8 | (byteAt(pos + 2) & 0xFF) << 16
+          | byteAt(pos + 3) << 24;
+    }
+  }
+}
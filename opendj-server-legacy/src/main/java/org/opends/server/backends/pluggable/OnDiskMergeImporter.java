@@ -121,6 +121,7 @@ import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.SequentialCursor;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.UpdateFunction;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
@@ -314,6 +315,10 @@ final class OnDiskMergeImporter
         clearDegradedState(entryContainer, indexesToRebuild);
         logger.info(NOTE_REBUILD_CLEARDEGRADEDSTATE_FINAL_STATUS, rebuildConfig.getRebuildList());
       }
+      else if (rebuildConfig.isOnline())
+      {
+        rebuildIndexOnline(entryContainer, indexesToRebuild);
+      }
       else
       {
         rebuildIndex(entryContainer, rebuildConfig.getTmpDirectory(), indexesToRebuild, totalEntries);
@@ -340,6 +345,23 @@ final class OnDiskMergeImporter
       }
     }
 
+    private void rebuildIndexOnline(EntryContainer entryContainer, Set<String> indexesToRebuild)
+        throws InitializationException, ExecutionException
+    {
+      try
+      {
+        new OnlineIndexRebuilder(entryContainer, indexesToRebuild).rebuild();
+      }
+      catch (InitializationException e)
+      {
+        throw e;
+      }
+      catch (Exception e)
+      {
+        throw new ExecutionException(e);
+      }
+    }
+
     private void rebuildIndex(EntryContainer entryContainer, String tmpDirectory, Set<String> indexesToRebuild,
         long totalEntries) throws InitializationException, ConfigException, InterruptedException, ExecutionException
     {
@@ -1143,6 +1165,12 @@ final class OnDiskMergeImporter
       return new VLVIndexImporterTask(progressReporter, source, vlvIndex, importer);
     }
 
+    final Callable<Void> newIndexImporterTask(DefaultIndex index, final Chunk source,
+        PhaseTwoProgressReporter progressReporter)
+    {
+      return new IndexImporterTask(progressReporter, source, index, importer);
+    }
+
     static final Callable<Void> newFlushTask(final Chunk source)
     {
       return new Callable<Void>()
@@ -1175,6 +1203,20 @@ final class OnDiskMergeImporter
       super(entryContainers, importer, tempDir, bufferPool, sorter);
     }
 
+    @Override
+    void beforePhaseOne(EntryContainer entryContainer)
+    {
+      super.beforePhaseOne(entryContainer);
+      entryContainer.getID2Entry().startDictionaryTraining(asWriteableTransaction(importer));
+    }
+
+    @Override
+    void afterPhaseTwo(EntryContainer entryContainer)
+    {
+      entryContainer.getID2Entry().stopDictionaryTraining();
+      super.afterPhaseTwo(entryContainer);
+    }
+
     @Override
     public Chunk newChunk(TreeName treeName) throws Exception
     {
@@ -1203,6 +1245,10 @@ final class OnDiskMergeImporter
       {
         return newVLVIndexImporterTask(getVLVIndex(entryContainer, treeName), source, progressReporter);
       }
+      else if (getIndex(entryContainer, treeName) != null)
+      {
+        return newIndexImporterTask(getIndex(entryContainer, treeName), source, progressReporter);
+      }
       return newChunkCopierTask(treeName, source, progressReporter);
     }
   }
@@ -1261,6 +1307,10 @@ final class OnDiskMergeImporter
       {
         return newVLVIndexImporterTask(getVLVIndex(entryContainer, treeName), source, progressReporter);
       }
+      else if (getIndex(entryContainer, treeName) != null)
+      {
+        return newIndexImporterTask(getIndex(entryContainer, treeName), source, progressReporter);
+      }
       return newChunkCopierTask(treeName, source, progressReporter);
     }
   }
@@ -1361,6 +1411,12 @@ final class OnDiskMergeImporter
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
     {
@@ -2288,13 +2344,55 @@ final class OnDiskMergeImporter
       checkThreadNotInterrupted();
       try (final SequentialCursor<ByteString, ByteString> sourceCursor = trackCursorProgress(reporter, source.flip()))
       {
-        final long nbRecords = copyIntoChunk(sourceCursor, asChunk(vlvIndex.getName(), destination));
+        final long nbRecords = copyIntoChunk(sourceCursor, asChunk(vlvIndex.getPhysicalName(), destination));
         vlvIndex.importCount(destination, nbRecords);
         return null;
       }
     }
   }
 
+  /** Task to copy an index's chunk into a database tree while computing the statistics of the index. */
+  private static final class IndexImporterTask implements Callable<Void>
+  {
+    private final PhaseTwoProgressReporter reporter;
+    private final DefaultIndex index;
+    private final Importer destination;
+    private final Chunk source;
+
+    IndexImporterTask(PhaseTwoProgressReporter reporter, Chunk source, DefaultIndex index, Importer destination)
+    {
+      this.source = source;
+      this.index = index;
+      this.destination = destination;
+      this.reporter = reporter;
+    }
+
+    @Override
+    public Void call() throws InterruptedException
+    {
+      checkThreadNotInterrupted();
+      final IndexStatistics statistics = IndexStatistics.newEmptyStatistics();
+      final Chunk destinationChunk = asChunk(index.getPhysicalName(), destination);
+      try (final SequentialCursor<ByteString, ByteString> sourceCursor = trackCursorProgress(reporter, source.flip()))
+      {
+        while (sourceCursor.next())
+        {
+          final ByteString key = sourceCursor.getKey();
+          final ByteString value = sourceCursor.getValue();
+          if (!destinationChunk.put(key, value))
+          {
+            throw new IllegalStateException("Destination chunk is full");
+          }
+          statistics.recordUpdate(
+              IndexStatistics.ABSENT_KEY, 0, index.decodeValue(key, value).size(), value.length());
+          checkThreadNotInterrupted();
+        }
+      }
+      index.importStatistics(asWriteableTransaction(destination), statistics);
+      return null;
+    }
+  }
+
   private static long copyIntoChunk(SequentialCursor<ByteString, ByteString> source, Chunk destination)
       throws InterruptedException
   {
@@ -3894,6 +3992,12 @@ final class OnDiskMergeImporter
       return importer.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return StorageUtils.readEach(this, treeName, sortedKeys);
+    }
+
     @Override
     public void put(TreeName treeName, ByteSequence key, ByteSequence value)
     {
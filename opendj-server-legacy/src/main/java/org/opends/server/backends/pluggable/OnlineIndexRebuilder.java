@@ -0,0 +1,745 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.backends.pluggable.EntryIDSet.*;
+import static org.opends.server.backends.pluggable.VLVIndex.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.util.Utils;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.IndexBuffer.IndexBufferVisitor;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+
+/**
+ * Rebuilds attribute and VLV indexes while the backend remains online.
+ * <p>
+ * Each index is rebuilt into a shadow tree from the entries read from id2entry, while the index changes made by the
+ * concurrent updates are recorded in a journal. The journal only retains which index keys of which entries were
+ * changed: replaying it recomputes the index keys of the current version of these entries. The result is the same
+ * whether the rebuild read an entry before or after an update, and whether the update was committed or not.
+ * <p>
+ * The updates keep maintaining the index, and the searches keep using it if it is trusted, until it is switched to its
+ * shadow tree. The shadow tree of an index is the tree of the storage it does not use, so that an index alternates
+ * between two trees across rebuilds. Once the journal is replayed, the entry container is only locked to replay the
+ * last changes recorded by the journal, then to store the name of the shadow tree as the physical tree of the index in
+ * the state tree: a single write switches the index to its rebuilt version. The previous tree of the index is deleted
+ * afterwards. System indexes cannot be rebuilt online.
+ */
+final class OnlineIndexRebuilder
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The suffix appended to the identifier of an index for naming its shadow tree. */
+  private static final String SHADOW_TREE_SUFFIX = ".shadow";
+  /** The number of entries indexed or journaled entries replayed in one transaction. */
+  private static final int BATCH_SIZE = 1000;
+  /** The maximum number of times the journal is replayed before locking the entry container. */
+  private static final int MAX_CATCH_UP_PASSES = 10;
+  /** The number of milliseconds between progress reports. */
+  private static final long PROGRESS_INTERVAL = 10000;
+
+  private final EntryContainer entryContainer;
+  private final Storage storage;
+  /** The shadow indexes, by identity of the index they rebuild. */
+  private final Map<Tree, ShadowIndex> shadowIndexes = new IdentityHashMap<>();
+  /** The attribute indexes owning the rebuilt indexes, which generate their keys. */
+  private final Set<AttributeIndex> attributeIndexes = new LinkedHashSet<>();
+  /** The identifiers of the indexes which cannot be rebuilt online. */
+  private final Set<String> skippedIndexIds = new LinkedHashSet<>();
+
+  /** Records the index changes of the updates into the journal of the shadow indexes. */
+  private final IndexBufferVisitor journal = new IndexBufferVisitor()
+  {
+    @Override
+    public void visitIndexChanges(Index index, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs)
+    {
+      final ShadowIndex shadowIndex = shadowIndexes.get(index);
+      if (shadowIndex != null)
+      {
+        shadowIndex.journal(key, addedIDs);
+        shadowIndex.journal(key, deletedIDs);
+      }
+    }
+
+    @Override
+    public void visitVLVIndexChanges(VLVIndex index, Set<ByteString> addedSortKeys, Set<ByteString> deletedSortKeys)
+    {
+      final ShadowIndex shadowIndex = shadowIndexes.get(index);
+      if (shadowIndex != null)
+      {
+        shadowIndex.journal(addedSortKeys);
+        shadowIndex.journal(deletedSortKeys);
+      }
+    }
+  };
+
+  /**
+   * Creates a rebuilder of the indexes of an entry container.
+   *
+   * @param entryContainer
+   *          the entry container
+   * @param indexIds
+   *          the identifiers of the indexes to rebuild
+   */
+  OnlineIndexRebuilder(EntryContainer entryContainer, Collection<String> indexIds)
+  {
+    this.entryContainer = entryContainer;
+    this.storage = entryContainer.getRootContainer().getStorage();
+
+    final Set<String> remainingIds = new HashSet<>();
+    for (String indexId : indexIds)
+    {
+      remainingIds.add(indexId.toLowerCase());
+    }
+    for (AttributeIndex attributeIndex : entryContainer.getAttributeIndexes())
+    {
+      for (MatchingRuleIndex index : attributeIndex.getNameToIndexes().values())
+      {
+        if (remainingIds.remove(index.getName().getIndexId().toLowerCase()))
+        {
+          shadowIndexes.put(index, new ShadowAttributeIndex(attributeIndex, index));
+          attributeIndexes.add(attributeIndex);
+        }
+      }
+    }
+    for (VLVIndex index : entryContainer.getVLVIndexes())
+    {
+      if (remainingIds.remove(index.getName().getIndexId().toLowerCase()))
+      {
+        shadowIndexes.put(index, new ShadowVLVIndex(index));
+      }
+    }
+    skippedIndexIds.addAll(remainingIds);
+  }
+
+  /**
+   * Rebuilds the indexes.
+   *
+   * @throws InitializationException
+   *           if another online rebuild of the indexes of the entry container is in progress
+   * @throws Exception
+   *           if an error occurs in the storage
+   */
+  void rebuild() throws Exception
+  {
+    if (!skippedIndexIds.isEmpty())
+    {
+      logger.info(NOTE_REBUILD_ONLINE_SKIPPED_SYSTEM_INDEXES, Utils.joinAsString(", ", skippedIndexIds));
+    }
+    if (shadowIndexes.isEmpty())
+    {
+      logger.info(NOTE_REBUILD_NOTHING_TO_REBUILD);
+      return;
+    }
+    if (!entryContainer.startIndexChangesJournal(journal))
+    {
+      throw new InitializationException(ERR_REBUILD_ONLINE_IN_PROGRESS.get(entryContainer.getBaseDN()));
+    }
+
+    boolean switched = false;
+    try
+    {
+      final long startTime = System.currentTimeMillis();
+      createShadowTrees();
+      final long entryCount = buildShadowTrees();
+      catchUp();
+      switchToShadowTrees();
+      switched = true;
+      deletePreviousTrees();
+
+      final long totalTime = System.currentTimeMillis() - startTime;
+      final float rate = totalTime > 0 ? 1000f * entryCount / totalTime : 0;
+      logger.info(NOTE_REBUILD_FINAL_STATUS, entryCount, totalTime / 1000, rate);
+    }
+    finally
+    {
+      entryContainer.stopIndexChangesJournal();
+      if (!switched)
+      {
+        deleteShadowTrees();
+      }
+    }
+  }
+
+  private void createShadowTrees() throws Exception
+  {
+    // Remove the trees left by a previous rebuild which did not complete, or did not delete the previous trees
+    deleteShadowTrees();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (ShadowIndex shadowIndex : shadowIndexes.values())
+        {
+          txn.openTree(shadowIndex.shadowName, true);
+        }
+      }
+    });
+  }
+
+  private void deleteShadowTrees()
+  {
+    final List<TreeName> treeNames = new ArrayList<>(shadowIndexes.size());
+    for (ShadowIndex shadowIndex : shadowIndexes.values())
+    {
+      treeNames.add(shadowIndex.shadowName);
+    }
+    deleteTrees(treeNames);
+  }
+
+  /** Deletes the trees the indexes used before being switched to their shadow trees. */
+  private void deletePreviousTrees()
+  {
+    final List<TreeName> treeNames = new ArrayList<>(shadowIndexes.size());
+    for (ShadowIndex shadowIndex : shadowIndexes.values())
+    {
+      treeNames.add(shadowIndex.previousName);
+    }
+    deleteTrees(treeNames);
+  }
+
+  private void deleteTrees(final List<TreeName> treeNames)
+  {
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (TreeName treeName : treeNames)
+          {
+            txn.openTree(treeName, true);
+            txn.deleteTree(treeName);
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+    }
+  }
+
+  /** Builds the shadow trees from the entries of id2entry, in batches of entries read in distinct transactions. */
+  private long buildShadowTrees() throws Exception
+  {
+    final long totalEntries = storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return entryContainer.getID2Entry().getRecordCount(txn);
+      }
+    });
+    logger.info(NOTE_REBUILD_START, Utils.joinAsString(", ", getIndexIds()), totalEntries);
+
+    long entryCount = 0;
+    long previousCount = 0;
+    long previousTime = System.currentTimeMillis();
+    EntryID nextEntryID = new EntryID(0);
+    for (;;)
+    {
+      final SortedMap<EntryID, Entry> entries = readEntries(nextEntryID);
+      if (entries.isEmpty())
+      {
+        return entryCount;
+      }
+
+      final IndexBuffer buffer = new IndexBuffer();
+      for (Map.Entry<EntryID, Entry> entry : entries.entrySet())
+      {
+        for (AttributeIndex attributeIndex : attributeIndexes)
+        {
+          attributeIndex.addEntry(buffer, entry.getKey(), entry.getValue());
+        }
+        for (ShadowIndex shadowIndex : shadowIndexes.values())
+        {
+          if (shadowIndex instanceof ShadowVLVIndex)
+          {
+            shadowIndex.indexEntry(buffer, entry.getKey(), entry.getValue());
+          }
+        }
+      }
+      writeShadowTrees(buffer);
+      entryCount += entries.size();
+      nextEntryID = new EntryID(entries.lastKey().longValue() + 1);
+
+      final long currentTime = System.currentTimeMillis();
+      if (currentTime - previousTime >= PROGRESS_INTERVAL)
+      {
+        final float progressPercent = totalEntries > 0 ? 100f * entryCount / totalEntries : 0;
+        final float rate = 1000f * (entryCount - previousCount) / (currentTime - previousTime);
+        logger.info(NOTE_REBUILD_PROGRESS_REPORT, progressPercent, entryCount, totalEntries, rate);
+        previousCount = entryCount;
+        previousTime = currentTime;
+      }
+    }
+  }
+
+  private SortedMap<EntryID, Entry> readEntries(final EntryID firstEntryID) throws Exception
+  {
+    return storage.read(new ReadOperation<SortedMap<EntryID, Entry>>()
+    {
+      @Override
+      public SortedMap<EntryID, Entry> run(ReadableTransaction txn) throws Exception
+      {
+        final ID2Entry id2entry = entryContainer.getID2Entry();
+        final SortedMap<EntryID, Entry> entries = new TreeMap<>();
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+        {
+          boolean found = cursor.positionToKeyOrNext(firstEntryID.toByteString());
+          for (; found && entries.size() < BATCH_SIZE; found = cursor.next())
+          {
+            entries.put(new EntryID(cursor.getKey()), id2entry.entryFromDatabase(cursor.getValue(),
+                entryContainer.getRootContainer().getCompressedSchema()));
+          }
+        }
+        return entries;
+      }
+    });
+  }
+
+  /** Writes into the shadow trees the index keys of the entries added to the buffer. */
+  private void writeShadowTrees(final IndexBuffer buffer) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(final WriteableTransaction txn) throws Exception
+      {
+        buffer.accept(new IndexBufferVisitor()
+        {
+          @Override
+          public void visitIndexChanges(Index index, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs)
+          {
+            final ShadowIndex shadowIndex = shadowIndexes.get(index);
+            if (shadowIndex != null && addedIDs != null)
+            {
+              shadowIndex.update(txn, key, addedIDs, null);
+            }
+          }
+
+          @Override
+          public void visitVLVIndexChanges(VLVIndex index, Set<ByteString> addedSortKeys,
+              Set<ByteString> deletedSortKeys)
+          {
+            final ShadowIndex shadowIndex = shadowIndexes.get(index);
+            if (shadowIndex != null && addedSortKeys != null)
+            {
+              for (ByteString sortKey : addedSortKeys)
+              {
+                shadowIndex.update(txn, sortKey, newDefinedSet(decodeEntryIDFromVLVKey(sortKey)), null);
+              }
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /** Replays the journal until the number of changes made during a replay is small enough to lock the updates. */
+  private void catchUp() throws Exception
+  {
+    for (int i = 0; i < MAX_CATCH_UP_PASSES && getJournalSize() > BATCH_SIZE; i++)
+    {
+      logger.info(NOTE_REBUILD_ONLINE_CATCH_UP, replayJournal(), Utils.joinAsString(", ", getIndexIds()));
+    }
+  }
+
+  private int getJournalSize()
+  {
+    int size = 0;
+    for (ShadowIndex shadowIndex : shadowIndexes.values())
+    {
+      size += shadowIndex.getJournalSize();
+    }
+    return size;
+  }
+
+  /**
+   * Replays the changes recorded in the journal of the shadow indexes into the shadow trees.
+   *
+   * @return the number of entries whose index keys have been recomputed
+   */
+  private int replayJournal() throws Exception
+  {
+    int replayedCount = 0;
+    for (final ShadowIndex shadowIndex : shadowIndexes.values())
+    {
+      final List<Map.Entry<EntryID, Set<ByteString>>> changes = new ArrayList<>(shadowIndex.drainJournal().entrySet());
+      for (int i = 0; i < changes.size(); i += BATCH_SIZE)
+      {
+        final List<Map.Entry<EntryID, Set<ByteString>>> batch =
+            changes.subList(i, Math.min(i + BATCH_SIZE, changes.size()));
+        storage.write(new WriteOperation()
+        {
+          @Override
+          public void run(WriteableTransaction txn) throws Exception
+          {
+            for (Map.Entry<EntryID, Set<ByteString>> change : batch)
+            {
+              replay(txn, shadowIndex, change.getKey(), change.getValue());
+            }
+          }
+        });
+      }
+      replayedCount += changes.size();
+    }
+    return replayedCount;
+  }
+
+  /**
+   * Sets the index keys of an entry in a shadow tree to the keys of its current version: the entry ID is added to these
+   * keys and removed from the other keys changed by the updates.
+   */
+  private void replay(WriteableTransaction txn, final ShadowIndex shadowIndex, EntryID entryID,
+      Set<ByteString> changedKeys) throws DirectoryException
+  {
+    final Entry entry = entryContainer.getID2Entry().get(txn, entryID);
+    final Set<ByteString> keys = new HashSet<>();
+    if (entry != null)
+    {
+      final IndexBuffer buffer = new IndexBuffer();
+      shadowIndex.indexEntry(buffer, entryID, entry);
+      buffer.accept(new IndexBufferVisitor()
+      {
+        @Override
+        public void visitIndexChanges(Index index, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs)
+        {
+          if (index == shadowIndex.index && addedIDs != null)
+          {
+            keys.add(key);
+          }
+        }
+
+        @Override
+        public void visitVLVIndexChanges(VLVIndex index, Set<ByteString> addedSortKeys,
+            Set<ByteString> deletedSortKeys)
+        {
+          if (index == shadowIndex.index && addedSortKeys != null)
+          {
+            keys.addAll(addedSortKeys);
+          }
+        }
+      });
+    }
+
+    for (ByteString key : keys)
+    {
+      shadowIndex.update(txn, key, newDefinedSet(entryID.longValue()), null);
+    }
+    for (ByteString key : changedKeys)
+    {
+      if (!keys.contains(key))
+      {
+        shadowIndex.update(txn, key, null, newDefinedSet(entryID.longValue()));
+      }
+    }
+  }
+
+  /**
+   * Replays the last changes into the shadow trees, then switches the indexes to them in a single transaction, while
+   * the entry container is exclusively locked. Switching an index only stores the name of its shadow tree in the state
+   * tree.
+   */
+  private void switchToShadowTrees() throws Exception
+  {
+    final long startTime = System.currentTimeMillis();
+    entryContainer.exclusiveLock.lock();
+    try
+    {
+      final int replayedCount = replayJournal();
+      entryContainer.stopIndexChangesJournal();
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (ShadowIndex shadowIndex : shadowIndexes.values())
+          {
+            shadowIndex.switchIndex(txn);
+          }
+        }
+      });
+      logger.info(NOTE_REBUILD_ONLINE_SWAPPED, Utils.joinAsString(", ", getIndexIds()), replayedCount,
+          System.currentTimeMillis() - startTime);
+    }
+    finally
+    {
+      entryContainer.exclusiveLock.unlock();
+    }
+  }
+
+  private List<String> getIndexIds()
+  {
+    final List<String> indexIds = new ArrayList<>(shadowIndexes.size());
+    for (Tree index : shadowIndexes.keySet())
+    {
+      indexIds.add(index.getName().getIndexId());
+    }
+    Collections.sort(indexIds);
+    return indexIds;
+  }
+
+  /** The shadow tree of an index, with the journal of the index changes made by the updates. */
+  private abstract static class ShadowIndex
+  {
+    /** The rebuilt index. */
+    final Tree index;
+    /** The name of the tree the index uses until it is switched to its shadow tree. */
+    final TreeName previousName;
+    /** The name of the tree where the index is rebuilt, which is the tree of the storage the index does not use. */
+    final TreeName shadowName;
+    /** The index keys changed by the updates for each entry. */
+    private Map<EntryID, Set<ByteString>> journal = new HashMap<>();
+
+    ShadowIndex(Tree index)
+    {
+      final TreeName name = index.getName();
+      this.index = index;
+      this.previousName = index.getPhysicalName();
+      this.shadowName =
+          previousName.equals(name) ? new TreeName(name.getBaseDN(), name.getIndexId() + SHADOW_TREE_SUFFIX) : name;
+    }
+
+    synchronized void journal(ByteString key, EntryIDSet entryIDs)
+    {
+      if (entryIDs != null)
+      {
+        for (EntryID entryID : entryIDs)
+        {
+          journal(entryID, key);
+        }
+      }
+    }
+
+    synchronized void journal(Set<ByteString> sortKeys)
+    {
+      if (sortKeys != null)
+      {
+        for (ByteString sortKey : sortKeys)
+        {
+          journal(new EntryID(decodeEntryIDFromVLVKey(sortKey)), sortKey);
+        }
+      }
+    }
+
+    private void journal(EntryID entryID, ByteString key)
+    {
+      Set<ByteString> keys = journal.get(entryID);
+      if (keys == null)
+      {
+        keys = new HashSet<>();
+        journal.put(entryID, keys);
+      }
+      keys.add(key);
+    }
+
+    synchronized Map<EntryID, Set<ByteString>> drainJournal()
+    {
+      final Map<EntryID, Set<ByteString>> changes = journal;
+      journal = new HashMap<>();
+      return changes;
+    }
+
+    synchronized int getJournalSize()
+    {
+      return journal.size();
+    }
+
+    /** Adds the index keys of an entry to the buffer. */
+    abstract void indexEntry(IndexBuffer buffer, EntryID entryID, Entry entry) throws DirectoryException;
+
+    /** Adds or removes entry IDs from a key of the shadow tree. */
+    abstract void update(WriteableTransaction txn, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs);
+
+    /** Switches the index to the shadow tree and trusts it, once the journal is replayed into the shadow tree. */
+    abstract void switchIndex(WriteableTransaction txn);
+  }
+
+  /** The shadow tree of an attribute index, mapping index keys to entry ID sets encoded like the index does. */
+  private static final class ShadowAttributeIndex extends ShadowIndex
+  {
+    private final AttributeIndex attributeIndex;
+    private final MatchingRuleIndex index;
+    private final IndexStatistics statistics = IndexStatistics.newEmptyStatistics();
+
+    ShadowAttributeIndex(AttributeIndex attributeIndex, MatchingRuleIndex index)
+    {
+      super(index);
+      this.attributeIndex = attributeIndex;
+      this.index = index;
+    }
+
+    @Override
+    void indexEntry(IndexBuffer buffer, EntryID entryID, Entry entry) throws DirectoryException
+    {
+      attributeIndex.addEntry(buffer, entryID, entry);
+    }
+
+    @Override
+    void update(WriteableTransaction txn, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs)
+    {
+      // Nothing else updates the shadow tree, its statistics are computed from the values it contains
+      final ByteString oldValue = txn.read(shadowName, key);
+      final ByteSequence newValue = computeValue(key, oldValue, addedIDs, deletedIDs);
+      if (newValue != null)
+      {
+        txn.put(shadowName, key, newValue);
+      }
+      else if (oldValue != null)
+      {
+        txn.delete(shadowName, key);
+      }
+      recordUpdate(key, oldValue, newValue != null ? newValue.toByteString() : null);
+    }
+
+    private ByteSequence computeValue(ByteString key, ByteSequence oldValue, EntryIDSet addedIDs,
+        EntryIDSet deletedIDs)
+    {
+      EntryIDSet entryIDs = oldValue != null ? index.decodeValue(key, oldValue.toByteString()) : newDefinedSet();
+      if (!entryIDs.isDefined())
+      {
+        // The index entry limit has been exceeded
+        return oldValue;
+      }
+      if (addedIDs != null)
+      {
+        entryIDs.addAll(addedIDs);
+      }
+      if (deletedIDs != null)
+      {
+        entryIDs.removeAll(deletedIDs);
+      }
+      if (entryIDs.size() == 0)
+      {
+        return null;
+      }
+      final int indexEntryLimit = index.getIndexEntryLimit();
+      if (indexEntryLimit > 0 && entryIDs.size() >= indexEntryLimit)
+      {
+        entryIDs = newUndefinedSetWithKey(key);
+      }
+      return index.toValue(entryIDs);
+    }
+
+    /** Records the change of a value of the shadow tree into the statistics, once the change is committed. */
+    private void recordUpdate(ByteString key, ByteString oldValue, ByteString newValue)
+    {
+      final long oldSize = oldValue != null ? index.decodeValue(key, oldValue).size() : IndexStatistics.ABSENT_KEY;
+      final int oldLength = oldValue != null ? oldValue.length() : 0;
+      final long newSize = newValue != null ? index.decodeValue(key, newValue).size() : IndexStatistics.ABSENT_KEY;
+      final int newLength = newValue != null ? newValue.length() : 0;
+      PostCommitActions.runAfterCommit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          statistics.recordUpdate(oldSize, oldLength, newSize, newLength);
+        }
+      });
+    }
+
+    @Override
+    void switchIndex(WriteableTransaction txn)
+    {
+      index.switchPhysicalTree(txn, shadowName, statistics);
+    }
+  }
+
+  /** The shadow tree of a VLV index, with the same sort keys as the index. */
+  private static final class ShadowVLVIndex extends ShadowIndex
+  {
+    private final VLVIndex index;
+    private long count;
+
+    ShadowVLVIndex(VLVIndex index)
+    {
+      super(index);
+      this.index = index;
+    }
+
+    @Override
+    void indexEntry(IndexBuffer buffer, EntryID entryID, Entry entry) throws DirectoryException
+    {
+      index.addEntry(buffer, entryID, entry);
+    }
+
+    @Override
+    void update(WriteableTransaction txn, ByteString key, EntryIDSet addedIDs, EntryIDSet deletedIDs)
+    {
+      // Nothing else updates the shadow tree, its count is computed from the keys it contains
+      final boolean exists = txn.read(shadowName, key) != null;
+      if (addedIDs != null && !exists)
+      {
+        txn.put(shadowName, key, index.toValue());
+        recordCountChange(1);
+      }
+      else if (deletedIDs != null && exists)
+      {
+        txn.delete(shadowName, key);
+        recordCountChange(-1);
+      }
+    }
+
+    /** Records a change of the number of keys of the shadow tree, once the change is committed. */
+    private void recordCountChange(final long change)
+    {
+      PostCommitActions.runAfterCommit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          count += change;
+        }
+      });
+    }
+
+    @Override
+    void switchIndex(WriteableTransaction txn)
+    {
+      index.switchPhysicalTree(txn, shadowName, count);
+    }
+  }
+}
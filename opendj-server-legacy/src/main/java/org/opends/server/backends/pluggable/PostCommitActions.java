@@ -0,0 +1,105 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+
+/**
+ * Collects the actions which must only take effect once the transaction of a write operation is committed, such as the
+ * updates of the in-memory index statistics.
+ * <p>
+ * A write operation may be run several times before being committed, or its transaction may be aborted: the actions
+ * collected by a previous run are discarded each time the write operation is run again, and are only run by
+ * {@link #runAll()} once the caller knows the transaction has been committed.
+ */
+final class PostCommitActions
+{
+  /** The actions collected for the write operation running on the current thread, if any. */
+  private static final ThreadLocal<PostCommitActions> RUNNING = new ThreadLocal<>();
+
+  private final List<Runnable> actions = new ArrayList<>();
+
+  /**
+   * Runs the provided action once the transaction of the write operation running on the current thread is committed,
+   * or immediately if this write operation does not collect its post-commit actions.
+   *
+   * @param action
+   *          the action to run after the commit
+   */
+  static void runAfterCommit(Runnable action)
+  {
+    final PostCommitActions running = RUNNING.get();
+    if (running != null)
+    {
+      running.actions.add(action);
+    }
+    else
+    {
+      action.run();
+    }
+  }
+
+  /**
+   * Returns a write operation running the provided one while collecting its post-commit actions into this object.
+   *
+   * @param writeOperation
+   *          the write operation whose post-commit actions are collected
+   * @return the write operation to hand to the storage
+   */
+  WriteOperation collectFrom(final WriteOperation writeOperation)
+  {
+    return new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        // The previous run, if any, has been rolled back
+        actions.clear();
+        final PostCommitActions previous = RUNNING.get();
+        RUNNING.set(PostCommitActions.this);
+        try
+        {
+          writeOperation.run(txn);
+        }
+        finally
+        {
+          if (previous != null)
+          {
+            RUNNING.set(previous);
+          }
+          else
+          {
+            RUNNING.remove();
+          }
+        }
+      }
+    };
+  }
+
+  /** Runs the collected actions, to be called once the transaction of the write operation has been committed. */
+  void runAll()
+  {
+    for (Runnable action : actions)
+    {
+      action.run();
+    }
+    actions.clear();
+  }
+}
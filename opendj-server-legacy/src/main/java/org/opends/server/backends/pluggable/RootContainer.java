@@ -16,6 +16,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
@@ -23,9 +24,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -61,8 +69,8 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  /** The tree storage. */
-  private final Storage storage;
+  /** The tree storage, committing the write operations as configured. */
+  private final GroupCommitStorage storage;
 
   /** The ID of the backend to which this entry root container belongs. */
   private final String backendId;
@@ -70,6 +78,14 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   private volatile PluggableBackendCfg config;
   /** The monitor for this backend. */
   private BackendMonitor monitor;
+  /** Reads the indexes of search filter components concurrently, null if they are read sequentially. */
+  private volatile ExecutorService indexReadExecutor;
+  /** Reads the candidate entries of indexed searches ahead of the searching threads, null if they are not. */
+  private volatile ExecutorService entryPrefetchExecutor;
+  /** Caches the entry IDs of the most frequently read index keys, null if they are not cached. */
+  private volatile IndexCache indexCache;
+  /** Preloads the trees in the storage cache, null if they have not been preloaded. */
+  private volatile TreePreloader preloader;
 
   /** The base DNs contained in this root container. */
   private final ConcurrentMap<DN, EntryContainer> entryContainers = new ConcurrentHashMap<>();
@@ -80,6 +96,9 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   /** The compressed schema manager for this backend. */
   private PersistentCompressedSchema compressedSchema;
 
+  /** How the storage has been opened. */
+  private AccessMode accessMode;
+
   private final ServerContext serverContext;
 
   /**
@@ -97,15 +116,133 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   {
     this.backendId = backendID;
     this.serverContext = serverContext;
-    this.storage = storage;
+    this.storage = new GroupCommitStorage(storage, backendID);
     this.config = config;
 
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    indexReadExecutor = newIndexReadExecutor(config.getParallelIndexReadThreads());
+    entryPrefetchExecutor = newEntryPrefetchExecutor(config.getSearchPrefetchThreads());
+    indexCache = newIndexCache(config.getIndexCacheMemorySize());
+    configureStorageMetrics();
+    configureWriteDurability();
 
     config.addPluggableChangeListener(this);
   }
 
+  /**
+   * Returns the measurements of the operations performed on the trees of the storage.
+   *
+   * @return the measurements of the operations performed on the trees of the storage, or {@code null} if the storage
+   *         does not measure them
+   */
+  StorageMetrics getStorageMetrics()
+  {
+    final Storage tracedStorage = storage.getStorage();
+    return tracedStorage instanceof TracedStorage ? ((TracedStorage) tracedStorage).getMetrics() : null;
+  }
+
+  private void configureStorageMetrics()
+  {
+    final StorageMetrics metrics = getStorageMetrics();
+    if (metrics != null)
+    {
+      if (config.getStorageMetricsSamplePercent() == 0)
+      {
+        metrics.reset();
+      }
+      metrics.setSamplePercent(config.getStorageMetricsSamplePercent());
+    }
+  }
+
+  /**
+   * Returns the storage committing the write operations according to the configured write durability.
+   *
+   * @return the storage committing the write operations according to the configured write durability
+   */
+  GroupCommitStorage getGroupCommitStorage()
+  {
+    return storage;
+  }
+
+  private void configureWriteDurability()
+  {
+    storage.configure(config.getWriteDurability(), config.getGroupCommitWindow(),
+        config.getGroupCommitMaxOperations(), config.getWriteDurabilitySyncInterval());
+  }
+
+  /**
+   * Returns the cache of the entry IDs of the most frequently read index keys.
+   *
+   * @return the cache of the entry IDs of the most frequently read index keys, or {@code null} if they are not cached
+   */
+  IndexCache getIndexCache()
+  {
+    return indexCache;
+  }
+
+  private static IndexCache newIndexCache(Long memorySize)
+  {
+    return memorySize != null && memorySize > 0 ? new IndexCache(memorySize) : null;
+  }
+
+  /**
+   * Returns the executor used for reading the indexes of search filter components concurrently.
+   *
+   * @return the executor used for reading the indexes of search filter components concurrently, or {@code null} if
+   *         they must be read sequentially
+   */
+  ExecutorService getIndexReadExecutor()
+  {
+    return indexReadExecutor;
+  }
+
+  private ExecutorService newIndexReadExecutor(int threadCount)
+  {
+    if (threadCount <= 1)
+    {
+      return null;
+    }
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(threadCount), newThreadFactory(null, backendId + " index reader %d", true),
+        new RejectedExecutionHandler()
+        {
+          @Override
+          public void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+          {
+            // Either all the threads are busy or the executor has been replaced: let the searching thread run the task.
+            task.run();
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Returns the executor used for reading the candidate entries of indexed searches ahead of the searching threads.
+   *
+   * @return the executor used for reading the candidate entries of indexed searches ahead of the searching threads,
+   *         or {@code null} if the searching threads read them
+   */
+  ExecutorService getEntryPrefetchExecutor()
+  {
+    return entryPrefetchExecutor;
+  }
+
+  private ExecutorService newEntryPrefetchExecutor(int threadCount)
+  {
+    if (threadCount <= 0)
+    {
+      return null;
+    }
+    // Each task prefetches the entries of a whole search: reject the tasks when all the threads are busy,
+    // the searching thread then reads the entries itself.
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), newThreadFactory(null, backendId + " entry prefetcher %d", true));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   /**
    * Returns the underlying storage engine.
    *
@@ -130,6 +267,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   {
     try
     {
+      this.accessMode = accessMode;
       storage.open(accessMode);
       storage.write(new WriteOperation()
       {
@@ -140,6 +278,13 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
           openAndRegisterEntryContainers(txn, config.getBaseDN(), accessMode);
         }
       });
+      if (accessMode.isWriteable())
+      {
+        for (EntryContainer ec : entryContainers.values())
+        {
+          ec.resumeSubtreeDeletes();
+        }
+      }
     }
     catch(StorageRuntimeException e)
     {
@@ -299,18 +444,21 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
       Collections.sort(trees, new TreePreloadComparator());
 
       // Preload each tree until we reach the time limit or the cache is filled.
-      try
-      {
-        throw new UnsupportedOperationException("Not implemented exception");
-      }
-      catch (StorageRuntimeException e)
-      {
-        logger.error(ERR_CACHE_PRELOAD, backendId,
-            stackTraceToSingleLineString(e.getCause() != null ? e.getCause() : e));
-      }
+      preloader = new TreePreloader(backendId, storage, config.getPreloadThreadCount());
+      preloader.preload(trees, timeLimit);
     }
   }
 
+  /**
+   * Returns the preloader of the tree cache.
+   *
+   * @return the preloader of the tree cache, or {@code null} if the tree cache has not been preloaded
+   */
+  TreePreloader getPreloader()
+  {
+    return preloader;
+  }
+
   /**
    * Closes this root container.
    *
@@ -319,6 +467,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
    */
   void close() throws StorageRuntimeException
   {
+    saveIndexStatistics();
     for (DN baseDN : entryContainers.keySet())
     {
       EntryContainer ec = unregisterEntryContainer(baseDN);
@@ -333,12 +482,51 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
       }
     }
     config.removePluggableChangeListener(this);
+    shutdownExecutor(indexReadExecutor);
+    indexReadExecutor = null;
+    shutdownExecutor(entryPrefetchExecutor);
+    entryPrefetchExecutor = null;
     if (storage != null)
     {
       storage.close();
     }
   }
 
+  private static void shutdownExecutor(ExecutorService executor)
+  {
+    if (executor != null)
+    {
+      // Let the reads in progress complete.
+      executor.shutdown();
+    }
+  }
+
+  private void saveIndexStatistics()
+  {
+    if (storage == null || accessMode == null || !accessMode.isWriteable() || entryContainers.isEmpty())
+    {
+      return;
+    }
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (EntryContainer ec : entryContainers.values())
+          {
+            ec.saveIndexStatistics(txn);
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      logger.warn(WARN_BACKEND_SAVE_INDEX_STATISTICS, backendId, stackTraceToSingleLineString(e));
+    }
+  }
+
   /**
    * Return all the entry containers in this root container.
    *
@@ -449,9 +637,31 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   @Override
   public ConfigChangeResult applyConfigurationChange(PluggableBackendCfg configuration)
   {
+    final int oldThreadCount = config.getParallelIndexReadThreads();
+    final int oldPrefetchThreadCount = config.getSearchPrefetchThreads();
+    final Long oldIndexCacheMemorySize = config.getIndexCacheMemorySize();
     config = configuration;
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    if (config.getParallelIndexReadThreads() != oldThreadCount)
+    {
+      final ExecutorService oldExecutor = indexReadExecutor;
+      indexReadExecutor = newIndexReadExecutor(config.getParallelIndexReadThreads());
+      shutdownExecutor(oldExecutor);
+    }
+    if (config.getSearchPrefetchThreads() != oldPrefetchThreadCount)
+    {
+      final ExecutorService oldExecutor = entryPrefetchExecutor;
+      entryPrefetchExecutor = newEntryPrefetchExecutor(config.getSearchPrefetchThreads());
+      shutdownExecutor(oldExecutor);
+    }
+    if (!Objects.equals(config.getIndexCacheMemorySize(), oldIndexCacheMemorySize))
+    {
+      // Searches in progress keep using the previous cache, which is discarded once they complete.
+      indexCache = newIndexCache(config.getIndexCacheMemorySize());
+    }
+    configureStorageMetrics();
+    configureWriteDurability();
 
     return new ConfigChangeResult();
   }
@@ -23,9 +23,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.TreeName;
@@ -40,12 +47,36 @@ import org.opends.server.util.StaticUtils;
 class State extends AbstractTree
 {
   /**
-   * Use COMPACTED serialization for new indexes.
+   * Use COMPACTED serialization for indexes without a state record, which may already hold values.
    * @see {@link EntryIDSet.EntryIDSetCodecV2}
    */
   private static final Collection<IndexFlag> DEFAULT_FLAGS = Collections.unmodifiableCollection(Arrays
       .asList(IndexFlag.COMPACTED));
 
+  /** Suffix of the keys holding the {@link IndexStatistics} of an index. */
+  private static final String STATISTICS_KEY_SUFFIX = "#statistics";
+
+  /** Suffix of the keys holding the compression dictionaries of the entry tree, followed by their identifier. */
+  private static final String DICTIONARY_KEY_SUFFIX = "#dictionary#";
+
+  /** First byte of the compression dictionaries, distinguishing them from the {@link IndexStatistics}. */
+  private static final byte DICTIONARY_FORMAT_VERSION = 0x02;
+
+  /**
+   * Prefix of the keys recording the subtree deletes in progress. Tree names start with a slash, so these keys sort
+   * before the keys of the indexes.
+   */
+  private static final ByteString SUBTREE_DELETE_KEY_PREFIX = ByteString.valueOfUtf8("#subtree-delete#");
+
+  /** First byte of the subtree deletes in progress, distinguishing them from the {@link IndexStatistics}. */
+  private static final byte SUBTREE_DELETE_FORMAT_VERSION = 0x03;
+
+  /** Suffix of the keys holding the name of the tree of the storage holding the records of an index. */
+  private static final String PHYSICAL_NAME_KEY_SUFFIX = "#physical-name";
+
+  /** First byte of the physical tree names, distinguishing them from the {@link IndexStatistics}. */
+  private static final byte PHYSICAL_NAME_FORMAT_VERSION = 0x04;
+
   /**
    * Bit-field containing possible flags that an index can have
    * When adding flags, ensure that its value fits on a single bit.
@@ -55,7 +86,10 @@ class State extends AbstractTree
     TRUSTED(0x01),
 
     /** Use compact encoding for indexes' ID storage. */
-    COMPACTED(0x02);
+    COMPACTED(0x02),
+
+    /** Use compressed bitmap encoding for indexes' ID storage, takes precedence over {@link #COMPACTED}. */
+    BITMAP(0x04);
 
     static final EnumSet<IndexFlag> ALL_FLAGS = EnumSet.allOf(IndexFlag.class);
 
@@ -81,6 +115,34 @@ class State extends AbstractTree
     return ByteString.wrap(StaticUtils.getBytes(indexTreeName.toString()));
   }
 
+  private static ByteString statisticsKeyForIndex(TreeName indexTreeName) throws StorageRuntimeException
+  {
+    return ByteString.wrap(StaticUtils.getBytes(indexTreeName + STATISTICS_KEY_SUFFIX));
+  }
+
+  private static ByteString physicalNameKeyForIndex(TreeName indexTreeName) throws StorageRuntimeException
+  {
+    return ByteString.wrap(StaticUtils.getBytes(indexTreeName + PHYSICAL_NAME_KEY_SUFFIX));
+  }
+
+  private static ByteString dictionaryKeyPrefixForTree(TreeName treeName) throws StorageRuntimeException
+  {
+    return ByteString.wrap(StaticUtils.getBytes(treeName + DICTIONARY_KEY_SUFFIX));
+  }
+
+  private static ByteString dictionaryKeyForTree(TreeName treeName, int dictionaryId) throws StorageRuntimeException
+  {
+    return ByteString.wrap(StaticUtils.getBytes(treeName + DICTIONARY_KEY_SUFFIX + dictionaryId));
+  }
+
+  private static ByteString subtreeDeleteKey(DN subtreeDN)
+  {
+    return new ByteStringBuilder()
+        .appendBytes(SUBTREE_DELETE_KEY_PREFIX)
+        .appendBytes(subtreeDN.toNormalizedByteString())
+        .toByteString();
+  }
+
   /**
    * Fetch index flags from the tree.
    * @param txn The transaction or null if none.
@@ -124,6 +186,37 @@ class State extends AbstractTree
     });
   }
 
+  /**
+   * Store the flags of a newly created index, unless flags have already been stored for it.
+   * @param txn a non null transaction
+   * @param indexTreeName The index storing the trusted state info.
+   * @param flags The flags of the new index
+   * @return true if the flags have been stored
+   * @throws NullPointerException if txn, index or flags is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  boolean initializeIndexFlags(WriteableTransaction txn, TreeName indexTreeName, final IndexFlag... flags)
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(indexTreeName, "indexTreeName must not be null");
+    checkNotNull(flags, "flags must not be null");
+
+    return txn.update(getName(), keyForIndex(indexTreeName), new UpdateFunction()
+    {
+      @Override
+      public ByteSequence computeNewValue(ByteSequence oldValue)
+      {
+        if (oldValue != null)
+        {
+          return oldValue;
+        }
+        final EnumSet<IndexFlag> newFlags = EnumSet.noneOf(IndexFlag.class);
+        newFlags.addAll(Arrays.asList(flags));
+        return encodeFlags(newFlags);
+      }
+    });
+  }
+
   private static EnumSet<IndexFlag> decodeFlagsOrGetDefault(ByteSequence sequence) {
     if ( sequence == null ) {
       return EnumSet.copyOf(DEFAULT_FLAGS);
@@ -173,9 +266,261 @@ class State extends AbstractTree
     });
   }
 
+  /**
+   * Fetch the statistics of an index from the tree.
+   * @param txn a non null transaction
+   * @param indexTreeName The tree's name of the index
+   * @return The statistics of the index, which are unknown if none have been stored yet.
+   * @throws NullPointerException if txn or index is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  IndexStatistics getIndexStatistics(ReadableTransaction txn, TreeName indexTreeName) throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(indexTreeName, "indexTreeName must not be null");
+
+    return IndexStatistics.valueOf(txn.read(getName(), statisticsKeyForIndex(indexTreeName)));
+  }
+
+  /**
+   * Store the statistics of an index into the tree.
+   * @param txn a non null transaction
+   * @param indexTreeName The tree's name of the index
+   * @param statistics The statistics to store. Unknown statistics are not stored.
+   * @throws NullPointerException if txn, index or statistics is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void putIndexStatistics(WriteableTransaction txn, TreeName indexTreeName, IndexStatistics statistics)
+      throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(indexTreeName, "indexTreeName must not be null");
+    checkNotNull(statistics, "statistics must not be null");
+
+    if (statistics.isAvailable())
+    {
+      txn.put(getName(), statisticsKeyForIndex(indexTreeName), statistics.toByteString());
+    }
+  }
+
+  /**
+   * Remove the statistics of an index from the tree, so that they are unknown until stored again.
+   * @param txn a non null transaction
+   * @param indexTreeName The tree's name of the index
+   * @throws NullPointerException if txn or index is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void removeIndexStatistics(WriteableTransaction txn, TreeName indexTreeName) throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(indexTreeName, "indexTreeName must not be null");
+
+    txn.delete(getName(), statisticsKeyForIndex(indexTreeName));
+  }
+
+  /**
+   * Fetch the name of the tree of the storage holding the records of an index.
+   * @param txn a non null transaction
+   * @param indexTreeName The tree's name of the index
+   * @return The name of the tree holding the records of the index, which is the name of the index unless an online
+   *         rebuild has switched the index to the tree it was rebuilt into.
+   * @throws NullPointerException if txn or index is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  TreeName getPhysicalTreeName(ReadableTransaction txn, TreeName indexTreeName) throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(indexTreeName, "indexTreeName must not be null");
+
+    final ByteString value = txn.read(getName(), physicalNameKeyForIndex(indexTreeName));
+    if (value != null && value.length() > 1 && value.byteAt(0) == PHYSICAL_NAME_FORMAT_VERSION)
+    {
+      final ByteSequenceReader reader = value.asReader();
+      reader.skip(1);
+      return new TreeName(indexTreeName.getBaseDN(), reader.readStringUtf8(reader.remaining()));
+    }
+    return indexTreeName;
+  }
+
+  /**
+   * Store the name of the tree of the storage holding the records of an index. Switching the tree of an index only
+   * requires this single write.
+   * @param txn a non null transaction
+   * @param indexTreeName The tree's name of the index
+   * @param physicalTreeName The name of the tree now holding the records of the index, in the same entry container
+   * @throws NullPointerException if txn, index or physicalTreeName is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void putPhysicalTreeName(WriteableTransaction txn, TreeName indexTreeName, TreeName physicalTreeName)
+      throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(indexTreeName, "indexTreeName must not be null");
+    checkNotNull(physicalTreeName, "physicalTreeName must not be null");
+
+    if (physicalTreeName.equals(indexTreeName))
+    {
+      txn.delete(getName(), physicalNameKeyForIndex(indexTreeName));
+      return;
+    }
+    txn.put(getName(), physicalNameKeyForIndex(indexTreeName), new ByteStringBuilder()
+        .appendByte(PHYSICAL_NAME_FORMAT_VERSION)
+        .appendUtf8(physicalTreeName.getIndexId())
+        .toByteString());
+  }
+
+  /**
+   * Fetch all the compression dictionaries of a tree.
+   * @param txn a non null transaction
+   * @param treeName The name of the compressed tree
+   * @return The compression dictionaries of the tree by identifier, empty if none has been stored
+   * @throws NullPointerException if txn or treeName is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  Map<Integer, LZ4BlockCodec.Dictionary> getCompressionDictionaries(ReadableTransaction txn, TreeName treeName)
+      throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(treeName, "treeName must not be null");
+
+    final ByteString keyPrefix = dictionaryKeyPrefixForTree(treeName);
+    final Map<Integer, LZ4BlockCodec.Dictionary> dictionaries = new HashMap<>();
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    {
+      boolean found = cursor.positionToKeyOrNext(keyPrefix);
+      while (found && cursor.getKey().startsWith(keyPrefix))
+      {
+        final ByteString value = cursor.getValue();
+        if (value.length() > 0 && value.byteAt(0) == DICTIONARY_FORMAT_VERSION)
+        {
+          final ByteSequenceReader reader = value.asReader();
+          reader.skip(1);
+          final int id = reader.readCompactUnsignedInt();
+          final byte[] bytes = reader.readByteString(reader.remaining()).toByteArray();
+          dictionaries.put(id, new LZ4BlockCodec.Dictionary(id, bytes));
+        }
+        found = cursor.next();
+      }
+    }
+    return dictionaries;
+  }
+
+  /**
+   * Store a compression dictionary of a tree, alongside the dictionaries stored before it.
+   * @param txn a non null transaction
+   * @param treeName The name of the compressed tree
+   * @param dictionary The dictionary to store
+   * @throws NullPointerException if txn, treeName or dictionary is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void putCompressionDictionary(WriteableTransaction txn, TreeName treeName, LZ4BlockCodec.Dictionary dictionary)
+      throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(treeName, "treeName must not be null");
+    checkNotNull(dictionary, "dictionary must not be null");
+
+    txn.put(getName(), dictionaryKeyForTree(treeName, dictionary.getId()), new ByteStringBuilder()
+        .appendByte(DICTIONARY_FORMAT_VERSION)
+        .appendCompactUnsigned(dictionary.getId())
+        .appendBytes(dictionary.getBytes())
+        .toByteString());
+  }
+
+  /**
+   * Record that the subtree rooted at the provided entry is being deleted, until
+   * {@link #removeSubtreeDelete(WriteableTransaction, DN)} is called in the transaction deleting its last entries.
+   * @param txn a non null transaction
+   * @param subtreeDN The DN of the root of the subtree being deleted
+   * @param subtreeRootID The entry ID of the root of the subtree being deleted
+   * @throws NullPointerException if txn, subtreeDN or subtreeRootID is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void putSubtreeDelete(WriteableTransaction txn, DN subtreeDN, EntryID subtreeRootID) throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(subtreeDN, "subtreeDN must not be null");
+    checkNotNull(subtreeRootID, "subtreeRootID must not be null");
+
+    txn.put(getName(), subtreeDeleteKey(subtreeDN), new ByteStringBuilder()
+        .appendByte(SUBTREE_DELETE_FORMAT_VERSION)
+        .appendCompactUnsigned(subtreeRootID.longValue())
+        .appendUtf8(subtreeDN.toString())
+        .toByteString());
+  }
+
+  /**
+   * Remove the record of a subtree delete in progress, if any.
+   * @param txn a non null transaction
+   * @param subtreeDN The DN of the root of the deleted subtree
+   * @return true if a subtree delete was in progress
+   * @throws NullPointerException if txn or subtreeDN is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  boolean removeSubtreeDelete(WriteableTransaction txn, DN subtreeDN) throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(subtreeDN, "subtreeDN must not be null");
+
+    return txn.delete(getName(), subtreeDeleteKey(subtreeDN));
+  }
+
+  /**
+   * Fetch the subtree deletes which have not completed yet.
+   * @param txn a non null transaction
+   * @return The entry IDs of the roots of the subtrees being deleted, keyed by their DN
+   * @throws NullPointerException if txn is null
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  Map<DN, EntryID> getSubtreeDeletes(ReadableTransaction txn) throws StorageRuntimeException
+  {
+    checkNotNull(txn, "txn must not be null");
+
+    final Map<DN, EntryID> subtreeDeletes = new LinkedHashMap<>();
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    {
+      boolean found = cursor.positionToKeyOrNext(SUBTREE_DELETE_KEY_PREFIX);
+      while (found && cursor.getKey().startsWith(SUBTREE_DELETE_KEY_PREFIX))
+      {
+        final ByteSequenceReader reader = cursor.getValue().asReader();
+        if (reader.readByte() == SUBTREE_DELETE_FORMAT_VERSION)
+        {
+          final EntryID subtreeRootID = new EntryID(reader.readCompactUnsignedLong());
+          subtreeDeletes.put(DN.valueOf(reader.readStringUtf8(reader.remaining())), subtreeRootID);
+        }
+        found = cursor.next();
+      }
+    }
+    return subtreeDeletes;
+  }
+
   @Override
   public String valueToString(ByteString value)
   {
+    if (value != null && value.length() > 1 && value.byteAt(0) == DICTIONARY_FORMAT_VERSION)
+    {
+      final ByteSequenceReader reader = value.asReader();
+      reader.skip(1);
+      return "compression dictionary " + reader.readCompactUnsignedInt() + " (" + reader.remaining() + " bytes)";
+    }
+    if (value != null && value.length() > 1 && value.byteAt(0) == SUBTREE_DELETE_FORMAT_VERSION)
+    {
+      final ByteSequenceReader reader = value.asReader();
+      reader.skip(1);
+      final long subtreeRootID = reader.readCompactUnsignedLong();
+      return "subtree delete of " + reader.readStringUtf8(reader.remaining()) + " (entry ID " + subtreeRootID + ")";
+    }
+    if (value != null && value.length() > 1 && value.byteAt(0) == PHYSICAL_NAME_FORMAT_VERSION)
+    {
+      final ByteSequenceReader reader = value.asReader();
+      reader.skip(1);
+      return "physical tree " + reader.readStringUtf8(reader.remaining());
+    }
+    // Flags are encoded on a single byte, anything longer holds statistics
+    if (value != null && value.length() > 1)
+    {
+      return IndexStatistics.valueOf(value).toString();
+    }
     return joinAsString(" ", decodeFlagsOrGetDefault(value));
   }
 
@@ -193,6 +538,8 @@ class State extends AbstractTree
     checkNotNull(txn, "txn must not be null");
     checkNotNull(indexTreeName, "indexTreeName must not be null");
 
+    txn.delete(getName(), statisticsKeyForIndex(indexTreeName));
+    txn.delete(getName(), physicalNameKeyForIndex(indexTreeName));
     return txn.delete(getName(), keyForIndex(indexTreeName));
   }
 }
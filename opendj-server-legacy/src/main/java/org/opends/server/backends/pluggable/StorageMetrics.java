@@ -0,0 +1,318 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * Records the number, the size and the latency of the operations performed on each tree of a storage.
+ * <p>
+ * Only a configurable percentage of the storage transactions is measured. The counters are striped and the latencies
+ * are recorded in histograms with logarithmic buckets, each power of two being split into four sub-buckets, so that
+ * recording an operation never blocks and the reported percentiles are accurate to 25%.
+ */
+final class StorageMetrics
+{
+  /** The kinds of operation performed on a tree. */
+  enum OperationKind
+  {
+    /** Reading the value of a key. */
+    READ("read"),
+    /** Reading the values of several keys at once. */
+    READ_ALL("read-all"),
+    /** Writing the value of a key. */
+    PUT("put"),
+    /** Reading and writing the value of a key. */
+    UPDATE("update"),
+    /** Deleting a key, directly or through a cursor. */
+    DELETE("delete"),
+    /** Positioning a cursor to a key. */
+    CURSOR_POSITION("cursor-position"),
+    /** Moving a cursor to the next key. */
+    CURSOR_NEXT("cursor-next");
+
+    private final String name;
+
+    private OperationKind(String name)
+    {
+      this.name = name;
+    }
+
+    @Override
+    public String toString()
+    {
+      return name;
+    }
+  }
+
+  /** The number of sub-buckets per power of two, as a number of bits. */
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** The greatest recorded latency is around 2^40 ns, that is about 18 minutes. */
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT + 1) * SUB_BUCKET_COUNT;
+  /** The percentiles reported for each tree and kind of operation. */
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+  /** The statistics of the operations of one kind performed on a tree. */
+  static final class OperationStats
+  {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long nanos, int byteCount)
+    {
+      count.increment();
+      if (byteCount > 0)
+      {
+        bytes.add(byteCount);
+      }
+      totalNanos.add(nanos);
+      latencies.incrementAndGet(toBucket(nanos));
+    }
+
+    void addBytes(int byteCount)
+    {
+      bytes.add(byteCount);
+    }
+
+    long getCount()
+    {
+      return count.sum();
+    }
+
+    long getBytes()
+    {
+      return bytes.sum();
+    }
+
+    long getMeanNanos()
+    {
+      final long n = count.sum();
+      return n > 0 ? totalNanos.sum() / n : 0;
+    }
+
+    /**
+     * Returns an upper bound of the latency of the given percentage of the recorded operations.
+     *
+     * @param percentile
+     *          the percentage of the operations, between 0 and 100
+     * @return an upper bound of the latency in nanoseconds, accurate to 25%
+     */
+    long getPercentileNanos(double percentile)
+    {
+      final long[] counts = new long[BUCKET_COUNT];
+      long total = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+        counts[i] = latencies.get(i);
+        total += counts[i];
+      }
+      final long rank = (long) Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+        seen += counts[i];
+        if (seen >= rank && counts[i] > 0)
+        {
+          return toUpperBound(i);
+        }
+      }
+      return 0;
+    }
+  }
+
+  private final ConcurrentMap<TreeName, OperationStats[]> treeStats = new ConcurrentHashMap<>();
+  private volatile int samplePercent;
+
+  /**
+   * Returns the bucket of the histogram holding a latency.
+   *
+   * @param nanos
+   *          the latency in nanoseconds
+   * @return the index of the bucket
+   */
+  static int toBucket(long nanos)
+  {
+    if (nanos < 2 * SUB_BUCKET_COUNT)
+    {
+      return (int) Math.max(nanos, 0);
+    }
+    final int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+    final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Returns the exclusive upper bound of the latencies held by a bucket of the histogram.
+   *
+   * @param bucket
+   *          the index of the bucket
+   * @return the latency in nanoseconds
+   */
+  static long toUpperBound(int bucket)
+  {
+    final int next = bucket + 1;
+    if (next < 2 * SUB_BUCKET_COUNT)
+    {
+      return next;
+    }
+    final int exponent = next / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    final long subBucket = next % SUB_BUCKET_COUNT;
+    return (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * Sets the percentage of the storage transactions whose operations are measured.
+   *
+   * @param samplePercent
+   *          the percentage, between 0 for no measurement and 100 for measuring all the transactions
+   */
+  void setSamplePercent(int samplePercent)
+  {
+    this.samplePercent = samplePercent;
+  }
+
+  /**
+   * Returns the percentage of the storage transactions whose operations are measured.
+   *
+   * @return the percentage of the storage transactions whose operations are measured
+   */
+  int getSamplePercent()
+  {
+    return samplePercent;
+  }
+
+  /**
+   * Indicates whether the operations of a new transaction must be measured.
+   *
+   * @return {@code true} if the operations of a new transaction must be measured
+   */
+  boolean sample()
+  {
+    final int percent = samplePercent;
+    return percent >= 100 || (percent > 0 && ThreadLocalRandom.current().nextInt(100) < percent);
+  }
+
+  /**
+   * Returns the statistics of the operations of one kind performed on a tree.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @param kind
+   *          the kind of operations
+   * @return the statistics of the operations
+   */
+  OperationStats getStats(TreeName treeName, OperationKind kind)
+  {
+    OperationStats[] stats = treeStats.get(treeName);
+    if (stats == null)
+    {
+      final OperationStats[] newStats = new OperationStats[OperationKind.values().length];
+      for (int i = 0; i < newStats.length; i++)
+      {
+        newStats[i] = new OperationStats();
+      }
+      stats = treeStats.putIfAbsent(treeName, newStats);
+      if (stats == null)
+      {
+        stats = newStats;
+      }
+    }
+    return stats[kind.ordinal()];
+  }
+
+  /**
+   * Records an operation performed on a tree.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @param kind
+   *          the kind of operation
+   * @param startNanos
+   *          the value of {@link System#nanoTime()} when the operation started
+   * @param byteCount
+   *          the number of bytes read or written by the operation
+   */
+  void record(TreeName treeName, OperationKind kind, long startNanos, int byteCount)
+  {
+    getStats(treeName, kind).record(System.nanoTime() - startNanos, byteCount);
+  }
+
+  /** Discards the recorded statistics. */
+  void reset()
+  {
+    treeStats.clear();
+  }
+
+  /**
+   * Returns the statistics of each tree and kind of operation, formatted as monitor attribute values.
+   *
+   * @return the statistics of each tree and kind of operation, sorted by tree name
+   */
+  List<String> toMonitorValues()
+  {
+    final Map<String, OperationStats[]> sortedStats = new TreeMap<>();
+    for (Map.Entry<TreeName, OperationStats[]> entry : treeStats.entrySet())
+    {
+      sortedStats.put(entry.getKey().toString(), entry.getValue());
+    }
+
+    final List<String> values = new ArrayList<>();
+    final StringBuilder value = new StringBuilder();
+    for (Map.Entry<String, OperationStats[]> entry : sortedStats.entrySet())
+    {
+      for (OperationKind kind : OperationKind.values())
+      {
+        final OperationStats stats = entry.getValue()[kind.ordinal()];
+        final long count = stats.getCount();
+        if (count == 0)
+        {
+          continue;
+        }
+        value.append(entry.getKey()).append(' ').append(kind);
+        value.append(" count:").append(count);
+        value.append(" bytes:").append(stats.getBytes());
+        value.append(" mean-ns:").append(stats.getMeanNanos());
+        for (double percentile : PERCENTILES)
+        {
+          value.append(" p").append(formatPercentile(percentile)).append("-ns:");
+          value.append(stats.getPercentileNanos(percentile));
+        }
+        values.add(value.toString());
+        value.setLength(0);
+      }
+    }
+    return values;
+  }
+
+  private static String formatPercentile(double percentile)
+  {
+    return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+  }
+}
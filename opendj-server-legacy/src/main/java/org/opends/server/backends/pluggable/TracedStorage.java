@@ -15,6 +15,9 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.opends.server.backends.pluggable.StorageMetrics.OperationKind.*;
+
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -40,7 +43,10 @@ import org.opends.server.types.BackupDirectory;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.RestoreConfig;
 
-/** Decorates a {@link Storage} with additional trace logging. */
+/**
+ * Decorates a {@link Storage} with additional trace logging, and with the measurement of the operations performed on
+ * each tree by a sample of the transactions.
+ */
 final class TracedStorage implements Storage
 {
   private void appendKeyValue(final StringBuilder builder, final Object key, final Object value)
@@ -296,6 +302,15 @@ final class TracedStorage implements Storage
       return value;
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      traceEnter("readAll", "name", name, "keyCount", sortedKeys.size());
+      final List<ByteString> values = txn.readAll(name, sortedKeys);
+      traceLeave("readAll", "name", name, "keyCount", sortedKeys.size());
+      return values;
+    }
+
     private int id()
     {
       return System.identityHashCode(this);
@@ -382,6 +397,15 @@ final class TracedStorage implements Storage
       return value;
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      traceEnter("readAll", "name", name, "keyCount", sortedKeys.size());
+      final List<ByteString> values = txn.readAll(name, sortedKeys);
+      traceLeave("readAll", "name", name, "keyCount", sortedKeys.size());
+      return values;
+    }
+
     @Override
     public boolean update(final TreeName name, final ByteSequence key, final UpdateFunction f)
     {
@@ -405,10 +429,218 @@ final class TracedStorage implements Storage
     }
   }
 
+  /** Decorates {@link Cursor} with the measurement of its operations. */
+  private final class MeasuredCursor implements Cursor<ByteString, ByteString>
+  {
+    private final TreeName name;
+    private final Cursor<ByteString, ByteString> cursor;
+
+    private MeasuredCursor(final TreeName name, final Cursor<ByteString, ByteString> cursor)
+    {
+      this.name = name;
+      this.cursor = cursor;
+    }
+
+    @Override
+    public boolean positionToKey(final ByteSequence key)
+    {
+      final long start = System.nanoTime();
+      final boolean found = cursor.positionToKey(key);
+      metrics.record(name, CURSOR_POSITION, start, key.length());
+      return found;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(final ByteSequence key)
+    {
+      final long start = System.nanoTime();
+      final boolean found = cursor.positionToKeyOrNext(key);
+      metrics.record(name, CURSOR_POSITION, start, key.length());
+      return found;
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      final long start = System.nanoTime();
+      final boolean found = cursor.positionToLastKey();
+      metrics.record(name, CURSOR_POSITION, start, 0);
+      return found;
+    }
+
+    @Override
+    public boolean positionToIndex(final int index)
+    {
+      final long start = System.nanoTime();
+      final boolean found = cursor.positionToIndex(index);
+      metrics.record(name, CURSOR_POSITION, start, 0);
+      return found;
+    }
+
+    @Override
+    public boolean next()
+    {
+      final long start = System.nanoTime();
+      final boolean found = cursor.next();
+      metrics.record(name, CURSOR_NEXT, start, 0);
+      return found;
+    }
+
+    @Override
+    public void delete()
+    {
+      final long start = System.nanoTime();
+      cursor.delete();
+      metrics.record(name, DELETE, start, 0);
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return cursor.isDefined();
+    }
+
+    @Override
+    public ByteString getKey() throws NoSuchElementException
+    {
+      return cursor.getKey();
+    }
+
+    @Override
+    public ByteString getValue() throws NoSuchElementException
+    {
+      final ByteString value = cursor.getValue();
+      // The values are read as the cursor moves
+      metrics.getStats(name, CURSOR_NEXT).addBytes(value.length());
+      return value;
+    }
+
+    @Override
+    public void close()
+    {
+      cursor.close();
+    }
+  }
+
+  /** Decorates an {@link ReadableTransaction} with the measurement of its operations. */
+  private final class MeasuredReadableTransaction implements ReadableTransaction
+  {
+    private final ReadableTransaction txn;
+
+    private MeasuredReadableTransaction(final ReadableTransaction txn)
+    {
+      this.txn = txn;
+    }
+
+    @Override
+    public long getRecordCount(TreeName name)
+    {
+      return txn.getRecordCount(name);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(final TreeName name)
+    {
+      return new MeasuredCursor(name, txn.openCursor(name));
+    }
+
+    @Override
+    public ByteString read(final TreeName name, final ByteSequence key)
+    {
+      final long start = System.nanoTime();
+      final ByteString value = txn.read(name, key);
+      metrics.record(name, READ, start, value != null ? value.length() : 0);
+      return value;
+    }
+
+    @Override
+    public List<ByteString> readAll(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      return measureReadAll(txn, name, sortedKeys);
+    }
+  }
+
+  /** Decorates an {@link WriteableTransaction} with the measurement of its operations. */
+  private final class MeasuredWriteableTransaction implements WriteableTransaction
+  {
+    private final WriteableTransaction txn;
+
+    private MeasuredWriteableTransaction(final WriteableTransaction txn)
+    {
+      this.txn = txn;
+    }
+
+    @Override
+    public void put(final TreeName name, final ByteSequence key, final ByteSequence value)
+    {
+      final long start = System.nanoTime();
+      txn.put(name, key, value);
+      metrics.record(name, PUT, start, key.length() + value.length());
+    }
+
+    @Override
+    public boolean delete(final TreeName name, final ByteSequence key)
+    {
+      final long start = System.nanoTime();
+      final boolean isDeleted = txn.delete(name, key);
+      metrics.record(name, DELETE, start, key.length());
+      return isDeleted;
+    }
+
+    @Override
+    public void deleteTree(final TreeName name)
+    {
+      txn.deleteTree(name);
+    }
+
+    @Override
+    public long getRecordCount(TreeName name)
+    {
+      return txn.getRecordCount(name);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(final TreeName name)
+    {
+      return new MeasuredCursor(name, txn.openCursor(name));
+    }
+
+    @Override
+    public void openTree(final TreeName name, boolean createOnDemand)
+    {
+      txn.openTree(name, createOnDemand);
+    }
+
+    @Override
+    public ByteString read(final TreeName name, final ByteSequence key)
+    {
+      final long start = System.nanoTime();
+      final ByteString value = txn.read(name, key);
+      metrics.record(name, READ, start, value != null ? value.length() : 0);
+      return value;
+    }
+
+    @Override
+    public List<ByteString> readAll(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      return measureReadAll(txn, name, sortedKeys);
+    }
+
+    @Override
+    public boolean update(final TreeName name, final ByteSequence key, final UpdateFunction f)
+    {
+      final long start = System.nanoTime();
+      final boolean isUpdated = txn.update(name, key, f);
+      metrics.record(name, UPDATE, start, key.length());
+      return isUpdated;
+    }
+  }
+
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
   private final String backendId;
   private final Storage storage;
+  private final StorageMetrics metrics = new StorageMetrics();
 
   TracedStorage(final Storage storage, final String backendId)
   {
@@ -416,6 +648,16 @@ final class TracedStorage implements Storage
     this.backendId = backendId;
   }
 
+  /**
+   * Returns the measurements of the operations performed on the trees of the storage.
+   *
+   * @return the measurements of the operations performed on the trees of the storage
+   */
+  StorageMetrics getMetrics()
+  {
+    return metrics;
+  }
+
   private void trace(String type, int id, String method, Object... args)
   {
     StringBuilder builder = new StringBuilder();
@@ -470,6 +712,12 @@ final class TracedStorage implements Storage
     return storage.getStorageStatus();
   }
 
+  @Override
+  public boolean isCacheFull()
+  {
+    return storage.isCacheFull();
+  }
+
   @Override
   public void open(AccessMode accessMode) throws Exception
   {
@@ -482,14 +730,17 @@ final class TracedStorage implements Storage
   public <T> T read(final ReadOperation<T> readOperation) throws Exception
   {
     ReadOperation<T> op = readOperation;
-    if (logger.isTraceEnabled())
+    final boolean isTraced = logger.isTraceEnabled();
+    final boolean isMeasured = metrics.sample();
+    if (isTraced || isMeasured)
     {
       op = new ReadOperation<T>()
       {
         @Override
         public T run(final ReadableTransaction txn) throws Exception
         {
-          return readOperation.run(new TracedReadableTransaction(txn));
+          final ReadableTransaction measuredTxn = isMeasured ? new MeasuredReadableTransaction(txn) : txn;
+          return readOperation.run(isTraced ? new TracedReadableTransaction(measuredTxn) : measuredTxn);
         }
       };
     }
@@ -522,19 +773,40 @@ final class TracedStorage implements Storage
   @Override
   public void write(final WriteOperation writeOperation) throws Exception
   {
-    WriteOperation op = writeOperation;
-    if (logger.isTraceEnabled())
+    storage.write(traced(writeOperation));
+  }
+
+  @Override
+  public void writeNoSync(final WriteOperation writeOperation) throws Exception
+  {
+    storage.writeNoSync(traced(writeOperation));
+  }
+
+  private WriteOperation traced(final WriteOperation writeOperation)
+  {
+    final boolean isTraced = logger.isTraceEnabled();
+    final boolean isMeasured = metrics.sample();
+    if (!isTraced && !isMeasured)
     {
-      op = new WriteOperation()
-      {
-        @Override
-        public void run(final WriteableTransaction txn) throws Exception
-        {
-          writeOperation.run(new TracedWriteableTransaction(txn));
-        }
-      };
+      return writeOperation;
     }
-    storage.write(op);
+    return new WriteOperation()
+    {
+      @Override
+      public void run(final WriteableTransaction txn) throws Exception
+      {
+        final WriteableTransaction measuredTxn = isMeasured ? new MeasuredWriteableTransaction(txn) : txn;
+        writeOperation.run(isTraced ? new TracedWriteableTransaction(measuredTxn) : measuredTxn);
+      }
+    };
+  }
+
+  @Override
+  public void sync() throws StorageRuntimeException
+  {
+    traceEnter("sync");
+    storage.sync();
+    traceLeave("sync");
   }
 
   @Override
@@ -570,6 +842,20 @@ final class TracedStorage implements Storage
     return results;
   }
 
+  private List<ByteString> measureReadAll(ReadableTransaction txn, TreeName name,
+      List<? extends ByteSequence> sortedKeys)
+  {
+    final long start = System.nanoTime();
+    final List<ByteString> values = txn.readAll(name, sortedKeys);
+    int size = 0;
+    for (ByteString value : values)
+    {
+      size += value != null ? value.length() : 0;
+    }
+    metrics.record(name, READ_ALL, start, size);
+    return values;
+  }
+
   private static String hex(final ByteSequence bytes)
   {
     return bytes != null ? bytes.toByteString().toASCIIString() : null;
@@ -68,6 +68,14 @@ interface Tree extends Comparable<Tree>
    */
   TreeName getName();
 
+  /**
+   * Get the name of the tree of the storage holding the records of this tree. It only differs from the name of this
+   * tree once an online rebuild has switched an index to the tree it was rebuilt into.
+   *
+   * @return name of the tree of the storage holding the records of this tree.
+   */
+  TreeName getPhysicalName();
+
   /**
    * Returns a printable, semantically meaningful if possible, representation of a Tree key.
    *
@@ -25,22 +25,22 @@ class TreePreloadComparator implements Comparator<Tree>
    * Calculate the relative priority of a tree for preloading.
    *
    * @param tree A handle to the tree.
-   * @return 1 for id2entry tree, 2 for dn2id tree, 3 for all others.
+   * @return 1 for dn2id tree, 3 for id2entry tree, 2 for all others.
    */
   private static int priority(Tree tree)
   {
     String indexName = tree.getName().getIndexId();
-    if (indexName.endsWith(SuffixContainer.ID2ENTRY_INDEX_NAME))
+    if (indexName.endsWith(SuffixContainer.DN2ID_INDEX_NAME))
     {
       return 1;
     }
-    else if (indexName.endsWith(SuffixContainer.DN2ID_INDEX_NAME))
+    else if (indexName.endsWith(SuffixContainer.ID2ENTRY_INDEX_NAME))
     {
-      return 2;
+      return 3;
     }
     else
     {
-      return 3;
+      return 2;
     }
   }
 
@@ -0,0 +1,369 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * Preloads the trees of a backend in the cache of its storage, in order to avoid serving the first requests following
+ * a restart from a cold cache.
+ * <p>
+ * The trees are read in the order of the {@link TreePreloadComparator}: the tasks reading them are submitted in this
+ * order to a pool of threads, so that several trees are read concurrently. The id2entry trees are split into ranges of
+ * entry IDs read concurrently. Reading stops once all the trees have been read, when the time limit is reached or when
+ * the storage reports that its cache is full.
+ * <p>
+ * This class is thread safe.
+ */
+final class TreePreloader
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The number of records read between two checks of the time limit and of the storage cache. */
+  private static final int CHECK_INTERVAL = 1024;
+  /** The number of entry ID ranges read by each thread for an id2entry tree. */
+  private static final int RANGES_PER_THREAD = 4;
+
+  /** The state of a preload. */
+  enum Status
+  {
+    /** The trees are being read. */
+    IN_PROGRESS,
+    /** All the trees have been read. */
+    COMPLETED,
+    /** The time limit was reached before all the trees could be read. */
+    TIME_LIMIT_REACHED,
+    /** The cache of the storage got full before all the trees could be read. */
+    CACHE_FULL,
+    /** An error occurred while reading the trees. */
+    FAILED
+  }
+
+  private final String backendId;
+  private final Storage storage;
+  private final int threadCount;
+  private final AtomicLong loadedRecords = new AtomicLong();
+  private final AtomicLong loadedBytes = new AtomicLong();
+  private final AtomicInteger loadedTrees = new AtomicInteger();
+  private volatile int treeCount;
+  private volatile Status status = Status.IN_PROGRESS;
+  private volatile long deadline;
+
+  /**
+   * Creates a new tree preloader.
+   *
+   * @param backendId
+   *          the identifier of the backend whose trees are preloaded
+   * @param storage
+   *          the storage of the backend
+   * @param threadCount
+   *          the number of threads reading the trees
+   */
+  TreePreloader(String backendId, Storage storage, int threadCount)
+  {
+    this.backendId = backendId;
+    this.storage = storage;
+    this.threadCount = Math.max(threadCount, 1);
+  }
+
+  /**
+   * Reads the provided trees until all of them have been read, the time limit is reached or the cache of the storage
+   * is full.
+   *
+   * @param trees
+   *          the trees to read, sorted by decreasing priority
+   * @param timeLimit
+   *          the maximum number of milliseconds spent reading the trees
+   */
+  void preload(List<Tree> trees, long timeLimit)
+  {
+    final long startTime = System.currentTimeMillis();
+    deadline = startTime + timeLimit;
+    treeCount = trees.size();
+    logger.info(NOTE_CACHE_PRELOAD_STARTED, backendId, threadCount);
+
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(threadCount, newThreadFactory(null, backendId + " preload %d", true));
+    final List<Future<Void>> futures = new ArrayList<>();
+    try
+    {
+      for (Tree tree : trees)
+      {
+        final List<PreloadTask> tasks = newPreloadTasks(tree);
+        final AtomicInteger remainingTasks = new AtomicInteger(tasks.size());
+        for (PreloadTask task : tasks)
+        {
+          task.remainingTreeTasks = remainingTasks;
+          futures.add(executor.submit(task));
+        }
+      }
+      executor.shutdown();
+      if (!executor.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS))
+      {
+        stop(Status.TIME_LIMIT_REACHED);
+        executor.awaitTermination(timeLimit, TimeUnit.MILLISECONDS);
+      }
+      checkErrors(futures);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      stop(Status.FAILED);
+    }
+    catch (Exception e)
+    {
+      logger.error(ERR_CACHE_PRELOAD, backendId, stackTraceToSingleLineString(e.getCause() != null ? e.getCause() : e));
+      stop(Status.FAILED);
+    }
+    finally
+    {
+      executor.shutdownNow();
+      stop(Status.COMPLETED);
+    }
+
+    final long duration = System.currentTimeMillis() - startTime;
+    switch (status)
+    {
+    case TIME_LIMIT_REACHED:
+      logger.info(NOTE_CACHE_PRELOAD_INTERRUPTED_BY_TIME, backendId, getLoadedRecords(), getLoadedBytes(), duration);
+      break;
+    case CACHE_FULL:
+      logger.info(NOTE_CACHE_PRELOAD_INTERRUPTED_BY_SIZE, backendId, getLoadedRecords(), getLoadedBytes(), duration);
+      break;
+    case COMPLETED:
+      logger.info(NOTE_CACHE_PRELOAD_DONE, backendId, getLoadedRecords(), getLoadedBytes(), duration);
+      break;
+    default:
+      break;
+    }
+  }
+
+  private void checkErrors(List<Future<Void>> futures) throws Exception
+  {
+    for (Future<Void> future : futures)
+    {
+      if (future.isDone() && !future.isCancelled())
+      {
+        try
+        {
+          future.get();
+        }
+        catch (ExecutionException e)
+        {
+          throw (Exception) (e.getCause() instanceof Exception ? e.getCause() : e);
+        }
+      }
+    }
+  }
+
+  private synchronized void stop(Status reason)
+  {
+    if (status == Status.IN_PROGRESS)
+    {
+      status = reason;
+    }
+  }
+
+  private boolean mustStop()
+  {
+    if (status != Status.IN_PROGRESS)
+    {
+      return true;
+    }
+    if (System.currentTimeMillis() >= deadline)
+    {
+      stop(Status.TIME_LIMIT_REACHED);
+      return true;
+    }
+    if (storage.isCacheFull())
+    {
+      stop(Status.CACHE_FULL);
+      return true;
+    }
+    return false;
+  }
+
+  /** Splits the id2entry trees into ranges of entry IDs, other trees are read by a single task. */
+  private List<PreloadTask> newPreloadTasks(final Tree tree) throws Exception
+  {
+    final List<PreloadTask> tasks = new ArrayList<>();
+    if (!tree.getName().getIndexId().endsWith(SuffixContainer.ID2ENTRY_INDEX_NAME) || threadCount == 1)
+    {
+      tasks.add(new PreloadTask(tree.getPhysicalName(), null, null));
+      return tasks;
+    }
+
+    final long highestID = storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(tree.getPhysicalName()))
+        {
+          return cursor.positionToLastKey() ? new EntryID(cursor.getKey()).longValue() : 0;
+        }
+      }
+    });
+    final int nbRanges = threadCount * RANGES_PER_THREAD;
+    final long rangeSize = Math.max(highestID / nbRanges, 1) + 1;
+    ByteString lowerBound = null;
+    for (long id = rangeSize; id <= highestID; id += rangeSize)
+    {
+      final ByteString upperBound = new EntryID(id).toByteString();
+      tasks.add(new PreloadTask(tree.getPhysicalName(), lowerBound, upperBound));
+      lowerBound = upperBound;
+    }
+    tasks.add(new PreloadTask(tree.getPhysicalName(), lowerBound, null));
+    return tasks;
+  }
+
+  /** Reads the records of a tree whose keys are within a range. */
+  private final class PreloadTask implements Callable<Void>
+  {
+    private final TreeName treeName;
+    /** The first key to read, {@code null} for starting at the first key of the tree. */
+    private final ByteString lowerBound;
+    /** The first key not to read, {@code null} for reading until the last key of the tree. */
+    private final ByteString upperBound;
+    /** The number of tasks reading the tree which have not yet completed. */
+    private AtomicInteger remainingTreeTasks;
+
+    private PreloadTask(TreeName treeName, ByteString lowerBound, ByteString upperBound)
+    {
+      this.treeName = treeName;
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+    }
+
+    @Override
+    public Void call() throws Exception
+    {
+      if (mustStop())
+      {
+        return null;
+      }
+      final boolean completed = storage.read(new ReadOperation<Boolean>()
+      {
+        @Override
+        public Boolean run(ReadableTransaction txn) throws Exception
+        {
+          return readRange(txn);
+        }
+      });
+      if (completed && remainingTreeTasks.decrementAndGet() == 0)
+      {
+        loadedTrees.incrementAndGet();
+      }
+      return null;
+    }
+
+    private boolean readRange(ReadableTransaction txn)
+    {
+      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+      {
+        boolean found = lowerBound != null ? cursor.positionToKeyOrNext(lowerBound) : cursor.next();
+        long nbRecords = 0;
+        while (found)
+        {
+          final ByteString key = cursor.getKey();
+          if (upperBound != null && key.compareTo(upperBound) >= 0)
+          {
+            break;
+          }
+          loadedBytes.addAndGet(key.length() + cursor.getValue().length());
+          loadedRecords.incrementAndGet();
+          if (++nbRecords % CHECK_INTERVAL == 0 && mustStop())
+          {
+            return false;
+          }
+          found = cursor.next();
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns the state of the preload.
+   *
+   * @return the state of the preload
+   */
+  Status getStatus()
+  {
+    return status;
+  }
+
+  /**
+   * Returns the number of records read so far.
+   *
+   * @return the number of records read so far
+   */
+  long getLoadedRecords()
+  {
+    return loadedRecords.get();
+  }
+
+  /**
+   * Returns the number of key and value bytes read so far.
+   *
+   * @return the number of key and value bytes read so far
+   */
+  long getLoadedBytes()
+  {
+    return loadedBytes.get();
+  }
+
+  /**
+   * Returns the number of trees which have been completely read so far.
+   *
+   * @return the number of trees which have been completely read so far
+   */
+  int getLoadedTrees()
+  {
+    return loadedTrees.get();
+  }
+
+  /**
+   * Returns the number of trees to read.
+   *
+   * @return the number of trees to read
+   */
+  int getTreeCount()
+  {
+    return treeCount;
+  }
+}
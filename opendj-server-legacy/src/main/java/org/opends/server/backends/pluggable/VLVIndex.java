@@ -158,6 +158,12 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     }
   }
 
+  @Override
+  TreeName readPhysicalName(ReadableTransaction txn) throws StorageRuntimeException
+  {
+    return state.getPhysicalTreeName(txn, getName());
+  }
+
   @Override
   void afterOpen(final WriteableTransaction txn, boolean createOnDemand) throws StorageRuntimeException
   {
@@ -175,6 +181,38 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     counter.importPut(importer, COUNT_KEY, count);
   }
 
+  /**
+   * Switches this index to the tree an online rebuild has rebuilt it into, and trusts it. The count of entries in the
+   * index is replaced by the number of keys of the rebuilt tree. The updates of the index must be locked out until the
+   * transaction commits: the previous tree of the index is then no longer used, and can be deleted.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param rebuiltTreeName
+   *          the name of the tree the index has been rebuilt into
+   * @param count
+   *          the number of keys of the rebuilt tree
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  void switchPhysicalTree(WriteableTransaction txn, final TreeName rebuiltTreeName, long count)
+      throws StorageRuntimeException
+  {
+    state.putPhysicalTreeName(txn, getName(), rebuiltTreeName);
+    state.addFlagsToIndex(txn, getName(), IndexFlag.TRUSTED);
+    counter.removeCount(txn, COUNT_KEY);
+    counter.addCount(txn, COUNT_KEY, count);
+    PostCommitActions.runAfterCommit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        setPhysicalName(rebuiltTreeName);
+        trusted = true;
+      }
+    });
+  }
+
   @Override
   public synchronized boolean isConfigurationChangeAcceptable(final BackendVLVIndexCfg cfg,
       final List<LocalizableMessage> unacceptableReasons)
@@ -452,13 +490,13 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     {
       if (nextDeletedKey == null || (nextAddedKey != null && nextAddedKey.compareTo(nextDeletedKey) < 0))
       {
-        txn.put(getName(), nextAddedKey, toValue());
+        txn.put(getPhysicalName(), nextAddedKey, toValue());
         nextAddedKey = nextOrNull(ai);
         counter.addCount(txn, COUNT_KEY, 1);
       }
       else
       {
-        txn.delete(getName(), nextDeletedKey);
+        txn.delete(getPhysicalName(), nextDeletedKey);
         nextDeletedKey = nextOrNull(di);
         counter.addCount(txn, COUNT_KEY, -1);
       }
@@ -512,7 +550,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     final int entryCount = getEntryCount(txn);
     if (entryCount <= CURSOR_ENTRY_LIMIT)
     {
-      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getPhysicalName()))
       {
         if (cursor.next())
         {
@@ -545,7 +583,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     final ByteString assertion = vlvRequest.getGreaterThanOrEqualAssertion();
     final ByteSequence encodedTargetAssertion =
         encodeTargetAssertion(sortKeys, assertion, searchOperation, currentCount);
-    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getPhysicalName()))
     {
       final LinkedList<Long> selectedIDs = new LinkedList<>();
       int targetPosition = 0;
@@ -690,7 +728,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
 
     final long[] selectedIDs;
     final int count = 1 + beforeCount + afterCount;
-    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getPhysicalName()))
     {
       if (cursor.positionToIndex(startPos))
       {
@@ -769,7 +807,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     if (shouldInclude(entry))
     {
       final ByteString key = toKey(entry, entryID);
-      return txn.read(getName(), key) != null;
+      return txn.read(getPhysicalName(), key) != null;
     }
     return false;
   }
@@ -830,7 +868,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     return sortValue;
   }
 
-  private static MatchingRule getEffectiveOrderingRule(SortKey sortKey)
+  static MatchingRule getEffectiveOrderingRule(SortKey sortKey)
   {
     String mrOid = sortKey.getOrderingMatchingRule();
     if (mrOid != null)
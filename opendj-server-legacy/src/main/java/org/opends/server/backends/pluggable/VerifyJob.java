@@ -16,6 +16,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.DnKeyFormat.*;
 import static org.opends.server.backends.pluggable.SuffixContainer.*;
@@ -36,7 +37,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteSequence;
@@ -68,12 +75,19 @@ class VerifyJob
   /** The root container used for the verify job. */
   private final RootContainer rootContainer;
 
+  /** The number of key ranges verified by each thread of a multi-threaded verification. */
+  private static final int RANGES_PER_THREAD = 4;
+  /** The number of entries read per key range for splitting the keys of an index into ranges. */
+  private static final int SAMPLES_PER_RANGE = 16;
+  /** The name of the threads of a multi-threaded verification. */
+  private static final String VERIFY_THREAD_NAME = "VERIFY-%d";
+
   /** The number of milliseconds between job progress reports. */
   private final long progressInterval = 10000;
   /** The number of index keys processed. */
-  private long keyCount;
+  private final AtomicLong keyCount = new AtomicLong();
   /** The number of errors found. */
-  private long errorCount;
+  private final AtomicLong errorCount = new AtomicLong();
   /** The number of records that have exceeded the entry limit. */
   private long entryLimitExceededCount;
   /** The number of records that reference more than one entry. */
@@ -102,6 +116,8 @@ class VerifyJob
   private final ArrayList<AttributeIndex> attrIndexList = new ArrayList<>();
   /** A list of the VLV indexes to be verified. */
   private final ArrayList<VLVIndex> vlvIndexList = new ArrayList<>();
+  /** Verifies the key ranges concurrently, null if the verification is single-threaded. */
+  private ExecutorService executor;
 
   /**
    * Construct a VerifyJob.
@@ -244,6 +260,13 @@ class VerifyJob
       TimerTask progressTask = new ProgressTask(cleanMode, txn);
       timer.scheduleAtFixedRate(progressTask, progressInterval, progressInterval);
 
+      final int threadCount = verifyConfig.getThreadCount();
+      if (threadCount > 1)
+      {
+        logger.info(NOTE_VERIFY_PARALLEL, threadCount, threadCount * RANGES_PER_THREAD);
+        executor = Executors.newFixedThreadPool(threadCount, newThreadFactory(null, VERIFY_THREAD_NAME, true));
+      }
+
       // Iterate through the index keys.
       try
       {
@@ -265,6 +288,10 @@ class VerifyJob
       finally
       {
         timer.cancel();
+        if (executor != null)
+        {
+          executor.shutdownNow();
+        }
       }
 
       long finishTime = System.currentTimeMillis();
@@ -273,19 +300,19 @@ class VerifyJob
       float rate = 0;
       if (totalTime > 0)
       {
-        rate = 1000f*keyCount / totalTime;
+        rate = 1000f*keyCount.get() / totalTime;
       }
 
       if (cleanMode)
       {
-        logger.info(NOTE_VERIFY_CLEAN_FINAL_STATUS, keyCount, errorCount, totalTime/1000, rate);
+        logger.info(NOTE_VERIFY_CLEAN_FINAL_STATUS, keyCount.get(), errorCount.get(), totalTime/1000, rate);
 
         if (multiReferenceCount > 0)
         {
           float averageEntryReferences = 0;
-          if (keyCount > 0)
+          if (keyCount.get() > 0)
           {
-            averageEntryReferences = entryReferencesCount/keyCount;
+            averageEntryReferences = entryReferencesCount/keyCount.get();
           }
 
           if (logger.isDebugEnabled())
@@ -299,7 +326,7 @@ class VerifyJob
       }
       else
       {
-        logger.info(NOTE_VERIFY_FINAL_STATUS, keyCount, errorCount, totalTime/1000, rate);
+        logger.info(NOTE_VERIFY_FINAL_STATUS, keyCount.get(), errorCount.get(), totalTime/1000, rate);
         if (!entryLimitMap.isEmpty())
         {
           logger.debug(INFO_VERIFY_ENTRY_LIMIT_STATS_HEADER);
@@ -333,7 +360,7 @@ class VerifyJob
     {
       entryContainer.sharedLock.unlock();
     }
-    return errorCount;
+    return errorCount.get();
   }
 
   /**
@@ -343,12 +370,33 @@ class VerifyJob
    *
    * @throws StorageRuntimeException If an error occurs in the storage.
    */
-  private void iterateID2Entry(ReadableTransaction txn) throws StorageRuntimeException
+  private void iterateID2Entry(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException
+  {
+    long storedEntryCount = id2entry.getRecordCount(txn);
+    verifyRanges(txn, splitEntryIDs(txn), new RangeVerifier<Void>()
+    {
+      @Override
+      public Void verify(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+      {
+        iterateID2Entry(txn, lowerBound, upperBound);
+        return null;
+      }
+    });
+    if (keyCount.get() != storedEntryCount)
+    {
+      errorCount.incrementAndGet();
+      logger.error(ERR_VERIFY_WRONG_ENTRY_COUNT, storedEntryCount, keyCount.get());
+    }
+  }
+
+  private void iterateID2Entry(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+      throws StorageRuntimeException
   {
     try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
     {
-      long storedEntryCount = id2entry.getRecordCount(txn);
-      while (cursor.next())
+      for (boolean found = positionToFirstKey(cursor, lowerBound);
+           found && isBefore(cursor.getKey(), upperBound);
+           found = cursor.next())
       {
         ByteString key = cursor.getKey();
         ByteString value = cursor.getValue();
@@ -360,7 +408,7 @@ class VerifyJob
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           if (logger.isTraceEnabled())
           {
             logger.traceException(e);
@@ -370,7 +418,7 @@ class VerifyJob
           continue;
         }
 
-        keyCount++;
+        keyCount.incrementAndGet();
 
         Entry entry;
         try
@@ -379,7 +427,7 @@ class VerifyJob
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           if (logger.isTraceEnabled())
           {
             logger.traceException(e);
@@ -391,11 +439,6 @@ class VerifyJob
 
         verifyEntry(txn, entryID, entry);
       }
-      if (keyCount != storedEntryCount)
-      {
-        errorCount++;
-        logger.error(ERR_VERIFY_WRONG_ENTRY_COUNT, storedEntryCount, keyCount);
-      }
     }
   }
 
@@ -411,7 +454,22 @@ class VerifyJob
   {
     if (verifyDN2ID)
     {
-      iterateDN2ID(txn);
+      final List<DN2IDRange> ranges = verifyRanges(txn, splitKeys(txn, new KeySampler()
+      {
+        @Override
+        public void addKeys(EntryID entryID, Entry entry, List<ByteString> keys)
+        {
+          keys.add(dnToDNKey(entry.getName(), verifyConfig.getBaseDN().size()));
+        }
+      }), new RangeVerifier<DN2IDRange>()
+      {
+        @Override
+        public DN2IDRange verify(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+        {
+          return iterateDN2ID(txn, lowerBound, upperBound);
+        }
+      });
+      verifyID2ChildrenCount(txn, ranges);
     }
     else if (verifyID2ChildrenCount)
     {
@@ -420,14 +478,46 @@ class VerifyJob
     else if (!attrIndexList.isEmpty())
     {
       AttributeIndex attrIndex = attrIndexList.get(0);
-      for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
+      for (final MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
       {
-        iterateAttrIndex(txn, index);
+        verifyRanges(txn, splitKeys(txn, new KeySampler()
+        {
+          @Override
+          public void addKeys(EntryID entryID, Entry entry, List<ByteString> keys)
+          {
+            keys.addAll(index.indexEntry(entry));
+          }
+        }), new RangeVerifier<Void>()
+        {
+          @Override
+          public Void verify(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+          {
+            iterateAttrIndex(txn, index, lowerBound, upperBound);
+            return null;
+          }
+        });
       }
     }
     else if (!vlvIndexList.isEmpty())
     {
-      iterateVLVIndex(txn, vlvIndexList.get(0), true);
+      final VLVIndex vlvIndex = vlvIndexList.get(0);
+      verifyRanges(txn, splitKeys(txn, new KeySampler()
+      {
+        @Override
+        public void addKeys(EntryID entryID, Entry entry, List<ByteString> keys)
+        {
+          keys.add(vlvIndex.toKey(entry, entryID));
+        }
+      }), new RangeVerifier<Void>()
+      {
+        @Override
+        public Void verify(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+            throws DirectoryException
+        {
+          iterateVLVIndex(txn, vlvIndex, true, lowerBound, upperBound);
+          return null;
+        }
+      });
     }
   }
 
@@ -435,18 +525,23 @@ class VerifyJob
    * Iterate through the entries in DN2ID to perform a check for
    * index cleanliness.
    *
+   * @return The children counts which could not be verified within the range of keys.
    * @throws StorageRuntimeException If an error occurs in the storage.
    */
-  private void iterateDN2ID(ReadableTransaction txn) throws StorageRuntimeException
+  private DN2IDRange iterateDN2ID(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+      throws StorageRuntimeException
   {
-    final Deque<ChildrenCount> childrenCounters = new LinkedList<>();
+    final DN2IDRange range = new DN2IDRange();
+    final Deque<ChildrenCount> childrenCounters = range.openNodes;
     ChildrenCount currentNode = null;
 
     try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(dn2id.getName()))
     {
-      while (cursor.next())
+      for (boolean found = positionToFirstKey(cursor, lowerBound);
+           found && isBefore(cursor.getKey(), upperBound);
+           found = cursor.next())
       {
-        keyCount++;
+        keyCount.incrementAndGet();
 
         final ByteString key = cursor.getKey();
         final EntryID entryID;
@@ -456,12 +551,12 @@ class VerifyJob
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.trace("File dn2id has malformed ID for DN <%s>", key, e);
           continue;
         }
 
-        currentNode = verifyID2ChildrenCount(txn, childrenCounters, key, entryID);
+        currentNode = verifyID2ChildrenCount(txn, range, key, entryID);
 
         final Entry entry;
         try
@@ -470,55 +565,103 @@ class VerifyJob
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.traceException(e);
           continue;
         }
 
         if (entry == null)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_DN2ID_UNKNOWN_ID, key, entryID.longValue());
         }
         else if (!key.equals(dnToDNKey(entry.getName(), verifyConfig.getBaseDN().size())))
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_DN2ID_WRONG_ENTRY, key, entry.getName());
         }
       }
 
-      while ((currentNode = childrenCounters.pollLast()) != null)
+      if (upperBound == null)
       {
-        verifyID2ChildrenCount(txn, currentNode);
+        // No more children to come
+        while ((currentNode = childrenCounters.pollLast()) != null)
+        {
+          verifyID2ChildrenCount(txn, currentNode);
+        }
       }
     }
+    return range;
   }
 
-  private ChildrenCount verifyID2ChildrenCount(ReadableTransaction txn, final Deque<ChildrenCount> childrenCounters,
+  private ChildrenCount verifyID2ChildrenCount(ReadableTransaction txn, final DN2IDRange range,
       final ByteString key, final EntryID entryID)
   {
+    final Deque<ChildrenCount> childrenCounters = range.openNodes;
     ChildrenCount currentParent = childrenCounters.peekLast();
     while (currentParent != null && !DnKeyFormat.isChild(currentParent.baseDN, key))
     {
       // This subtree is fully processed, pop the counter of the parent DN from the stack and verify it's value
       verifyID2ChildrenCount(txn, childrenCounters.removeLast());
-      currentParent = childrenCounters.getLast();
+      currentParent = childrenCounters.peekLast();
     }
     if (currentParent != null)
     {
       currentParent.numberOfChildren++;
     }
+    else
+    {
+      // The parent DN is located before the range of keys
+      final int parentLength = findDNKeyParent(key);
+      if (parentLength >= 0)
+      {
+        final ByteString parentKey = key.subSequence(0, parentLength).toByteString();
+        final Long count = range.outerNodesChildren.get(parentKey);
+        range.outerNodesChildren.put(parentKey, count != null ? count + 1 : 1L);
+      }
+    }
     final ChildrenCount node = new ChildrenCount(key, entryID);
     childrenCounters.addLast(node);
     return node;
   }
 
+  /**
+   * Verifies the children counts of the DNs whose subtree spans several ranges of keys, once all the ranges have been
+   * verified.
+   */
+  private void verifyID2ChildrenCount(ReadableTransaction txn, List<DN2IDRange> ranges)
+  {
+    final Map<ByteString, ChildrenCount> openNodes = new HashMap<>();
+    for (DN2IDRange range : ranges)
+    {
+      for (ChildrenCount node : range.openNodes)
+      {
+        openNodes.put(node.baseDN, node);
+      }
+    }
+    for (DN2IDRange range : ranges)
+    {
+      for (Map.Entry<ByteString, Long> outerNodeChildren : range.outerNodesChildren.entrySet())
+      {
+        final ChildrenCount node = openNodes.get(outerNodeChildren.getKey());
+        if (node != null)
+        {
+          node.numberOfChildren += outerNodeChildren.getValue();
+        }
+      }
+    }
+    for (ChildrenCount node : openNodes.values())
+    {
+      verifyID2ChildrenCount(txn, node);
+    }
+  }
+
   private void verifyID2ChildrenCount(ReadableTransaction txn, ChildrenCount parent) {
     final long expected = parent.numberOfChildren;
     final long currentValue = id2childrenCount.getCount(txn, parent.entryID);
     if (expected != currentValue)
     {
-      errorCount++;
+      errorCount.incrementAndGet();
       logger.error(ERR_VERIFY_ID2COUNT_WRONG_COUNT, parent.baseDN, currentValue, expected);
     }
   }
@@ -533,7 +676,7 @@ class VerifyJob
         if (!id2entry.containsEntryID(txn, entryID))
         {
           logger.error(ERR_VERIFY_ID2COUNT_WRONG_ID, entryID.longValue());
-          errorCount++;
+          errorCount.incrementAndGet();
         }
       }
     }
@@ -547,7 +690,7 @@ class VerifyJob
    * @param index The index containing the key.
    * @param key A key that has exceeded the entry limit.
    */
-  private void incrEntryLimitStats(Index index, ByteString key)
+  private synchronized void incrEntryLimitStats(Index index, ByteString key)
   {
     HashMap<ByteString,Long> hashMap = entryLimitMap.get(index);
     if (hashMap == null)
@@ -572,7 +715,7 @@ class VerifyJob
    *
    * @param entryIDSet The set of entry IDs for the index record.
    */
-  private void updateIndexStats(EntryIDSet entryIDSet)
+  private synchronized void updateIndexStats(EntryIDSet entryIDSet)
   {
     if (!entryIDSet.isDefined())
     {
@@ -601,15 +744,23 @@ class VerifyJob
    */
   private void iterateVLVIndex(ReadableTransaction txn, VLVIndex vlvIndex, boolean verifyID)
       throws StorageRuntimeException, DirectoryException
+  {
+    iterateVLVIndex(txn, vlvIndex, verifyID, null, null);
+  }
+
+  private void iterateVLVIndex(ReadableTransaction txn, VLVIndex vlvIndex, boolean verifyID,
+      ByteString lowerBound, ByteString upperBound) throws StorageRuntimeException, DirectoryException
   {
     if(vlvIndex == null || !verifyID)
     {
       return;
     }
 
-    try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(vlvIndex.getName()))
+    try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(vlvIndex.getPhysicalName()))
     {
-      while (cursor.next())
+      for (boolean found = positionToFirstKey(cursor, lowerBound);
+           found && isBefore(cursor.getKey(), upperBound);
+           found = cursor.next())
       {
         ByteString key = cursor.getKey();
         EntryID id = new EntryID(decodeEntryIDFromVLVKey(key));
@@ -621,13 +772,13 @@ class VerifyJob
         catch (Exception e)
         {
           logger.traceException(e);
-          errorCount++;
+          errorCount.incrementAndGet();
           continue;
         }
 
         if (entry == null)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_UNKNOWN_ID, id, keyDump(vlvIndex, key));
           continue;
         }
@@ -635,7 +786,7 @@ class VerifyJob
         ByteString expectedKey = vlvIndex.toKey(entry, id);
         if (expectedKey.compareTo(key) != 0)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_ENTRY_NON_MATCHING_KEY, id, keyDump(vlvIndex, expectedKey));
         }
       }
@@ -648,7 +799,8 @@ class VerifyJob
    * @param index The index tree to be checked.
    * @throws StorageRuntimeException If an error occurs in the storage.
    */
-  private void iterateAttrIndex(ReadableTransaction txn, MatchingRuleIndex index) throws StorageRuntimeException
+  private void iterateAttrIndex(ReadableTransaction txn, MatchingRuleIndex index, ByteString lowerBound,
+      ByteString upperBound) throws StorageRuntimeException
   {
     if (index == null)
     {
@@ -657,9 +809,11 @@ class VerifyJob
 
     try(final Cursor<ByteString,EntryIDSet> cursor = index.openCursor(txn))
     {
-      while (cursor.next())
+      for (boolean found = positionToFirstKey(cursor, lowerBound);
+           found && isBefore(cursor.getKey(), upperBound);
+           found = cursor.next())
       {
-        keyCount++;
+        keyCount.incrementAndGet();
 
         final ByteString key = cursor.getKey();
 
@@ -669,13 +823,13 @@ class VerifyJob
           entryIDSet = cursor.getValue();
           if (entryIDSet.size() == 0)
           {
-            errorCount++;
+            errorCount.incrementAndGet();
             logger.error(ERR_VERIFY_EMPTY_IDSET, keyDump(index, key));
           }
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.traceException(e);
           logger.trace("Malformed ID list: %n%s", keyDump(index, key));
           continue;
@@ -703,13 +857,13 @@ class VerifyJob
             catch (Exception e)
             {
               logger.traceException(e);
-              errorCount++;
+              errorCount.incrementAndGet();
               continue;
             }
 
             if (entry == null)
             {
-              errorCount++;
+              errorCount.incrementAndGet();
               logger.error(ERR_VERIFY_UNKNOWN_REFERENCE, id.longValue(), keyDump(index, key));
               continue;
             }
@@ -758,7 +912,7 @@ class VerifyJob
 
             if (!foundMatchingKey.get())
             {
-              errorCount++;
+              errorCount.incrementAndGet();
               logger.error(ERR_VERIFY_UNEXPECTED_REFERENCE, entry.getName(), keyDump(index, key));
             }
           }
@@ -799,12 +953,12 @@ class VerifyJob
       if (id == null)
       {
         logger.error(ERR_VERIFY_DN2ID_MISSING_KEY, dn);
-        errorCount++;
+        errorCount.incrementAndGet();
       }
       else if (!id.equals(entryID))
       {
         logger.error(ERR_VERIFY_DN2ID_WRONG_ID, id.longValue(), entryID.longValue(), dn);
-        errorCount++;
+        errorCount.incrementAndGet();
       }
     }
     catch (Exception e)
@@ -814,7 +968,7 @@ class VerifyJob
         logger.traceException(e);
         logger.trace("File dn2id has error reading key %s: %s.%n", dn, e.getMessage());
       }
-      errorCount++;
+      errorCount.incrementAndGet();
     }
 
     // Check the parent DN is in dn2id.
@@ -827,7 +981,7 @@ class VerifyJob
         if (id == null)
         {
           logger.error(ERR_VERIFY_DN2ID_MISSING_KEY, parentDN);
-          errorCount++;
+          errorCount.incrementAndGet();
         }
       }
       catch (Exception e)
@@ -837,7 +991,7 @@ class VerifyJob
           logger.traceException(e);
           logger.trace("File dn2id has error reading key %s: %s.%n", parentDN, e.getMessage());
         }
-        errorCount++;
+        errorCount.incrementAndGet();
       }
     }
   }
@@ -882,7 +1036,7 @@ class VerifyJob
         if (vlvIndex.verifyEntry(txn, entryID, entry))
         {
           logger.error(ERR_VERIFY_MISSING_ENTRY_VLV, entry.getName(), vlvIndex.getName());
-          errorCount++;
+          errorCount.incrementAndGet();
         }
       }
       catch (DirectoryException e)
@@ -893,7 +1047,7 @@ class VerifyJob
           logger.trace("Error checking entry %s against filter or base DN for VLV index %s: %s",
                      entry.getName(), vlvIndex.getName(), e.getMessageObject());
         }
-        errorCount++;
+        errorCount.incrementAndGet();
       }
       catch (StorageRuntimeException e)
       {
@@ -903,7 +1057,7 @@ class VerifyJob
           logger.trace("Error reading VLV index %s for entry %s: %s",
               vlvIndex.getName(), entry.getName(), StaticUtils.getBacktrace(e));
         }
-        errorCount++;
+        errorCount.incrementAndGet();
       }
     }
   }
@@ -929,7 +1083,7 @@ class VerifyJob
       if (cr == ConditionResult.FALSE)
       {
         logger.error(ERR_VERIFY_MISSING_ID, entryID.longValue(), keyDump(index, key));
-        errorCount++;
+        errorCount.incrementAndGet();
       }
       else if (cr == ConditionResult.UNDEFINED)
       {
@@ -944,7 +1098,7 @@ class VerifyJob
 
         logger.trace("Error reading tree: %s%n%s", e.getMessage(), keyDump(index, key));
       }
-      errorCount++;
+      errorCount.incrementAndGet();
     }
   }
 
@@ -958,6 +1112,185 @@ class VerifyJob
     return ConditionResult.UNDEFINED;
   }
 
+  /**
+   * Verifies the ranges of keys delimited by the provided boundaries, in parallel when the verify job is
+   * multi-threaded.
+   *
+   * @param txn The transaction used when the ranges are verified by the current thread.
+   * @param boundaries The increasing keys delimiting the ranges, empty for verifying all the keys at once.
+   * @param verifier The verification of one range of keys.
+   * @return The results of the verification of each range, in the order of the keys.
+   */
+  private <R> List<R> verifyRanges(ReadableTransaction txn, List<ByteString> boundaries,
+      final RangeVerifier<R> verifier) throws StorageRuntimeException, DirectoryException
+  {
+    if (executor == null || boundaries.isEmpty())
+    {
+      return Collections.singletonList(verifier.verify(txn, null, null));
+    }
+
+    final List<Future<R>> futures = new ArrayList<>(boundaries.size() + 1);
+    for (int i = 0; i <= boundaries.size(); i++)
+    {
+      final ByteString lowerBound = i > 0 ? boundaries.get(i - 1) : null;
+      final ByteString upperBound = i < boundaries.size() ? boundaries.get(i) : null;
+      futures.add(executor.submit(new Callable<R>()
+      {
+        @Override
+        public R call() throws Exception
+        {
+          return rootContainer.getStorage().read(new ReadOperation<R>()
+          {
+            @Override
+            public R run(ReadableTransaction txn) throws Exception
+            {
+              return verifier.verify(txn, lowerBound, upperBound);
+            }
+          });
+        }
+      }));
+    }
+
+    final List<R> results = new ArrayList<>(futures.size());
+    try
+    {
+      for (Future<R> future : futures)
+      {
+        results.add(future.get());
+      }
+      return results;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new StorageRuntimeException(e);
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      if (cause instanceof StorageRuntimeException)
+      {
+        throw (StorageRuntimeException) cause;
+      }
+      else if (cause instanceof DirectoryException)
+      {
+        throw (DirectoryException) cause;
+      }
+      throw new StorageRuntimeException(cause);
+    }
+    finally
+    {
+      for (Future<R> future : futures)
+      {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Splits the entry IDs of id2entry into ranges of equal width.
+   *
+   * @return The increasing keys delimiting the ranges, empty if the verify job is not multi-threaded.
+   */
+  private List<ByteString> splitEntryIDs(ReadableTransaction txn)
+  {
+    if (executor == null)
+    {
+      return Collections.emptyList();
+    }
+    final long highestID = getHighestEntryID(txn);
+    final int nbRanges = verifyConfig.getThreadCount() * RANGES_PER_THREAD;
+    final List<ByteString> boundaries = new ArrayList<>(nbRanges);
+    long previousID = 0;
+    for (int i = 1; i < nbRanges; i++)
+    {
+      final long id = i * highestID / nbRanges;
+      if (id > previousID)
+      {
+        boundaries.add(new EntryID(id).toByteString());
+        previousID = id;
+      }
+    }
+    return boundaries;
+  }
+
+  private long getHighestEntryID(ReadableTransaction txn)
+  {
+    try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+    {
+      return cursor.positionToLastKey() ? new EntryID(cursor.getKey()).longValue() : 0;
+    }
+  }
+
+  /**
+   * Splits the keys of an index into ranges holding about the same number of keys. The boundaries are the quantiles
+   * of the keys generated for a sample of the entries, since the keys themselves cannot be counted without reading
+   * the whole index.
+   *
+   * @param txn The transaction used for reading the sample of entries.
+   * @param sampler Generates the index keys of an entry.
+   * @return The increasing keys delimiting the ranges, empty if the verify job is not multi-threaded.
+   */
+  private List<ByteString> splitKeys(ReadableTransaction txn, KeySampler sampler)
+  {
+    if (executor == null)
+    {
+      return Collections.emptyList();
+    }
+    final long highestID = getHighestEntryID(txn);
+    final int nbRanges = verifyConfig.getThreadCount() * RANGES_PER_THREAD;
+    final int nbSamples = nbRanges * SAMPLES_PER_RANGE;
+    final List<ByteString> keys = new ArrayList<>();
+    try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+    {
+      ByteString previousKey = null;
+      for (int i = 0; i < nbSamples; i++)
+      {
+        if (!cursor.positionToKeyOrNext(new EntryID(i * highestID / nbSamples).toByteString())
+            || cursor.getKey().equals(previousKey))
+        {
+          continue;
+        }
+        previousKey = cursor.getKey();
+        try
+        {
+          final EntryID entryID = new EntryID(previousKey);
+          sampler.addKeys(entryID, id2entry.entryFromDatabase(cursor.getValue(), rootContainer.getCompressedSchema()),
+              keys);
+        }
+        catch (Exception e)
+        {
+          // The entry will be reported when verifying id2entry, it is just not part of the sample
+          logger.traceException(e);
+        }
+      }
+    }
+
+    Collections.sort(keys);
+    final List<ByteString> boundaries = new ArrayList<>(nbRanges);
+    for (int i = 1; i < nbRanges && !keys.isEmpty(); i++)
+    {
+      final ByteString boundary = keys.get(i * keys.size() / nbRanges);
+      if (boundaries.isEmpty() || boundary.compareTo(boundaries.get(boundaries.size() - 1)) > 0)
+      {
+        boundaries.add(boundary);
+      }
+    }
+    return boundaries;
+  }
+
+  /** Positions the cursor on the first key of a range, or on the first key of the tree if the range is unbounded. */
+  private static boolean positionToFirstKey(Cursor<ByteString, ?> cursor, ByteString lowerBound)
+  {
+    return lowerBound != null ? cursor.positionToKeyOrNext(lowerBound) : cursor.next();
+  }
+
+  /** Returns whether the key is located before the upper bound of a range, which is excluded. */
+  private static boolean isBefore(ByteString key, ByteString upperBound)
+  {
+    return upperBound == null || key.compareTo(upperBound) < 0;
+  }
+
   /**
    * Get the parent DN of a given DN.
    *
@@ -973,6 +1306,36 @@ class VerifyJob
     return DirectoryServer.getInstance().getServerContext().getBackendConfigManager().getParentDNInSuffix(dn);
   }
 
+  /** The verification of a range of keys. */
+  private interface RangeVerifier<R>
+  {
+    /**
+     * Verifies the keys located between the bounds.
+     *
+     * @param txn The transaction to use.
+     * @param lowerBound The included lower bound, or {@code null} for the first key of the tree.
+     * @param upperBound The excluded upper bound, or {@code null} for the last key of the tree.
+     * @return The result of the verification.
+     */
+    R verify(ReadableTransaction txn, ByteString lowerBound, ByteString upperBound)
+        throws StorageRuntimeException, DirectoryException;
+  }
+
+  /** Generates the index keys of the entries read for splitting an index into ranges. */
+  private interface KeySampler
+  {
+    void addKeys(EntryID entryID, Entry entry, List<ByteString> keys) throws DirectoryException;
+  }
+
+  /** The children counts of dn2id which could not be verified within a range of keys. */
+  private static final class DN2IDRange
+  {
+    /** The DNs of the range whose subtree may continue in the next ranges. */
+    private final Deque<ChildrenCount> openNodes = new LinkedList<>();
+    /** The number of children in the range of the DNs located in the previous ranges. */
+    private final Map<ByteString, Long> outerNodesChildren = new HashMap<>();
+  }
+
   /** This class maintain the number of children for a given dn. */
   private static final class ChildrenCount {
     private final ByteString baseDN;
@@ -1048,7 +1411,7 @@ class VerifyJob
     @Override
     public void run()
     {
-      long latestCount = keyCount;
+      long latestCount = keyCount.get();
       long deltaCount = latestCount - previousCount;
       long latestTime = System.currentTimeMillis();
       long deltaTime = latestTime - previousTime;
@@ -1060,7 +1423,7 @@ class VerifyJob
 
       float rate = 1000f*deltaCount / deltaTime;
 
-      logger.info(NOTE_VERIFY_PROGRESS_REPORT, latestCount, totalCount, errorCount, rate);
+      logger.info(NOTE_VERIFY_PROGRESS_REPORT, latestCount, totalCount, errorCount.get(), rate);
 
       try
       {
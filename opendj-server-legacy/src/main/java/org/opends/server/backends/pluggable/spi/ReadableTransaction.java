@@ -15,6 +15,8 @@
  */
 package org.opends.server.backends.pluggable.spi;
 
+import java.util.List;
+
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 
@@ -34,6 +36,18 @@ public interface ReadableTransaction
    */
   ByteString read(TreeName treeName, ByteSequence key);
 
+  /**
+   * Reads the records' values associated to the provided keys, in the tree whose name is provided. Implementations
+   * take advantage of the keys being sorted to read the records with fewer tree descents than a read per key.
+   *
+   * @param treeName
+   *          the tree name
+   * @param sortedKeys
+   *          the records' keys, in ascending order
+   * @return the records' values, in the same order as the keys, with {@code null} for the records which do not exist
+   */
+  List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys);
+
   /**
    * Opens a cursor on the tree whose name is provided.
    *
@@ -80,6 +80,26 @@ public interface Storage extends Closeable
    */
   void write(WriteOperation writeOperation) throws Exception;
 
+  /**
+   * Executes a write operation like {@link #write(WriteOperation)}, but without waiting for its changes to be written
+   * to disk when committing them. The changes are visible to the subsequent operations once this method returns, but
+   * they may be lost by a crash until {@link #sync()} is called.
+   *
+   * @param writeOperation
+   *          the write operation to execute
+   * @throws Exception
+   *           if a problem occurs with the underlying storage engine
+   */
+  void writeNoSync(WriteOperation writeOperation) throws Exception;
+
+  /**
+   * Forces the changes of all the write operations committed so far to be written to disk.
+   *
+   * @throws StorageRuntimeException
+   *           if a problem occurs with the underlying storage engine
+   */
+  void sync() throws StorageRuntimeException;
+
   /**
    * Remove all files for a backend of this storage.
    *
@@ -94,6 +114,15 @@ public interface Storage extends Closeable
    */
   StorageStatus getStorageStatus();
 
+  /**
+   * Returns whether the cache of the storage cannot hold more records, in which case reading more records for
+   * preloading the cache would evict the records previously read. Storages holding all their records in memory are
+   * always full, storages without a cache of their own never are.
+   *
+   * @return {@code true} if the cache of the storage cannot hold more records, {@code false} otherwise
+   */
+  boolean isCacheFull();
+
   /**
    * Returns {@code true} if this storage supports backup and restore.
    *
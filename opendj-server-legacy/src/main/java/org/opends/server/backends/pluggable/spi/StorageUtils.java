@@ -20,10 +20,14 @@ import static org.opends.messages.ConfigMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.core.DirectoryServer;
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.FilePermission;
@@ -36,6 +40,30 @@ public final class StorageUtils
     // do not instantiate utility classes
   }
 
+  /**
+   * Reads the records' values associated to the provided keys with a read per key, for the transactions which cannot
+   * read several records more efficiently.
+   *
+   * @param txn
+   *          the transaction reading each record
+   * @param treeName
+   *          the tree name
+   * @param keys
+   *          the records' keys
+   * @return the records' values, in the same order as the keys, with {@code null} for the records which do not exist
+   * @see ReadableTransaction#readAll(TreeName, List)
+   */
+  public static List<ByteString> readEach(ReadableTransaction txn, TreeName treeName,
+      List<? extends ByteSequence> keys)
+  {
+    final List<ByteString> values = new ArrayList<>(keys.size());
+    for (ByteSequence key : keys)
+    {
+      values.add(txn.read(treeName, key));
+    }
+    return values;
+  }
+
   /**
    * Returns a database directory file from the provided parent database directory and backendId.
    *
@@ -4136,6 +4136,20 @@ public final class ConfigConstants
   public static final String ATTR_TASK_EXPORT_WRAP_COLUMN =
        NAME_PREFIX_TASK + "export-wrap-column";
 
+  /**
+   * The name of the attribute in an export task definition that specifies
+   * the number of threads reading and encoding the exported entries.
+   */
+  public static final String ATTR_TASK_EXPORT_THREAD_COUNT =
+       NAME_PREFIX_TASK + "export-thread-count";
+
+  /**
+   * The name of the attribute in an export task definition that specifies
+   * the number of LDIF files among which the exported entries are distributed.
+   */
+  public static final String ATTR_TASK_EXPORT_SHARD_COUNT =
+       NAME_PREFIX_TASK + "export-shard-count";
+
   /**
    * The name of the attribute in an export task definition that specifies
    * that operational attributes have to be included.
@@ -4321,6 +4335,13 @@ public final class ConfigConstants
   public static final String ATTR_REBUILD_INDEX_CLEARDEGRADEDSTATE =
       ATTR_REBUILD_INDEX + "-clear-degraded-state";
 
+  /**
+   * The name of the attribute in an rebuild task definition that specifies
+   * whether the indexes are rebuilt while the backend remains online.
+   */
+  public static final String ATTR_REBUILD_ONLINE =
+       NAME_PREFIX_TASK + "rebuild-online";
+
 
   /**
    * The name of the attribute in an rebuild task definition that specifies the
@@ -0,0 +1,612 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.ElasticWorkQueueCfg;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.ElasticWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * This class defines a work queue which processes each operation on its own worker thread, creating worker threads
+ * on demand and retiring them once they have been idle for a while. Operations blocked on I/O therefore do not
+ * prevent other operations from being processed, without having to size a fixed pool of worker threads for the
+ * worst case.
+ * <p>
+ * Admission is controlled by a semaphore bounding the number of operations processed concurrently. The operations
+ * waiting for a permit are queued per client connection, and the connections take turns, so that a client
+ * pipelining many requests cannot delay the requests of the other clients. The number of operations processed
+ * concurrently for a single connection is bounded as well.
+ * <p>
+ * Worker threads are {@link DirectoryThread}s which are reused across operations, so that the thread local caches
+ * used by the operations keep being effective.
+ */
+public class ElasticWorkQueue
+       extends WorkQueue<ElasticWorkQueueCfg>
+       implements ConfigurationChangeListener<ElasticWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** How long an idle worker thread is kept before being retired. */
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+  /** A semaphore whose number of permits can be reduced. */
+  private static final class AdjustableSemaphore extends Semaphore
+  {
+    private static final long serialVersionUID = 1L;
+
+    private AdjustableSemaphore(int permits)
+    {
+      super(permits);
+    }
+
+    private void adjustPermits(int delta)
+    {
+      if (delta > 0)
+      {
+        release(delta);
+      }
+      else if (delta < 0)
+      {
+        reducePermits(-delta);
+      }
+    }
+  }
+
+  /** The operations of a client connection, guarded by the lane monitor. */
+  private static final class Lane
+  {
+    private final long connectionID;
+    private final Queue<Operation> pendingOperations = new ArrayDeque<>();
+    private int inFlightOperations;
+    /** Whether the lane is in the queue of lanes ready to be given a permit. */
+    private boolean ready;
+    /** Whether the lane has been removed from the lanes, a new lane must then be created. */
+    private boolean removed;
+
+    private Lane(long connectionID)
+    {
+      this.connectionID = connectionID;
+    }
+  }
+
+  /** Processes an operation on a worker thread, then admits the next operations. */
+  private final class OperationTask implements Runnable
+  {
+    private final Lane lane;
+    private final Operation operation;
+
+    private OperationTask(Lane lane, Operation operation)
+    {
+      this.lane = lane;
+      this.operation = operation;
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        operation.run();
+        operation.operationCompleted();
+      }
+      catch (Throwable t)
+      {
+        handleUncaughtException(operation, t);
+      }
+      finally
+      {
+        inFlightOperations.remove(operation);
+        completed(lane);
+      }
+    }
+  }
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+  /** The number of operations rejected because the work queue was full. */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+  /** The number of operations waiting for a permit. */
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  /** The maximum number of operations processed concurrently since startup. */
+  private final AtomicInteger maxInFlightCount = new AtomicInteger();
+
+  /** The operation lanes, per client connection. */
+  private final ConcurrentMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+  /** The lanes having pending operations and allowed to process more, in turn order. */
+  private final Queue<Lane> readyLanes = new ConcurrentLinkedQueue<>();
+  /** The operations being processed. */
+  private final Set<Operation> inFlightOperations =
+      Collections.newSetFromMap(new ConcurrentHashMap<Operation, Boolean>());
+
+  /** The permits to process operations. */
+  private AdjustableSemaphore permits;
+  private ThreadPoolExecutor workerThreads;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+  private volatile int maxConcurrentOperations;
+  private volatile int maxConcurrentOperationsPerConnection;
+  private volatile int maxCapacity;
+
+  /**
+   * Creates a new instance of this work queue.  All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public ElasticWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(ElasticWorkQueueCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    shutdownRequested = false;
+
+    // Register to be notified of any configuration changes.
+    configuration.addElasticChangeListener(this);
+
+    maxConcurrentOperations = computeNumWorkerThreads(configuration.getMaxConcurrentOperations());
+    maxConcurrentOperationsPerConnection = configuration.getMaxConcurrentOperationsPerConnection();
+    maxCapacity = configuration.getMaxWorkQueueCapacity();
+    permits = new AdjustableSemaphore(maxConcurrentOperations);
+
+    // The permits bound the number of busy threads. Threads finishing an operation may still be
+    // returning to the pool when the next one is dispatched, hence the unbounded maximum pool size.
+    workerThreads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), new DirectoryThread.Factory("Worker Thread"));
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      ElasticWorkQueueMonitor monitor = new ElasticWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, ElasticWorkQueueMonitor.class, e);
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownRequested = true;
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    for (Operation o : removePendingOperations())
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Cancel the operations in progress.
+    CancelRequest shutdownRequest = new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get());
+    for (Operation o : inFlightOperations)
+    {
+      try
+      {
+        o.cancel(shutdownRequest);
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+      }
+    }
+    workerThreads.shutdown();
+  }
+
+  private List<Operation> removePendingOperations()
+  {
+    final List<Operation> pendingOperations = new ArrayList<>();
+    for (Lane lane : lanes.values())
+    {
+      synchronized (lane)
+      {
+        pendingCount.addAndGet(-lane.pendingOperations.size());
+        pendingOperations.addAll(lane.pendingOperations);
+        lane.pendingOperations.clear();
+      }
+    }
+    return pendingOperations;
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return  <CODE>true</CODE> if the work queue has recieved a request to shut
+   *          down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    if (!trySubmitOperation(operation))
+    {
+      LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity);
+      throw new DirectoryException(ResultCode.BUSY, message);
+    }
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      LocalizableMessage message = WARN_OP_REJECTED_BY_SHUTDOWN.get();
+      throw new DirectoryException(ResultCode.UNAVAILABLE, message);
+    }
+    if (pendingCount.get() >= maxCapacity)
+    {
+      queueFullRejects.incrementAndGet();
+      return false;
+    }
+
+    for (;;)
+    {
+      final Lane lane = getLane(operation.getConnectionID());
+      synchronized (lane)
+      {
+        if (lane.removed)
+        {
+          continue;
+        }
+        lane.pendingOperations.add(operation);
+        pendingCount.incrementAndGet();
+        makeReadyIfAllowed(lane);
+      }
+      break;
+    }
+    opsSubmitted.incrementAndGet();
+
+    dispatch();
+    return true;
+  }
+
+  private Lane getLane(long connectionID)
+  {
+    final Lane lane = lanes.get(connectionID);
+    if (lane != null)
+    {
+      return lane;
+    }
+    final Lane newLane = new Lane(connectionID);
+    final Lane existingLane = lanes.putIfAbsent(connectionID, newLane);
+    return existingLane != null ? existingLane : newLane;
+  }
+
+  /** Must be called while holding the lane monitor. */
+  private void makeReadyIfAllowed(Lane lane)
+  {
+    if (!lane.ready && !lane.pendingOperations.isEmpty()
+        && lane.inFlightOperations < maxConcurrentOperationsPerConnection)
+    {
+      lane.ready = true;
+      readyLanes.add(lane);
+    }
+  }
+
+  /** Gives the available permits to the ready lanes, one operation per lane at a time. */
+  private void dispatch()
+  {
+    while (!readyLanes.isEmpty() && permits.tryAcquire())
+    {
+      final Lane lane = readyLanes.poll();
+      if (lane == null)
+      {
+        permits.release();
+        break;
+      }
+
+      final Operation operation;
+      synchronized (lane)
+      {
+        lane.ready = false;
+        operation = lane.inFlightOperations < maxConcurrentOperationsPerConnection
+            ? lane.pendingOperations.poll() : null;
+        if (operation != null)
+        {
+          // Count the operation in flight before it stops being pending, so that isIdle() never misses it.
+          lane.inFlightOperations++;
+          addInFlightOperation(operation);
+          pendingCount.decrementAndGet();
+        }
+        // Back to the end of the queue, letting the other connections take their turn.
+        makeReadyIfAllowed(lane);
+      }
+
+      if (operation == null)
+      {
+        permits.release();
+        continue;
+      }
+      execute(lane, operation);
+    }
+  }
+
+  private void addInFlightOperation(Operation operation)
+  {
+    inFlightOperations.add(operation);
+    final int inFlightCount = inFlightOperations.size();
+    int max;
+    while ((max = maxInFlightCount.get()) < inFlightCount && !maxInFlightCount.compareAndSet(max, inFlightCount))
+    {
+      // Retry.
+    }
+  }
+
+  private void execute(Lane lane, Operation operation)
+  {
+    try
+    {
+      workerThreads.execute(new OperationTask(lane, operation));
+    }
+    catch (Exception e)
+    {
+      // The work queue is shutting down.
+      logger.traceException(e);
+      inFlightOperations.remove(operation);
+      completed(lane);
+      try
+      {
+        operation.abort(new CancelRequest(true, WARN_OP_REJECTED_BY_SHUTDOWN.get()));
+      }
+      catch (Exception e2)
+      {
+        logger.traceException(e2);
+      }
+    }
+  }
+
+  /** Releases the permit of a completed operation, then admits the next operations. */
+  private void completed(Lane lane)
+  {
+    synchronized (lane)
+    {
+      lane.inFlightOperations--;
+      if (lane.inFlightOperations == 0 && lane.pendingOperations.isEmpty())
+      {
+        lane.removed = true;
+        lanes.remove(lane.connectionID, lane);
+      }
+      else
+      {
+        makeReadyIfAllowed(lane);
+      }
+    }
+    permits.release();
+    dispatch();
+  }
+
+  private void handleUncaughtException(Operation operation, Throwable t)
+  {
+    final String threadName = Thread.currentThread().getName();
+    if (logger.isTraceEnabled())
+    {
+      logger.trace(
+        "Uncaught exception in worker thread while processing " +
+            "operation %s: %s", operation, t);
+
+      logger.traceException(t);
+    }
+
+    try
+    {
+      LocalizableMessage message =
+          ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(threadName, operation, stackTraceToSingleLineString(t));
+      logger.error(message);
+
+      operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+      operation.appendErrorMessage(message);
+      operation.getClientConnection().sendResponse(operation);
+    }
+    catch (Throwable t2)
+    {
+      logger.traceException(t2);
+    }
+
+    try
+    {
+      LocalizableMessage message = ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(
+          threadName, operation, stackTraceToSingleLineString(t));
+      operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+    }
+    catch (Throwable t2)
+    {
+      logger.traceException(t2);
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.longValue();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been rejected because
+   *          the work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.longValue();
+  }
+
+  /**
+   * Retrieves the number of operations waiting for a permit to be processed.
+   *
+   * @return  The number of operations waiting for a permit to be processed.
+   */
+  public int size()
+  {
+    return pendingCount.get();
+  }
+
+  /**
+   * Retrieves the number of operations being processed.
+   *
+   * @return  The number of operations being processed.
+   */
+  public int getInFlightCount()
+  {
+    return inFlightOperations.size();
+  }
+
+  /**
+   * Retrieves the maximum number of operations processed concurrently since startup.
+   *
+   * @return  The maximum number of operations processed concurrently since startup.
+   */
+  public int getMaxInFlightCount()
+  {
+    return maxInFlightCount.get();
+  }
+
+  /**
+   * Retrieves the number of worker threads, either busy or idle.
+   *
+   * @return  The number of worker threads, either busy or idle.
+   */
+  public int getWorkerThreadCount()
+  {
+    return workerThreads.getPoolSize();
+  }
+
+  /**
+   * Retrieves the number of client connections having operations pending or in progress.
+   *
+   * @return  The number of client connections having operations pending or in progress.
+   */
+  public int getActiveConnectionCount()
+  {
+    return lanes.size();
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+                      ElasticWorkQueueCfg configuration,
+                      List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(ElasticWorkQueueCfg configuration)
+  {
+    final int newMaxConcurrentOperations = computeNumWorkerThreads(configuration.getMaxConcurrentOperations());
+    synchronized (permits)
+    {
+      // Operations in progress keep their permits, reduced permits are only given back as they complete.
+      permits.adjustPermits(newMaxConcurrentOperations - maxConcurrentOperations);
+      maxConcurrentOperations = newMaxConcurrentOperations;
+    }
+    maxConcurrentOperationsPerConnection = configuration.getMaxConcurrentOperationsPerConnection();
+    maxCapacity = configuration.getMaxWorkQueueCapacity();
+
+    // Lanes which were held back by the previous limits may now proceed.
+    for (Lane lane : lanes.values())
+    {
+      synchronized (lane)
+      {
+        makeReadyIfAllowed(lane);
+      }
+    }
+    dispatch();
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    return pendingCount.get() == 0 && inFlightOperations.isEmpty();
+  }
+
+  /**
+   * Return the maximum number of operations processed concurrently, which is also the
+   * maximum number of busy worker threads.
+   *
+   * @return the maximum number of operations processed concurrently
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return maxConcurrentOperations;
+  }
+}
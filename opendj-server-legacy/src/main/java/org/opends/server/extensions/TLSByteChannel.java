@@ -340,7 +340,16 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
           case CLOSED:
             throw new ClosedChannelException();
           default: // OK
-            // Write the SSL packet: our IO stack will block until all the
+            // Pack the following records of a large write in the same buffer
+            // so that they reach the network with a single write.
+            if (unwrappedData.hasRemaining()
+                && !isHandshaking(result.getHandshakeStatus())
+                && sendWrappedBuffer.remaining() >= sslEngine.getSession().getPacketBufferSize())
+            {
+              break; // Wrap the next record.
+            }
+
+            // Write the SSL packets: our IO stack will block until all the
             // data is written.
             sendWrappedBuffer.flip();
             while (sendWrappedBuffer.hasRemaining())
@@ -396,6 +405,8 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
   }
 
   private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+  /** The maximum number of SSL records sent to the underlying channel with a single write. */
+  private static final int RECORDS_PER_WRITE = 4;
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
   private final ByteChannelImpl pimpl = new ByteChannelImpl();
@@ -433,7 +444,7 @@ public final class TLSByteChannel implements ConnectionSecurityProvider
     final int wrappedBufferSize = session.getPacketBufferSize();
     final int unwrappedBufferSize = session.getApplicationBufferSize();
 
-    sendWrappedBuffer = ByteBuffer.allocate(wrappedBufferSize);
+    sendWrappedBuffer = ByteBuffer.allocate(wrappedBufferSize * RECORDS_PER_WRITE);
     recvWrappedBuffer = ByteBuffer.allocate(wrappedBufferSize);
     recvUnwrappedBuffer = ByteBuffer.allocate(unwrappedBufferSize);
 
@@ -0,0 +1,828 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.TinyLFUEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.CacheEntry;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache that admits entries based on how frequently they are accessed,
+ * following the W-TinyLFU policy.
+ * <p>
+ * New entries first go into a small admission window. When the window is full, its oldest entry competes with the
+ * eviction victim of the main space: it is only admitted if it has been accessed more frequently than the victim,
+ * otherwise it is discarded. Access frequencies are estimated by a count-min sketch which is periodically halved, so
+ * that entries read once by a large scan cannot evict the entries which are read repeatedly.
+ * <p>
+ * The cached entries are held in concurrent hash maps, and reads do not take any lock: they only mark the entry as
+ * referenced and record the access in the sketch. The main space evicts its entries in clock order, giving a second
+ * chance to the entries referenced since the clock hand last passed over them. Writes update the eviction policy
+ * under a lock which is never held by the reads.
+ * <p>
+ * The cache size is bounded by a maximum amount of memory, accounted for with an estimate of the memory used by each
+ * cached entry, and by a maximum number of entries.
+ */
+public class TinyLFUEntryCache
+       extends EntryCache<TinyLFUEntryCacheCfg>
+       implements ConfigurationChangeListener<TinyLFUEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The percentage of the cache capacity used by the admission window. */
+  private static final int WINDOW_PERCENT = 1;
+  /** The average size of an entry, used for sizing the frequency sketch. */
+  private static final long AVERAGE_ENTRY_SIZE = 2048;
+  /** The estimated memory used by a cached entry, besides its attributes: cache node, map entries and entry maps. */
+  private static final long ENTRY_OVERHEAD = 320;
+  /** The estimated memory used by an attribute, besides its values. */
+  private static final long ATTRIBUTE_OVERHEAD = 96;
+  /** The estimated memory used by an attribute value, besides its bytes. */
+  private static final long VALUE_OVERHEAD = 40;
+
+  /** A cached entry, with its position in the eviction policy. */
+  private static final class Node
+  {
+    private final CacheEntry cacheEntry;
+    private final long memorySize;
+    /** Set by each read, cleared when the clock hand passes over the node. */
+    private volatile boolean referenced;
+    /** The queue holding this node, {@code null} once the node has been removed. Guarded by the policy lock. */
+    private NodeQueue queue;
+    private Node previous;
+    private Node next;
+
+    private Node(CacheEntry cacheEntry, long memorySize)
+    {
+      this.cacheEntry = cacheEntry;
+      this.memorySize = memorySize;
+    }
+  }
+
+  /** A doubly linked queue of nodes, accounting for their number and memory size. Guarded by the policy lock. */
+  private static final class NodeQueue
+  {
+    private Node head;
+    private Node tail;
+    private long count;
+    private long memorySize;
+
+    private void addLast(Node node)
+    {
+      node.queue = this;
+      node.previous = tail;
+      node.next = null;
+      if (tail != null)
+      {
+        tail.next = node;
+      }
+      else
+      {
+        head = node;
+      }
+      tail = node;
+      count++;
+      memorySize += node.memorySize;
+    }
+
+    private void remove(Node node)
+    {
+      if (node.previous != null)
+      {
+        node.previous.next = node.next;
+      }
+      else
+      {
+        head = node.next;
+      }
+      if (node.next != null)
+      {
+        node.next.previous = node.previous;
+      }
+      else
+      {
+        tail = node.previous;
+      }
+      node.queue = null;
+      node.previous = null;
+      node.next = null;
+      count--;
+      memorySize -= node.memorySize;
+    }
+
+    private void clear()
+    {
+      for (Node node = head; node != null; node = node.next)
+      {
+        node.queue = null;
+      }
+      head = null;
+      tail = null;
+      count = 0;
+      memorySize = 0;
+    }
+  }
+
+  /**
+   * Estimates how frequently the entries are accessed with a count-min sketch of 4-bit counters. Each long of the
+   * table holds one counter for each of the 4 hash functions. Counters are updated without locking, and are all
+   * halved once the number of recorded accesses reaches ten times the table size.
+   */
+  static final class FrequencySketch
+  {
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+    private static final long HALVE_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(long expectedEntries)
+    {
+      final int size = Integer.highestOneBit((int) Math.max(16, Math.min(expectedEntries, 1 << 24)) * 2 - 1);
+      table = new AtomicLongArray(size);
+      tableMask = size - 1;
+      sampleSize = 10 * size;
+    }
+
+    /** Returns the estimated number of accesses to the item, at most 15. */
+    int frequency(int hash)
+    {
+      int frequency = 15;
+      for (int i = 0; i < 4; i++)
+      {
+        frequency = Math.min(frequency, (int) ((table.get(indexOf(hash, i)) >>> (i << 2)) & 0xfL));
+      }
+      return frequency;
+    }
+
+    /** Records an access to the item. */
+    void increment(int hash)
+    {
+      boolean added = false;
+      for (int i = 0; i < 4; i++)
+      {
+        added |= incrementAt(indexOf(hash, i), i);
+      }
+      if (added && additions.incrementAndGet() == sampleSize)
+      {
+        halve();
+        additions.addAndGet(-sampleSize / 2);
+      }
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+      final int shift = counter << 2;
+      final long mask = 0xfL << shift;
+      for (;;)
+      {
+        final long value = table.get(index);
+        if ((value & mask) == mask)
+        {
+          return false;
+        }
+        if (table.compareAndSet(index, value, value + (1L << shift)))
+        {
+          return true;
+        }
+      }
+    }
+
+    /** Forgets all the recorded accesses. */
+    void clear()
+    {
+      for (int index = 0; index < table.length(); index++)
+      {
+        table.set(index, 0);
+      }
+      additions.set(0);
+    }
+
+    private void halve()
+    {
+      for (int index = 0; index < table.length(); index++)
+      {
+        long value;
+        do
+        {
+          value = table.get(index);
+        }
+        while (!table.compareAndSet(index, value, (value >>> 1) & HALVE_MASK));
+      }
+    }
+
+    private int indexOf(int hash, int i)
+    {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & tableMask;
+    }
+  }
+
+  /** The mapping between DNs and cached entries. */
+  private final ConcurrentMap<DN, Node> dnMap = new ConcurrentHashMap<>();
+  /** The mapping between entry backends/IDs and cached entries. */
+  private final ConcurrentMap<String, ConcurrentMap<Long, Node>> idMap = new ConcurrentHashMap<>();
+
+  /** Guards the eviction policy, never taken by the reads. */
+  private final ReentrantLock policyLock = new ReentrantLock();
+  /** The recently added entries, oldest first. */
+  private final NodeQueue window = new NodeQueue();
+  /** The admitted entries, in clock order. */
+  private final NodeQueue main = new NodeQueue();
+  private volatile FrequencySketch sketch = new FrequencySketch(16);
+
+  /** The number of entries discarded because they were accessed less frequently than the eviction victim. */
+  private final LongAdder admissionRejections = new LongAdder();
+  /** The number of admitted entries evicted to make room for more frequently accessed entries. */
+  private final LongAdder evictions = new LongAdder();
+
+  /** The maximum amount of memory used by the cached entries. */
+  private volatile long maxMemorySize;
+  /** The maximum number of cached entries. */
+  private volatile long maxEntries;
+
+  /** Currently registered configuration object. */
+  private TinyLFUEntryCacheCfg registeredConfiguration;
+
+  private ServerContext serverContext;
+
+  /** Creates a new instance of this TinyLFU entry cache. */
+  public TinyLFUEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, TinyLFUEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    this.serverContext = serverContext;
+    registeredConfiguration = configuration;
+    configuration.addTinyLFUChangeListener(this);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages
+          );
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler))
+    {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_TINYLFUCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeTinyLFUChangeListener(this);
+    clear();
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    return entryDN != null && dnMap.containsKey(entryDN);
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    sketch.increment(hash(entryDN));
+    final Node node = dnMap.get(entryDN);
+    if (node == null)
+    {
+      // Indicate cache miss.
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+    node.referenced = true;
+    // Indicate cache hit.
+    cacheHits.getAndIncrement();
+    return node.cacheEntry.getEntry();
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    final Node node = dnMap.get(entryDN);
+    return node != null ? node.cacheEntry.getEntryID() : -1;
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    final Map<Long, Node> backendMap = idMap.get(backendID);
+    if (backendMap != null)
+    {
+      final Node node = backendMap.get(entryID);
+      if (node != null)
+      {
+        return node.cacheEntry.getDN();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    put(entry, backendID, entryID, false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    return put(entry, backendID, entryID, true);
+  }
+
+  private boolean put(Entry entry, String backendID, long entryID, boolean ifAbsent)
+  {
+    final Node node = new Node(new CacheEntry(entry, backendID, entryID), estimateMemorySize(entry));
+    policyLock.lock();
+    try
+    {
+      final Node previous = dnMap.get(entry.getName());
+      if (previous != null)
+      {
+        if (ifAbsent)
+        {
+          return false;
+        }
+        unlink(previous);
+      }
+      if (node.memorySize > maxMemorySize || maxEntries == 0)
+      {
+        // The entry can never be cached.
+        return true;
+      }
+
+      dnMap.put(entry.getName(), node);
+      ConcurrentMap<Long, Node> backendMap = idMap.get(backendID);
+      if (backendMap == null)
+      {
+        backendMap = new ConcurrentHashMap<>();
+        idMap.put(backendID, backendMap);
+      }
+      backendMap.put(entryID, node);
+      window.addLast(node);
+      evict();
+      return true;
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // We can't be sure there wasn't a conflict, so return false.
+      return false;
+    }
+    finally
+    {
+      policyLock.unlock();
+    }
+  }
+
+  /**
+   * Moves the entries overflowing the admission window to the main space if they are accessed more frequently than
+   * the entries they would evict, then makes sure the cache does not exceed its maximum size.
+   */
+  private void evict()
+  {
+    final long maxWindowMemorySize = Math.max(1, maxMemorySize / 100 * WINDOW_PERCENT);
+    final long maxWindowEntries = Math.max(1, maxEntries / 100 * WINDOW_PERCENT);
+    final long maxMainMemorySize = maxMemorySize - maxWindowMemorySize;
+    final long maxMainEntries = maxEntries - maxWindowEntries;
+    while (window.head != null && (window.memorySize > maxWindowMemorySize || window.count > maxWindowEntries))
+    {
+      final Node candidate = window.head;
+      window.remove(candidate);
+      if (admit(candidate, maxMainMemorySize, maxMainEntries))
+      {
+        main.addLast(candidate);
+      }
+      else
+      {
+        admissionRejections.increment();
+        unmap(candidate);
+      }
+    }
+
+    // Only reached after a configuration change or low memory
+    while (main.head != null && (size() > maxEntries || memorySize() > maxMemorySize))
+    {
+      evictions.increment();
+      unlink(nextVictim());
+    }
+  }
+
+  /** Evicts the main space entries accessed less frequently than the candidate until it has room for it. */
+  private boolean admit(Node candidate, long maxMainMemorySize, long maxMainEntries)
+  {
+    final int candidateFrequency = sketch.frequency(hash(candidate.cacheEntry.getDN()));
+    while (main.head != null
+        && (main.memorySize + candidate.memorySize > maxMainMemorySize || main.count + 1 > maxMainEntries))
+    {
+      final Node victim = nextVictim();
+      if (candidateFrequency <= sketch.frequency(hash(victim.cacheEntry.getDN())))
+      {
+        return false;
+      }
+      evictions.increment();
+      unlink(victim);
+    }
+    return main.memorySize + candidate.memorySize <= maxMainMemorySize && main.count + 1 <= maxMainEntries;
+  }
+
+  /** Advances the clock hand to the first main space entry not referenced since the hand last passed over it. */
+  private Node nextVictim()
+  {
+    // Bound the scan, concurrent reads may keep referencing the entries.
+    for (long i = main.count; i > 0 && main.head.referenced; i--)
+    {
+      final Node node = main.head;
+      node.referenced = false;
+      main.remove(node);
+      main.addLast(node);
+    }
+    return main.head;
+  }
+
+  /** Removes the node from the maps and from its queue. Must be called with the policy lock held. */
+  private void unlink(Node node)
+  {
+    if (node.queue != null)
+    {
+      node.queue.remove(node);
+    }
+    unmap(node);
+  }
+
+  private void unmap(Node node)
+  {
+    final CacheEntry cacheEntry = node.cacheEntry;
+    dnMap.remove(cacheEntry.getDN(), node);
+    final Map<Long, Node> backendMap = idMap.get(cacheEntry.getBackendID());
+    if (backendMap != null)
+    {
+      backendMap.remove(cacheEntry.getEntryID(), node);
+      // If this backend becomes empty now remove it from the idMap map.
+      if (backendMap.isEmpty())
+      {
+        idMap.remove(cacheEntry.getBackendID());
+      }
+    }
+  }
+
+  private long size()
+  {
+    return window.count + main.count;
+  }
+
+  private long memorySize()
+  {
+    return window.memorySize + main.memorySize;
+  }
+
+  private static int hash(DN dn)
+  {
+    final int h = dn.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Estimates the memory used by a cached entry.
+   *
+   * @param entry
+   *          the cached entry
+   * @return the estimated memory used by the cached entry, in bytes
+   */
+  static long estimateMemorySize(Entry entry)
+  {
+    long memorySize = ENTRY_OVERHEAD + 2L * entry.getName().toString().length();
+    memorySize += ATTRIBUTE_OVERHEAD + entry.getObjectClasses().size() * VALUE_OVERHEAD;
+    for (Attribute attribute : entry.getAllAttributes())
+    {
+      memorySize += ATTRIBUTE_OVERHEAD;
+      for (ByteString value : attribute)
+      {
+        memorySize += VALUE_OVERHEAD + value.length();
+      }
+    }
+    return memorySize;
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    policyLock.lock();
+    try
+    {
+      final Node node = dnMap.get(entryDN);
+      if (node != null)
+      {
+        unlink(node);
+      }
+    }
+    finally
+    {
+      policyLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    policyLock.lock();
+    try
+    {
+      window.clear();
+      main.clear();
+      dnMap.clear();
+      idMap.clear();
+      sketch.clear();
+    }
+    finally
+    {
+      policyLock.unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    policyLock.lock();
+    try
+    {
+      final Map<Long, Node> backendMap = idMap.remove(backendID);
+      if (backendMap != null)
+      {
+        for (Node node : backendMap.values())
+        {
+          unlink(node);
+        }
+      }
+    }
+    finally
+    {
+      policyLock.unlock();
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    policyLock.lock();
+    try
+    {
+      // See how many entries are in the cache.  If there are less than 1000,
+      // then we'll dump all of them.  Otherwise, we'll dump 10% of the entries,
+      // starting with the least recently referenced ones.
+      final long numEntries = size();
+      if (numEntries < 1000)
+      {
+        window.clear();
+        main.clear();
+        dnMap.clear();
+        idMap.clear();
+        return;
+      }
+      for (long numToDrop = numEntries / 10; numToDrop > 0 && main.head != null; numToDrop--)
+      {
+        unlink(nextVictim());
+      }
+    }
+    finally
+    {
+      policyLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    TinyLFUEntryCacheCfg config = (TinyLFUEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(TinyLFUEntryCacheCfg configuration,
+      List<LocalizableMessage> unacceptableReasons)
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE,
+          unacceptableReasons,
+          null
+        );
+    processEntryCacheConfig(configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(TinyLFUEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages
+          );
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled())
+    {
+      processEntryCacheConfig(configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      TinyLFUEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler
+      )
+  {
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newMaxEntries = configuration.getMaxEntries();
+    long newMaxMemorySize = configuration.getMaxMemorySize();
+
+    // Get include and exclude filters.
+    Set<SearchFilter> newIncludeFilters = EntryCacheCommon.getFilters(
+        configuration.getIncludeFilter(),
+        ERR_CACHE_INVALID_INCLUDE_FILTER,
+        errorHandler,
+        newConfigEntryDN
+        );
+    Set<SearchFilter> newExcludeFilters = EntryCacheCommon.getFilters(
+        configuration.getExcludeFilter(),
+        ERR_CACHE_INVALID_EXCLUDE_FILTER,
+        errorHandler,
+        newConfigEntryDN
+        );
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      policyLock.lock();
+      try
+      {
+        if (newMaxEntries != maxEntries || newMaxMemorySize != maxMemorySize)
+        {
+          // Frequencies are estimates: losing them only makes admission less selective for a while.
+          sketch = new FrequencySketch(Math.min(newMaxEntries, newMaxMemorySize / AVERAGE_ENTRY_SIZE));
+        }
+        maxEntries = newMaxEntries;
+        maxMemorySize = newMaxMemorySize;
+        evict();
+      }
+      finally
+      {
+        policyLock.unlock();
+      }
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try
+    {
+      final MonitorData monitorData = EntryCacheCommon.getGenericMonitorData(
+        cacheHits.longValue(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        memorySize(),
+        maxMemorySize,
+        Long.valueOf(dnMap.size()),
+        Long.valueOf(maxEntries != Integer.MAX_VALUE && maxEntries != Long.MAX_VALUE ? maxEntries : 0)
+        );
+      monitorData.add("entryCacheAdmissionRejections", admissionRejections.sum());
+      monitorData.add("entryCacheEvictions", evictions.sum());
+      return monitorData;
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  /**
+   * Returns the number of entries discarded because they were accessed less frequently than the eviction victim.
+   *
+   * @return the number of entries discarded because they were accessed less frequently than the eviction victim
+   */
+  public long getAdmissionRejections()
+  {
+    return admissionRejections.sum();
+  }
+
+  /**
+   * Returns the number of admitted entries evicted from the cache.
+   *
+   * @return the number of admitted entries evicted from the cache
+   */
+  public long getEvictions()
+  {
+    return evictions.sum();
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    return Long.valueOf(dnMap.size());
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Node node : dnMap.values())
+    {
+      final CacheEntry cacheEntry = node.cacheEntry;
+      sb.append(cacheEntry.getDN());
+      sb.append(":");
+      sb.append(cacheEntry.getEntryID());
+      sb.append(":");
+      sb.append(cacheEntry.getBackendID());
+      sb.append(ServerConstants.EOL);
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+}
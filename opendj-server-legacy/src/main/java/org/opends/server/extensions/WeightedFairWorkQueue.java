@@ -0,0 +1,884 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.ServerConstants.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.AddressMask;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.server.WeightedFairWorkQueueCfg;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.monitors.WeightedFairWorkQueueMonitor;
+import org.opends.server.types.AuthenticationInfo;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.Control;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+import org.opends.server.types.RawFilter;
+
+/**
+ * This class defines a work queue which classifies the operations into lanes, so that cheap interactive operations
+ * are not delayed by floods of updates or by expensive searches.
+ * <p>
+ * An operation is classified into a lane as follows:
+ * <ul>
+ * <li>the operations of the bulk clients, identified by their bind DN or their address, go to the bulk lane,</li>
+ * <li>subtree deletes and the searches whose filter is estimated not to be selective go to the bulk lane,</li>
+ * <li>the other searches go to the search lane, unless they are base object searches,</li>
+ * <li>adds, deletes, modifies and modify DNs go to the update lane,</li>
+ * <li>binds, compares, base object searches, extended and other operations go to the interactive lane.</li>
+ * </ul>
+ * The worker threads take the operations from the lanes using smooth weighted round robin, so that each lane having
+ * pending operations gets a share of the worker threads proportional to its weight. Each lane has its own capacity,
+ * and the time spent by the operations in each lane is recorded for the monitor.
+ */
+public class WeightedFairWorkQueue
+       extends WorkQueue<WeightedFairWorkQueueCfg>
+       implements ConfigurationChangeListener<WeightedFairWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The lanes of the work queue. */
+  public enum Lane
+  {
+    /** Binds, compares, base object searches and other cheap operations. */
+    INTERACTIVE("interactive"),
+    /** Adds, deletes, modifies and modify DNs. */
+    UPDATE("update"),
+    /** Searches expected to use an index. */
+    SEARCH("search"),
+    /** Operations of the bulk clients, subtree deletes and searches expected not to use an index. */
+    BULK("bulk");
+
+    private final String name;
+
+    private Lane(String name)
+    {
+      this.name = name;
+    }
+
+    @Override
+    public String toString()
+    {
+      return name;
+    }
+  }
+
+  /**
+   * Records the times spent by operations in a lane in a histogram with a bucket per power of two microseconds.
+   */
+  static final class QueueTimeHistogram
+  {
+    /** The greatest recorded time is around 2^36 us, that is about 19 hours. */
+    private static final int BUCKET_COUNT = 37;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long nanos)
+    {
+      final long micros = Math.max(nanos / 1000, 0);
+      count.increment();
+      totalMicros.add(micros);
+      final int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+      buckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+    }
+
+    long getCount()
+    {
+      return count.sum();
+    }
+
+    long getMeanMicros()
+    {
+      final long n = count.sum();
+      return n > 0 ? totalMicros.sum() / n : 0;
+    }
+
+    /**
+     * Returns an upper bound of the time spent in the lane by the given percentage of the operations.
+     *
+     * @param percentile
+     *          the percentage of the operations, between 0 and 100
+     * @return an upper bound of the time in microseconds, accurate to a factor of two
+     */
+    long getPercentileMicros(double percentile)
+    {
+      final long[] counts = new long[BUCKET_COUNT];
+      long total = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+        counts[i] = buckets.get(i);
+        total += counts[i];
+      }
+      final long rank = (long) Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+        seen += counts[i];
+        if (seen >= rank && counts[i] > 0)
+        {
+          return 1L << i;
+        }
+      }
+      return 0;
+    }
+  }
+
+  /** An operation waiting in a lane. */
+  private static final class QueuedOperation
+  {
+    private final Operation operation;
+    private final long queuedNanos;
+
+    private QueuedOperation(Operation operation)
+    {
+      this.operation = operation;
+      this.queuedNanos = System.nanoTime();
+    }
+  }
+
+  /** The pending operations of a lane, guarded by the queue lock except for the statistics. */
+  private static final class LaneQueue
+  {
+    private final Queue<QueuedOperation> operations = new ArrayDeque<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final QueueTimeHistogram queueTimes = new QueueTimeHistogram();
+    private int weight;
+    private int capacity;
+    /** The credit of the lane for the smooth weighted round robin. */
+    private int currentWeight;
+  }
+
+  /** Processes the operations taken from the work queue until it shuts down or the thread count is reduced. */
+  private final class WeightedFairWorkerThread extends DirectoryThread
+  {
+    /** The operation being processed, or {@code null} when waiting for work. */
+    private volatile Operation operation;
+
+    private WeightedFairWorkerThread(int threadID)
+    {
+      super("Worker Thread " + threadID);
+    }
+
+    @Override
+    public void run()
+    {
+      Operation op;
+      while ((op = nextOperation(this)) != null)
+      {
+        try
+        {
+          op.run();
+          op.operationCompleted();
+        }
+        catch (Throwable t)
+        {
+          handleUncaughtException(op, t);
+        }
+        finally
+        {
+          operation = null;
+        }
+      }
+    }
+
+    private void cancelOperation()
+    {
+      final Operation op = operation;
+      if (op != null)
+      {
+        try
+        {
+          op.cancel(new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get()));
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+        }
+      }
+    }
+  }
+
+  /** The percentiles of the queue time reported for each lane. */
+  private static final double[] PERCENTILES = { 50, 90, 99 };
+
+  private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+  /** The lock guarding the lanes and the worker threads. */
+  private final ReentrantLock queueLock = new ReentrantLock();
+  private final Condition notEmpty = queueLock.newCondition();
+  private final List<WeightedFairWorkerThread> workerThreads = new ArrayList<>();
+
+  /** The number of operations waiting in the lanes. */
+  private int pendingCount;
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+  private int numWorkerThreads;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+  private volatile Set<DN> bulkClientBindDNs;
+  private volatile Set<AddressMask> bulkClientAddresses;
+
+  /**
+   * Creates a new instance of this work queue.  All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public WeightedFairWorkQueue()
+  {
+    for (Lane lane : Lane.values())
+    {
+      lanes.put(lane, new LaneQueue());
+    }
+  }
+
+  @Override
+  public void initializeWorkQueue(WeightedFairWorkQueueCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    shutdownRequested = false;
+
+    // Register to be notified of any configuration changes.
+    configuration.addWeightedFairChangeListener(this);
+
+    applyLaneConfiguration(configuration);
+    setNumWorkerThreads(computeNumWorkerThreads(configuration.getNumWorkerThreads()));
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      WeightedFairWorkQueueMonitor monitor = new WeightedFairWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, WeightedFairWorkQueueMonitor.class, e);
+    }
+  }
+
+  private void applyLaneConfiguration(WeightedFairWorkQueueCfg configuration)
+  {
+    bulkClientBindDNs = new HashSet<>(configuration.getBulkClientBindDN());
+    bulkClientAddresses = new HashSet<>(configuration.getBulkClientAddress());
+
+    queueLock.lock();
+    try
+    {
+      configureLane(Lane.INTERACTIVE,
+          configuration.getInteractiveLaneWeight(), configuration.getInteractiveLaneCapacity());
+      configureLane(Lane.UPDATE, configuration.getUpdateLaneWeight(), configuration.getUpdateLaneCapacity());
+      configureLane(Lane.SEARCH, configuration.getSearchLaneWeight(), configuration.getSearchLaneCapacity());
+      configureLane(Lane.BULK, configuration.getBulkLaneWeight(), configuration.getBulkLaneCapacity());
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  private void configureLane(Lane lane, int weight, int capacity)
+  {
+    final LaneQueue laneQueue = lanes.get(lane);
+    laneQueue.weight = weight;
+    laneQueue.capacity = capacity;
+  }
+
+  /** Starts new worker threads, or lets the extra worker threads exit once their current operation completes. */
+  private void setNumWorkerThreads(int newNumThreads)
+  {
+    queueLock.lock();
+    try
+    {
+      numWorkerThreads = newNumThreads;
+      while (workerThreads.size() < numWorkerThreads)
+      {
+        WeightedFairWorkerThread t = new WeightedFairWorkerThread(lastThreadNumber++);
+        workerThreads.add(t);
+        t.start();
+      }
+      notEmpty.signalAll();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    final List<Operation> pendingOperations = new ArrayList<>();
+    final List<WeightedFairWorkerThread> threads;
+    queueLock.lock();
+    try
+    {
+      shutdownRequested = true;
+      for (LaneQueue laneQueue : lanes.values())
+      {
+        for (QueuedOperation queued : laneQueue.operations)
+        {
+          pendingOperations.add(queued.operation);
+        }
+        laneQueue.operations.clear();
+      }
+      pendingCount = 0;
+      threads = new ArrayList<>(workerThreads);
+      notEmpty.signalAll();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    for (Operation o : pendingOperations)
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Cancel the operations in progress, the worker threads exit once they complete.
+    for (WeightedFairWorkerThread t : threads)
+    {
+      t.cancelOperation();
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return  <CODE>true</CODE> if the work queue has recieved a request to shut
+   *          down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    final Lane lane = classify(operation);
+    if (!submitOperation(lane, operation))
+    {
+      LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(getLaneCapacity(lane));
+      throw new DirectoryException(ResultCode.BUSY, message);
+    }
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    return submitOperation(classify(operation), operation);
+  }
+
+  private boolean submitOperation(Lane lane, Operation operation) throws DirectoryException
+  {
+    final LaneQueue laneQueue = lanes.get(lane);
+    queueLock.lock();
+    try
+    {
+      if (shutdownRequested)
+      {
+        LocalizableMessage message = WARN_OP_REJECTED_BY_SHUTDOWN.get();
+        throw new DirectoryException(ResultCode.UNAVAILABLE, message);
+      }
+      if (laneQueue.operations.size() >= laneQueue.capacity)
+      {
+        laneQueue.rejected.increment();
+        return false;
+      }
+      laneQueue.operations.add(new QueuedOperation(operation));
+      pendingCount++;
+      notEmpty.signal();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+    laneQueue.submitted.increment();
+    return true;
+  }
+
+  /**
+   * Returns the lane where an operation must wait for a worker thread.
+   *
+   * @param operation
+   *          the operation to classify
+   * @return the lane of the operation
+   */
+  Lane classify(Operation operation)
+  {
+    if (isBulkClient(operation.getClientConnection()))
+    {
+      return Lane.BULK;
+    }
+
+    switch (operation.getOperationType())
+    {
+    case ADD:
+    case MODIFY:
+    case MODIFY_DN:
+      return Lane.UPDATE;
+    case DELETE:
+      return hasSubtreeDeleteControl(operation) ? Lane.BULK : Lane.UPDATE;
+    case SEARCH:
+      if (!(operation instanceof SearchOperation))
+      {
+        return Lane.SEARCH;
+      }
+      final SearchOperation searchOperation = (SearchOperation) operation;
+      if (searchOperation.getScope() == SearchScope.BASE_OBJECT)
+      {
+        return Lane.INTERACTIVE;
+      }
+      return isSelective(searchOperation.getRawFilter()) ? Lane.SEARCH : Lane.BULK;
+    default:
+      return Lane.INTERACTIVE;
+    }
+  }
+
+  private boolean isBulkClient(ClientConnection connection)
+  {
+    if (connection == null)
+    {
+      return false;
+    }
+    final Set<AddressMask> addresses = bulkClientAddresses;
+    if (!addresses.isEmpty() && AddressMask.matchesAny(addresses, connection.getRemoteAddress()))
+    {
+      return true;
+    }
+    final Set<DN> bindDNs = bulkClientBindDNs;
+    if (!bindDNs.isEmpty())
+    {
+      final AuthenticationInfo authInfo = connection.getAuthenticationInfo();
+      return authInfo != null && bindDNs.contains(authInfo.getAuthenticationDN());
+    }
+    return false;
+  }
+
+  private static boolean hasSubtreeDeleteControl(Operation operation)
+  {
+    for (Control control : operation.getRequestControls())
+    {
+      if (OID_SUBTREE_DELETE_CONTROL.equals(control.getOID()))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Estimates whether a search filter can be evaluated using an index, without looking at the indexes of the
+   * backend: equality, approximate and initial substring assertions are assumed to be indexed, except for object
+   * classes which usually match many entries, presence, ordering, extensible and negated assertions are not.
+   *
+   * @param filter
+   *          the filter of the search
+   * @return {@code true} if the filter is expected to match few entries using an index
+   */
+  static boolean isSelective(RawFilter filter)
+  {
+    if (filter == null)
+    {
+      return false;
+    }
+    switch (filter.getFilterType())
+    {
+    case EQUALITY:
+    case APPROXIMATE_MATCH:
+      return !isObjectClass(filter.getAttributeType());
+    case SUBSTRING:
+      return filter.getSubInitialElement() != null && !isObjectClass(filter.getAttributeType());
+    case AND:
+      for (RawFilter component : filter.getFilterComponents())
+      {
+        if (isSelective(component))
+        {
+          return true;
+        }
+      }
+      return false;
+    case OR:
+      if (filter.getFilterComponents().isEmpty())
+      {
+        return false;
+      }
+      for (RawFilter component : filter.getFilterComponents())
+      {
+        if (!isSelective(component))
+        {
+          return false;
+        }
+      }
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static boolean isObjectClass(String attributeType)
+  {
+    return "objectClass".equalsIgnoreCase(attributeType) || "2.5.4.0".equals(attributeType);
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by a worker thread, blocking if necessary until a new
+   * request arrives.
+   *
+   * @param workerThread
+   *          the worker thread requesting the operation
+   * @return the next operation, or {@code null} if the worker thread must exit because the server is shutting down
+   *         or the number of worker threads has been reduced
+   */
+  private Operation nextOperation(WeightedFairWorkerThread workerThread)
+  {
+    queueLock.lock();
+    try
+    {
+      while (true)
+      {
+        if (shutdownRequested)
+        {
+          workerThreads.remove(workerThread);
+          return null;
+        }
+        if (workerThreads.size() > numWorkerThreads)
+        {
+          workerThreads.remove(workerThread);
+          logger.debug(INFO_WORKER_STOPPED_BY_REDUCED_THREADNUMBER, workerThread.getName());
+          return null;
+        }
+
+        final QueuedOperation queued = pollNextOperation();
+        if (queued != null)
+        {
+          // Mark the thread busy before releasing the lock, so that isIdle() never misses the operation.
+          workerThread.operation = queued.operation;
+          return queued.operation;
+        }
+        notEmpty.awaitUninterruptibly();
+      }
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Takes the next operation from the lanes using smooth weighted round robin: every lane having pending operations
+   * earns its weight, the richest lane is served and pays for the weights earned by all.
+   */
+  private QueuedOperation pollNextOperation()
+  {
+    LaneQueue selected = null;
+    int totalWeight = 0;
+    for (LaneQueue laneQueue : lanes.values())
+    {
+      if (laneQueue.operations.isEmpty())
+      {
+        continue;
+      }
+      laneQueue.currentWeight += laneQueue.weight;
+      totalWeight += laneQueue.weight;
+      if (selected == null || laneQueue.currentWeight > selected.currentWeight)
+      {
+        selected = laneQueue;
+      }
+    }
+    if (selected == null)
+    {
+      return null;
+    }
+
+    selected.currentWeight -= totalWeight;
+    final QueuedOperation queued = selected.operations.poll();
+    if (selected.operations.isEmpty())
+    {
+      // An idle lane neither keeps its credit nor its debt.
+      selected.currentWeight = 0;
+    }
+    pendingCount--;
+    selected.queueTimes.record(System.nanoTime() - queued.queuedNanos);
+    return queued;
+  }
+
+  private void handleUncaughtException(Operation operation, Throwable t)
+  {
+    final String threadName = Thread.currentThread().getName();
+    if (logger.isTraceEnabled())
+    {
+      logger.trace(
+        "Uncaught exception in worker thread while processing " +
+            "operation %s: %s", operation, t);
+
+      logger.traceException(t);
+    }
+
+    try
+    {
+      LocalizableMessage message =
+          ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(threadName, operation, stackTraceToSingleLineString(t));
+      logger.error(message);
+
+      operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+      operation.appendErrorMessage(message);
+      operation.getClientConnection().sendResponse(operation);
+    }
+    catch (Throwable t2)
+    {
+      logger.traceException(t2);
+    }
+
+    try
+    {
+      LocalizableMessage message = ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(
+          threadName, operation, stackTraceToSingleLineString(t));
+      operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+    }
+    catch (Throwable t2)
+    {
+      logger.traceException(t2);
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    long total = 0;
+    for (LaneQueue laneQueue : lanes.values())
+    {
+      total += laneQueue.submitted.sum();
+    }
+    return total;
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * their lane was already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been rejected because
+   *          their lane was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    long total = 0;
+    for (LaneQueue laneQueue : lanes.values())
+    {
+      total += laneQueue.rejected.sum();
+    }
+    return total;
+  }
+
+  /**
+   * Retrieves the number of pending operations in the lanes that have not yet
+   * been picked up for processing.
+   *
+   * @return  The number of pending operations in the lanes that have not yet
+   *          been picked up for processing.
+   */
+  public int size()
+  {
+    queueLock.lock();
+    try
+    {
+      return pendingCount;
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of pending operations in a lane.
+   *
+   * @param lane
+   *          the lane
+   * @return the number of pending operations in the lane
+   */
+  public int size(Lane lane)
+  {
+    queueLock.lock();
+    try
+    {
+      return lanes.get(lane).operations.size();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  private int getLaneCapacity(Lane lane)
+  {
+    queueLock.lock();
+    try
+    {
+      return lanes.get(lane).capacity;
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the statistics of each lane, formatted as monitor attribute values.
+   *
+   * @return the statistics of each lane
+   */
+  public List<String> getLaneStatistics()
+  {
+    final List<String> values = new ArrayList<>(lanes.size());
+    for (Lane lane : Lane.values())
+    {
+      final LaneQueue laneQueue = lanes.get(lane);
+      final StringBuilder value = new StringBuilder();
+      value.append(lane);
+      value.append(" weight:").append(laneQueue.weight);
+      value.append(" backlog:").append(size(lane));
+      value.append(" submitted:").append(laneQueue.submitted.sum());
+      value.append(" rejected:").append(laneQueue.rejected.sum());
+      value.append(" mean-queue-time-us:").append(laneQueue.queueTimes.getMeanMicros());
+      for (double percentile : PERCENTILES)
+      {
+        value.append(" p").append((long) percentile).append("-queue-time-us:");
+        value.append(laneQueue.queueTimes.getPercentileMicros(percentile));
+      }
+      values.add(value.toString());
+    }
+    return values;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+                      WeightedFairWorkQueueCfg configuration,
+                      List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(WeightedFairWorkQueueCfg configuration)
+  {
+    applyLaneConfiguration(configuration);
+    setNumWorkerThreads(computeNumWorkerThreads(configuration.getNumWorkerThreads()));
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    queueLock.lock();
+    try
+    {
+      if (pendingCount > 0)
+      {
+        return false;
+      }
+      for (WeightedFairWorkerThread t : workerThreads)
+      {
+        if (t.operation != null)
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    queueLock.lock();
+    try
+    {
+      return numWorkerThreads;
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.monitors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.ElasticWorkQueue;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the elastic work queue.
+ */
+public class ElasticWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The name to use for the monitor attribute that provides the current request backlog. */
+  public static final String ATTR_CURRENT_BACKLOG = "currentRequestBacklog";
+  /** The name to use for the monitor attribute that provides the average request backlog. */
+  public static final String ATTR_AVERAGE_BACKLOG = "averageRequestBacklog";
+  /** The name to use for the monitor attribute that provides the maximum observed request backlog. */
+  public static final String ATTR_MAX_BACKLOG = "maxRequestBacklog";
+  /** The name to use for the monitor attribute that provides the total number of operations submitted. */
+  public static final String ATTR_OPS_SUBMITTED = "requestsSubmitted";
+  /**
+   * The name to use for the monitor attribute that provides the total number of
+   * requests that have been rejected because the work queue was full.
+   */
+  public static final String ATTR_OPS_REJECTED_QUEUE_FULL = "requestsRejectedDueToQueueFull";
+  /** The name to use for the monitor attribute that provides the number of operations in progress. */
+  public static final String ATTR_CURRENT_IN_FLIGHT = "currentInFlightOperations";
+  /** The name to use for the monitor attribute that provides the maximum number of operations in progress. */
+  public static final String ATTR_MAX_IN_FLIGHT = "maxInFlightOperations";
+  /** The name to use for the monitor attribute that provides the number of worker threads. */
+  public static final String ATTR_WORKER_THREADS = "currentWorkerThreads";
+  /** The name to use for the monitor attribute that provides the number of connections with operations. */
+  public static final String ATTR_ACTIVE_CONNECTIONS = "activeConnections";
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+
+  /** The elastic work queue instance with which this monitor is associated. */
+  private final ElasticWorkQueue workQueue;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public ElasticWorkQueueMonitor(ElasticWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public void run()
+  {
+    pollBacklog();
+  }
+
+  private synchronized int pollBacklog()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    return backlog;
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    final int backlog;
+    final long averageBacklog;
+    final int maxObservedBacklog;
+    synchronized (this)
+    {
+      backlog = pollBacklog();
+      averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+      maxObservedBacklog = maxBacklog;
+    }
+
+    final MonitorData monitorAttrs = new MonitorData(9);
+    monitorAttrs.add(ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(ATTR_MAX_BACKLOG, maxObservedBacklog);
+    monitorAttrs.add(ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(ATTR_OPS_REJECTED_QUEUE_FULL, workQueue.getOpsRejectedDueToQueueFull());
+    monitorAttrs.add(ATTR_CURRENT_IN_FLIGHT, workQueue.getInFlightCount());
+    monitorAttrs.add(ATTR_MAX_IN_FLIGHT, workQueue.getMaxInFlightCount());
+    monitorAttrs.add(ATTR_WORKER_THREADS, workQueue.getWorkerThreadCount());
+    monitorAttrs.add(ATTR_ACTIVE_CONNECTIONS, workQueue.getActiveConnectionCount());
+    return monitorAttrs;
+  }
+}
@@ -0,0 +1,343 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.protocols.ldap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Channel writing to a client without blocking the calling thread on the socket.
+ * <p>
+ * The bytes which cannot be written immediately are appended to a bounded outbound buffer, which the
+ * {@link LDAPRequestHandler} owning the connection drains as soon as the socket becomes writable. Once the buffer is
+ * full, the writing operation is suspended until the request handler has made room in the buffer, or until the
+ * maximum suspended write time limit is reached, in which case the connection is considered closed. The suspended
+ * operation holds its worker thread, so this limit is kept short.
+ */
+final class AsynchronousWriteChannel implements ByteChannel
+{
+  private final SocketChannel clientChannel;
+  private final LDAPStatistics statTracker;
+  private final boolean keepStats;
+  private final int maxBufferedBytes;
+  private final long maxSuspendedWriteTimeLimit;
+
+  /** Guards the outbound buffer. */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition spaceAvailable = lock.newCondition();
+  private final Deque<ByteBuffer> outboundBuffer = new ArrayDeque<>();
+  private int bufferedBytes;
+  private boolean closed;
+
+  /** The request handler draining the outbound buffer, set once the connection is registered. */
+  private volatile LDAPRequestHandler requestHandler;
+  private volatile SelectionKey selectionKey;
+
+  /**
+   * Creates a new asynchronous write channel.
+   *
+   * @param clientChannel
+   *          the socket channel connected to the client
+   * @param statTracker
+   *          the statistics of the connection handler
+   * @param keepStats
+   *          whether the bytes read and written must be counted
+   * @param maxBufferedBytes
+   *          the size of the outbound buffer beyond which the writes are suspended
+   * @param maxSuspendedWriteTimeLimit
+   *          the maximum time in milliseconds a write can be suspended, or zero to consider the connection closed as
+   *          soon as the outbound buffer is full
+   */
+  AsynchronousWriteChannel(SocketChannel clientChannel, LDAPStatistics statTracker, boolean keepStats,
+      int maxBufferedBytes, long maxSuspendedWriteTimeLimit)
+  {
+    this.clientChannel = clientChannel;
+    this.statTracker = statTracker;
+    this.keepStats = keepStats;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.maxSuspendedWriteTimeLimit = maxSuspendedWriteTimeLimit;
+  }
+
+  @Override
+  public int read(ByteBuffer byteBuffer) throws IOException
+  {
+    int bytesRead = clientChannel.read(byteBuffer);
+    if (bytesRead > 0 && keepStats)
+    {
+      statTracker.updateBytesRead(bytesRead);
+    }
+    return bytesRead;
+  }
+
+  @Override
+  public boolean isOpen()
+  {
+    return clientChannel.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    discardOutboundBuffer();
+    clientChannel.close();
+  }
+
+  @Override
+  public int write(ByteBuffer byteBuffer) throws IOException
+  {
+    final int bytesToWrite = byteBuffer.remaining();
+    boolean requestWriteInterest = false;
+    lock.lock();
+    try
+    {
+      ensureOpen();
+      if (outboundBuffer.isEmpty())
+      {
+        writeToClient(byteBuffer);
+        if (!byteBuffer.hasRemaining())
+        {
+          return bytesToWrite;
+        }
+      }
+
+      if (bufferedBytes >= maxBufferedBytes)
+      {
+        awaitSpaceAvailable();
+      }
+
+      final ByteBuffer copy = ByteBuffer.allocate(byteBuffer.remaining());
+      copy.put(byteBuffer).flip();
+      requestWriteInterest = outboundBuffer.isEmpty();
+      outboundBuffer.add(copy);
+      bufferedBytes += copy.remaining();
+      statTracker.updateOutboundBufferedBytes(copy.remaining());
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    if (requestWriteInterest)
+    {
+      requestWriteInterest();
+    }
+    return bytesToWrite;
+  }
+
+  private void ensureOpen() throws ClosedChannelException
+  {
+    if (closed || !clientChannel.isOpen())
+    {
+      throw new ClosedChannelException();
+    }
+  }
+
+  private void writeToClient(ByteBuffer byteBuffer) throws IOException
+  {
+    final int bytesWritten = clientChannel.write(byteBuffer);
+    if (bytesWritten > 0 && keepStats)
+    {
+      statTracker.updateBytesWritten(bytesWritten);
+    }
+  }
+
+  /** Suspends the calling operation until the request handler has drained part of the outbound buffer. */
+  private void awaitSpaceAvailable() throws IOException
+  {
+    long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxSuspendedWriteTimeLimit);
+
+    statTracker.updateSuspendedWrite(true);
+    try
+    {
+      while (bufferedBytes >= maxBufferedBytes)
+      {
+        ensureOpen();
+        if (remainingNanos <= 0)
+        {
+          // The client has not read anything for too long.
+          throw new ClosedChannelException();
+        }
+        remainingNanos = spaceAvailable.awaitNanos(remainingNanos);
+      }
+      ensureOpen();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new ClosedChannelException();
+    }
+    finally
+    {
+      statTracker.updateSuspendedWrite(false);
+    }
+  }
+
+  /**
+   * Registers the request handler which drains the outbound buffer of this channel.
+   *
+   * @param requestHandler
+   *          the request handler owning the connection
+   * @param selectionKey
+   *          the selection key of the connection in the selector of the request handler
+   */
+  void setSelectionKey(LDAPRequestHandler requestHandler, SelectionKey selectionKey)
+  {
+    this.requestHandler = requestHandler;
+    this.selectionKey = selectionKey;
+    if (hasBufferedData())
+    {
+      requestWriteInterest();
+    }
+  }
+
+  private boolean hasBufferedData()
+  {
+    lock.lock();
+    try
+    {
+      return !outboundBuffer.isEmpty();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  private void requestWriteInterest()
+  {
+    final LDAPRequestHandler handler = requestHandler;
+    final SelectionKey key = selectionKey;
+    if (handler != null && key != null)
+    {
+      handler.registerWriteInterest(key);
+    }
+  }
+
+  /**
+   * Writes as much of the outbound buffer as the client accepts without blocking. This method is called by the
+   * request handler when the socket is writable.
+   *
+   * @return {@code true} if the outbound buffer is now empty, {@code false} if the request handler must wait for the
+   *         socket to be writable again
+   * @throws IOException
+   *           if the connection is closed or cannot be written to
+   */
+  boolean drainOutboundBuffer() throws IOException
+  {
+    lock.lock();
+    try
+    {
+      ensureOpen();
+      final int bufferedBytesBefore = bufferedBytes;
+      ByteBuffer buffer;
+      while ((buffer = outboundBuffer.peek()) != null)
+      {
+        final int remaining = buffer.remaining();
+        writeToClient(buffer);
+        bufferedBytes -= remaining - buffer.remaining();
+        if (buffer.hasRemaining())
+        {
+          break;
+        }
+        outboundBuffer.poll();
+      }
+
+      if (bufferedBytes != bufferedBytesBefore)
+      {
+        statTracker.updateOutboundBufferedBytes(bufferedBytes - bufferedBytesBefore);
+        if (bufferedBytes < maxBufferedBytes)
+        {
+          spaceAvailable.signalAll();
+        }
+      }
+      return outboundBuffer.isEmpty();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /** Discards the outbound buffer and wakes up the suspended writes, which then fail. */
+  void discardOutboundBuffer()
+  {
+    lock.lock();
+    try
+    {
+      closed = true;
+      if (bufferedBytes > 0)
+      {
+        statTracker.updateOutboundBufferedBytes(-bufferedBytes);
+      }
+      bufferedBytes = 0;
+      outboundBuffer.clear();
+      spaceAvailable.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether the provided number of bytes can be written without suspending the calling thread, which is the
+   * case as long as they fit in the outbound buffer. The few bytes added by the security layers are written anyway,
+   * since each write only waits when the outbound buffer was already full before it.
+   *
+   * @param byteCount
+   *          the number of bytes to write
+   * @return {@code true} if the bytes can be written without suspending the calling thread
+   */
+  boolean canWriteWithoutBlocking(int byteCount)
+  {
+    lock.lock();
+    try
+    {
+      return !closed && bufferedBytes + byteCount < maxBufferedBytes;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of bytes waiting in the outbound buffer.
+   *
+   * @return the number of bytes waiting in the outbound buffer
+   */
+  int getBufferedBytes()
+  {
+    lock.lock();
+    try
+    {
+      return bufferedBytes;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+}
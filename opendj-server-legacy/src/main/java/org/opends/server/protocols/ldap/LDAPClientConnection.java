@@ -411,6 +411,10 @@ public final class LDAPClientConnection extends ClientConnection implements
   private final SocketChannel clientChannel;
   /** The byte channel used for blocking writes with time out. */
   private final ByteChannel timeoutClientChannel;
+  /** The channel writing to the client without blocking, or {@code null} if writes block. */
+  private final AsynchronousWriteChannel asynchronousWriteChannel;
+  /** Coalesces the search results sent to the client, or {@code null} if each response is written on its own. */
+  private final ResponseCoalescer responseCoalescer;
 
   /** The string representation of the address of the client. */
   private final String clientAddress;
@@ -444,7 +448,6 @@ public final class LDAPClientConnection extends ClientConnection implements
   {
     this.connectionHandler = connectionHandler;
     this.clientChannel = clientChannel;
-    timeoutClientChannel = new TimeoutWriteByteChannel();
     opsInProgressLock = new Object();
     ldapVersion = 3;
     lastCompletionTime = new AtomicLong(TimeThread.getTime());
@@ -476,8 +479,39 @@ public final class LDAPClientConnection extends ClientConnection implements
 
     bufferSize = connectionHandler.getBufferSize();
 
+    // The coalesced responses are written after a delay by a scheduler shared by all the connections,
+    // which must never be blocked by a slow client.
+    if (connectionHandler.useAsynchronousWrites() || connectionHandler.useResponseCoalescing())
+    {
+      asynchronousWriteChannel = new AsynchronousWriteChannel(clientChannel, statTracker, keepStats,
+          connectionHandler.getMaxOutboundBufferSize(), connectionHandler.getMaxSuspendedWriteTimeLimit());
+      timeoutClientChannel = asynchronousWriteChannel;
+    }
+    else
+    {
+      asynchronousWriteChannel = null;
+      timeoutClientChannel = new TimeoutWriteByteChannel();
+    }
     tlsChannel = RedirectingByteChannel.getRedirectingByteChannel(timeoutClientChannel);
     saslChannel = RedirectingByteChannel.getRedirectingByteChannel(tlsChannel);
+    if (connectionHandler.useResponseCoalescing())
+    {
+      responseCoalescer = new ResponseCoalescer(saslChannel, asynchronousWriteChannel,
+          connectionHandler.getResponseCoalescingBufferSize(), connectionHandler.getResponseCoalescingDelay(),
+          connectionHandler.getResponseFlusher(),
+          new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              flushCoalescedResponses();
+            }
+          });
+    }
+    else
+    {
+      responseCoalescer = null;
+    }
     this.asn1Reader = new ASN1ByteChannelReader(saslChannel, bufferSize, connectionHandler.getMaxRequestSize());
 
     if (connectionHandler.useSSL())
@@ -921,7 +955,17 @@ public final class LDAPClientConnection extends ClientConnection implements
     try
     {
       message.write(holder.writer);
-      holder.buffer.copyTo(saslChannel);
+      if (responseCoalescer != null)
+      {
+        // Only the search results can wait for the following responses.
+        final byte opType = message.getProtocolOpType();
+        responseCoalescer.write(holder.buffer,
+            opType != OP_TYPE_SEARCH_RESULT_ENTRY && opType != OP_TYPE_SEARCH_RESULT_REFERENCE);
+      }
+      else
+      {
+        holder.buffer.copyTo(saslChannel);
+      }
 
       if (logger.isTraceEnabled())
       {
@@ -956,6 +1000,27 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
  }
 
+  /** Writes to the client the search results which have been coalesced for too long. */
+  private void flushCoalescedResponses()
+  {
+    try
+    {
+      responseCoalescer.flushAfterDelay();
+    }
+    catch (ClosedChannelException e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.IO_ERROR, false,
+          ERR_IO_ERROR_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.SERVER_ERROR, false,
+          ERR_UNEXPECTED_EXCEPTION_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+  }
+
   /**
    * Closes the connection to the client, optionally sending it a
    * message indicating the reason for the closure. Note that the
@@ -1049,6 +1114,34 @@ public final class LDAPClientConnection extends ClientConnection implements
       }
     }
 
+    if (responseCoalescer != null)
+    {
+      // Send the search results still waiting to be written, if possible.
+      try
+      {
+        responseCoalescer.flush();
+      }
+      catch (IOException e)
+      {
+        logger.traceException(e);
+      }
+    }
+
+    if (asynchronousWriteChannel != null)
+    {
+      // Give the client a last chance to receive the pending responses,
+      // then wake up the operations waiting for room in the outbound buffer.
+      try
+      {
+        asynchronousWriteChannel.drainOutboundBuffer();
+      }
+      catch (IOException e)
+      {
+        logger.traceException(e);
+      }
+      asynchronousWriteChannel.discardOutboundBuffer();
+    }
+
     // Enqueue the connection channels for closing by the finalizer.
     Runnable r = new ConnectionFinalizerJob(asn1Reader, clientChannel);
     connectionHandler.registerConnectionFinalizer(r);
@@ -1435,6 +1528,39 @@ public final class LDAPClientConnection extends ClientConnection implements
     return asn1Reader;
   }
 
+  /**
+   * Registers the request handler which writes the pending responses to the
+   * client when the connection uses asynchronous writes.
+   *
+   * @param requestHandler
+   *          The request handler with which this connection is registered.
+   * @param selectionKey
+   *          The selection key of this connection.
+   */
+  void setSelectionKey(LDAPRequestHandler requestHandler, SelectionKey selectionKey)
+  {
+    if (asynchronousWriteChannel != null)
+    {
+      asynchronousWriteChannel.setSelectionKey(requestHandler, selectionKey);
+    }
+  }
+
+  /**
+   * Writes the pending responses to the client, as much as the client can
+   * receive without blocking. This is called by the request handler when the
+   * connection becomes writable.
+   *
+   * @return <CODE>true</CODE> if all the pending responses have been written,
+   *         or <CODE>false</CODE> if the request handler must wait for the
+   *         connection to be writable again.
+   * @throws IOException
+   *           If the connection is closed or cannot be written to.
+   */
+  boolean processDataWrite() throws IOException
+  {
+    return asynchronousWriteChannel == null || asynchronousWriteChannel.drainOutboundBuffer();
+  }
+
   /**
    * Process data read.
    *
@@ -208,6 +208,13 @@ public final class LDAPConnectionHandler extends
   private List<Runnable> connectionFinalizerActiveJobQueue;
   private List<Runnable> connectionFinalizerPendingJobQueue;
 
+  /**
+   * Flushes the coalesced responses of the client connections once they have been pending for too long, created by
+   * the first connection coalescing its responses.
+   */
+  private ScheduledExecutorService responseFlusher;
+  private final Object responseFlusherLock = new Object();
+
   /**
    * Creates a new instance of this LDAP connection handler. It must be
    * initialized before it may be used.
@@ -365,6 +372,15 @@ public final class LDAPConnectionHandler extends
       requestHandler.processServerShutdown(finalizeReason);
     }
 
+    // Pending coalesced responses are flushed when their connections close.
+    synchronized (responseFlusherLock)
+    {
+      if (responseFlusher != null)
+      {
+        responseFlusher.shutdown();
+      }
+    }
+
     // Shutdown the connection finalizer and ensure that any pending
     // unclosed connections are closed.
     synchronized (connectionFinalizerLock)
@@ -527,6 +543,100 @@ public final class LDAPConnectionHandler extends
     return (int) currentConfig.getBufferSize();
   }
 
+  /**
+   * Indicates whether the responses should be written to the clients
+   * without blocking the worker threads.
+   *
+   * @return <CODE>true</CODE> if the responses should be written to the
+   *         clients asynchronously, or <CODE>false</CODE> if not.
+   */
+  public boolean useAsynchronousWrites()
+  {
+    return currentConfig.isUseAsynchronousWrites();
+  }
+
+  /**
+   * Retrieves the maximum number of bytes waiting to be written to a client
+   * before the operations writing to it are suspended.
+   *
+   * @return The maximum size in bytes of the outbound buffer of a client
+   *         connection.
+   */
+  public int getMaxOutboundBufferSize()
+  {
+    return (int) currentConfig.getMaxOutboundBufferSize();
+  }
+
+  /**
+   * Retrieves the maximum length of time in milliseconds that an operation
+   * may be suspended because the outbound buffer of its client connection is
+   * full.
+   *
+   * @return The maximum length of time in milliseconds that an operation may
+   *         be suspended, or zero if the client connection should be
+   *         terminated as soon as its outbound buffer is full.
+   */
+  public long getMaxSuspendedWriteTimeLimit()
+  {
+    return currentConfig.getMaxSuspendedWriteTimeLimit();
+  }
+
+  /**
+   * Indicates whether the search result entries and references sent to
+   * the clients should be coalesced before being written.
+   *
+   * @return <CODE>true</CODE> if the responses should be coalesced, or
+   *         <CODE>false</CODE> if each response should be written on its own.
+   */
+  public boolean useResponseCoalescing()
+  {
+    return currentConfig.isUseResponseCoalescing();
+  }
+
+  /**
+   * Retrieves the number of bytes of coalesced responses beyond which
+   * they are written to the client.
+   *
+   * @return The size in bytes of the coalesced responses of a client
+   *         connection triggering a write.
+   */
+  public int getResponseCoalescingBufferSize()
+  {
+    return (int) currentConfig.getResponseCoalescingBufferSize();
+  }
+
+  /**
+   * Retrieves the maximum length of time in milliseconds that a coalesced
+   * response may wait before being written to the client.
+   *
+   * @return The maximum length of time in milliseconds that a coalesced
+   *         response may wait before being written to the client.
+   */
+  public long getResponseCoalescingDelay()
+  {
+    return currentConfig.getResponseCoalescingDelay();
+  }
+
+  /**
+   * Retrieves the scheduler flushing the coalesced responses of the client
+   * connections.
+   *
+   * @return The scheduler flushing the coalesced responses.
+   */
+  ScheduledExecutorService getResponseFlusher()
+  {
+    synchronized (responseFlusherLock)
+    {
+      if (responseFlusher == null)
+      {
+        responseFlusher = Executors
+            .newSingleThreadScheduledExecutor(new DirectoryThread.Factory(
+                "LDAP Response Flusher for connection handler " + toString()));
+      }
+      return responseFlusher;
+    }
+  }
+
   @Override
   public String getProtocol()
   {
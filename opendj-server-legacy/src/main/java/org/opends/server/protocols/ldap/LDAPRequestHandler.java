@@ -30,6 +30,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -68,6 +70,8 @@ public class LDAPRequestHandler
 
   /** Lock object for synchronizing access to the pending connections queue. */
   private final Object pendingConnectionsLock = new Object();
+  /** The keys of the connections having responses waiting to be written asynchronously. */
+  private final Queue<SelectionKey> pendingWriteKeys = new ConcurrentLinkedQueue<>();
   /** The list of connections ready for request processing. */
   private final LinkedList<LDAPClientConnection> readyConnections = new LinkedList<>();
   /** The selector that will be used to monitor the client connections. */
@@ -220,7 +224,8 @@ public class LDAPRequestHandler
           {
             SocketChannel socketChannel = c.getSocketChannel();
             socketChannel.configureBlocking(false);
-            socketChannel.register(selector, SelectionKey.OP_READ, c);
+            SelectionKey key = socketChannel.register(selector, SelectionKey.OP_READ, c);
+            c.setSelectionKey(this, key);
             logConnect(c);
           }
           catch (Exception e)
@@ -233,6 +238,24 @@ public class LDAPRequestHandler
         }
       }
 
+      // Watch for the connections becoming writable, so that the responses
+      // waiting in their outbound buffer can be written.
+      SelectionKey writeKey;
+      while ((writeKey = pendingWriteKeys.poll()) != null)
+      {
+        try
+        {
+          if (writeKey.isValid())
+          {
+            writeKey.interestOps(writeKey.interestOps() | SelectionKey.OP_WRITE);
+          }
+        }
+        catch (CancelledKeyException cke)
+        {
+          logger.traceException(cke);
+        }
+      }
+
       // Create a copy of the selection keys which can be used in a
       // thread-safe manner by getClientConnections. This copy is only
       // updated once per loop, so may not be accurate.
@@ -266,7 +289,11 @@ public class LDAPRequestHandler
 
           try
           {
-            if (key.isReadable())
+            if (key.isWritable())
+            {
+              processDataWrite(key);
+            }
+            if (key.isValid() && key.isReadable())
             {
               LDAPClientConnection clientConnection = null;
 
@@ -390,6 +417,27 @@ public class LDAPRequestHandler
 
 
 
+  private void processDataWrite(SelectionKey key)
+  {
+    LDAPClientConnection clientConnection = (LDAPClientConnection) key.attachment();
+    try
+    {
+      if (clientConnection.processDataWrite())
+      {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+      }
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      key.cancel();
+      clientConnection.disconnect(DisconnectReason.IO_ERROR, false,
+          ERR_IO_ERROR_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+  }
+
+
+
   /**
    * Registers the provided client connection with this request
    * handler so that any requests received from that client will be
@@ -430,6 +478,21 @@ public class LDAPRequestHandler
 
 
 
+  /**
+   * Requests the responses waiting in the outbound buffer of a client
+   * connection to be written as soon as the connection becomes writable.
+   *
+   * @param key
+   *          The selection key of the client connection.
+   */
+  void registerWriteInterest(SelectionKey key)
+  {
+    pendingWriteKeys.add(key);
+    selector.wakeup();
+  }
+
+
+
   /**
    * Retrieves the set of all client connections that are currently registered
    * with this request handler.
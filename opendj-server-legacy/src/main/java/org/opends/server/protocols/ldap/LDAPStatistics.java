@@ -46,6 +46,9 @@ import org.opends.server.types.OperationType;
  * broken down by message type.</LI>
  * <LI>The total number of bytes read from LDAP clients.</LI>
  * <LI>The total number of bytes written to LDAP clients.</LI>
+ * <LI>The number of bytes waiting to be written to LDAP clients
+ * asynchronously, and the number of operations waiting for them to
+ * be written.</LI>
  * </UL>
  * <BR>
  * <BR>
@@ -89,6 +92,11 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
   private AtomicLong searchResultReferences = new AtomicLong(0);
   private AtomicLong searchResultsDone = new AtomicLong(0);
   private AtomicLong unbindRequests = new AtomicLong(0);
+  /** The number of bytes waiting in the outbound buffers of the connections, this is not a counter. */
+  private AtomicLong outboundBufferedBytes = new AtomicLong(0);
+  /** The number of operations waiting for room in an outbound buffer, this is not a counter. */
+  private AtomicLong suspendedWrites = new AtomicLong(0);
+  private AtomicLong writeSuspensions = new AtomicLong(0);
 
 
   /** The instance name for this monitor provider instance. */
@@ -167,7 +175,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
      *        and associated with their objectclass
      *        OC_MONITOR_CONNHANDLERSTATS
      */
-    final MonitorData attrs = new MonitorData(31 + 10 * 2);
+    final MonitorData attrs = new MonitorData(34 + 10 * 2);
     attrs.add("connectionsEstablished", connectionsEstablished);
     attrs.add("connectionsClosed", connectionsClosed);
     attrs.add("bytesRead", bytesRead);
@@ -199,6 +207,9 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
     attrs.add("searchResultReferences", searchResultReferences);
     attrs.add("searchResultsDone", searchResultsDone);
     attrs.add("unbindRequests", unbindRequests);
+    attrs.add("outboundBufferedBytes", outboundBufferedBytes);
+    attrs.add("suspendedWrites", suspendedWrites);
+    attrs.add("writeSuspensions", writeSuspensions);
 
     // adds
     attrs.add("ds-mon-add-operations-total-count", addOperationCount);
@@ -277,6 +288,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
       searchResultReferences.set(0);
       searchResultsDone.set(0);
       unbindRequests.set(0);
+      writeSuspensions.set(0);
 
       addOperationCount.set(0);
       addOperationTime.set(0);
@@ -339,6 +351,41 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
      this.bytesWritten.getAndAdd(bytesWritten);
   }
 
+  /**
+   * Updates the number of bytes waiting in the outbound buffers of the
+   * connections written asynchronously.
+   *
+   * @param delta
+   *          The number of bytes added to the outbound buffers, negative when
+   *          bytes have been written to the client or discarded.
+   */
+  public void updateOutboundBufferedBytes(int delta)
+  {
+    outboundBufferedBytes.getAndAdd(delta);
+  }
+
+  /**
+   * Updates the appropriate set of counters to indicate that an operation
+   * has been suspended because the outbound buffer of its connection is full,
+   * or that it has been resumed.
+   *
+   * @param suspended
+   *          {@code true} if the operation has been suspended, {@code false}
+   *          if it has been resumed.
+   */
+  public void updateSuspendedWrite(boolean suspended)
+  {
+    if (suspended)
+    {
+      suspendedWrites.getAndIncrement();
+      writeSuspensions.getAndIncrement();
+    }
+    else
+    {
+      suspendedWrites.getAndDecrement();
+    }
+  }
+
   /**
    * Updates the appropriate set of counters based on the provided
    * message that has been read from the client.
@@ -0,0 +1,270 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.protocols.ldap;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Accumulates the encoded responses sent to a client so that they can be written to the connection with a single
+ * write, and so that the security layers can pack them into as few records as possible.
+ * <p>
+ * The pending responses are flushed as soon as they reach the configured size, when a response completing an
+ * operation is written, or once the configured delay has elapsed since the first pending response was written, so
+ * that an idle connection never holds back a response.
+ * <p>
+ * The delayed flushes are run by a scheduler shared by all the connections, so they never wait: when a response is
+ * being written to the connection, the thread writing it flushes the pending responses on its way out, and the
+ * pending responses are only handed to the outbound buffer of the connection when it has room for them.
+ */
+final class ResponseCoalescer
+{
+  private final WritableByteChannel channel;
+  private final AsynchronousWriteChannel outboundWriter;
+  private final int maxBufferedBytes;
+  private final long maxDelay;
+  private final ScheduledExecutorService scheduler;
+  private final Runnable flushTask;
+
+  /** Guards the pending responses, and orders the writes to the channel. */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ByteStringBuilder pendingResponses;
+  private ScheduledFuture<?> scheduledFlush;
+  /** Set when the maximum delay has elapsed, until the pending responses are flushed. */
+  private volatile boolean flushDue;
+
+  /**
+   * Creates a new response coalescer.
+   *
+   * @param channel
+   *          the channel to which the responses are written
+   * @param outboundWriter
+   *          the channel buffering the writes to the client, which the channel to which the responses are written
+   *          eventually writes to, or {@code null} if the writes to the channel never block
+   * @param maxBufferedBytes
+   *          the number of pending bytes beyond which the responses are flushed
+   * @param maxDelay
+   *          the maximum time in milliseconds a response can be pending
+   * @param scheduler
+   *          the scheduler running the delayed flushes
+   * @param flushTask
+   *          the task flushing the pending responses when the maximum delay is elapsed, which must call
+   *          {@link #flushAfterDelay()}
+   */
+  ResponseCoalescer(WritableByteChannel channel, AsynchronousWriteChannel outboundWriter, int maxBufferedBytes,
+      long maxDelay, ScheduledExecutorService scheduler, Runnable flushTask)
+  {
+    this.channel = channel;
+    this.outboundWriter = outboundWriter;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.maxDelay = maxDelay;
+    this.scheduler = scheduler;
+    this.flushTask = flushTask;
+    this.pendingResponses = new ByteStringBuilder(maxBufferedBytes);
+  }
+
+  /**
+   * Appends the provided encoded response to the pending responses, and writes them to the channel if needed.
+   *
+   * @param response
+   *          the encoded response
+   * @param flush
+   *          whether the response completes an operation, in which case it must be sent immediately
+   * @throws IOException
+   *           if the pending responses could not be written to the channel
+   */
+  void write(ByteStringBuilder response, boolean flush) throws IOException
+  {
+    lock.lock();
+    try
+    {
+      if (pendingResponses.length() == 0 && (flush || response.length() >= maxBufferedBytes))
+      {
+        // Nothing to coalesce with: spare the copy.
+        cancelScheduledFlush();
+        response.copyTo(channel);
+      }
+      else
+      {
+        pendingResponses.appendBytes(response);
+        if (flush || pendingResponses.length() >= maxBufferedBytes)
+        {
+          flushPendingResponses();
+        }
+        else if (scheduledFlush == null && !scheduleFlush())
+        {
+          flushPendingResponses();
+        }
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+    flushIfDue();
+  }
+
+  /**
+   * Writes the pending responses to the channel.
+   *
+   * @throws IOException
+   *           if the pending responses could not be written to the channel
+   */
+  void flush() throws IOException
+  {
+    lock.lock();
+    try
+    {
+      flushPendingResponses();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the pending responses to the channel once the maximum delay has elapsed, without ever blocking the
+   * calling thread. If a response is being written to the connection, the thread writing it flushes the pending
+   * responses once done. If the outbound buffer of the connection is full, the client is not reading, so the flush
+   * is tried again after the maximum delay, unless a response written meanwhile flushes the pending responses.
+   *
+   * @throws IOException
+   *           if the pending responses could not be written to the channel
+   */
+  void flushAfterDelay() throws IOException
+  {
+    flushDue = true;
+    if (!lock.tryLock())
+    {
+      return;
+    }
+    try
+    {
+      scheduledFlush = null;
+      if (!flushDue || pendingResponses.length() == 0)
+      {
+        flushDue = false;
+      }
+      else if (outboundWriter == null || outboundWriter.canWriteWithoutBlocking(pendingResponses.length()))
+      {
+        flushPendingResponses();
+      }
+      else if (!scheduleFlush())
+      {
+        // The connection handler is stopping: leave the responses to the next write or to the disconnection.
+        flushDue = false;
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Flushes the pending responses if the maximum delay has elapsed while another thread was writing. Checking after
+   * releasing the lock guarantees that either the delayed flush obtains the lock or this thread sees it is due.
+   */
+  private void flushIfDue() throws IOException
+  {
+    while (flushDue && lock.tryLock())
+    {
+      try
+      {
+        if (flushDue)
+        {
+          flushPendingResponses();
+        }
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes waiting to be written to the channel.
+   *
+   * @return the number of bytes waiting to be written to the channel
+   */
+  int getPendingBytes()
+  {
+    lock.lock();
+    try
+    {
+      return pendingResponses.length();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  private boolean scheduleFlush()
+  {
+    try
+    {
+      scheduledFlush = scheduler.schedule(flushTask, maxDelay, TimeUnit.MILLISECONDS);
+      return true;
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The connection handler is stopping: do not hold back the responses.
+      return false;
+    }
+  }
+
+  private void cancelScheduledFlush()
+  {
+    if (scheduledFlush != null)
+    {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+  }
+
+  private void flushPendingResponses() throws IOException
+  {
+    flushDue = false;
+    cancelScheduledFlush();
+    if (pendingResponses.length() > 0)
+    {
+      try
+      {
+        pendingResponses.copyTo(channel);
+      }
+      finally
+      {
+        clearPendingResponses();
+      }
+    }
+  }
+
+  private void clearPendingResponses()
+  {
+    // Do not retain the memory used by an unusually large response.
+    pendingResponses.clearAndTruncate(maxBufferedBytes, maxBufferedBytes);
+  }
+}
@@ -257,25 +257,12 @@ public class SearchResultEntryProtocolOp
 
     stream.writeStartSequence();
     SearchResultEntry tmp = entry;
-    if (ldapVersion == 3 && tmp != null)
+    if (tmp != null)
     {
-      for (List<Attribute> attrList : tmp.getUserAttributes()
-          .values())
-      {
-        for (Attribute a : attrList)
-        {
-          writeAttribute(stream, a);
-        }
-      }
-
-      for (List<Attribute> attrList : tmp.getOperationalAttributes()
-          .values())
-      {
-        for (Attribute a : attrList)
-        {
-          writeAttribute(stream, a);
-        }
-      }
+      // Encode the attributes of the entry in place rather than converting
+      // them to LDAPAttributes.
+      writeAttributes(stream, tmp.getUserAttributes());
+      writeAttributes(stream, tmp.getOperationalAttributes());
     }
     else
     {
@@ -564,6 +551,39 @@ public class SearchResultEntryProtocolOp
 
 
 
+  /**
+   * Write the attributes of an entry, merging the attributes having the same
+   * type into a single attribute for LDAPv2 clients.
+   */
+  private void writeAttributes(ASN1Writer stream,
+      Map<AttributeType, List<Attribute>> attrs) throws IOException
+  {
+    for (Map.Entry<AttributeType, List<Attribute>> attrList : attrs.entrySet())
+    {
+      List<Attribute> values = attrList.getValue();
+      if (ldapVersion == 2
+          && (values.size() != 1
+              || values.get(0).getAttributeDescription().hasOptions()))
+      {
+        AttributeBuilder builder = new AttributeBuilder(attrList.getKey());
+        for (Attribute a : values)
+        {
+          builder.addAll(a);
+        }
+        writeAttribute(stream, builder.toAttribute());
+      }
+      else
+      {
+        for (Attribute a : values)
+        {
+          writeAttribute(stream, a);
+        }
+      }
+    }
+  }
+
+
+
   /** Write an attribute without converting to an LDAPAttribute. */
   private void writeAttribute(ASN1Writer stream, Attribute a)
       throws IOException
@@ -103,6 +103,11 @@ public final class LDIFExportConfig extends OperationConfig
   /** The set of attribute types that should be included in the export. */
   private Set<AttributeType> includeAttributes;
 
+  /** The number of threads decoding and encoding the exported entries. */
+  private int threadCount = 1;
+  /** The number of files among which the exported entries are distributed. */
+  private int shardCount = 1;
+
   /**
    * Creates a new LDIF export configuration that will write to the
    * specified LDIF file.
@@ -185,62 +190,7 @@ public final class LDIFExportConfig extends OperationConfig
   {
     if (writer == null)
     {
-      if (ldifOutputStream == null)
-      {
-        File f = new File(ldifFile);
-        boolean mustSetPermissions = false;
-
-        switch (existingFileBehavior)
-        {
-        case APPEND:
-          // Create new file if it doesn't exist ensuring that we can
-          // set its permissions.
-          if (!f.exists())
-          {
-            f.createNewFile();
-            mustSetPermissions = true;
-          }
-          ldifOutputStream = new FileOutputStream(ldifFile, true);
-          break;
-        case OVERWRITE:
-          // Create new file if it doesn't exist ensuring that we can
-          // set its permissions.
-          if (!f.exists())
-          {
-            f.createNewFile();
-            mustSetPermissions = true;
-          }
-          ldifOutputStream = new FileOutputStream(ldifFile, false);
-          break;
-        case FAIL:
-          if (f.exists())
-          {
-            LocalizableMessage message = ERR_LDIF_FILE_EXISTS.get(ldifFile);
-            throw new IOException(message.toString());
-          }
-          // Create new file ensuring that we can set its permissions.
-          f.createNewFile();
-          mustSetPermissions = true;
-          ldifOutputStream = new FileOutputStream(ldifFile);
-          break;
-        }
-
-        if (mustSetPermissions)
-        {
-          try
-          {
-            // Ignore
-            FilePermission.setSafePermissions(f, 0600);
-          }
-          catch (Exception e)
-          {
-            // The file could not be created with the correct permissions.
-            LocalizableMessage message = WARN_EXPORT_LDIF_SET_PERMISSION_FAILED
-                .get(f, stackTraceToSingleLineString(e));
-            throw new IOException(message.toString());
-          }
-        }
-      }
+      openOutputStream();
 
       // See if we should compress the output.
       OutputStream outputStream;
@@ -268,6 +218,88 @@ public final class LDIFExportConfig extends OperationConfig
     return writer;
   }
 
+
+  /**
+   * Retrieves the output stream to which the LDIF data should be
+   * written, for exports preparing the LDIF data of several entries
+   * at once with the configurations returned by
+   * {@link #newChunkConfig(OutputStream)}. The data written to this
+   * stream is neither compressed nor encrypted, and must not be mixed
+   * with data written to the writer returned by {@link #getWriter()}.
+   *
+   * @return  The output stream to which the LDIF data should be
+   *          written.
+   *
+   * @throws  IOException  If a problem occurs while preparing the
+   *                       output stream.
+   */
+  public OutputStream getOutputStream()
+         throws IOException
+  {
+    openOutputStream();
+    return ldifOutputStream;
+  }
+
+  private void openOutputStream() throws IOException
+  {
+    if (ldifOutputStream == null)
+    {
+      File f = new File(ldifFile);
+      boolean mustSetPermissions = false;
+
+      switch (existingFileBehavior)
+      {
+      case APPEND:
+        // Create new file if it doesn't exist ensuring that we can
+        // set its permissions.
+        if (!f.exists())
+        {
+          f.createNewFile();
+          mustSetPermissions = true;
+        }
+        ldifOutputStream = new FileOutputStream(ldifFile, true);
+        break;
+      case OVERWRITE:
+        // Create new file if it doesn't exist ensuring that we can
+        // set its permissions.
+        if (!f.exists())
+        {
+          f.createNewFile();
+          mustSetPermissions = true;
+        }
+        ldifOutputStream = new FileOutputStream(ldifFile, false);
+        break;
+      case FAIL:
+        if (f.exists())
+        {
+          LocalizableMessage message = ERR_LDIF_FILE_EXISTS.get(ldifFile);
+          throw new IOException(message.toString());
+        }
+        // Create new file ensuring that we can set its permissions.
+        f.createNewFile();
+        mustSetPermissions = true;
+        ldifOutputStream = new FileOutputStream(ldifFile);
+        break;
+      }
+
+      if (mustSetPermissions)
+      {
+        try
+        {
+          // Ignore
+          FilePermission.setSafePermissions(f, 0600);
+        }
+        catch (Exception e)
+        {
+          // The file could not be created with the correct permissions.
+          LocalizableMessage message = WARN_EXPORT_LDIF_SET_PERMISSION_FAILED
+              .get(f, stackTraceToSingleLineString(e));
+          throw new IOException(message.toString());
+        }
+      }
+    }
+  }
+
   /**
    * Indicates whether the LDIF export plugins should be invoked for
    * entries as they are exported.
@@ -452,6 +484,58 @@ public final class LDIFExportConfig extends OperationConfig
     this.wrapColumn = wrapColumn;
   }
 
+  /**
+   * Retrieves the number of threads that should read, decode and
+   * encode the exported entries.
+   *
+   * @return  The number of threads that should read, decode and
+   *          encode the exported entries.
+   */
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  /**
+   * Specifies the number of threads that should read, decode and
+   * encode the exported entries.  A value of one exports the entries
+   * from a single thread.
+   *
+   * @param  threadCount  The number of threads that should read,
+   *                      decode and encode the exported entries.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Retrieves the number of LDIF files among which the exported
+   * entries should be distributed.
+   *
+   * @return  The number of LDIF files among which the exported
+   *          entries should be distributed.
+   */
+  public int getShardCount()
+  {
+    return shardCount;
+  }
+
+  /**
+   * Specifies the number of LDIF files among which the exported
+   * entries should be distributed.  A value of one writes all the
+   * entries to the LDIF file of this configuration, otherwise the
+   * entries are written to the files returned by
+   * {@link #newShardConfig(int)} in a round-robin manner.
+   *
+   * @param  shardCount  The number of LDIF files among which the
+   *                     exported entries should be distributed.
+   */
+  public void setShardCount(int shardCount)
+  {
+    this.shardCount = shardCount;
+  }
+
   /**
    * Retrieves the set of base DNs that specify the set of entries to
    * exclude from the export.  The list that is returned may be
@@ -816,11 +900,86 @@ public final class LDIFExportConfig extends OperationConfig
     return true;
   }
 
+  /**
+   * Creates a configuration writing the LDIF data of some of the
+   * exported entries to the provided output stream, with the same
+   * settings as this configuration.  When the data is compressed, the
+   * content of the output stream is a complete gzip member once the
+   * returned configuration is closed, so that the data prepared by
+   * several configurations can be concatenated in the output stream
+   * of this configuration.
+   *
+   * @param  outputStream  The output stream to which the LDIF data
+   *                       should be written.
+   *
+   * @return  A configuration writing to the provided output stream.
+   */
+  public LDIFExportConfig newChunkConfig(OutputStream outputStream)
+  {
+    LDIFExportConfig chunkConfig = new LDIFExportConfig(outputStream);
+    copySettingsTo(chunkConfig);
+    return chunkConfig;
+  }
+
+  /**
+   * Creates a configuration writing to the LDIF file having the
+   * specified shard number, with the same settings as this
+   * configuration.  The name of the file is the name of the LDIF file
+   * of this configuration suffixed with a dot and the shard number.
+   *
+   * @param  shardNumber  The number of the shard.
+   *
+   * @return  A configuration writing to the LDIF file of the shard.
+   *
+   * @throws  IOException  If this configuration writes to an output
+   *                       stream rather than to an LDIF file.
+   */
+  public LDIFExportConfig newShardConfig(int shardNumber)
+         throws IOException
+  {
+    if (ldifFile == null)
+    {
+      throw new IOException(ERR_LDIF_SHARDS_REQUIRE_FILE.get().toString());
+    }
+    LDIFExportConfig shardConfig =
+        new LDIFExportConfig(ldifFile + "." + shardNumber, existingFileBehavior);
+    copySettingsTo(shardConfig);
+    return shardConfig;
+  }
+
+  private void copySettingsTo(LDIFExportConfig config)
+  {
+    config.compressData                 = compressData;
+    config.encryptData                  = encryptData;
+    config.hashData                     = hashData;
+    config.includeObjectClasses         = includeObjectClasses;
+    config.includeOperationalAttributes = includeOperationalAttributes;
+    config.includeVirtualAttributes     = includeVirtualAttributes;
+    config.invokeExportPlugins          = invokeExportPlugins;
+    config.signHash                     = signHash;
+    config.typesOnly                    = typesOnly;
+    config.wrapColumn                   = wrapColumn;
+    config.excludeBranches              = excludeBranches;
+    config.includeBranches              = includeBranches;
+    config.excludeFilters               = excludeFilters;
+    config.includeFilters               = includeFilters;
+    config.excludeAttributes            = excludeAttributes;
+    config.includeAttributes            = includeAttributes;
+  }
+
   /** Closes any resources that this export config might have open. */
   @Override
   public void close()
   {
     // FIXME -- Need to add code to generate a signed hash of the LDIF content.
-    StaticUtils.close(writer);
+    if (writer != null)
+    {
+      StaticUtils.close(writer);
+    }
+    else if (ldifFile != null)
+    {
+      // The LDIF data was written through getOutputStream()
+      StaticUtils.close(ldifOutputStream);
+    }
   }
 }
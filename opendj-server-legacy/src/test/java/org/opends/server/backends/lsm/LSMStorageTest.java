@@ -0,0 +1,355 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.lsm;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.forgerock.opendj.ldap.ByteString.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.LSMBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.types.Attribute;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class LSMStorageTest extends DirectoryServerTestCase
+{
+  private static final int NB_RECORDS = 2000;
+
+  private final TreeName treeName = new TreeName("dc=test", "test");
+  private ServerContext serverContext;
+  private LSMStorage storage;
+
+  @BeforeClass
+  public static void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    serverContext = mock(ServerContext.class);
+    when(serverContext.getDiskSpaceMonitor()).thenReturn(mock(DiskSpaceMonitor.class));
+
+    storage = new LSMStorage(createBackendCfg("LSMStorageTest"), serverContext);
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+      }
+    });
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+    storage.removeStorageFiles();
+  }
+
+  @Test
+  public void testRecordsAreReadFromMemTablesAndSortedRuns() throws Exception
+  {
+    putRecords();
+
+    for (int i = 0; i < NB_RECORDS; i++)
+    {
+      assertThat(read(key(i))).isEqualTo(i % 3 == 0 ? null : value(i));
+    }
+    assertThat(readKeys()).isEqualTo(expectedKeys());
+    assertThat(monitoredValue("LSMFlushes")).isGreaterThan(0);
+    assertThat(monitoredValue("LSMCompactions")).isGreaterThan(0);
+  }
+
+  @Test
+  public void testRecordsAreReloadedAfterClose() throws Exception
+  {
+    putRecords();
+    storage.close();
+
+    storage = new LSMStorage(createBackendCfg("LSMStorageTest"), serverContext);
+    storage.open(AccessMode.READ_ONLY);
+    assertThat(storage.listTrees()).containsExactly(treeName);
+    assertThat(readKeys()).isEqualTo(expectedKeys());
+    assertThat(read(key(1))).isEqualTo(value(1));
+    assertThat(monitoredValue("LSMMemTables")).isEqualTo(1);
+  }
+
+  @Test
+  public void testJournalIsReplayedWhenTheStorageWasNotClosed() throws Exception
+  {
+    put(valueOfUtf8("key"), valueOfUtf8("value"));
+
+    // Copying the files of an open storage is like killing the server
+    final LSMStorage crashedStorage = new LSMStorage(createBackendCfg("LSMStorageTestCrashed"), serverContext);
+    crashedStorage.removeStorageFiles();
+    crashedStorage.getDirectory().mkdirs();
+    for (File file : storage.getDirectory().listFiles())
+    {
+      Files.copy(file.toPath(), new File(crashedStorage.getDirectory(), file.getName()).toPath());
+    }
+    try
+    {
+      crashedStorage.open(AccessMode.READ_WRITE);
+      assertThat(crashedStorage.read(new ReadOperation<ByteString>()
+      {
+        @Override
+        public ByteString run(ReadableTransaction txn) throws Exception
+        {
+          return txn.read(treeName, valueOfUtf8("key"));
+        }
+      })).isEqualTo(valueOfUtf8("value"));
+    }
+    finally
+    {
+      crashedStorage.close();
+      crashedStorage.removeStorageFiles();
+    }
+  }
+
+  @Test
+  public void testUpdateFunctionIsAppliedToTheLastValue() throws Exception
+  {
+    putRecords();
+    final UpdateFunction append = new UpdateFunction()
+    {
+      @Override
+      public ByteSequence computeNewValue(ByteSequence oldValue)
+      {
+        return oldValue == null ? valueOfUtf8("new") : valueOfUtf8(oldValue + "+");
+      }
+    };
+    final List<Boolean> updated = new ArrayList<>();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        updated.add(txn.update(treeName, key(1), append));
+        updated.add(txn.update(treeName, key(1), append));
+        updated.add(txn.update(treeName, key(3), append));
+        updated.add(txn.update(treeName, key(2), new UpdateFunction()
+        {
+          @Override
+          public ByteSequence computeNewValue(ByteSequence oldValue)
+          {
+            return null;
+          }
+        }));
+      }
+    });
+
+    assertThat(updated).containsExactly(true, true, true, true);
+    assertThat(read(key(1))).isEqualTo(valueOfUtf8(value(1) + "++"));
+    assertThat(read(key(3))).isEqualTo(valueOfUtf8("new"));
+    assertThat(read(key(2))).isNull();
+  }
+
+  @Test
+  public void testCursorSkipsDeletedRecords() throws Exception
+  {
+    putRecords();
+
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          assertThat(cursor.positionToKey(key(3))).isFalse();
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(4));
+          assertThat(cursor.positionToKeyOrNext(key(6))).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(7));
+          assertThat(cursor.positionToLastKey()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(NB_RECORDS - 1));
+          assertThat(cursor.positionToIndex(1)).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(2));
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testDeletedTreeIsEmptyWhenRecreated() throws Exception
+  {
+    putRecords();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.deleteTree(treeName);
+        txn.openTree(treeName, true);
+      }
+    });
+
+    assertThat(readKeys()).isEmpty();
+    assertThat(read(key(1))).isNull();
+  }
+
+  /** Puts records in enough write operations to flush several memtables, then deletes one record in three. */
+  private void putRecords() throws Exception
+  {
+    for (int i = 0; i < NB_RECORDS; i += 100)
+    {
+      final int first = i;
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (int j = first; j < first + 100; j++)
+          {
+            txn.put(treeName, key(j), value(j));
+          }
+        }
+      });
+    }
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (int i = 0; i < NB_RECORDS; i += 3)
+        {
+          assertThat(txn.delete(treeName, key(i))).isTrue();
+        }
+      }
+    });
+  }
+
+  private List<ByteString> expectedKeys()
+  {
+    final List<ByteString> keys = new ArrayList<>();
+    for (int i = 0; i < NB_RECORDS; i++)
+    {
+      if (i % 3 != 0)
+      {
+        keys.add(key(i));
+      }
+    }
+    return keys;
+  }
+
+  private List<ByteString> readKeys() throws Exception
+  {
+    return storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        final List<ByteString> keys = new ArrayList<>();
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          while (cursor.next())
+          {
+            keys.add(cursor.getKey());
+          }
+        }
+        return keys;
+      }
+    });
+  }
+
+  private static ByteString key(int i)
+  {
+    return valueOfUtf8(String.format("key%06d", i));
+  }
+
+  private static ByteString value(int i)
+  {
+    return valueOfUtf8(String.format("%0100d", i));
+  }
+
+  private long monitoredValue(String name)
+  {
+    for (Attribute attribute : storage.getMonitorData())
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equalsIgnoreCase(name))
+      {
+        return Long.parseLong(attribute.iterator().next().toString());
+      }
+    }
+    throw new AssertionError(name + " is not monitored");
+  }
+
+  private void put(final ByteString key, final ByteString value) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.put(treeName, key, value);
+      }
+    });
+  }
+
+  private ByteString read(final ByteString key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, key);
+      }
+    });
+  }
+
+  private LSMBackendCfg createBackendCfg(String directory)
+  {
+    LSMBackendCfg backendCfg = mockCfg(LSMBackendCfg.class);
+    when(backendCfg.getBackendId()).thenReturn(directory);
+    when(backendCfg.getDBDirectory()).thenReturn(directory);
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(backendCfg.getMemtableSize()).thenReturn(16L * 1024);
+    when(backendCfg.getMaxSortedRuns()).thenReturn(4);
+    when(backendCfg.getBloomFilterBitsPerKey()).thenReturn(10);
+    when(backendCfg.isDBTxnNoSync()).thenReturn(false);
+    return backendCfg;
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.mem;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.opends.server.util.StaticUtils.*;
+import static org.forgerock.opendj.ldap.ByteString.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.MemBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.Attribute;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MemStorageTest extends DirectoryServerTestCase
+{
+  private final TreeName treeName = new TreeName("dc=test", "test");
+  private MemStorage storage;
+
+  @BeforeClass
+  public static void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    storage = new MemStorage(createBackendCfg(null, null));
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+      }
+    });
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+  }
+
+  @Test
+  public void testCanAddLargeValues() throws Exception
+  {
+    put(valueOfUtf8("4mb"), valueOfBytes(new byte[4 * MB]));
+    put(valueOfUtf8("small"), valueOfUtf8("value"));
+
+    assertThat(read(valueOfUtf8("4mb")).length()).isEqualTo(4 * MB);
+    assertThat(read(valueOfUtf8("small"))).isEqualTo(valueOfUtf8("value"));
+  }
+
+  @Test
+  public void testReadersSeeTheLastCommitWhenTheyStarted() throws Exception
+  {
+    put(valueOfUtf8("key"), valueOfUtf8("before"));
+    final CountDownLatch readStarted = new CountDownLatch(1);
+    final CountDownLatch updated = new CountDownLatch(1);
+    final List<ByteString> readValues = new ArrayList<>();
+    final Thread reader = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          storage.read(new ReadOperation<Void>()
+          {
+            @Override
+            public Void run(ReadableTransaction txn) throws Exception
+            {
+              readValues.add(txn.read(treeName, valueOfUtf8("key")));
+              readStarted.countDown();
+              updated.await();
+              readValues.add(txn.read(treeName, valueOfUtf8("key")));
+              readValues.add(txn.read(treeName, valueOfUtf8("added")));
+              return null;
+            }
+          });
+        }
+        catch (Exception e)
+        {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    reader.start();
+    readStarted.await();
+    put(valueOfUtf8("key"), valueOfUtf8("after"));
+    put(valueOfUtf8("added"), valueOfUtf8("value"));
+    updated.countDown();
+    reader.join();
+
+    assertThat(readValues).containsExactly(valueOfUtf8("before"), valueOfUtf8("before"), null);
+    assertThat(read(valueOfUtf8("key"))).isEqualTo(valueOfUtf8("after"));
+  }
+
+  @Test
+  public void testWriteOperationSeesItsOwnChanges() throws Exception
+  {
+    put(valueOfUtf8("a"), valueOfUtf8("1"));
+    put(valueOfUtf8("c"), valueOfUtf8("3"));
+
+    final List<String> keys = new ArrayList<>();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.put(treeName, valueOfUtf8("b"), valueOfUtf8("2"));
+        assertThat(txn.delete(treeName, valueOfUtf8("c"))).isTrue();
+        assertThat(txn.delete(treeName, valueOfUtf8("d"))).isFalse();
+        assertThat(txn.update(treeName, valueOfUtf8("a"), new UpdateFunction()
+        {
+          @Override
+          public ByteSequence computeNewValue(ByteSequence oldValue)
+          {
+            return oldValue;
+          }
+        })).isFalse();
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          while (cursor.next())
+          {
+            keys.add(cursor.getKey().toString());
+          }
+        }
+        assertThat(txn.getRecordCount(treeName)).isEqualTo(2);
+      }
+    });
+
+    assertThat(keys).containsExactly("a", "b");
+    assertThat(read(valueOfUtf8("c"))).isNull();
+  }
+
+  @Test
+  public void testFailedWriteOperationIsRolledBack() throws Exception
+  {
+    put(valueOfUtf8("key"), valueOfUtf8("value"));
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.put(treeName, valueOfUtf8("key"), valueOfUtf8("updated"));
+          throw new IllegalStateException();
+        }
+      });
+      failBecauseExceptionWasNotThrown(IllegalStateException.class);
+    }
+    catch (IllegalStateException expected)
+    {
+      // nothing to do
+    }
+
+    assertThat(read(valueOfUtf8("key"))).isEqualTo(valueOfUtf8("value"));
+  }
+
+  @Test
+  public void testUpdatedRecordsReuseTheirMemory() throws Exception
+  {
+    put(valueOfUtf8("key"), valueOfBytes(new byte[1000]));
+    final long usedBytes = usedBytes();
+    for (int i = 0; i < 100; i++)
+    {
+      put(valueOfUtf8("key"), valueOfBytes(new byte[1000]));
+    }
+
+    assertThat(usedBytes()).isLessThanOrEqualTo(usedBytes * 2);
+  }
+
+  @Test(expectedExceptions = StorageRuntimeException.class)
+  public void testMaxMemorySizeIsEnforced() throws Exception
+  {
+    storage.close();
+    storage = new MemStorage(createBackendCfg(null, (long) MB));
+    storage.open(AccessMode.READ_WRITE);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        txn.put(treeName, valueOfUtf8("2mb"), valueOfBytes(new byte[2 * MB]));
+      }
+    });
+  }
+
+  @Test
+  public void testRecordsAreReloadedFromSnapshot() throws Exception
+  {
+    storage.close();
+    final MemBackendCfg cfg = createBackendCfg("MemStorageTest", null);
+    storage = new MemStorage(cfg);
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        txn.put(treeName, valueOfUtf8("key"), valueOfUtf8("value"));
+        txn.put(treeName, valueOfUtf8("empty"), ByteString.empty());
+      }
+    });
+    storage.close();
+
+    storage = new MemStorage(cfg);
+    storage.open(AccessMode.READ_ONLY);
+    assertThat(storage.listTrees()).containsExactly(treeName);
+    assertThat(read(valueOfUtf8("key"))).isEqualTo(valueOfUtf8("value"));
+    assertThat(read(valueOfUtf8("empty"))).isEqualTo(ByteString.empty());
+    storage.close();
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+  }
+
+  private long usedBytes()
+  {
+    for (Attribute attribute : storage.getMonitorData())
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equalsIgnoreCase("MemUsedBytes"))
+      {
+        return Long.parseLong(attribute.iterator().next().toString());
+      }
+    }
+    throw new AssertionError("MemUsedBytes is not monitored");
+  }
+
+  private void put(final ByteString key, final ByteString value) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.put(treeName, key, value);
+      }
+    });
+  }
+
+  private ByteString read(final ByteString key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, key);
+      }
+    });
+  }
+
+  private MemBackendCfg createBackendCfg(String snapshotDirectory, Long maxMemorySize)
+  {
+    MemBackendCfg backendCfg = mockCfg(MemBackendCfg.class);
+    when(backendCfg.getBackendId()).thenReturn("MemStorageTest");
+    when(backendCfg.getSnapshotDirectory()).thenReturn(snapshotDirectory);
+    when(backendCfg.getSnapshotInterval()).thenReturn(0L);
+    when(backendCfg.getMaxMemorySize()).thenReturn(maxMemorySize);
+    return backendCfg;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.mem;
+
+import static org.mockito.Mockito.when;
+import static org.forgerock.opendj.config.ConfigurationMock.mockCfg;
+
+import org.forgerock.opendj.server.config.server.MemBackendCfg;
+import org.opends.server.backends.pluggable.PluggableBackendImplTestCase;
+import org.testng.annotations.Test;
+
+/** {@link MemBackend} Tester. */
+@Test
+public class MemTestCase extends PluggableBackendImplTestCase<MemBackendCfg>
+{
+  @Override
+  protected MemBackend createBackend()
+  {
+    return new MemBackend();
+  }
+
+  @Override
+  protected MemBackendCfg createBackendCfg()
+  {
+    MemBackendCfg backendCfg = mockCfg(MemBackendCfg.class);
+    when(backendCfg.getBackendId()).thenReturn("MemTestCase");
+    // Backup and restore require a snapshot directory
+    when(backendCfg.getSnapshotDirectory()).thenReturn("MemTestCase");
+    when(backendCfg.getSnapshotInterval()).thenReturn(0L);
+    when(backendCfg.getMaxMemorySize()).thenReturn(null);
+    return backendCfg;
+  }
+}
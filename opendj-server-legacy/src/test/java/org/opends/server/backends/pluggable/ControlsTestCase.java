@@ -409,6 +409,23 @@ public class ControlsTestCase extends DirectoryServerTestCase
     assertThat(sortResponse.getResultCode()).isEqualTo(LDAPResultCode.SUCCESS);
   }
 
+  @Test
+  public void serverSideSortWithoutVlvIndexShouldReturnFirstEntriesWhenSizeLimitIsExceeded() throws Exception
+  {
+    final SearchRequest request =
+        newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER)
+        .setSizeLimit(3)
+        .addControl(new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3)));
+    final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+
+    assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SIZE_LIMIT_EXCEEDED);
+    assertThat(getDNs(internalSearch.getSearchEntries())).isEqualTo(getDNs(USERS_BY_SORT_ORDER_3.subList(0, 3)));
+
+    final ServerSideSortResponseControl sortResponse =
+        getServerSideSortResponseControl(internalSearch.getResponseControls());
+    assertThat(sortResponse.getResultCode()).isEqualTo(LDAPResultCode.SUCCESS);
+  }
+
   @DataProvider
   private Object[][] unindexedVlvByAssertionDataProvider()
   {
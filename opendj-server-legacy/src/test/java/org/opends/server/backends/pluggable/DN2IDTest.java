@@ -31,6 +31,7 @@ import org.forgerock.opendj.ldap.schema.CoreSchema;
 import org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType;
 import org.forgerock.opendj.server.config.server.BackendIndexCfg;
 import org.forgerock.opendj.server.config.server.PDBBackendCfg;
+import org.forgerock.util.Pair;
 import org.forgerock.util.promise.NeverThrowsException;
 import org.forgerock.util.promise.PromiseImpl;
 import org.opends.server.DirectoryServerTestCase;
@@ -220,6 +221,26 @@ public class DN2IDTest extends DirectoryServerTestCase
                    get("cn=foofoo,ou=People,dc=example,dc=com"));
   }
 
+  @Test
+  public void testRemoveSubtreeChunkRemovesDeepestEntriesFirst() throws Exception
+  {
+    populate();
+
+    // The subtree of cn=bar is deeper than the chunk: the chunk grows to include it
+    assertThat(removeSubtreeChunk("ou=People,dc=example,dc=com", 2))
+      .containsExactly(Pair.of(id(8), id(4)), Pair.of(id(9), id(8)), Pair.of(id(10), id(8)));
+    assertThat(removeSubtreeChunk("ou=People,dc=example,dc=com", 2))
+      .containsExactly(Pair.of(id(6), id(4)));
+    assertThat(removeSubtreeChunk("ou=People,dc=example,dc=com", 2))
+      .containsExactly(Pair.of(id(5), id(4)));
+    assertThat(removeSubtreeChunk("ou=People,dc=example,dc=com", 2))
+      .containsExactly(Pair.of(id(4), (EntryID) null), Pair.of(id(7), id(4)));
+
+    assertThat(get("ou=People,dc=example,dc=com")).isNull();
+    assertThat(get("ou=Devices,dc=example,dc=com")).isEqualTo(id(2));
+    assertThat(removeSubtreeChunk("ou=People,dc=example,dc=com", 2)).isEmpty();
+  }
+
   private EntryID get(final String dn) throws Exception
   {
     return storage.read(new ReadOperation<EntryID>()
@@ -296,6 +317,21 @@ public class DN2IDTest extends DirectoryServerTestCase
     return p.get(10, TimeUnit.SECONDS);
   }
 
+  private List<Pair<EntryID, EntryID>> removeSubtreeChunk(final String dn, final int maxRecords) throws Exception
+  {
+    final List<Pair<EntryID, EntryID>> removedIDs = new ArrayList<>();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        removedIDs.clear();
+        removedIDs.addAll(dn2ID.removeSubtreeChunk(txn, dn(dn), maxRecords));
+      }
+    });
+    return removedIDs;
+  }
+
   private static DN dn(String dn) throws DirectoryException
   {
     return DN.valueOf(dn);
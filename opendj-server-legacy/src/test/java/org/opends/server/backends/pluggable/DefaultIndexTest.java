@@ -26,6 +26,7 @@ import static org.opends.server.backends.pluggable.Utils.assertIdsEquals;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
@@ -38,8 +39,10 @@ import org.opends.server.backends.pluggable.State.IndexFlag;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.crypto.CryptoSuite;
 import org.testng.annotations.BeforeMethod;
@@ -98,6 +101,99 @@ public class DefaultIndexTest extends DirectoryServerTestCase
     assertThat(txn.read(index.getName(), valueOfUtf8("key"))).isNull();
   }
 
+  @Test
+  public void testUpdateMaintainsStatistics() {
+    update(newDefinedSet(), newDefinedSet(1, 2, 3));
+    assertThat(index.getStatistics().getKeyCount()).isEqualTo(1);
+    assertThat(index.getStatistics().getEntryIDCount()).isEqualTo(3);
+    assertThat(index.getStatistics().getValueBytes()).isEqualTo(getFromDb().length());
+
+    update(newDefinedSet(1), newDefinedSet(4, 5, 6, 7));
+    assertThat(index.getStatistics().getKeyCount()).isEqualTo(1);
+    assertThat(index.getStatistics().getUndefinedKeyCount()).isEqualTo(1);
+    assertThat(index.getStatistics().getEntryIDCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testRemovedKeyIsRemovedFromStatistics() {
+    update(newDefinedSet(), newDefinedSet(1, 2, 3));
+    update(newDefinedSet(1, 2, 3), newDefinedSet());
+
+    assertThat(index.getStatistics().getKeyCount()).isEqualTo(0);
+    assertThat(index.getStatistics().getEntryIDCount()).isEqualTo(0);
+    assertThat(index.getStatistics().getValueBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testStatisticsAreOnlyUpdatedOnceCommitted() throws Exception {
+    final PostCommitActions postCommitActions = new PostCommitActions();
+    final WriteOperation write = postCommitActions.collectFrom(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        update(newDefinedSet(), newDefinedSet(1, 2, 3));
+      }
+    });
+
+    // The first run is rolled back and the write operation is run again
+    write.run(txn);
+    txn.delete(index.getName(), valueOfUtf8("key"));
+    write.run(txn);
+    assertThat(index.getStatistics().getKeyCount()).isEqualTo(0);
+
+    postCommitActions.runAll();
+    assertThat(index.getStatistics().getKeyCount()).isEqualTo(1);
+    assertThat(index.getStatistics().getEntryIDCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testOpeningForWriteRemovesStoredStatistics() {
+    final State state = new State(new TreeName("dc=example,dc=com", "state"));
+    state.open(txn, true);
+    final TreeName name = new TreeName("dc=example,dc=com", "with-statistics");
+    final IndexStatistics statistics = IndexStatistics.newEmptyStatistics();
+    statistics.recordUpdate(IndexStatistics.ABSENT_KEY, 0, 3, 4);
+    state.putIndexStatistics(txn, name, statistics);
+
+    final DefaultIndex openedIndex = newIndex(name, state);
+    openedIndex.open(txn, true);
+
+    assertThat(openedIndex.getStatistics().getKeyCount()).isEqualTo(1);
+    assertThat(state.getIndexStatistics(txn, name).isAvailable()).isFalse();
+    openedIndex.saveStatistics(txn);
+    assertThat(state.getIndexStatistics(txn, name).getKeyCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testExistingIndexWithoutStateRecordKeepsV2Encoding() {
+    final State state = new State(new TreeName("dc=example,dc=com", "state"));
+    state.open(txn, true);
+    final TreeName name = new TreeName("dc=example,dc=com", "never-trusted");
+    txn.openTree(name, true);
+    txn.put(name, valueOfUtf8("key"), CODEC_V2.encode(newDefinedSet(1, 2, 3)));
+
+    final DefaultIndex existingIndex = newIndex(name, state);
+    existingIndex.open(txn, true);
+
+    assertIdsEquals(existingIndex.get(txn, valueOfUtf8("key")), 1, 2, 3);
+    assertThat(state.getIndexFlags(txn, name)).containsOnly(COMPACTED);
+  }
+
+  @Test
+  public void testNewIndexUsesBitmapEncoding() {
+    final State state = new State(new TreeName("dc=example,dc=com", "state"));
+    state.open(txn, true);
+    final TreeName name = new TreeName("dc=example,dc=com", "new");
+
+    final DefaultIndex newIndex = newIndex(name, state);
+    newIndex.open(txn, true);
+    newIndex.update(txn, valueOfUtf8("key"), newDefinedSet(), newDefinedSet(1, 2, 3));
+
+    assertThat(state.getIndexFlags(txn, name)).containsOnly(COMPACTED, BITMAP);
+    assertIdsEquals(CODEC_V4.decode(valueOfUtf8("key"), txn.read(name, valueOfUtf8("key"))), 1, 2, 3);
+  }
+
   private void update(EntryIDSet deletedIDSet, EntryIDSet addedIDSet) {
     index.update(txn, valueOfUtf8("key"), deletedIDSet, addedIDSet);
   }
@@ -119,12 +215,21 @@ public class DefaultIndexTest extends DirectoryServerTestCase
   {
     final State state = mock(State.class);
     when(state.getIndexFlags(any(ReadableTransaction.class), any(TreeName.class))).thenReturn(indexFlags);
+    when(state.getIndexStatistics(any(ReadableTransaction.class), any(TreeName.class)))
+        .thenReturn(IndexStatistics.newEmptyStatistics());
     final CryptoSuite cryptoSuite = mock(CryptoSuite.class);
     when(cryptoSuite.isEncrypted()).thenReturn(false);
     return new DefaultIndex(new TreeName("dc=example,dc=com", name), state, indexLimit, mock(EntryContainer.class),
         cryptoSuite);
   }
 
+  private static DefaultIndex newIndex(TreeName name, State state)
+  {
+    final CryptoSuite cryptoSuite = mock(CryptoSuite.class);
+    when(cryptoSuite.isEncrypted()).thenReturn(false);
+    return new DefaultIndex(name, state, 5, mock(EntryContainer.class), cryptoSuite);
+  }
+
   static final class DummyWriteableTransaction implements WriteableTransaction {
 
     private final Map<TreeName, TreeMap<ByteString, ByteString>> storage = new HashMap<>();
@@ -135,6 +240,12 @@ public class DefaultIndexTest extends DirectoryServerTestCase
       return getTree(treeName).get(key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return StorageUtils.readEach(this, treeName, sortedKeys);
+    }
+
     private TreeMap<ByteString, ByteString> getTree(TreeName treeName) {
       final TreeMap<ByteString, ByteString> tree = storage.get(treeName);
       if ( tree == null ) {
@@ -251,7 +362,10 @@ public class DefaultIndexTest extends DirectoryServerTestCase
     @Override
     public void openTree(TreeName name, boolean createOnDemand)
     {
-      storage.put(name, new TreeMap<ByteString, ByteString>());
+      if (!storage.containsKey(name))
+      {
+        storage.put(name, new TreeMap<ByteString, ByteString>());
+      }
     }
 
     @Override
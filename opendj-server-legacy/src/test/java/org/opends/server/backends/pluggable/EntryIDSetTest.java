@@ -151,6 +151,17 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(newDefinedSet(4, 6, 8, 10, 12).iterator(), 4, 6, 8, 10, 12);
   }
 
+  @Test
+  public void testDefinedIteratorFrom()
+  {
+    final EntryIDSet set = newDefinedSet(4, 6, 8, 10, 12);
+    assertIdsEquals(set.iterator(id(8)), 8, 10, 12);
+    assertIdsEquals(set.iterator(id(9)), 10, 12);
+    assertIdsEquals(set.iterator(id(1)), 4, 6, 8, 10, 12);
+    assertThat(set.iterator(id(13)).hasNext()).isFalse();
+    assertThat(newUndefinedSet().iterator(id(1)).hasNext()).isFalse();
+  }
+
   @Test(dataProvider = "codecs")
   public void testCodecs(EntryIDSetCodec codec)
   {
@@ -290,9 +301,175 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(retained, 1, 3, 5, 7, 9);
   }
 
+  @Test
+  public void testBitmapCodecRoundTripsSparseAndDenseChunks()
+  {
+    final long[] ids = sparseAndDenseIds();
+    final ByteString encoded = CODEC_V4.encode(newDefinedSet(ids));
+    final EntryIDSet decoded = CODEC_V4.decode(KEY, encoded);
+
+    assertThat(decoded.size()).isEqualTo(ids.length);
+    assertThat(decoded.toLongArray()).isEqualTo(ids);
+    assertThat(CODEC_V4.decode(KEY, CODEC_V4.encode(decoded)).toLongArray()).isEqualTo(ids);
+  }
+
+  @Test
+  public void testBitmapAddRemoveContain()
+  {
+    final EntryIDSet set = bitmapSet(4, 6, 70000);
+
+    assertThat(set.add(id(5))).isTrue();
+    assertThat(set.add(id(5))).isFalse();
+    assertThat(set.add(id(1L << 40))).isTrue();
+    assertIdsEquals(set, 4, 5, 6, 70000, 1L << 40);
+
+    assertThat(set.contains(id(70000))).isTrue();
+    assertThat(set.contains(id(70001))).isFalse();
+
+    assertThat(set.remove(id(70000))).isTrue();
+    assertThat(set.remove(id(70000))).isFalse();
+    assertIdsEquals(set, 4, 5, 6, 1L << 40);
+  }
+
+  @Test
+  public void testBitmapRetainAll()
+  {
+    final long[] ids = sparseAndDenseIds();
+    final EntryIDSet retained = bitmapSet(ids);
+    retained.retainAll(bitmapSet(3, 70000, 70002, 70003, 200000));
+    assertIdsEquals(retained, 3, 70000, 70002, 200000);
+
+    final EntryIDSet mixed = newDefinedSet(3, 4, 70002, 70003);
+    mixed.retainAll(bitmapSet(ids));
+    assertIdsEquals(mixed, 3, 70002);
+
+    final EntryIDSet undefined = newUndefinedSet();
+    final EntryIDSet bitmap = bitmapSet(1, 2);
+    undefined.retainAll(bitmap);
+    undefined.add(id(3));
+    assertIdsEquals(undefined, 1, 2, 3);
+    assertIdsEquals(bitmap, 1, 2);
+  }
+
+  @Test
+  public void testBitmapAddAllAndRemoveAll()
+  {
+    final EntryIDSet set = bitmapSet(1, 2, 100000);
+    set.addAll(bitmapSet(2, 3, 200000));
+    set.addAll(newDefinedSet(0, 150000));
+    assertIdsEquals(set, 0, 1, 2, 3, 100000, 150000, 200000);
+
+    set.removeAll(bitmapSet(0, 3, 150000));
+    set.removeAll(newDefinedSet(1, 4));
+    assertIdsEquals(set, 2, 100000, 200000);
+
+    final EntryIDSet array = newDefinedSet(5, 7);
+    array.addAll(bitmapSet(6, 100000));
+    assertIdsEquals(array, 5, 6, 7, 100000);
+  }
+
+  @Test
+  public void testBitmapDenseChunkShrinksBackToArray()
+  {
+    final long[] ids = new long[5000];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = i * 2;
+    }
+    final EntryIDSet set = bitmapSet(ids);
+    final long[] toRemove = new long[1000];
+    for (int i = 0; i < toRemove.length; i++)
+    {
+      toRemove[i] = i * 2;
+    }
+    set.removeAll(newDefinedSet(toRemove));
+    assertThat(set.size()).isEqualTo(4000);
+    assertThat(set.contains(id(2000))).isTrue();
+    assertThat(set.contains(id(1998))).isFalse();
+    assertThat(set.iterator().next()).isEqualTo(id(2000));
+  }
+
+  @Test
+  public void testNewSetFromUnionsWithBitmaps()
+  {
+    EntryIDSet union =
+        newSetFromUnion(Arrays.asList(bitmapSet(1, 2, 3), newDefinedSet(4, 5, 6), bitmapSet(3, 4, 70000)));
+    assertIdsEquals(union, 1, 2, 3, 4, 5, 6, 70000);
+
+    union = newSetFromUnion(Arrays.asList(bitmapSet(1), newUndefinedSet()));
+    assertThat(union.isDefined()).isFalse();
+  }
+
+  @Test
+  public void testBitmapCodecRoundTripsUnionsOfOverlappingSparseChunks()
+  {
+    // More than 4096 IDs in the two sets, but no more than 4096 distinct ones
+    for (int last : new int[] { 3999, 4095 })
+    {
+      final long[] expected = range(0, last);
+      final EntryIDSet added = bitmapSet(range(0, 2999));
+      added.addAll(bitmapSet(range(1000, last)));
+      final EntryIDSet union = newSetFromUnion(Arrays.asList(bitmapSet(range(0, 2999)), bitmapSet(range(1000, last))));
+
+      for (EntryIDSet set : Arrays.asList(added, union))
+      {
+        final EntryIDSet decoded = CODEC_V4.decode(KEY, CODEC_V4.encode(set));
+        assertThat(decoded.toLongArray()).isEqualTo(expected);
+        assertThat(decoded.contains(id(last))).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void testBitmapIteratorFrom()
+  {
+    final EntryIDSet set = bitmapSet(sparseAndDenseIds());
+    assertIdsEquals(set.iterator(id(2)), Arrays.copyOfRange(sparseAndDenseIds(), 1, sparseAndDenseIds().length));
+    assertThat(set.iterator(id(65537)).next()).isEqualTo(id(65538));
+    assertThat(set.iterator(id(3 * 65536 + 100)).next()).isEqualTo(id(3 * 65536 + 100));
+    assertThat(set.iterator(id(4 * 65536)).next()).isEqualTo(id(1L << 33));
+    assertThat(set.iterator(id((1L << 33) + 2)).hasNext()).isFalse();
+  }
+
+  private static EntryIDSet bitmapSet(long... ids)
+  {
+    return CODEC_V4.decode(KEY, CODEC_V4.encode(newDefinedSet(ids)));
+  }
+
+  private static long[] range(int first, int last)
+  {
+    final long[] ids = new long[last - first + 1];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = first + i;
+    }
+    return ids;
+  }
+
+  /** Sparse chunk, dense chunk, full chunk and far away sparse chunk. */
+  private static long[] sparseAndDenseIds()
+  {
+    final long[] ids = new long[3 + 10000 + 65536 + 2];
+    int i = 0;
+    ids[i++] = 1;
+    ids[i++] = 3;
+    ids[i++] = 40000;
+    for (int j = 0; j < 10000; j++)
+    {
+      ids[i++] = 65536 + 2 * j;
+    }
+    for (int j = 0; j < 65536; j++)
+    {
+      ids[i++] = 3 * 65536 + j;
+    }
+    ids[i++] = 1L << 33;
+    ids[i++] = (1L << 33) + 1;
+    return ids;
+  }
+
   @DataProvider(name = "codecs")
   public static Object[][] codecs() {
-     return new Object[][] { { CODEC_V1 }, { CODEC_V2 } };
+     return new Object[][] { { CODEC_V1 }, { CODEC_V2 }, { CODEC_V4 } };
   }
 
 }
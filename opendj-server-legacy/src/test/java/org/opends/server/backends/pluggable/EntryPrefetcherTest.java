@@ -0,0 +1,187 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.api.EntryCache;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.Entry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryPrefetcherTest extends DirectoryServerTestCase
+{
+  /** Iterates over consecutive entry IDs, counting those which have been read. */
+  private static final class CountingIterator implements Iterator<EntryID>
+  {
+    private final int count;
+    private final AtomicInteger readCount = new AtomicInteger();
+
+    private CountingIterator(int count)
+    {
+      this.count = count;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return readCount.get() < count;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      return new EntryID(readCount.incrementAndGet());
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private final ReadableTransaction txn = mock(ReadableTransaction.class);
+  private final Map<Long, Entry> entries = new HashMap<>();
+  private Storage storage;
+  private ID2Entry id2entry;
+  private EntryCache<?> entryCache;
+  private SearchOperation searchOperation;
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    storage = mock(Storage.class);
+    doAnswer(new Answer<Object>()
+    {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable
+      {
+        return invocation.getArgumentAt(0, ReadOperation.class).run(txn);
+      }
+    }).when(storage).read(any(ReadOperation.class));
+
+    id2entry = mock(ID2Entry.class);
+    when(id2entry.readAll(same(txn), any(long[].class))).thenAnswer(new Answer<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> answer(InvocationOnMock invocation) throws Throwable
+      {
+        final List<ByteString> records = new ArrayList<>();
+        for (long entryID : invocation.getArgumentAt(1, long[].class))
+        {
+          records.add(ByteString.valueOfLong(entryID));
+        }
+        return records;
+      }
+    });
+    when(id2entry.get(any(EntryID.class), any(ByteString.class))).thenAnswer(new Answer<Entry>()
+    {
+      @Override
+      public Entry answer(InvocationOnMock invocation) throws Throwable
+      {
+        return getEntry(invocation.getArgumentAt(1, ByteString.class).toLong());
+      }
+    });
+
+    entryCache = mock(EntryCache.class);
+    searchOperation = mock(SearchOperation.class);
+  }
+
+  private synchronized Entry getEntry(long entryID)
+  {
+    Entry entry = entries.get(entryID);
+    if (entry == null)
+    {
+      entry = mock(Entry.class);
+      entries.put(entryID, entry);
+    }
+    return entry;
+  }
+
+  private EntryPrefetcher newPrefetcher(Iterator<EntryID> candidates, int capacity)
+  {
+    return new EntryPrefetcher(storage, id2entry, entryCache, "test", candidates, searchOperation, capacity);
+  }
+
+  @Test
+  public void testReturnsAllTheCandidatesInOrder() throws Exception
+  {
+    final EntryPrefetcher prefetcher = newPrefetcher(new CountingIterator(100), 4);
+    final Thread prefetchThread = new Thread(prefetcher);
+    prefetchThread.start();
+
+    long expectedEntryID = 1;
+    while (prefetcher.next())
+    {
+      assertThat(prefetcher.getEntryID().longValue()).isEqualTo(expectedEntryID);
+      assertThat(prefetcher.getEntry()).isSameAs(getEntry(expectedEntryID));
+      expectedEntryID++;
+    }
+    assertThat(expectedEntryID).isEqualTo(101);
+    assertThat(prefetcher.next()).isFalse();
+    prefetcher.close();
+
+    prefetchThread.join(10000);
+    assertThat(prefetchThread.isAlive()).isFalse();
+  }
+
+  @Test
+  public void testCloseStopsReadingAhead() throws Exception
+  {
+    final CountingIterator candidates = new CountingIterator(10000);
+    final EntryPrefetcher prefetcher = newPrefetcher(candidates, 4);
+    final Thread prefetchThread = new Thread(prefetcher);
+    prefetchThread.start();
+
+    assertThat(prefetcher.next()).isTrue();
+    assertThat(prefetcher.getEntryID().longValue()).isEqualTo(1);
+    prefetcher.close();
+
+    prefetchThread.join(10000);
+    assertThat(prefetchThread.isAlive()).isFalse();
+    assertThat(candidates.readCount.get()).isLessThan(10000);
+  }
+
+  @Test(expectedExceptions = StorageRuntimeException.class)
+  public void testStorageFailureIsReportedToTheSearch() throws Exception
+  {
+    doThrow(new StorageRuntimeException("read failed")).when(storage).read(any(ReadOperation.class));
+    final EntryPrefetcher prefetcher = newPrefetcher(new CountingIterator(100), 4);
+    prefetcher.run();
+
+    prefetcher.next();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class ExternalMergeSorterTest extends DirectoryServerTestCase
+{
+  private File tempDir;
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    tempDir = TestCaseUtils.createTemporaryDirectory("sorter");
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception
+  {
+    TestCaseUtils.deleteDirectory(tempDir);
+  }
+
+  @Test
+  public void testSortInMemory()
+  {
+    try (ExternalMergeSorter sorter = new ExternalMergeSorter(1024 * 1024, tempDir))
+    {
+      final List<ByteString> keys = addShuffledKeys(sorter, 100);
+
+      assertThat(sorter.size()).isEqualTo(100);
+      assertThat(sorter.getRunCount()).isEqualTo(0);
+      assertThat(toList(sorter.sort())).isEqualTo(keys);
+    }
+  }
+
+  @Test
+  public void testSortSpillsRunsToDisk()
+  {
+    try (ExternalMergeSorter sorter = new ExternalMergeSorter(1000, tempDir))
+    {
+      final List<ByteString> keys = addShuffledKeys(sorter, 1000);
+
+      assertThat(sorter.size()).isEqualTo(1000);
+      assertThat(sorter.getRunCount()).isGreaterThan(1);
+      assertThat(toList(sorter.sort())).isEqualTo(keys);
+    }
+    assertThat(tempDir.list()).isEmpty();
+  }
+
+  @Test
+  public void testSortEmpty()
+  {
+    try (ExternalMergeSorter sorter = new ExternalMergeSorter(1000, tempDir))
+    {
+      assertThat(sorter.sort().hasNext()).isFalse();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testCannotAddAfterSort()
+  {
+    try (ExternalMergeSorter sorter = new ExternalMergeSorter(1000, tempDir))
+    {
+      sorter.sort();
+      sorter.add(key(1));
+    }
+  }
+
+  /** Adds the keys in random order, returns them in ascending order. */
+  private static List<ByteString> addShuffledKeys(ExternalMergeSorter sorter, int count)
+  {
+    final List<ByteString> keys = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+    {
+      keys.add(key(i));
+    }
+    final List<ByteString> shuffled = new ArrayList<>(keys);
+    Collections.shuffle(shuffled, new Random(0));
+    for (ByteString key : shuffled)
+    {
+      sorter.add(key);
+    }
+    return keys;
+  }
+
+  private static ByteString key(int i)
+  {
+    return new ByteStringBuilder().appendInt(i).toByteString();
+  }
+
+  private static List<ByteString> toList(Iterator<ByteString> iterator)
+  {
+    final List<ByteString> list = new ArrayList<>();
+    while (iterator.hasNext())
+    {
+      list.add(iterator.next());
+    }
+    return list;
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.backends.pluggable.State.IndexFlag.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.WriteDurability;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.crypto.CryptoSuite;
+import org.opends.server.types.DirectoryException;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class GroupCommitStorageTest extends DirectoryServerTestCase
+{
+  /** Counts its runs, and fails if requested. */
+  private static final class CountingWrite implements WriteOperation
+  {
+    private final AtomicInteger runCount = new AtomicInteger();
+    private final boolean isFailing;
+
+    private CountingWrite(boolean isFailing)
+    {
+      this.isFailing = isFailing;
+    }
+
+    @Override
+    public void run(WriteableTransaction txn) throws Exception
+    {
+      runCount.incrementAndGet();
+      if (isFailing)
+      {
+        throw new DirectoryException(ResultCode.ENTRY_ALREADY_EXISTS, LocalizableMessage.raw("already exists"));
+      }
+    }
+  }
+
+  /** Adds an entry ID to its own key of an index, then fails if requested. */
+  private static final class IndexUpdateWrite implements WriteOperation
+  {
+    private final DefaultIndex index;
+    private final int id;
+    private final boolean isFailing;
+
+    private IndexUpdateWrite(DefaultIndex index, int id, boolean isFailing)
+    {
+      this.index = index;
+      this.id = id;
+      this.isFailing = isFailing;
+    }
+
+    @Override
+    public void run(WriteableTransaction txn) throws Exception
+    {
+      index.update(txn, ByteString.valueOfUtf8("key" + id), null, EntryIDSet.newDefinedSet(id));
+      if (isFailing)
+      {
+        throw new DirectoryException(ResultCode.ENTRY_ALREADY_EXISTS, LocalizableMessage.raw("already exists"));
+      }
+    }
+  }
+
+  private final WriteableTransaction txn = mock(WriteableTransaction.class);
+
+  private Storage newStorage(final CountDownLatch firstWriteReleased) throws Exception
+  {
+    final Storage storage = mock(Storage.class);
+    final AtomicInteger writeCount = new AtomicInteger();
+    final Answer<Void> runWithTxn = new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        if (writeCount.getAndIncrement() == 0)
+        {
+          firstWriteReleased.await();
+        }
+        invocation.getArgumentAt(0, WriteOperation.class).run(txn);
+        return null;
+      }
+    };
+    doAnswer(runWithTxn).when(storage).write(any(WriteOperation.class));
+    doAnswer(runWithTxn).when(storage).writeNoSync(any(WriteOperation.class));
+    return storage;
+  }
+
+  @Test
+  public void testSyncCommitsEachWriteOnItsOwn() throws Exception
+  {
+    final Storage storage = newStorage(new CountDownLatch(0));
+    final GroupCommitStorage groupCommit = new GroupCommitStorage(storage, "test");
+    groupCommit.configure(WriteDurability.SYNC, 0, 10, 1000);
+
+    final CountingWrite write = new CountingWrite(false);
+    groupCommit.write(write);
+
+    verify(storage).write(any(WriteOperation.class));
+    assertThat(write.runCount.get()).isEqualTo(1);
+    assertThat(groupCommit.getGroupCount()).isZero();
+  }
+
+  @Test
+  public void testConcurrentWritesAreCommittedTogether() throws Exception
+  {
+    final CountDownLatch firstWriteReleased = new CountDownLatch(1);
+    final Storage storage = newStorage(firstWriteReleased);
+    final GroupCommitStorage groupCommit = new GroupCommitStorage(storage, "test");
+    groupCommit.configure(WriteDurability.GROUP_SYNC, 0, 10, 1000);
+
+    final List<CountingWrite> writes = newWrites(5, -1);
+    final List<Throwable> failures = writeConcurrently(groupCommit, writes, firstWriteReleased);
+
+    for (Throwable failure : failures)
+    {
+      assertThat(failure).isNull();
+    }
+    for (CountingWrite write : writes)
+    {
+      assertThat(write.runCount.get()).isEqualTo(1);
+    }
+    // The first write alone, then all the writes which arrived meanwhile
+    verify(storage, times(2)).write(any(WriteOperation.class));
+    assertThat(groupCommit.getGroupCount()).isEqualTo(2);
+    assertThat(groupCommit.getGroupedOperationCount()).isEqualTo(5);
+    assertThat(groupCommit.getMaxGroupSize()).isEqualTo(4);
+    assertThat(groupCommit.getRetriedGroupCount()).isZero();
+  }
+
+  @Test
+  public void testFailedGroupReportsTheResultOfEachWrite() throws Exception
+  {
+    final CountDownLatch firstWriteReleased = new CountDownLatch(1);
+    final Storage storage = newStorage(firstWriteReleased);
+    final GroupCommitStorage groupCommit = new GroupCommitStorage(storage, "test");
+    groupCommit.configure(WriteDurability.GROUP_SYNC, 0, 10, 1000);
+
+    final List<CountingWrite> writes = newWrites(5, 3);
+    final List<Throwable> failures = writeConcurrently(groupCommit, writes, firstWriteReleased);
+
+    for (int i = 0; i < writes.size(); i++)
+    {
+      if (i == 3)
+      {
+        assertThat(failures.get(i)).isInstanceOf(DirectoryException.class);
+      }
+      else
+      {
+        assertThat(failures.get(i)).isNull();
+      }
+    }
+    // The failed write is left out of the group, which is committed again without it
+    assertThat(writes.get(3).runCount.get()).isEqualTo(1);
+    assertThat(writes.get(4).runCount.get()).isEqualTo(1);
+    assertThat(writes.get(1).runCount.get()).isEqualTo(2);
+    assertThat(groupCommit.getRetriedGroupCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailedWriteOfGroupDoesNotUpdateIndexStatisticsTwice() throws Exception
+  {
+    // The transaction never persists the updates, as if each run of the group had been rolled back
+    when(txn.update(any(TreeName.class), any(ByteSequence.class), any(UpdateFunction.class))).thenAnswer(
+        new Answer<Boolean>()
+        {
+          @Override
+          public Boolean answer(InvocationOnMock invocation) throws Throwable
+          {
+            invocation.getArgumentAt(2, UpdateFunction.class).computeNewValue(null);
+            return true;
+          }
+        });
+    final DefaultIndex index = newTrustedIndex();
+    final CountDownLatch firstWriteReleased = new CountDownLatch(1);
+    final Storage storage = newStorage(firstWriteReleased);
+    final GroupCommitStorage groupCommit = new GroupCommitStorage(storage, "test");
+    groupCommit.configure(WriteDurability.GROUP_SYNC, 0, 10, 1000);
+
+    final List<WriteOperation> writes = new ArrayList<>();
+    for (int i = 0; i < 5; i++)
+    {
+      writes.add(new IndexUpdateWrite(index, i + 1, i == 3));
+    }
+    final List<Throwable> failures = writeConcurrently(groupCommit, writes, firstWriteReleased);
+
+    assertThat(failures.get(3)).isInstanceOf(DirectoryException.class);
+    assertThat(((DirectoryException) failures.get(3)).getResultCode()).isEqualTo(ResultCode.ENTRY_ALREADY_EXISTS);
+    assertThat(index.getStatistics().getKeyCount()).isEqualTo(4);
+    assertThat(index.getStatistics().getEntryIDCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void testAsyncCommitsWithoutSyncThenSyncs() throws Exception
+  {
+    final Storage storage = newStorage(new CountDownLatch(0));
+    final GroupCommitStorage groupCommit = new GroupCommitStorage(storage, "test");
+    groupCommit.configure(WriteDurability.ASYNC, 0, 10, 10);
+    try
+    {
+      final CountingWrite write = new CountingWrite(false);
+      groupCommit.write(write);
+
+      verify(storage).writeNoSync(any(WriteOperation.class));
+      verify(storage, never()).write(any(WriteOperation.class));
+      verify(storage, timeout(5000).atLeastOnce()).sync();
+    }
+    finally
+    {
+      groupCommit.close();
+    }
+  }
+
+  private static List<CountingWrite> newWrites(int count, int failingIndex)
+  {
+    final List<CountingWrite> writes = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+    {
+      writes.add(new CountingWrite(i == failingIndex));
+    }
+    return writes;
+  }
+
+  private static DefaultIndex newTrustedIndex()
+  {
+    final State state = mock(State.class);
+    when(state.getIndexFlags(any(ReadableTransaction.class), any(TreeName.class)))
+        .thenReturn(EnumSet.of(TRUSTED, COMPACTED));
+    when(state.getIndexStatistics(any(ReadableTransaction.class), any(TreeName.class)))
+        .thenReturn(IndexStatistics.newEmptyStatistics());
+    final CryptoSuite cryptoSuite = mock(CryptoSuite.class);
+    when(cryptoSuite.isEncrypted()).thenReturn(false);
+    final DefaultIndex index = new DefaultIndex(
+        new TreeName("dc=example,dc=com", "index"), state, 10, mock(EntryContainer.class), cryptoSuite);
+    index.open(new DefaultIndexTest.DummyWriteableTransaction(), true);
+    return index;
+  }
+
+  /**
+   * Runs the first write, then the other writes while the first one is committed, and returns the failure of each.
+   */
+  private static List<Throwable> writeConcurrently(final GroupCommitStorage groupCommit,
+      final List<? extends WriteOperation> writes, CountDownLatch firstWriteReleased) throws Exception
+  {
+    final Throwable[] failures = new Throwable[writes.size()];
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < writes.size(); i++)
+    {
+      final int index = i;
+      final Thread thread = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            groupCommit.write(writes.get(index));
+          }
+          catch (Throwable t)
+          {
+            failures[index] = t;
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+      // Wait for the first write to be committed, and for the others to be pending
+      awaitWaiting(thread);
+    }
+    firstWriteReleased.countDown();
+    for (Thread thread : threads)
+    {
+      thread.join();
+    }
+    final List<Throwable> results = new ArrayList<>();
+    for (Throwable failure : failures)
+    {
+      results.add(failure);
+    }
+    return results;
+  }
+
+  private static void awaitWaiting(Thread thread) throws InterruptedException
+  {
+    while (thread.getState() != Thread.State.WAITING)
+    {
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.ldap.ByteString.valueOfUtf8;
+import static org.mockito.Mockito.*;
+import static org.opends.server.backends.pluggable.EntryIDSet.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential = true)
+public class IndexCacheTest extends DirectoryServerTestCase
+{
+  private static final ByteString KEY = valueOfUtf8("person");
+
+  private ReadableTransaction txn;
+  private Index index;
+
+  @BeforeMethod
+  public void setUp()
+  {
+    txn = mock(ReadableTransaction.class);
+    index = newIndex("objectClass.objectIdentifierMatch");
+  }
+
+  @Test
+  public void testReadsAreServedFromTheCache()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+
+    assertThat(cache.newReader().get(txn, index, KEY).toLongArray()).containsExactly(1, 2, 3);
+    assertThat(cache.newReader().get(txn, index, KEY).toLongArray()).containsExactly(1, 2, 3);
+
+    verify(index, times(1)).get(txn, KEY);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getKeyCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCachedSetsCannotBeModifiedByReaders()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+
+    cache.newReader().get(txn, index, KEY).add(new EntryID(4));
+    cache.newReader().get(txn, index, KEY).remove(new EntryID(1));
+
+    assertThat(cache.newReader().get(txn, index, KEY).toLongArray()).containsExactly(1, 2, 3);
+  }
+
+  @Test
+  public void testInvalidatedKeysAreReadAgain()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+    cache.newReader().get(txn, index, KEY);
+
+    cache.invalidate(index.getName(), KEY);
+    when(index.get(txn, KEY)).thenReturn(newDefinedSet(1, 2));
+
+    assertThat(cache.newReader().get(txn, index, KEY).toLongArray()).containsExactly(1, 2);
+    verify(index, times(2)).get(txn, KEY);
+  }
+
+  @Test
+  public void testKeysReadBeforeAnInvalidationAreNotCached()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+    final IndexCache.Reader readerStartedBeforeWrite = cache.newReader();
+
+    cache.invalidate(index.getName(), KEY);
+    readerStartedBeforeWrite.get(txn, index, KEY);
+
+    assertThat(cache.getKeyCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testInvalidateIndex()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+    final Index otherIndex = newIndex("cn.caseIgnoreMatch");
+    cache.newReader().get(txn, index, KEY);
+    cache.newReader().get(txn, otherIndex, KEY);
+
+    cache.invalidate(index.getName());
+
+    assertThat(cache.getKeyCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testUntrustedIndexesAreNotCached()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+    when(index.isTrusted()).thenReturn(false);
+
+    cache.newReader().get(txn, index, KEY);
+
+    assertThat(cache.getKeyCount()).isEqualTo(0);
+    assertThat(cache.getMissCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testUndefinedSetsAreNotCached()
+  {
+    final IndexCache cache = new IndexCache(1024 * 1024);
+    when(index.get(txn, KEY)).thenReturn(newUndefinedSetWithKey(KEY));
+
+    assertThat(cache.newReader().get(txn, index, KEY).isDefined()).isFalse();
+
+    assertThat(cache.getKeyCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedKeysAreEvicted()
+  {
+    final IndexCache cache = new IndexCache(64 * 1024);
+    for (int i = 0; i < 1000; i++)
+    {
+      final ByteString key = valueOfUtf8("key" + i);
+      when(index.get(txn, key)).thenReturn(newDefinedSet(i));
+      cache.newReader().get(txn, index, key);
+    }
+
+    assertThat(cache.getEvictionCount()).isGreaterThan(0);
+    assertThat(cache.getMemorySize()).isLessThanOrEqualTo(64 * 1024);
+    assertThat(cache.getKeyCount() + cache.getEvictionCount()).isEqualTo(1000);
+  }
+
+  private Index newIndex(String name)
+  {
+    final Index newIndex = mock(Index.class);
+    when(newIndex.getName()).thenReturn(new TreeName("dc=example,dc=com", name));
+    when(newIndex.isTrusted()).thenReturn(true);
+    when(newIndex.get(txn, KEY)).thenReturn(newDefinedSet(1, 2, 3));
+    return newIndex;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.backends.pluggable.IndexQueryCostEstimator.*;
+import static org.opends.server.backends.pluggable.IndexStatistics.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class IndexStatisticsTest extends DirectoryServerTestCase
+{
+  private static final int INDEX_ENTRY_LIMIT = 4000;
+  private static final long UNDEFINED = Long.MAX_VALUE;
+
+  @Test
+  public void testUnknownStatisticsCannotBeEstimated()
+  {
+    final IndexStatistics statistics = newUnknownStatistics();
+    statistics.recordUpdate(ABSENT_KEY, 0, 10, 20);
+
+    assertThat(statistics.isAvailable()).isFalse();
+    assertThat(statistics.getKeyCount()).isEqualTo(0);
+    assertThat(statistics.estimateEntryIDsPerKey(INDEX_ENTRY_LIMIT)).isEqualTo(UNKNOWN);
+    assertThat(statistics.estimateTotalEntryIDs(INDEX_ENTRY_LIMIT)).isEqualTo(UNKNOWN);
+  }
+
+  @Test
+  public void testRecordUpdates()
+  {
+    final IndexStatistics statistics = newEmptyStatistics();
+    assertThat(statistics.estimateEntryIDsPerKey(INDEX_ENTRY_LIMIT)).isEqualTo(0);
+
+    // New keys
+    statistics.recordUpdate(ABSENT_KEY, 0, 1, 2);
+    statistics.recordUpdate(ABSENT_KEY, 0, 3, 4);
+    // Growing key
+    statistics.recordUpdate(3, 4, 5, 6);
+    // Key exceeding the index entry limit
+    statistics.recordUpdate(ABSENT_KEY, 0, 2, 3);
+    statistics.recordUpdate(2, 3, UNDEFINED, 1);
+
+    assertThat(statistics.getKeyCount()).isEqualTo(3);
+    assertThat(statistics.getUndefinedKeyCount()).isEqualTo(1);
+    assertThat(statistics.getEntryIDCount()).isEqualTo(6);
+    assertThat(statistics.getValueBytes()).isEqualTo(9);
+    assertThat(statistics.estimateTotalEntryIDs(INDEX_ENTRY_LIMIT)).isEqualTo(6 + INDEX_ENTRY_LIMIT);
+    assertThat(statistics.estimateEntryIDsPerKey(INDEX_ENTRY_LIMIT)).isEqualTo((6 + INDEX_ENTRY_LIMIT + 2) / 3);
+
+    // Removed keys
+    statistics.recordUpdate(UNDEFINED, 1, ABSENT_KEY, 0);
+    statistics.recordUpdate(1, 2, ABSENT_KEY, 0);
+
+    assertThat(statistics.getKeyCount()).isEqualTo(1);
+    assertThat(statistics.getUndefinedKeyCount()).isEqualTo(0);
+    assertThat(statistics.getEntryIDCount()).isEqualTo(5);
+    assertThat(statistics.getValueBytes()).isEqualTo(6);
+    assertThat(statistics.estimateEntryIDsPerKey(INDEX_ENTRY_LIMIT)).isEqualTo(5);
+  }
+
+  @Test
+  public void testEncodeDecode()
+  {
+    final IndexStatistics statistics = newEmptyStatistics();
+    statistics.recordUpdate(ABSENT_KEY, 0, 100000, 70000);
+    statistics.recordUpdate(ABSENT_KEY, 0, UNDEFINED, 1);
+
+    final IndexStatistics decoded = IndexStatistics.valueOf(statistics.toByteString());
+    assertThat(decoded.isAvailable()).isTrue();
+    assertThat(decoded.getKeyCount()).isEqualTo(2);
+    assertThat(decoded.getUndefinedKeyCount()).isEqualTo(1);
+    assertThat(decoded.getEntryIDCount()).isEqualTo(100000);
+    assertThat(decoded.getValueBytes()).isEqualTo(70001);
+  }
+
+  @Test
+  public void testDecodeMissingOrUnsupportedValue()
+  {
+    assertThat(IndexStatistics.valueOf(null).isAvailable()).isFalse();
+    assertThat(IndexStatistics.valueOf(ByteString.valueOfBytes(new byte[] { 0x7f, 0x00 })).isAvailable()).isFalse();
+  }
+
+  @Test
+  public void testEstimateIntersection()
+  {
+    assertThat(estimateIntersection(asList(UNKNOWN, UNKNOWN))).isEqualTo(UNKNOWN);
+    assertThat(estimateIntersection(asList(UNKNOWN, 42L, 1000L))).isEqualTo(42);
+    assertThat(estimateIntersection(asList(NOT_INDEXED, 7L))).isEqualTo(7);
+  }
+
+  @Test
+  public void testEstimateUnion()
+  {
+    assertThat(estimateUnion(asList(1L, 2L, 3L))).isEqualTo(6);
+    assertThat(estimateUnion(asList(1L, UNKNOWN))).isEqualTo(UNKNOWN);
+    assertThat(estimateUnion(asList(1L, NOT_INDEXED))).isEqualTo(NOT_INDEXED);
+  }
+}
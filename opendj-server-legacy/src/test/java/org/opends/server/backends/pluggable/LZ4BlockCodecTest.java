@@ -0,0 +1,143 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential = true)
+public class LZ4BlockCodecTest extends DirectoryServerTestCase
+{
+  @DataProvider
+  public Object[][] samples()
+  {
+    final Random random = new Random(0);
+    final byte[] randomBytes = new byte[10000];
+    random.nextBytes(randomBytes);
+    final byte[] runOfZeros = new byte[10000];
+    return new Object[][] {
+      { new byte[0] },
+      { new byte[] { 1, 2, 3 } },
+      { entry(0).getBytes() },
+      { randomBytes },
+      { runOfZeros },
+    };
+  }
+
+  @Test(dataProvider = "samples")
+  public void testRoundTrip(byte[] sample) throws Exception
+  {
+    assertThat(roundTrip(sample, null)).isEqualTo(sample);
+  }
+
+  @Test(dataProvider = "samples")
+  public void testRoundTripWithDictionary(byte[] sample) throws Exception
+  {
+    final LZ4BlockCodec.Dictionary dictionary = new LZ4BlockCodec.Dictionary(1, entry(1).getBytes());
+
+    assertThat(roundTrip(sample, dictionary)).isEqualTo(sample);
+  }
+
+  @Test
+  public void testRepeatedContentIsCompressed()
+  {
+    final byte[] sample = (entry(0) + entry(1) + entry(2)).getBytes();
+
+    assertThat(compress(sample, null).length()).isLessThan(sample.length / 2);
+  }
+
+  @Test
+  public void testTrainedDictionaryImprovesCompression() throws Exception
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer(4096, 100);
+    for (int i = 0; i < 100; i++)
+    {
+      assertThat(trainer.addSample(ByteString.valueOfUtf8(entry(i)))).isEqualTo(i == 99);
+    }
+    final LZ4BlockCodec.Dictionary dictionary = new LZ4BlockCodec.Dictionary(1, trainer.train());
+    final byte[] sample = entry(1000).getBytes();
+
+    assertThat(dictionary.getBytes().length).isGreaterThan(0);
+    assertThat(dictionary.getBytes().length).isLessThanOrEqualTo(4096);
+    assertThat(compress(sample, dictionary).length()).isLessThan(compress(sample, null).length() / 2);
+    assertThat(roundTrip(sample, dictionary)).isEqualTo(sample);
+  }
+
+  @Test
+  public void testTrainerWithoutSharedContentReturnsEmptyDictionary()
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer(4096, 10);
+    final Random random = new Random(0);
+    for (int i = 0; i < 10; i++)
+    {
+      final byte[] bytes = new byte[1000];
+      random.nextBytes(bytes);
+      trainer.addSample(ByteString.wrap(bytes));
+    }
+
+    assertThat(trainer.train().length).isEqualTo(0);
+  }
+
+  @Test(expectedExceptions = DataFormatException.class)
+  public void testDecompressTruncatedData() throws Exception
+  {
+    final byte[] sample = (entry(0) + entry(1)).getBytes();
+    final ByteStringBuilder compressed = compress(sample, null);
+
+    LZ4BlockCodec.decompress(compressed.getBackingArray(), 0, compressed.length() - 10, null, sample.length);
+  }
+
+  @Test(expectedExceptions = DataFormatException.class)
+  public void testDecompressWithoutDictionary() throws Exception
+  {
+    final LZ4BlockCodec.Dictionary dictionary = new LZ4BlockCodec.Dictionary(1, entry(1).getBytes());
+    final byte[] sample = entry(2).getBytes();
+    final ByteStringBuilder compressed = compress(sample, dictionary);
+
+    LZ4BlockCodec.decompress(compressed.getBackingArray(), 0, compressed.length(), null, sample.length);
+  }
+
+  private static byte[] roundTrip(byte[] sample, LZ4BlockCodec.Dictionary dictionary) throws Exception
+  {
+    final ByteStringBuilder compressed = compress(sample, dictionary);
+    return LZ4BlockCodec.decompress(compressed.getBackingArray(), 0, compressed.length(), dictionary, sample.length);
+  }
+
+  private static ByteStringBuilder compress(byte[] sample, LZ4BlockCodec.Dictionary dictionary)
+  {
+    final ByteStringBuilder compressed = new ByteStringBuilder();
+    LZ4BlockCodec.compress(sample, 0, sample.length, dictionary, compressed);
+    return compressed;
+  }
+
+  private static String entry(int i)
+  {
+    return "dn: uid=user." + i + ",ou=People,dc=example,dc=com\n"
+        + "objectClass: top\nobjectClass: person\nobjectClass: organizationalPerson\nobjectClass: inetOrgPerson\n"
+        + "uid: user." + i + "\ncn: Aaccf Amar " + i + "\nsn: Amar\ngivenName: Aaccf\n"
+        + "mail: user." + i + "@example.com\ntelephoneNumber: +1 685 622 " + (1000 + i) + "\n"
+        + "street: " + (10000 + i * 7) + " Maple Street\nl: Panama City\nst: DE\npostalCode: 50369\n";
+  }
+}
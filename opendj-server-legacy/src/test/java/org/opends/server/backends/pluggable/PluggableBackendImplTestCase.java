@@ -35,7 +35,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.DN;
@@ -58,6 +66,7 @@ import org.opends.server.api.LocalBackend.BackendOperation;
 import org.opends.server.backends.RebuildConfig;
 import org.opends.server.backends.RebuildConfig.RebuildMode;
 import org.opends.server.backends.VerifyConfig;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -66,6 +75,7 @@ import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.controls.SubtreeDeleteControl;
 import org.opends.server.core.AddOperation;
 import org.opends.server.core.DeleteOperation;
 import org.opends.server.core.ModifyDNOperation;
@@ -75,8 +85,11 @@ import org.opends.server.core.ServerContext;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
+import org.opends.server.types.Attribute;
 import org.opends.server.types.BackupConfig;
 import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.CanceledOperationException;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
 import org.opends.server.types.LDIFExportConfig;
@@ -108,6 +121,8 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
   private DN searchDN;
   private DN badEntryDN;
   private String backupID;
+  /** More children than a subtree delete removes in a single chunk. */
+  private static final int SUBTREE_SIZE = 1500;
 
   private Map<String, IndexType[]> backendIndexes = new HashMap<>();
   {
@@ -732,6 +747,85 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertEquals(dbEntry.getName(), prevDN, "Original entry has not been renamed");
   }
 
+  @Test
+  public void testMoveEntryUnderSuperiorWithLowerIDKeepsEntryID() throws Exception
+  {
+    final DN archiveDN = DN.valueOf("ou=Archive," + testBaseDN);
+    final DN oldDN = DN.valueOf("uid=mover,ou=People," + testBaseDN);
+    final DN newDN = DN.valueOf("uid=mover,ou=Archive," + testBaseDN);
+    backend.addEntry(TestCaseUtils.makeEntry(
+        "dn: " + archiveDN,
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: Archive"), null);
+    backend.addEntry(TestCaseUtils.makeEntry(
+        "dn: " + oldDN,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: mover",
+        "cn: Mover",
+        "sn: Mover"), null);
+    final EntryID entryID = getEntryID(oldDN);
+
+    // The new superior has a greater ID than the old superior, but a lower ID than the moved entry
+    Entry movedEntry = backend.getEntry(oldDN).duplicate(false);
+    movedEntry.setDN(newDN);
+    backend.renameEntry(oldDN, movedEntry, mock(ModifyDNOperation.class));
+
+    assertThat(getEntryID(newDN)).isEqualTo(entryID);
+    assertThat(backend.getEntry(newDN).getName()).isEqualTo(newDN);
+    assertThat(backend.getEntry(oldDN)).isNull();
+
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(testBaseDN);
+    config.addCleanIndex("dn2id");
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    backend.deleteEntry(newDN, mock(DeleteOperation.class));
+    backend.deleteEntry(archiveDN, mock(DeleteOperation.class));
+  }
+
+  private EntryID getEntryID(final DN dn) throws Exception
+  {
+    final DN2ID dn2ID = backend.getRootContainer().getEntryContainer(testBaseDN).getDN2ID();
+    return backend.getRootContainer().getStorage().read(new ReadOperation<EntryID>()
+    {
+      @Override
+      public EntryID run(ReadableTransaction txn) throws Exception
+      {
+        return dn2ID.get(txn, dn);
+      }
+    });
+  }
+
+  @Test
+  public void testReadAllReturnsRecordsInKeyOrder() throws Exception
+  {
+    final DN peopleDN = DN.valueOf("ou=People," + testBaseDN);
+    final long[] entryIDs = { getEntryID(testBaseDN).longValue(), getEntryID(peopleDN).longValue(), Long.MAX_VALUE };
+    Arrays.sort(entryIDs);
+    final ID2Entry id2entry = backend.getRootContainer().getEntryContainer(testBaseDN).getID2Entry();
+    final List<ByteString> records = backend.getRootContainer().getStorage().read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        return id2entry.readAll(txn, entryIDs);
+      }
+    });
+
+    assertThat(records).hasSize(entryIDs.length);
+    assertThat(records.get(2)).isNull();
+    final Set<DN> dns = new HashSet<>();
+    for (int i = 0; i < 2; i++)
+    {
+      dns.add(id2entry.get(new EntryID(entryIDs[i]), records.get(i)).getName());
+    }
+    assertThat(dns).containsOnly(testBaseDN, peopleDN);
+  }
+
   @Test(description = "OPENDJ-2404")
   public void testRenameEntrySameDNDifferentCase() throws Exception
   {
@@ -775,6 +869,126 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertNull(backend.getEntry(workEntries.get(1).getName()));
   }
 
+  @Test
+  public void testSubtreeDeleteCanceledInFirstChunkKeepsTheSubtree() throws Exception
+  {
+    final DN subtreeDN = addSubtree("Canceled Subtree", SUBTREE_SIZE);
+    final DeleteOperation op = newSubtreeDeleteOperation();
+    doThrow(new CanceledOperationException(new CancelRequest(true, LocalizableMessage.raw("canceled"))))
+        .when(op).checkIfCanceled(anyBoolean());
+    try
+    {
+      backend.deleteEntry(subtreeDN, op);
+      fail("Should have generated a CanceledOperationException");
+    }
+    catch (CanceledOperationException expected)
+    {
+      // No chunk has been committed
+    }
+
+    assertThat(backend.getNumberOfChildren(subtreeDN)).isEqualTo(SUBTREE_SIZE);
+    assertThat(getSubtreeDeletes()).isEmpty();
+
+    backend.deleteEntry(subtreeDN, newSubtreeDeleteOperation());
+    assertNull(backend.getEntry(subtreeDN));
+  }
+
+  @Test
+  public void testInterruptedSubtreeDeleteIsResumedWhenOpeningTheBackend() throws Exception
+  {
+    final DN subtreeDN = addSubtree("Resumed Subtree", SUBTREE_SIZE);
+    interruptSubtreeDelete(subtreeDN);
+
+    backend.getRootContainer().getEntryContainer(testBaseDN).resumeSubtreeDeletes();
+
+    assertNull(backend.getEntry(subtreeDN));
+    assertThat(getSubtreeDeletes()).isEmpty();
+  }
+
+  @Test
+  public void testInterruptedSubtreeDeleteIsCompletedByDeletingItAgain() throws Exception
+  {
+    final DN subtreeDN = addSubtree("Retried Subtree", SUBTREE_SIZE);
+    interruptSubtreeDelete(subtreeDN);
+
+    backend.deleteEntry(subtreeDN, newSubtreeDeleteOperation());
+
+    assertNull(backend.getEntry(subtreeDN));
+    assertThat(getSubtreeDeletes()).isEmpty();
+  }
+
+  /** Fails the subtree delete of the provided subtree once its first chunk is committed. */
+  private void interruptSubtreeDelete(DN subtreeDN) throws Exception
+  {
+    final DeleteOperation op = newSubtreeDeleteOperation();
+    final AtomicInteger deletedChildren = new AtomicInteger();
+    when(op.isSynchronizationOperation()).thenAnswer(new Answer<Boolean>()
+    {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable
+      {
+        if (deletedChildren.incrementAndGet() > SUBTREE_SIZE - 100)
+        {
+          throw new IllegalStateException("interrupted");
+        }
+        // Do not invoke the subordinate delete plugins
+        return true;
+      }
+    });
+    try
+    {
+      backend.deleteEntry(subtreeDN, op);
+      fail("Should have generated a DirectoryException");
+    }
+    catch (DirectoryException expected)
+    {
+      // The first chunk remains deleted
+    }
+
+    assertThat(backend.getNumberOfChildren(subtreeDN)).isEqualTo(SUBTREE_SIZE - 1000);
+    assertThat(getSubtreeDeletes().keySet()).containsOnly(subtreeDN);
+  }
+
+  private DN addSubtree(String ou, int childCount) throws Exception
+  {
+    final DN subtreeDN = DN.valueOf("ou=" + ou + "," + testBaseDN);
+    final AddOperation op = mock(AddOperation.class);
+    backend.addEntry(TestCaseUtils.makeEntry(
+        "dn: " + subtreeDN,
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: " + ou), op);
+    for (int i = 0; i < childCount; i++)
+    {
+      backend.addEntry(TestCaseUtils.makeEntry(
+          "dn: ou=child." + i + "," + subtreeDN,
+          "objectClass: top",
+          "objectClass: organizationalUnit",
+          "ou: child." + i), op);
+    }
+    return subtreeDN;
+  }
+
+  private static DeleteOperation newSubtreeDeleteOperation() throws Exception
+  {
+    final DeleteOperation op = mock(DeleteOperation.class);
+    when(op.getRequestControl(SubtreeDeleteControl.DECODER)).thenReturn(new SubtreeDeleteControl(false));
+    return op;
+  }
+
+  private Map<DN, EntryID> getSubtreeDeletes() throws Exception
+  {
+    final State state = backend.getRootContainer().getEntryContainer(testBaseDN).getState();
+    return backend.getRootContainer().getStorage().read(new ReadOperation<Map<DN, EntryID>>()
+    {
+      @Override
+      public Map<DN, EntryID> run(ReadableTransaction txn) throws Exception
+      {
+        return state.getSubtreeDeletes(txn);
+      }
+    });
+  }
+
   @Test
   public void testBaseSearch() throws Exception
   {
@@ -925,6 +1139,195 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     }
   }
 
+  @Test
+  public void testPreloadReadsAllTheTreesUnlessTheCacheIsFull() throws Exception
+  {
+    final RootContainer rootContainer = backend.getRootContainer();
+    rootContainer.preload(60000);
+
+    final TreePreloader preloader = rootContainer.getPreloader();
+    assertThat(preloader.getStatus()).isIn(TreePreloader.Status.COMPLETED, TreePreloader.Status.CACHE_FULL);
+    if (preloader.getStatus() == TreePreloader.Status.COMPLETED)
+    {
+      assertThat(preloader.getLoadedTrees()).isEqualTo(preloader.getTreeCount());
+      assertThat(preloader.getLoadedRecords()).isGreaterThanOrEqualTo(getTotalNumberOfLDIFEntries());
+    }
+  }
+
+  @Test
+  public void testConcurrentOrFilterEvaluationMatchesSequentialEvaluation() throws Exception
+  {
+    final RootContainer rootContainer = configureParallelIndexReadThreads(2);
+    try
+    {
+      final ExecutorService executor = rootContainer.getIndexReadExecutor();
+      assertThat(executor).isNotNull();
+      for (String filter : Arrays.asList("(|(sn=Abadines)(uid=user.1)(telephoneNumber=*5*))",
+          "(|(uid=user.0)(uid=user.1))", "(|(&(sn=abadin*)(uid=user.0))(uid=user.1)(sn=Abadines))"))
+      {
+        final EntryIDSet expected = evaluateIndexFilter(filter, null);
+        final EntryIDSet actual = evaluateIndexFilter(filter, executor);
+        assertThat(actual.isDefined()).as(filter).isEqualTo(expected.isDefined()).isTrue();
+        assertThat(actual.toLongArray()).as(filter).isEqualTo(expected.toLongArray()).isNotEmpty();
+      }
+    }
+    finally
+    {
+      configureParallelIndexReadThreads(0);
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void testConcurrentOrFilterEvaluationStopsAtFirstUndefinedComponent() throws Exception
+  {
+    final RootContainer rootContainer = configureParallelIndexReadThreads(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      // Keep the index readers busy: the second component stays queued and is never waited for
+      final ExecutorService executor = rootContainer.getIndexReadExecutor();
+      final CountDownLatch started = new CountDownLatch(2);
+      executor.submit(newBlockingTask(started, release));
+      executor.submit(newBlockingTask(started, release));
+      started.await();
+
+      assertThat(evaluateIndexFilter("(|(description=foo)(sn=Abadines))", executor).isDefined()).isFalse();
+    }
+    finally
+    {
+      release.countDown();
+      configureParallelIndexReadThreads(0);
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void testConcurrentOrFilterEvaluationRunsRejectedComponentsInSearchingThread() throws Exception
+  {
+    final RootContainer rootContainer = configureParallelIndexReadThreads(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    try
+    {
+      // Keep the index readers busy and fill their queue: the components can only be read by the searching thread
+      final ThreadPoolExecutor executor = (ThreadPoolExecutor) rootContainer.getIndexReadExecutor();
+      final CountDownLatch started = new CountDownLatch(2);
+      for (int i = 0; i < 4; i++)
+      {
+        executor.submit(newBlockingTask(started, release));
+      }
+      started.await();
+      assertThat(executor.getQueue().remainingCapacity()).isEqualTo(0);
+
+      final String filter = "(|(sn=Abadines)(uid=user.1)(uid=user.0))";
+      final EntryIDSet actual = evaluateIndexFilter(filter, executor);
+      assertThat(actual.isDefined()).isTrue();
+      assertThat(actual.toLongArray()).isEqualTo(evaluateIndexFilter(filter, null).toLongArray());
+      assertThat(executor.getActiveCount()).isEqualTo(2);
+    }
+    finally
+    {
+      release.countDown();
+      configureParallelIndexReadThreads(0);
+    }
+  }
+
+  @Test
+  public void testConcurrentOrFilterEvaluationUpdatesFanOutMonitor() throws Exception
+  {
+    assertThat(getMonitorValue("index-read-fan-out-count")).isNull();
+
+    final RootContainer rootContainer = configureParallelIndexReadThreads(2);
+    try
+    {
+      final long count = getMonitorValue("index-read-fan-out-count");
+      final long components = getMonitorValue("index-read-fan-out-components");
+
+      evaluateIndexFilter("(|(sn=Abadines)(uid=user.1)(uid=user.0))", rootContainer.getIndexReadExecutor());
+      // Sequential evaluations are not monitored
+      evaluateIndexFilter("(|(uid=user.0)(uid=user.1))", null);
+
+      assertThat(getMonitorValue("index-read-fan-out-count")).isEqualTo(count + 1);
+      assertThat(getMonitorValue("index-read-fan-out-components")).isEqualTo(components + 3);
+      assertThat(getMonitorValue("index-read-fan-out-max")).isGreaterThanOrEqualTo(3L);
+    }
+    finally
+    {
+      configureParallelIndexReadThreads(0);
+    }
+    assertThat(getMonitorValue("index-read-fan-out-count")).isNull();
+  }
+
+  private RootContainer configureParallelIndexReadThreads(int threadCount)
+  {
+    final C backendCfg = createBackendCfg();
+    when(backendCfg.dn()).thenReturn(testBaseDN);
+    when(backendCfg.getBaseDN()).thenReturn(newTreeSet(testBaseDN));
+    when(backendCfg.getParallelIndexReadThreads()).thenReturn(threadCount);
+    final RootContainer rootContainer = backend.getRootContainer();
+    rootContainer.applyConfigurationChange(backendCfg);
+    return rootContainer;
+  }
+
+  private EntryIDSet evaluateIndexFilter(String filter, final ExecutorService executor) throws Exception
+  {
+    final RootContainer rootContainer = backend.getRootContainer();
+    final EntryContainer entryContainer = rootContainer.getEntryContainer(testBaseDN);
+    final SearchOperation searchOp =
+        createSearchOperation(testBaseDN, SearchScope.WHOLE_SUBTREE, filter, new ArrayList<Entry>());
+    return rootContainer.getStorage().read(new ReadOperation<EntryIDSet>()
+    {
+      @Override
+      public EntryIDSet run(ReadableTransaction txn) throws Exception
+      {
+        return new IndexFilter(entryContainer, txn, searchOp, null, rootContainer.getMonitorProvider(), executor, null)
+            .evaluate();
+      }
+    });
+  }
+
+  private Callable<Void> newBlockingTask(final CountDownLatch started, final CountDownLatch release)
+  {
+    return new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        started.countDown();
+        release.await();
+        return null;
+      }
+    };
+  }
+
+  private Long getMonitorValue(String name)
+  {
+    for (Attribute attribute : backend.getRootContainer().getMonitorProvider().getMonitorData())
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equalsIgnoreCase(name))
+      {
+        return Long.valueOf(attribute.iterator().next().toString());
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testMultiThreadedExportLDIFWritesEntriesInSameOrder() throws Exception
+  {
+    assertThat(exportLDIF(4)).isEqualTo(exportLDIF(1));
+  }
+
+  private String exportLDIF(int threadCount) throws Exception
+  {
+    ByteArrayOutputStream ldifOutputContent = new ByteArrayOutputStream();
+    try (final LDIFExportConfig exportConfig = new LDIFExportConfig(ldifOutputContent))
+    {
+      exportConfig.setIncludeOperationalAttributes(true);
+      exportConfig.setThreadCount(threadCount);
+      backend.exportLDIF(exportConfig);
+    }
+    return ldifOutputContent.toString();
+  }
+
   @Test
   public void testExportLDIFAndImportLDIF() throws Exception
   {
@@ -1100,6 +1503,175 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(backend.verifyBackend(config)).isEqualTo(0);
   }
 
+  @Test
+  public void testRebuildIndexOnline() throws Exception
+  {
+    final EntryContainer entryContainer =  backend.getRootContainer().getEntryContainers().iterator().next();
+
+    final Set<String> dirtyIndexes = new HashSet<>(Arrays.asList("sn", "uid", "telephoneNumber"));
+    assertThat(backendIndexes.keySet()).containsAll(dirtyIndexes);
+
+    // Delete the indexes while the backend remains online
+    backend.getRootContainer().getStorage().write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for(AttributeIndex attribute : entryContainer.getAttributeIndexes())
+        {
+          if (dirtyIndexes.contains(attribute.getAttributeType().getNameOrOID()))
+          {
+            for(Index idx : attribute.getNameToIndexes().values())
+            {
+              idx.setTrusted(txn, false);
+              idx.delete(txn);
+              idx.open(txn, true);
+            }
+          }
+        }
+      }
+    });
+
+    RebuildConfig rebuildConf = new RebuildConfig();
+    rebuildConf.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    rebuildConf.setRebuildMode(RebuildMode.USER_DEFINED);
+    rebuildConf.setOnline(true);
+    for (String indexName : dirtyIndexes)
+    {
+      rebuildConf.addRebuildIndex(indexName);
+    }
+    backend.rebuildBackend(rebuildConf, TestCaseUtils.getServerContext());
+
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    for (String indexName : dirtyIndexes)
+    {
+      config.addCompleteIndex(indexName);
+    }
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    for (String indexName : dirtyIndexes)
+    {
+      config = new VerifyConfig();
+      config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+      config.addCleanIndex(indexName);
+      assertThat(backend.verifyBackend(config)).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testSearchesStayIndexedDuringOnlineRebuild() throws Exception
+  {
+    final EntryContainer entryContainer = backend.getRootContainer().getEntryContainers().iterator().next();
+    final Storage storage = backend.getRootContainer().getStorage();
+    final Map<MatchingRuleIndex, TreeName> previousNames = new HashMap<>();
+    for (AttributeIndex attribute : entryContainer.getAttributeIndexes())
+    {
+      if ("sn".equals(attribute.getAttributeType().getNameOrOID()))
+      {
+        for (MatchingRuleIndex index : attribute.getNameToIndexes().values())
+        {
+          previousNames.put(index, index.getPhysicalName());
+        }
+      }
+    }
+    assertThat(previousNames).isNotEmpty();
+    final MatchingRuleIndex index = previousNames.keySet().iterator().next();
+    final TreeName previousName = previousNames.get(index);
+    final TreeName shadowName = previousName.equals(index.getName())
+        ? new TreeName(previousName.getBaseDN(), previousName.getIndexId() + ".shadow")
+        : index.getName();
+
+    final RebuildConfig rebuildConf = new RebuildConfig();
+    rebuildConf.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    rebuildConf.setRebuildMode(RebuildMode.USER_DEFINED);
+    rebuildConf.setOnline(true);
+    rebuildConf.addRebuildIndex("sn");
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      final Future<Void> rebuild;
+      // The rebuild cannot switch the indexes to their rebuilt version while the entry container is locked
+      entryContainer.sharedLock.lock();
+      try
+      {
+        rebuild = executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            backend.rebuildBackend(rebuildConf, TestCaseUtils.getServerContext());
+            return null;
+          }
+        });
+        while (!storage.listTrees().contains(shadowName))
+        {
+          if (rebuild.isDone())
+          {
+            rebuild.get();
+            fail("The rebuild completed without creating " + shadowName);
+          }
+          Thread.sleep(10);
+        }
+        for (int i = 0; i < 10; i++)
+        {
+          assertSearchIsIndexed("sn=Abadines", 1);
+        }
+      }
+      finally
+      {
+        entryContainer.sharedLock.unlock();
+      }
+
+      while (!rebuild.isDone())
+      {
+        assertSearchIsIndexed("sn=Abadines", 1);
+      }
+      rebuild.get();
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    for (Map.Entry<MatchingRuleIndex, TreeName> previous : previousNames.entrySet())
+    {
+      assertThat(previous.getKey().getPhysicalName()).isNotEqualTo(previous.getValue());
+      assertTrue(previous.getKey().isTrusted());
+    }
+    assertThat(storage.listTrees()).doesNotContain(previousName).contains(shadowName);
+    assertSearchIsIndexed("sn=Abadines", 1);
+    assertSearchIsIndexed("sn=abadin*", 1);
+
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    config.addCleanIndex("sn");
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+  }
+
+  /** Unindexed searches are rejected for a connection without the unindexed-search privilege. */
+  private void assertSearchIsIndexed(String filter, int expectedEntries) throws DirectoryException
+  {
+    final SearchRequest request = newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, filter);
+    final InternalSearchOperation searchOperation =
+        new InternalSearchOperation(new ClientConnectionStub(), 1, 1, request, null);
+    searchOperation.run();
+    assertThat(searchOperation.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(searchOperation.getEntriesSent()).isEqualTo(expectedEntries);
+  }
+
+  @Test(expectedExceptions = DirectoryException.class)
+  public void testRebuildSystemIndexOnlineIsRejected() throws Exception
+  {
+    RebuildConfig rebuildConf = new RebuildConfig();
+    rebuildConf.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    rebuildConf.setRebuildMode(RebuildMode.USER_DEFINED);
+    rebuildConf.setOnline(true);
+    rebuildConf.addRebuildIndex("dn2id");
+    backend.rebuildBackend(rebuildConf, TestCaseUtils.getServerContext());
+  }
+
   @Test
   public void testVerifyID2ChildrenCount() throws Exception
   {
@@ -1138,6 +1710,35 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(backend.verifyBackend(config)).isEqualTo(1);
   }
 
+  @Test
+  public void testMultiThreadedVerifyFindsNoErrors() throws Exception
+  {
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    config.setThreadCount(4);
+    config.addCompleteIndex("dn2id");
+    for (String indexName : backendIndexes.keySet())
+    {
+      config.addCompleteIndex(indexName);
+    }
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    config.setThreadCount(4);
+    config.addCleanIndex("dn2id");
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    for (String indexName : backendIndexes.keySet())
+    {
+      config = new VerifyConfig();
+      config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+      config.setThreadCount(4);
+      config.addCleanIndex(indexName);
+      assertThat(backend.verifyBackend(config)).isEqualTo(0);
+    }
+  }
+
   @Test
   public void testBackupAndRestore() throws Exception
   {
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.*;
 import static org.opends.server.backends.pluggable.State.IndexFlag.*;
 import static org.opends.server.util.CollectionUtils.*;
 
+import java.util.Map;
 import java.util.UUID;
 
 import org.forgerock.opendj.config.server.ConfigException;
@@ -168,6 +169,66 @@ public class StateTest extends DirectoryServerTestCase
     assertThat(getFlags()).containsExactly(COMPACTED);
   }
 
+  @Test
+  public void testInitializeFlagsOfNewIndex() throws Exception
+  {
+    initializeFlags(COMPACTED, BITMAP);
+    assertThat(getFlags()).containsExactly(COMPACTED, BITMAP);
+  }
+
+  @Test
+  public void testInitializeFlagsKeepsExistingFlags() throws Exception
+  {
+    addFlags(TRUSTED);
+
+    initializeFlags(COMPACTED, BITMAP);
+    assertThat(getFlags()).containsExactly(TRUSTED, COMPACTED);
+  }
+
+  @Test
+  public void testIndexStatistics() throws Exception
+  {
+    assertThat(getStatistics().isAvailable()).isFalse();
+
+    final IndexStatistics statistics = IndexStatistics.newEmptyStatistics();
+    statistics.recordUpdate(IndexStatistics.ABSENT_KEY, 0, 3, 4);
+    putStatistics(statistics);
+    addFlags(TRUSTED);
+
+    assertThat(getFlags()).containsExactly(TRUSTED, DEFAULT_FLAG);
+    assertThat(getStatistics().isAvailable()).isTrue();
+    assertThat(getStatistics().getKeyCount()).isEqualTo(1);
+    assertThat(getStatistics().getEntryIDCount()).isEqualTo(3);
+
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        state.deleteRecord(txn, indexTreeName);
+      }
+    });
+
+    assertThat(getStatistics().isAvailable()).isFalse();
+  }
+
+  @Test
+  public void testCompressionDictionariesAreKeptById() throws Exception
+  {
+    assertThat(getDictionaries()).isEmpty();
+
+    putDictionary(new LZ4BlockCodec.Dictionary(1, new byte[] { 1, 2, 3 }));
+    putDictionary(new LZ4BlockCodec.Dictionary(2, new byte[] { 4, 5 }));
+    putDictionary(new LZ4BlockCodec.Dictionary(12, new byte[] { 6 }));
+
+    final Map<Integer, LZ4BlockCodec.Dictionary> dictionaries = getDictionaries();
+    assertThat(dictionaries.keySet()).containsOnly(1, 2, 12);
+    assertThat(dictionaries.get(1).getBytes()).isEqualTo(new byte[] { 1, 2, 3 });
+    assertThat(dictionaries.get(2).getBytes()).isEqualTo(new byte[] { 4, 5 });
+    assertThat(dictionaries.get(12).getBytes()).isEqualTo(new byte[] { 6 });
+    assertThat(getFlags()).containsExactly(DEFAULT_FLAG);
+  }
+
   private PDBBackendCfg createBackendCfg() throws ConfigException, DirectoryException
   {
     String homeDirName = "pdb_test";
@@ -225,6 +286,66 @@ public class StateTest extends DirectoryServerTestCase
     });
   }
 
+  private void initializeFlags(final IndexFlag... flags) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        state.initializeIndexFlags(txn, indexTreeName, flags);
+      }
+    });
+  }
+
+  private void putStatistics(final IndexStatistics statistics) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        state.putIndexStatistics(txn, indexTreeName, statistics);
+      }
+    });
+  }
+
+  private IndexStatistics getStatistics() throws Exception
+  {
+    return storage.read(new ReadOperation<IndexStatistics>()
+    {
+      @Override
+      public IndexStatistics run(ReadableTransaction txn) throws Exception
+      {
+        return state.getIndexStatistics(txn, indexTreeName);
+      }
+    });
+  }
+
+  private void putDictionary(final LZ4BlockCodec.Dictionary dictionary) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        state.putCompressionDictionary(txn, indexTreeName, dictionary);
+      }
+    });
+  }
+
+  private Map<Integer, LZ4BlockCodec.Dictionary> getDictionaries() throws Exception
+  {
+    return storage.read(new ReadOperation<Map<Integer, LZ4BlockCodec.Dictionary>>()
+    {
+      @Override
+      public Map<Integer, LZ4BlockCodec.Dictionary> run(ReadableTransaction txn) throws Exception
+      {
+        return state.getCompressionDictionaries(txn, indexTreeName);
+      }
+    });
+  }
+
   private IndexFlag[] getFlags() throws Exception
   {
     return storage.read(new ReadOperation<IndexFlag[]>()
@@ -0,0 +1,96 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.backends.pluggable.StorageMetrics.*;
+import static org.opends.server.backends.pluggable.StorageMetrics.OperationKind.*;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.StorageMetrics.OperationStats;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class StorageMetricsTest extends DirectoryServerTestCase
+{
+  private static final TreeName TREE = new TreeName("dc=example,dc=com", "id2entry");
+
+  @Test
+  public void testBucketsBoundTheirLatencies()
+  {
+    for (long nanos : new long[] { 0, 1, 7, 8, 9, 15, 16, 100, 1000, 123456789 })
+    {
+      final int bucket = toBucket(nanos);
+      assertThat(nanos).isLessThan(toUpperBound(bucket));
+      assertThat(nanos).isGreaterThanOrEqualTo(bucket > 0 ? toUpperBound(bucket - 1) : 0);
+    }
+  }
+
+  @Test
+  public void testBucketsAreAccurateToAQuarter()
+  {
+    for (long nanos = 8; nanos < 1000000; nanos = nanos * 3 / 2)
+    {
+      final int bucket = toBucket(nanos);
+      final long width = toUpperBound(bucket) - toUpperBound(bucket - 1);
+      assertThat(width * 4).isLessThanOrEqualTo(toUpperBound(bucket - 1));
+    }
+  }
+
+  @Test
+  public void testPercentiles()
+  {
+    final OperationStats stats = new StorageMetrics().getStats(TREE, READ);
+    for (int i = 1; i <= 100; i++)
+    {
+      stats.record(i * 1000, 10);
+    }
+
+    assertThat(stats.getCount()).isEqualTo(100);
+    assertThat(stats.getBytes()).isEqualTo(1000);
+    assertThat(stats.getMeanNanos()).isEqualTo(50500);
+    assertThat(stats.getPercentileNanos(50)).isBetween(50000L, 50000L * 5 / 4);
+    assertThat(stats.getPercentileNanos(99)).isBetween(99000L, 99000L * 5 / 4);
+    assertThat(stats.getPercentileNanos(100)).isBetween(100000L, 100000L * 5 / 4);
+  }
+
+  @Test
+  public void testSampling()
+  {
+    final StorageMetrics metrics = new StorageMetrics();
+    assertThat(metrics.sample()).isFalse();
+
+    metrics.setSamplePercent(100);
+    assertThat(metrics.sample()).isTrue();
+  }
+
+  @Test
+  public void testMonitorValuesOnlyIncludeRecordedOperations()
+  {
+    final StorageMetrics metrics = new StorageMetrics();
+    assertThat(metrics.toMonitorValues()).isEmpty();
+
+    metrics.getStats(TREE, PUT).record(2000, 30);
+    metrics.getStats(TREE, CURSOR_NEXT).addBytes(10);
+    assertThat(metrics.toMonitorValues()).hasSize(1);
+    assertThat(metrics.toMonitorValues().get(0)).startsWith(TREE + " put count:1 bytes:30 mean-ns:2000 p50-ns:");
+
+    metrics.reset();
+    assertThat(metrics.toMonitorValues()).isEmpty();
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.ElasticWorkQueueCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the elastic work queue. */
+@SuppressWarnings("javadoc")
+public class ElasticWorkQueueTestCase extends ExtensionsTestCase
+{
+  private ElasticWorkQueue workQueue;
+  private CountDownLatch release;
+  private AtomicInteger completed;
+  private AtomicInteger onDirectoryThread;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    ElasticWorkQueueCfg cfg = mock(ElasticWorkQueueCfg.class);
+    when(cfg.getMaxConcurrentOperations()).thenReturn(3);
+    when(cfg.getMaxConcurrentOperationsPerConnection()).thenReturn(2);
+    when(cfg.getMaxWorkQueueCapacity()).thenReturn(4);
+
+    workQueue = new ElasticWorkQueue();
+    workQueue.initializeWorkQueue(cfg);
+    release = new CountDownLatch(1);
+    completed = new AtomicInteger();
+    onDirectoryThread = new AtomicInteger();
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    release.countDown();
+    workQueue.finalizeWorkQueue(null);
+  }
+
+  @Test
+  public void testOperationsAreProcessedOnDirectoryThreads() throws Exception
+  {
+    release.countDown();
+    for (int i = 0; i < 4; i++)
+    {
+      workQueue.submitOperation(newOperation(i));
+    }
+
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(completed.get()).isEqualTo(4);
+    assertThat(onDirectoryThread.get()).isEqualTo(4);
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(4);
+  }
+
+  @Test
+  public void testConcurrentOperationsAreBounded() throws Exception
+  {
+    workQueue.submitOperation(newOperation(1));
+    workQueue.submitOperation(newOperation(2));
+    workQueue.submitOperation(newOperation(3));
+    workQueue.submitOperation(newOperation(4));
+    workQueue.submitOperation(newOperation(5));
+
+    waitForInFlightCount(3);
+    assertThat(workQueue.size()).isEqualTo(2);
+    assertThat(workQueue.isIdle()).isFalse();
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(completed.get()).isEqualTo(5);
+    assertThat(workQueue.getMaxInFlightCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testConnectionCannotMonopolizeWorkerThreads() throws Exception
+  {
+    // The first connection pipelines operations, the second connection must still be served.
+    workQueue.submitOperation(newOperation(1));
+    workQueue.submitOperation(newOperation(1));
+    workQueue.submitOperation(newOperation(1));
+    workQueue.submitOperation(newOperation(1));
+    waitForInFlightCount(2);
+
+    final Operation otherConnectionOperation = newOperation(2);
+    workQueue.submitOperation(otherConnectionOperation);
+    waitForInFlightCount(3);
+    verify(otherConnectionOperation, timeout(10000)).run();
+    assertThat(workQueue.size()).isEqualTo(2);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(completed.get()).isEqualTo(5);
+  }
+
+  @Test
+  public void testOperationsAreRejectedWhenQueueIsFull() throws Exception
+  {
+    for (int i = 0; i < 7; i++)
+    {
+      workQueue.submitOperation(newOperation(i));
+    }
+    waitForInFlightCount(3);
+
+    assertThat(workQueue.trySubmitOperation(newOperation(8))).isFalse();
+    try
+    {
+      workQueue.submitOperation(newOperation(9));
+      failBecauseExceptionWasNotThrown(DirectoryException.class);
+    }
+    catch (DirectoryException e)
+    {
+      assertThat(e.getResultCode()).isEqualTo(ResultCode.BUSY);
+    }
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(2);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(completed.get()).isEqualTo(7);
+  }
+
+  private Operation newOperation(long connectionID)
+  {
+    final Operation operation = mock(Operation.class);
+    when(operation.getConnectionID()).thenReturn(connectionID);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        if (Thread.currentThread() instanceof DirectoryThread)
+        {
+          onDirectoryThread.incrementAndGet();
+        }
+        release.await(10, TimeUnit.SECONDS);
+        completed.incrementAndGet();
+        return null;
+      }
+    }).when(operation).run();
+    return operation;
+  }
+
+  private void waitForInFlightCount(int expected) throws InterruptedException
+  {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (workQueue.getInFlightCount() < expected && System.currentTimeMillis() < deadline)
+    {
+      Thread.sleep(10);
+    }
+    assertThat(workQueue.getInFlightCount()).isEqualTo(expected);
+  }
+}
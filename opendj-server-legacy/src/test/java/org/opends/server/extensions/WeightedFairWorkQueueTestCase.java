@@ -0,0 +1,228 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.util.ServerConstants.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.server.WeightedFairWorkQueueCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.extensions.WeightedFairWorkQueue.Lane;
+import org.opends.server.protocols.ldap.LDAPControl;
+import org.opends.server.types.Control;
+import org.opends.server.types.Operation;
+import org.opends.server.types.OperationType;
+import org.opends.server.types.RawFilter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the weighted fair work queue. */
+@SuppressWarnings("javadoc")
+public class WeightedFairWorkQueueTestCase extends ExtensionsTestCase
+{
+  private WeightedFairWorkQueue workQueue;
+  private CountDownLatch release;
+  private List<Lane> processedLanes;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    WeightedFairWorkQueueCfg cfg = mock(WeightedFairWorkQueueCfg.class);
+    when(cfg.getNumWorkerThreads()).thenReturn(1);
+    when(cfg.getInteractiveLaneWeight()).thenReturn(8);
+    when(cfg.getUpdateLaneWeight()).thenReturn(4);
+    when(cfg.getSearchLaneWeight()).thenReturn(2);
+    when(cfg.getBulkLaneWeight()).thenReturn(1);
+    when(cfg.getInteractiveLaneCapacity()).thenReturn(10);
+    when(cfg.getUpdateLaneCapacity()).thenReturn(10);
+    when(cfg.getSearchLaneCapacity()).thenReturn(10);
+    when(cfg.getBulkLaneCapacity()).thenReturn(2);
+
+    workQueue = new WeightedFairWorkQueue();
+    workQueue.initializeWorkQueue(cfg);
+    release = new CountDownLatch(1);
+    processedLanes = new CopyOnWriteArrayList<>();
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    release.countDown();
+    workQueue.finalizeWorkQueue(null);
+  }
+
+  @DataProvider
+  public Object[][] filters()
+  {
+    return new Object[][] {
+      { "(uid=user.1)", true },
+      { "(cn~=jensen)", true },
+      { "(cn=abc*)", true },
+      { "(cn=*abc)", false },
+      { "(objectClass=person)", false },
+      { "(objectClass=*)", false },
+      { "(!(uid=user.1))", false },
+      { "(&(objectClass=person)(uid=user.1))", true },
+      { "(&(objectClass=person)(description=*))", false },
+      { "(|(uid=user.1)(mail=user.1@example.com))", true },
+      { "(|(uid=user.1)(description=*))", false },
+      { "(createTimestamp>=20260101000000Z)", false },
+    };
+  }
+
+  @Test(dataProvider = "filters")
+  public void testIsSelective(String filter, boolean expected) throws Exception
+  {
+    assertThat(WeightedFairWorkQueue.isSelective(RawFilter.create(filter))).isEqualTo(expected);
+  }
+
+  @Test
+  public void testClassify() throws Exception
+  {
+    assertThat(workQueue.classify(newOperation(OperationType.BIND))).isEqualTo(Lane.INTERACTIVE);
+    assertThat(workQueue.classify(newOperation(OperationType.COMPARE))).isEqualTo(Lane.INTERACTIVE);
+    assertThat(workQueue.classify(newOperation(OperationType.EXTENDED))).isEqualTo(Lane.INTERACTIVE);
+    assertThat(workQueue.classify(newOperation(OperationType.ADD))).isEqualTo(Lane.UPDATE);
+    assertThat(workQueue.classify(newOperation(OperationType.MODIFY))).isEqualTo(Lane.UPDATE);
+    assertThat(workQueue.classify(newOperation(OperationType.DELETE))).isEqualTo(Lane.UPDATE);
+
+    Operation subtreeDelete = newOperation(OperationType.DELETE);
+    Control control = new LDAPControl(OID_SUBTREE_DELETE_CONTROL, false);
+    when(subtreeDelete.getRequestControls()).thenReturn(Collections.singletonList(control));
+    assertThat(workQueue.classify(subtreeDelete)).isEqualTo(Lane.BULK);
+
+    assertThat(workQueue.classify(newSearch(SearchScope.BASE_OBJECT, "(objectClass=*)"))).isEqualTo(Lane.INTERACTIVE);
+    assertThat(workQueue.classify(newSearch(SearchScope.WHOLE_SUBTREE, "(uid=user.1)"))).isEqualTo(Lane.SEARCH);
+    assertThat(workQueue.classify(newSearch(SearchScope.WHOLE_SUBTREE, "(description=*)"))).isEqualTo(Lane.BULK);
+  }
+
+  @Test
+  public void testLanesAreServedAccordingToTheirWeights() throws Exception
+  {
+    // Keep the only worker thread busy while the lanes fill up.
+    workQueue.submitOperation(newBlockingOperation(OperationType.BIND));
+    waitUntilEmpty();
+
+    workQueue.submitOperation(newRecordingOperation(OperationType.DELETE, Lane.UPDATE));
+    workQueue.submitOperation(newRecordingOperation(OperationType.DELETE, Lane.UPDATE));
+    workQueue.submitOperation(newRecordingOperation(OperationType.BIND, Lane.INTERACTIVE));
+    workQueue.submitOperation(newRecordingOperation(OperationType.BIND, Lane.INTERACTIVE));
+    workQueue.submitOperation(newRecordingOperation(OperationType.BIND, Lane.INTERACTIVE));
+    assertThat(workQueue.size()).isEqualTo(5);
+    assertThat(workQueue.size(Lane.UPDATE)).isEqualTo(2);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(processedLanes).containsExactly(
+        Lane.INTERACTIVE, Lane.UPDATE, Lane.INTERACTIVE, Lane.INTERACTIVE, Lane.UPDATE);
+  }
+
+  @Test
+  public void testLaneCapacityIsEnforcedPerLane() throws Exception
+  {
+    workQueue.submitOperation(newBlockingOperation(OperationType.BIND));
+    waitUntilEmpty();
+
+    Operation subtreeDelete = newOperation(OperationType.DELETE);
+    Control control = new LDAPControl(OID_SUBTREE_DELETE_CONTROL, false);
+    when(subtreeDelete.getRequestControls()).thenReturn(Collections.singletonList(control));
+    assertThat(workQueue.trySubmitOperation(subtreeDelete)).isTrue();
+    assertThat(workQueue.trySubmitOperation(subtreeDelete)).isTrue();
+    assertThat(workQueue.trySubmitOperation(subtreeDelete)).isFalse();
+    assertThat(workQueue.trySubmitOperation(newOperation(OperationType.BIND))).isTrue();
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+    assertThat(workQueue.getLaneStatistics()).hasSize(Lane.values().length);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+  }
+
+  private Operation newOperation(OperationType operationType)
+  {
+    final Operation operation = mock(Operation.class);
+    when(operation.getOperationType()).thenReturn(operationType);
+    return operation;
+  }
+
+  private Operation newSearch(SearchScope scope, String filter) throws Exception
+  {
+    final SearchOperation operation = mock(SearchOperation.class);
+    when(operation.getOperationType()).thenReturn(OperationType.SEARCH);
+    when(operation.getScope()).thenReturn(scope);
+    when(operation.getRawFilter()).thenReturn(RawFilter.create(filter));
+    return operation;
+  }
+
+  private Operation newBlockingOperation(OperationType operationType)
+  {
+    final Operation operation = newOperation(operationType);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        release.await(10, TimeUnit.SECONDS);
+        return null;
+      }
+    }).when(operation).run();
+    return operation;
+  }
+
+  private Operation newRecordingOperation(OperationType operationType, final Lane lane)
+  {
+    final Operation operation = newOperation(operationType);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        processedLanes.add(lane);
+        return null;
+      }
+    }).when(operation).run();
+    return operation;
+  }
+
+  private void waitUntilEmpty() throws InterruptedException
+  {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (workQueue.size() > 0 && System.currentTimeMillis() < deadline)
+    {
+      Thread.sleep(10);
+    }
+    assertThat(workQueue.size()).isZero();
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.opends.server.types.Attribute;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests the writes to the clients which do not block the worker threads. */
+@SuppressWarnings("javadoc")
+public class AsynchronousWriteChannelTestCase extends LdapTestCase
+{
+  private static final int MAX_BUFFERED_BYTES = 64 * 1024;
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  private ServerSocketChannel serverChannel;
+  private SocketChannel serverSide;
+  private SocketChannel clientSide;
+  private ExecutorService executor;
+
+  @BeforeMethod
+  public void connect() throws Exception
+  {
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    clientSide = SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+    serverSide = serverChannel.accept();
+    serverSide.configureBlocking(false);
+    clientSide.configureBlocking(false);
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterMethod
+  public void disconnect() throws Exception
+  {
+    executor.shutdownNow();
+    serverSide.close();
+    clientSide.close();
+    serverChannel.close();
+  }
+
+  @Test
+  public void testWritesAreBufferedWhenClientDoesNotRead() throws Exception
+  {
+    final LDAPStatistics stats = new LDAPStatistics("test");
+    final AsynchronousWriteChannel channel =
+        new AsynchronousWriteChannel(serverSide, stats, true, MAX_BUFFERED_BYTES, 10000);
+
+    // Fill the socket buffers, then the outbound buffer, without ever blocking.
+    int written = 0;
+    byte next = 0;
+    while (channel.getBufferedBytes() < MAX_BUFFERED_BYTES)
+    {
+      next = writeChunk(channel, next);
+      written += CHUNK_SIZE;
+    }
+    assertThat(channel.getBufferedBytes()).isGreaterThanOrEqualTo(MAX_BUFFERED_BYTES);
+    assertThat(getMonitorValue(stats, "outboundBufferedBytes")).isEqualTo(channel.getBufferedBytes());
+
+    // The client reads everything, in order, as the outbound buffer is drained.
+    readAndDrain(channel, written);
+    assertThat(channel.getBufferedBytes()).isZero();
+    assertThat(getMonitorValue(stats, "outboundBufferedBytes")).isZero();
+    assertThat(getMonitorValue(stats, "bytesWritten")).isEqualTo(written);
+  }
+
+  @Test
+  public void testWriteIsSuspendedUntilOutboundBufferIsDrained() throws Exception
+  {
+    final LDAPStatistics stats = new LDAPStatistics("test");
+    final AsynchronousWriteChannel channel =
+        new AsynchronousWriteChannel(serverSide, stats, false, MAX_BUFFERED_BYTES, 10000);
+
+    int written = 0;
+    byte next = 0;
+    while (channel.getBufferedBytes() < MAX_BUFFERED_BYTES)
+    {
+      next = writeChunk(channel, next);
+      written += CHUNK_SIZE;
+    }
+
+    final byte suspendedChunk = next;
+    final Future<Byte> suspendedWrite = executor.submit(new Callable<Byte>()
+    {
+      @Override
+      public Byte call() throws Exception
+      {
+        return writeChunk(channel, suspendedChunk);
+      }
+    });
+    try
+    {
+      suspendedWrite.get(200, TimeUnit.MILLISECONDS);
+      fail("The write should have been suspended");
+    }
+    catch (TimeoutException expected)
+    {
+      assertThat(getMonitorValue(stats, "suspendedWrites")).isEqualTo(1);
+    }
+
+    readAndDrain(channel, written + CHUNK_SIZE);
+    suspendedWrite.get(10, TimeUnit.SECONDS);
+    assertThat(getMonitorValue(stats, "suspendedWrites")).isZero();
+    assertThat(getMonitorValue(stats, "writeSuspensions")).isEqualTo(1);
+  }
+
+  @Test
+  public void testSuspendedWriteFailsWhenBufferIsDiscarded() throws Exception
+  {
+    final AsynchronousWriteChannel channel =
+        new AsynchronousWriteChannel(serverSide, new LDAPStatistics("test"), false, MAX_BUFFERED_BYTES, 10000);
+    byte next = 0;
+    while (channel.getBufferedBytes() < MAX_BUFFERED_BYTES)
+    {
+      next = writeChunk(channel, next);
+    }
+
+    final byte suspendedChunk = next;
+    final Future<Byte> suspendedWrite = executor.submit(new Callable<Byte>()
+    {
+      @Override
+      public Byte call() throws Exception
+      {
+        return writeChunk(channel, suspendedChunk);
+      }
+    });
+    Thread.sleep(100);
+    channel.discardOutboundBuffer();
+
+    try
+    {
+      suspendedWrite.get(10, TimeUnit.SECONDS);
+      fail("The suspended write should have failed");
+    }
+    catch (ExecutionException e)
+    {
+      assertThat(e.getCause()).isInstanceOf(ClosedChannelException.class);
+    }
+    assertThat(channel.getBufferedBytes()).isZero();
+  }
+
+  @Test(expectedExceptions = ClosedChannelException.class)
+  public void testSuspendedWriteTimesOut() throws Exception
+  {
+    final AsynchronousWriteChannel channel =
+        new AsynchronousWriteChannel(serverSide, new LDAPStatistics("test"), false, MAX_BUFFERED_BYTES, 100);
+    byte next = 0;
+    while (true)
+    {
+      next = writeChunk(channel, next);
+    }
+  }
+
+  @Test(expectedExceptions = ClosedChannelException.class)
+  public void testWriteFailsAsSoonAsTheBufferIsFullWithoutSuspendedWriteTimeLimit() throws Exception
+  {
+    final AsynchronousWriteChannel channel =
+        new AsynchronousWriteChannel(serverSide, new LDAPStatistics("test"), false, MAX_BUFFERED_BYTES, 0);
+    byte next = 0;
+    while (channel.getBufferedBytes() < MAX_BUFFERED_BYTES)
+    {
+      next = writeChunk(channel, next);
+    }
+    writeChunk(channel, next);
+  }
+
+  /** Writes a chunk whose bytes follow the sequence started by the previous chunks. */
+  private static byte writeChunk(AsynchronousWriteChannel channel, byte first) throws IOException
+  {
+    final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+    byte b = first;
+    while (chunk.hasRemaining())
+    {
+      chunk.put(b++);
+    }
+    chunk.flip();
+    assertThat(channel.write(chunk)).isEqualTo(CHUNK_SIZE);
+    assertThat(chunk.hasRemaining()).isFalse();
+    return b;
+  }
+
+  /** Reads the expected number of bytes from the client side, draining the outbound buffer as the selector would. */
+  private void readAndDrain(AsynchronousWriteChannel channel, int expectedBytes) throws Exception
+  {
+    final ByteBuffer received = ByteBuffer.allocate(CHUNK_SIZE);
+    final long deadline = System.currentTimeMillis() + 10000;
+    byte expected = 0;
+    int read = 0;
+    while (read < expectedBytes)
+    {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      channel.drainOutboundBuffer();
+      received.clear();
+      final int n = clientSide.read(received);
+      assertThat(n).isGreaterThanOrEqualTo(0);
+      if (n == 0)
+      {
+        Thread.sleep(1);
+        continue;
+      }
+      received.flip();
+      while (received.hasRemaining())
+      {
+        assertThat(received.get()).isEqualTo(expected++);
+      }
+      read += n;
+    }
+    assertThat(channel.drainOutboundBuffer()).isTrue();
+  }
+
+  private static long getMonitorValue(LDAPStatistics stats, String attributeName)
+  {
+    for (Attribute attribute : stats.getMonitorData())
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equalsIgnoreCase(attributeName))
+      {
+        return Long.parseLong(attribute.iterator().next().toString());
+      }
+    }
+    throw new AssertionError("Missing monitor attribute " + attributeName);
+  }
+}
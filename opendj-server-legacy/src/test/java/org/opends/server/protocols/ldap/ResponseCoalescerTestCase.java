@@ -0,0 +1,258 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 OpenDJ contributors.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests the coalescing of the responses sent to the clients. */
+@SuppressWarnings("javadoc")
+public class ResponseCoalescerTestCase extends LdapTestCase
+{
+  private static final int MAX_BUFFERED_BYTES = 1024;
+
+  /** Records the bytes and the number of writes it receives. */
+  private static final class RecordingChannel implements WritableByteChannel
+  {
+    private final ByteStringBuilder received = new ByteStringBuilder();
+    private int writes;
+    /** Holds back the writes until released, as a client which does not read. */
+    private volatile CountDownLatch writesReleased = new CountDownLatch(0);
+
+    @Override
+    public int write(ByteBuffer src) throws IOException
+    {
+      try
+      {
+        writesReleased.await();
+      }
+      catch (InterruptedException e)
+      {
+        throw new InterruptedIOException();
+      }
+      return record(src);
+    }
+
+    private synchronized int record(ByteBuffer src)
+    {
+      final int length = src.remaining();
+      while (src.hasRemaining())
+      {
+        received.appendByte(src.get());
+      }
+      writes++;
+      return length;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+      // Nothing to do.
+    }
+
+    synchronized int getWrites()
+    {
+      return writes;
+    }
+
+    synchronized ByteString getReceived()
+    {
+      return received.toByteString();
+    }
+  }
+
+  private RecordingChannel channel;
+  private ScheduledExecutorService scheduler;
+  private ResponseCoalescer coalescer;
+
+  @BeforeMethod
+  public void createCoalescer()
+  {
+    channel = new RecordingChannel();
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    coalescer = newCoalescer(60000);
+  }
+
+  @AfterMethod
+  public void stopScheduler()
+  {
+    scheduler.shutdownNow();
+  }
+
+  private ResponseCoalescer newCoalescer(long maxDelay)
+  {
+    return new ResponseCoalescer(channel, null, MAX_BUFFERED_BYTES, maxDelay, scheduler, new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          coalescer.flushAfterDelay();
+        }
+        catch (IOException e)
+        {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+  }
+
+  private static ByteStringBuilder response(int length, int value)
+  {
+    final ByteStringBuilder builder = new ByteStringBuilder();
+    for (int i = 0; i < length; i++)
+    {
+      builder.appendByte(value);
+    }
+    return builder;
+  }
+
+  @Test
+  public void testSearchResultsAreWrittenWithTheCompletingResponse() throws Exception
+  {
+    final ByteStringBuilder expected = new ByteStringBuilder();
+    for (int i = 0; i < 10; i++)
+    {
+      coalescer.write(response(50, i), false);
+      expected.appendBytes(response(50, i));
+    }
+    assertThat(channel.getWrites()).isEqualTo(0);
+    assertThat(coalescer.getPendingBytes()).isEqualTo(500);
+
+    coalescer.write(response(10, 0xff), true);
+    expected.appendBytes(response(10, 0xff));
+
+    assertThat(channel.getWrites()).isEqualTo(1);
+    assertThat(channel.getReceived()).isEqualTo(expected.toByteString());
+    assertThat(coalescer.getPendingBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSearchResultsAreWrittenOnceTheBufferIsFull() throws Exception
+  {
+    for (int i = 0; i < 16; i++)
+    {
+      coalescer.write(response(MAX_BUFFERED_BYTES / 8, i), false);
+    }
+
+    assertThat(channel.getWrites()).isEqualTo(2);
+    assertThat(channel.getReceived().length()).isEqualTo(2 * MAX_BUFFERED_BYTES);
+    assertThat(coalescer.getPendingBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLargeResponsesAreWrittenDirectly() throws Exception
+  {
+    coalescer.write(response(2 * MAX_BUFFERED_BYTES, 1), false);
+
+    assertThat(channel.getWrites()).isEqualTo(1);
+    assertThat(coalescer.getPendingBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPendingResponsesAreWrittenAfterTheDelay() throws Exception
+  {
+    coalescer = newCoalescer(10);
+    coalescer.write(response(50, 1), false);
+    coalescer.write(response(50, 2), false);
+
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (channel.getWrites() == 0 && System.currentTimeMillis() < deadline)
+    {
+      Thread.sleep(5);
+    }
+    assertThat(channel.getWrites()).isEqualTo(1);
+    assertThat(channel.getReceived().length()).isEqualTo(100);
+  }
+
+  @Test
+  public void testDelayedFlushDoesNotWaitForASlowWrite() throws Exception
+  {
+    coalescer.write(response(50, 1), false);
+
+    // The completing response is written by another thread, which the client holds back
+    final CountDownLatch writesReleased = new CountDownLatch(1);
+    channel.writesReleased = writesReleased;
+    final Thread writer = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          coalescer.write(response(2 * MAX_BUFFERED_BYTES, 2), true);
+        }
+        catch (IOException e)
+        {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    writer.start();
+    while (writer.getState() != Thread.State.WAITING)
+    {
+      Thread.sleep(1);
+    }
+
+    // The scheduler is shared by all the connections, so the delayed flush must not wait for the writer
+    scheduler.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        coalescer.flushAfterDelay();
+        return null;
+      }
+    }).get(10, TimeUnit.SECONDS);
+
+    writesReleased.countDown();
+    writer.join();
+    assertThat(channel.getReceived().length()).isEqualTo(50 + 2 * MAX_BUFFERED_BYTES);
+    assertThat(coalescer.getPendingBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testResponsesAreNotHeldBackOnceTheSchedulerIsStopped() throws Exception
+  {
+    scheduler.shutdown();
+    coalescer.write(response(50, 1), false);
+
+    assertThat(channel.getWrites()).isEqualTo(1);
+    assertThat(coalescer.getPendingBytes()).isEqualTo(0);
+  }
+}
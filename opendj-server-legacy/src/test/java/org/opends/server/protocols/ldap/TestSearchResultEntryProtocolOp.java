@@ -24,6 +24,7 @@ import static org.testng.Assert.*;
 import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Reader;
 import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.opends.server.TestCaseUtils;
 import org.opends.server.types.Attribute;
@@ -207,6 +208,37 @@ public class TestSearchResultEntryProtocolOp extends LdapTestCase
                          protocolOp.getAttributes()));
   }
 
+  /**
+   * Test that encoding the attributes of the entry in place produces the same
+   * bytes as encoding them once converted to LDAPAttributes.
+   *
+   * @param entry The entry to encode.
+   * @throws Exception On failure.
+   */
+  @Test(dataProvider = "entries")
+  public void testDirectEncodingMatchesLDAPAttributeEncoding(Entry entry) throws Exception
+  {
+    for (int ldapVersion : new int[] { 2, 3 })
+    {
+      SearchResultEntryProtocolOp direct =
+          new SearchResultEntryProtocolOp(new SearchResultEntry(entry), ldapVersion);
+
+      SearchResultEntryProtocolOp converted =
+          new SearchResultEntryProtocolOp(new SearchResultEntry(entry), ldapVersion);
+      converted.getAttributes();
+
+      assertEquals(encode(direct), encode(converted), "LDAPv" + ldapVersion);
+    }
+  }
+
+  private ByteString encode(SearchResultEntryProtocolOp protocolOp) throws Exception
+  {
+    ByteStringBuilder builder = new ByteStringBuilder();
+    ASN1Writer writer = ASN1.getWriter(builder);
+    protocolOp.write(writer);
+    return builder.toByteString();
+  }
+
   @Test (expectedExceptions = LDAPException.class)
   public void testInvalidSequence() throws Exception
   {